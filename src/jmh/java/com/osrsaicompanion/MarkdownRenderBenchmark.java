@@ -0,0 +1,43 @@
+package com.osrsaicompanion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a typical reply to panel HTML. While a reply streams in, the whole text so
+ * far is re-rendered on every update, so this runs many times per reply.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownRenderBenchmark
+{
+	private static final String REPLY =
+		"Nice work on **70 Prayer**! Here is what I would do next:\n" +
+		"\n" +
+		"- Keep using *dragon bones* at a gilded altar, about 2,000 gp each\n" +
+		"- Unlock **Piety** once you have 70 Defence & finish King's Ransom\n" +
+		"- Stock up on <prayer potions> before your fire cape attempt\n" +
+		"\n" +
+		"You are at 68/70 HP and 43/70 Prayer right now, so top up before heading out.\n" +
+		"* Bank at Castle Wars, then take the minigame teleport\n" +
+		"* Bring a **Saradomin brew** or two for Jad";
+
+	@Benchmark
+	public String renderMarkdown()
+	{
+		return AiCompanionPanel.renderMarkdown(REPLY);
+	}
+}
@@ -0,0 +1,80 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assembling and writing a request body for a conversation of the given length: the
+ * per-turn prefix, the history with its cache breakpoints, and the bytes OkHttp would
+ * send. The prompts are the same every time, as they are between most real turns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessagesRequestBenchmark
+{
+	@Param({"10", "100", "1000"})
+	public int messages;
+
+	private MessagesRequestEncoder encoder;
+	private ConversationLog.Snapshot history;
+	private String slowPrompt;
+	private String fastPrompt;
+
+	@Setup
+	public void setUp()
+	{
+		encoder = new MessagesRequestEncoder(new Gson());
+		ConversationLog log = new ConversationLog();
+		for (int i = 0; i < messages; i++)
+		{
+			JsonObject message = new JsonObject();
+			message.addProperty("role", i % 2 == 0 ? "user" : "assistant");
+			message.addProperty("content", i % 2 == 0
+				? "<t:2026-01-01T12:00:00Z> How much are dragon bones worth right now, and is it worth banking them?"
+				: "Dragon bones are about 2,000 gp each. At your Prayer level, burying them is slow; take them to a gilded altar instead.");
+			log.append(message);
+		}
+		history = log.snapshot();
+
+		StringBuilder slow = new StringBuilder("You are Claude, an AI assistant responding to Scrambles56 in Old School RuneScape. ");
+		for (int i = 0; i < 40; i++)
+		{
+			slow.append("Skill ").append(i).append(" - 70 (737,627 XP), ");
+		}
+		slowPrompt = slow.toString();
+		fastPrompt = "Current live state: HP: 68/70. Prayer: 43/70. Run energy: 75.0%. Coins: 1,204,330 gp.";
+	}
+
+	@Benchmark
+	public long encodeAndWrite() throws IOException
+	{
+		MessagesRequestEncoder.RequestPrefix prefix = encoder.encodePrefix(
+			AiModel.SONNET.getModelId(), 1024, true, slowPrompt, null, fastPrompt, true);
+		RequestBody body = encoder.encode(prefix, history);
+		Buffer sink = new Buffer();
+		body.writeTo(sink);
+		long size = sink.size();
+		sink.clear();
+		return size;
+	}
+}
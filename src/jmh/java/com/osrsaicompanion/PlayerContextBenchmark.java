@@ -0,0 +1,137 @@
+package com.osrsaicompanion;
+
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.Player;
+import net.runelite.api.Skill;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.client.game.ItemManager;
+import org.mockito.MockSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * System prompt building against a stubbed client: a mid-level account with a full
+ * inventory, worn gear and an open bank. The snapshot benchmarks are what the client
+ * thread pays; the build benchmarks format a prepared snapshot, as the worker does. The
+ * stubs are stub-only Mockito mocks, which do not record calls, so their cost stays flat
+ * across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerContextBenchmark
+{
+	private static final int VARROCK = 12853;
+	private static final int UNNAMED_REGION = 1;
+
+	private PlayerContextBuilder contextBuilder;
+	private PlayerSnapshot snapshot;
+
+	@Setup
+	public void setUp()
+	{
+		Client client = mock(Client.class, stubOnly());
+		Player player = mock(Player.class, stubOnly());
+		when(player.getName()).thenReturn("Scrambles56");
+		when(player.getCombatLevel()).thenReturn(95);
+		when(player.getWorldLocation()).thenReturn(new WorldPoint(3212, 3428, 0));
+		when(client.getLocalPlayer()).thenReturn(player);
+		for (Skill skill : Skill.values())
+		{
+			when(client.getRealSkillLevel(skill)).thenReturn(70);
+			when(client.getBoostedSkillLevel(skill)).thenReturn(68);
+			when(client.getSkillExperience(skill)).thenReturn(737_627);
+		}
+		when(client.getEnergy()).thenReturn(7_500);
+		// Quest.getState runs the quest status script and reads its result off the stack
+		when(client.getIntStack()).thenReturn(new int[]{2});
+		when(client.getItemContainer(InventoryID.INVENTORY)).thenReturn(container(28));
+		when(client.getItemContainer(InventoryID.EQUIPMENT)).thenReturn(container(11));
+		when(client.getItemContainer(InventoryID.BANK)).thenReturn(container(400));
+
+		ItemManager itemManager = mock(ItemManager.class, stubOnly());
+		ItemComposition composition = mock(ItemComposition.class, stubOnly());
+		when(composition.getName()).thenReturn("Dragon bones");
+		when(itemManager.getItemComposition(anyInt())).thenReturn(composition);
+
+		OsrsAiCompanionConfig config = mock(OsrsAiCompanionConfig.class, stubOnly());
+		when(config.companionTone()).thenReturn(CompanionTone.NONE);
+		when(config.playerGoal()).thenReturn("Get a fire cape");
+
+		contextBuilder = new PlayerContextBuilder(client, itemManager, config);
+		snapshot = contextBuilder.snapshot();
+	}
+
+	@Benchmark
+	public PlayerSnapshot snapshot()
+	{
+		return contextBuilder.snapshot();
+	}
+
+	@Benchmark
+	public PlayerSnapshot snapshotAfterQuestChange()
+	{
+		contextBuilder.invalidateQuestStates();
+		return contextBuilder.snapshot();
+	}
+
+	@Benchmark
+	public String buildSlowSystemPrompt()
+	{
+		return contextBuilder.buildSlowSystemPrompt(snapshot);
+	}
+
+	@Benchmark
+	public String buildFastSystemPrompt()
+	{
+		return contextBuilder.buildFastSystemPrompt(snapshot);
+	}
+
+	@Benchmark
+	public String getAreaName()
+	{
+		return contextBuilder.getAreaName(VARROCK);
+	}
+
+	@Benchmark
+	public String getAreaNameUnknown()
+	{
+		return contextBuilder.getAreaName(UNNAMED_REGION);
+	}
+
+	private static ItemContainer container(int size)
+	{
+		Item[] items = new Item[size];
+		for (int i = 0; i < size; i++)
+		{
+			items[i] = new Item(526 + i, 1 + i % 3);
+		}
+		ItemContainer container = mock(ItemContainer.class, stubOnly());
+		when(container.getItems()).thenReturn(items);
+		return container;
+	}
+
+	private static MockSettings stubOnly()
+	{
+		return withSettings().stubOnly();
+	}
+}
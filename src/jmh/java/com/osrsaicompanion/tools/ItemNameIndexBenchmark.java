@@ -0,0 +1,74 @@
+package com.osrsaicompanion.tools;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item name resolution against an index the size of the GE (4,000 names of metal
+ * equipment, which share more trigrams with each other than real item names do).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemNameIndexBenchmark
+{
+	private static final int ITEMS = 4_000;
+	private static final String[] METALS = {"Bronze", "Iron", "Steel", "Black", "Mithril", "Adamant", "Rune", "Dragon"};
+	private static final String[] KINDS = {"full helm", "med helm", "platebody", "chainbody", "platelegs", "plateskirt",
+		"kiteshield", "sq shield", "scimitar", "longsword", "dagger", "mace", "warhammer", "battleaxe", "2h sword",
+		"pickaxe", "axe", "claws", "halberd", "spear", "arrow", "bolts", "dart", "knife", "javelin", "gauntlets", "boots"};
+
+	private ItemNameIndex index;
+
+	@Setup
+	public void setUp()
+	{
+		int[] ids = new int[ITEMS];
+		String[] names = new String[ITEMS];
+		for (int i = 0; i < ITEMS; i++)
+		{
+			int variant = i / (METALS.length * KINDS.length);
+			ids[i] = i;
+			names[i] = METALS[i % METALS.length] + " " + KINDS[i / METALS.length % KINDS.length]
+				+ (variant > 0 ? " " + variant : "");
+		}
+		index = new ItemNameIndex(ids, names);
+	}
+
+	@Benchmark
+	public ItemNameIndex.Match exact()
+	{
+		return index.find("Mithril platebody");
+	}
+
+	@Benchmark
+	public ItemNameIndex.Match alias()
+	{
+		return index.find("iron gloves");
+	}
+
+	@Benchmark
+	public ItemNameIndex.Match misspelled()
+	{
+		return index.find("adamnt scimmitar");
+	}
+
+	@Benchmark
+	public ItemNameIndex.Match unknown()
+	{
+		return index.find("unobtainium sword");
+	}
+}
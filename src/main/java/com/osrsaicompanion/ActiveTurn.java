@@ -0,0 +1,150 @@
+package com.osrsaicompanion;
+
+import okhttp3.Call;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Everything one conversation turn currently has in flight: the HTTP call, a scheduled
+ * retry or a round of tool executions. {@link #cancel()} aborts whichever of these is
+ * pending and makes every later callback of the turn a no-op, so a cleared or superseded
+ * turn can no longer write into the conversation.
+ *
+ * A turn moves through its stages one at a time, so at most one of the three handles is
+ * live; registering a handle after the turn was cancelled cancels it straight away.
+ */
+public class ActiveTurn
+{
+	public enum Source
+	{
+		/** Typed by the player; supersedes any turn in flight. */
+		USER,
+		/** A reaction to an in-game event; only started when nothing else is in flight. */
+		EVENT
+	}
+
+	private final Source source;
+	private final RequestRouter.Route route;
+	private final long startedNanos = System.nanoTime();
+	private volatile boolean cancelled;
+	private Call call;
+	private Future<?> pendingRetry;
+	private Future<?> toolRound;
+	// History messages this turn has added so far, so a superseded turn can be rolled back
+	private int appendedMessages;
+	// Set before the first request if the reply may be reused, see ResponseCache
+	private volatile ResponseCache.Key cacheKey;
+	private final Set<String> toolsUsed = new HashSet<>();
+
+	public ActiveTurn(Source source, RequestRouter.Route route)
+	{
+		this.source = source;
+		this.route = route;
+	}
+
+	public Source getSource()
+	{
+		return source;
+	}
+
+	public RequestRouter.Route getRoute()
+	{
+		return route;
+	}
+
+	/**
+	 * {@link System#nanoTime()} when the turn was started.
+	 */
+	public long getStartedNanos()
+	{
+		return startedNanos;
+	}
+
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	public synchronized void setCall(Call call)
+	{
+		this.call = call;
+		if (cancelled)
+		{
+			call.cancel();
+		}
+	}
+
+	public synchronized void setPendingRetry(Future<?> pendingRetry)
+	{
+		this.pendingRetry = pendingRetry;
+		if (cancelled)
+		{
+			pendingRetry.cancel(false);
+		}
+	}
+
+	public synchronized void setToolRound(Future<?> toolRound)
+	{
+		this.toolRound = toolRound;
+		if (cancelled)
+		{
+			toolRound.cancel(true);
+		}
+	}
+
+	public ResponseCache.Key getCacheKey()
+	{
+		return cacheKey;
+	}
+
+	public void setCacheKey(ResponseCache.Key cacheKey)
+	{
+		this.cacheKey = cacheKey;
+	}
+
+	public synchronized void toolUsed(String toolName)
+	{
+		toolsUsed.add(toolName);
+	}
+
+	public synchronized boolean hasUsedTool(String toolName)
+	{
+		return toolsUsed.contains(toolName);
+	}
+
+	synchronized void messageAppended()
+	{
+		appendedMessages++;
+	}
+
+	synchronized int getAppendedMessages()
+	{
+		return appendedMessages;
+	}
+
+	/**
+	 * Aborts the turn. Safe to call more than once and from any thread.
+	 */
+	public synchronized void cancel()
+	{
+		if (cancelled)
+		{
+			return;
+		}
+		cancelled = true;
+		if (call != null)
+		{
+			call.cancel();
+		}
+		if (pendingRetry != null)
+		{
+			pendingRetry.cancel(false);
+		}
+		if (toolRound != null)
+		{
+			toolRound.cancel(true);
+		}
+	}
+}
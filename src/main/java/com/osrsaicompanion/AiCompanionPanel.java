@@ -22,7 +22,11 @@ public class AiCompanionPanel extends PluginPanel
 	private JTextField inputField;
 	private JButton sendButton;
 	private Element thinkingElement;
+	private Element streamElement;
+	private final StringBuilder streamText = new StringBuilder();
+	private int streamCounter;
 	private JTextArea goalArea;
+	private JLabel connectionLabel;
 
 	private static final String INITIAL_HTML = "<html><body id='body'></body></html>";
 
@@ -35,7 +39,9 @@ public class AiCompanionPanel extends PluginPanel
 		".label { font-size: 10px; opacity: 0.7; margin-bottom: 2px; }" +
 		".thinking { color: #888888; font-style: italic; margin: 4px 6px; }" +
 		".error { color: #ff4444; margin: 4px 6px; }" +
-		".event { color: #ffaa00; font-style: italic; text-align: center; margin: 4px 0; font-size: 11px; }";
+		".event { color: #ffaa00; font-style: italic; text-align: center; margin: 4px 0; font-size: 11px; }" +
+		".cached { color: #9a9a9a; font-weight: normal; }" +
+		".stats { color: #8fbc8f; font-family: monospace; font-size: 10px; margin: 4px 6px; }";
 
 	public AiCompanionPanel(OsrsAiCompanionPlugin plugin)
 	{
@@ -62,11 +68,30 @@ public class AiCompanionPanel extends PluginPanel
 		clearButton.setFocusPainted(false);
 		clearButton.addActionListener((ActionEvent e) -> {
 			plugin.clearHistory();
+			thinkingElement = null;
+			streamElement = null;
 			chatArea.setText(INITIAL_HTML);
 		});
 
+		connectionLabel = new JLabel();
+		connectionLabel.setFont(connectionLabel.getFont().deriveFont(10f));
+		connectionLabel.setBorder(BorderFactory.createEmptyBorder(2, 0, 0, 0));
+		connectionLabel.setVisible(false);
+
+		JPanel topButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+		topButtons.setOpaque(false);
+		if (plugin.isDeveloperMode())
+		{
+			JButton statsButton = new JButton("Stats");
+			statsButton.setFocusPainted(false);
+			statsButton.addActionListener((ActionEvent e) -> appendStatsMessage(plugin.getMetricsSummary()));
+			topButtons.add(statsButton);
+		}
+		topButtons.add(clearButton);
+
 		topBar.add(titleLabel, BorderLayout.CENTER);
-		topBar.add(clearButton, BorderLayout.EAST);
+		topBar.add(topButtons, BorderLayout.EAST);
+		topBar.add(connectionLabel, BorderLayout.SOUTH);
 
 		// Goal section
 		JPanel goalPanel = new JPanel(new BorderLayout());
@@ -176,11 +201,23 @@ public class AiCompanionPanel extends PluginPanel
 	}
 
 	public void appendClaudeMessage(String text, String responseModel)
+	{
+		appendClaudeBubble(text, escapeHtml(getPersonaName(responseModel)));
+	}
+
+	/**
+	 * Shows a reply reused from an earlier answer to the same question, labelled as such.
+	 */
+	public void appendCachedClaudeMessage(String text)
+	{
+		appendClaudeBubble(text, escapeHtml(getPersonaName(null)) + " <span class='cached'>(cached)</span>");
+	}
+
+	private void appendClaudeBubble(String text, String name)
 	{
 		removeThinkingIndicator();
 		String stripped = stripEmoji(stripTimestampTags(text));
 		String rendered = renderMarkdown(stripped);
-		String name = escapeHtml(getPersonaName(responseModel));
 		appendHtml(
 			"<div class='claude-row'>" +
 			"<div class='claude-bubble'>" +
@@ -191,9 +228,101 @@ public class AiCompanionPanel extends PluginPanel
 		setInputEnabled(true);
 	}
 
+	/**
+	 * Appends a streamed text delta to the current Claude bubble, creating the bubble on
+	 * the first delta of a response. The whole bubble is re-rendered each time so that
+	 * markdown spanning several deltas (e.g. **bold**) comes out right.
+	 */
+	public void appendClaudeStreamText(String delta, String responseModel)
+	{
+		HTMLDocument doc = (HTMLDocument) chatArea.getDocument();
+		if (streamElement == null)
+		{
+			removeThinkingIndicator();
+			streamText.setLength(0);
+			String id = "stream-" + (++streamCounter);
+			String name = escapeHtml(getPersonaName(responseModel));
+			appendHtml(
+				"<div class='claude-row'>" +
+				"<div class='claude-bubble'>" +
+				"<div class='label'>" + name + "</div>" +
+				"<div id='" + id + "'></div>" +
+				"</div></div>"
+			);
+			streamElement = doc.getElement(id);
+			if (streamElement == null)
+			{
+				return;
+			}
+		}
+		streamText.append(delta);
+		// Hide a timestamp tag that has only partially arrived so far
+		String visible = stripTimestampTags(streamText.toString()).replaceAll("<t:[^>]*$", "");
+		setStreamHtml(renderMarkdown(stripEmoji(visible)));
+	}
+
+	/**
+	 * Completes the streamed bubble with the final text and re-enables input. Falls back
+	 * to a regular message when nothing was streamed (e.g. streaming is disabled).
+	 */
+	public void finishClaudeStream(String text, String responseModel)
+	{
+		if (streamElement == null)
+		{
+			appendClaudeMessage(text, responseModel);
+			return;
+		}
+		setStreamHtml(renderMarkdown(stripEmoji(stripTimestampTags(text))));
+		streamElement = null;
+		streamText.setLength(0);
+		setInputEnabled(true);
+	}
+
+	/**
+	 * Detaches the current streamed bubble (leaving its text in place) when the response
+	 * turned into a tool call, and shows the thinking indicator until the next round.
+	 */
+	public void endClaudeStream()
+	{
+		if (streamElement == null)
+		{
+			return;
+		}
+		streamElement = null;
+		streamText.setLength(0);
+		appendThinkingIndicator();
+	}
+
+	private void setStreamHtml(String html)
+	{
+		HTMLDocument doc = (HTMLDocument) chatArea.getDocument();
+		try
+		{
+			doc.setInnerHTML(streamElement, "<div>" + html + "</div>");
+		}
+		catch (BadLocationException | IOException e)
+		{
+			// ignore render errors
+		}
+		SwingUtilities.invokeLater(() ->
+			scrollPane.getVerticalScrollBar().setValue(scrollPane.getVerticalScrollBar().getMaximum())
+		);
+	}
+
+	/**
+	 * Stops appending to the reply being streamed, leaving whatever arrived so far on
+	 * screen. Used when that reply's turn is cancelled.
+	 */
+	public void abandonClaudeStream()
+	{
+		streamElement = null;
+		streamText.setLength(0);
+	}
+
 	public void appendErrorMessage(String text)
 	{
 		removeThinkingIndicator();
+		streamElement = null;
 		String escaped = escapeHtml(text);
 		appendHtml("<div class='error'>" + escaped + "</div>");
 		setInputEnabled(true);
@@ -201,6 +330,8 @@ public class AiCompanionPanel extends PluginPanel
 
 	public void appendThinkingIndicator()
 	{
+		// A cancelled turn may have left its own indicator behind
+		removeThinkingIndicator();
 		String name = escapeHtml(getPersonaName(null));
 		appendHtml("<div id='thinking' class='thinking'>" + name + " is thinking...</div>");
 		thinkingElement = ((HTMLDocument) chatArea.getDocument()).getElement("thinking");
@@ -212,6 +343,19 @@ public class AiCompanionPanel extends PluginPanel
 		appendHtml("<div class='event'>" + escaped + "</div>");
 	}
 
+	/**
+	 * Shows the pipeline timings and token totals; developer mode only.
+	 */
+	public void appendStatsMessage(java.util.List<String> lines)
+	{
+		StringBuilder html = new StringBuilder("<div class='stats'>");
+		for (String line : lines)
+		{
+			html.append(escapeHtml(line)).append("<br>");
+		}
+		appendHtml(html.append("</div>").toString());
+	}
+
 	private void removeThinkingIndicator()
 	{
 		if (thinkingElement != null)
@@ -221,6 +365,29 @@ public class AiCompanionPanel extends PluginPanel
 		}
 	}
 
+	/**
+	 * Shows a warning under the title while the API circuit breaker is not closed.
+	 */
+	public void setConnectionState(CircuitBreaker.State state)
+	{
+		switch (state)
+		{
+			case OPEN:
+				connectionLabel.setText("Claude API unreachable — requests paused");
+				connectionLabel.setForeground(new Color(0xff, 0x44, 0x44));
+				connectionLabel.setVisible(true);
+				break;
+			case HALF_OPEN:
+				connectionLabel.setText("Reconnecting — your next message will retry");
+				connectionLabel.setForeground(new Color(0xff, 0xaa, 0x00));
+				connectionLabel.setVisible(true);
+				break;
+			default:
+				connectionLabel.setVisible(false);
+				break;
+		}
+	}
+
 	public void setInputEnabled(boolean enabled)
 	{
 		inputField.setEnabled(enabled);
@@ -285,7 +452,7 @@ public class AiCompanionPanel extends PluginPanel
 		return text.replaceAll("[\\x{1F000}-\\x{1FFFF}]|[\\x{2600}-\\x{27FF}]|[\\x{2300}-\\x{23FF}]|\\x{FE0F}", "").trim();
 	}
 
-	private static String renderMarkdown(String text)
+	static String renderMarkdown(String text)
 	{
 		if (text == null) return "";
 		// Split into lines and process each one
@@ -1,5 +1,6 @@
 package com.osrsaicompanion;
 
+import com.google.gson.JsonObject;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -7,12 +8,56 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public enum AiModel
 {
-	HAIKU("claude-haiku-4-5-20251001", "Haiku 4.5"),
-	SONNET("claude-sonnet-4-5-20250929", "Sonnet 4.5"),
-	OPUS("claude-opus-4-5-20251124", "Opus 4.5");
+	HAIKU("claude-haiku-4-5-20251001", "Haiku 4.5", 200_000, 24_000, 4096, 1.0, 5.0),
+	SONNET("claude-sonnet-4-5-20250929", "Sonnet 4.5", 200_000, 16_000, 1024, 3.0, 15.0),
+	OPUS("claude-opus-4-5-20251124", "Opus 4.5", 200_000, 12_000, 4096, 5.0, 25.0);
+
+	// Used when the model of a request is not one of ours
+	static final int DEFAULT_MIN_CACHEABLE_TOKENS = 1024;
 
 	private final String modelId;
 	private final String displayName;
+	private final int contextWindow;
+	// Tokens of conversation history kept between turns. Every request re-sends the whole
+	// history, so pricier models get a tighter budget.
+	private final int historyTokenBudget;
+	// Shortest prefix the API will cache; a breakpoint in front of less than this is ignored
+	private final int minCacheableTokens;
+	// US dollars per million tokens
+	private final double inputPrice;
+	private final double outputPrice;
+
+	/**
+	 * What a response cost in US dollars, from its usage block. Cache writes are billed at
+	 * 1.25x the input price and cache reads at 0.1x.
+	 */
+	public double cost(JsonObject usage)
+	{
+		if (usage == null)
+		{
+			return 0;
+		}
+		double input = PromptCacheStats.count(usage, "input_tokens") * inputPrice
+			+ PromptCacheStats.count(usage, "cache_creation_input_tokens") * inputPrice * 1.25
+			+ PromptCacheStats.count(usage, "cache_read_input_tokens") * inputPrice * 0.1;
+		double output = PromptCacheStats.count(usage, "output_tokens") * outputPrice;
+		return (input + output) / 1_000_000;
+	}
+
+	/**
+	 * The minimum cacheable prefix for a model ID, falling back to the smallest any model uses.
+	 */
+	public static int minCacheableTokens(String modelId)
+	{
+		for (AiModel model : values())
+		{
+			if (model.modelId.equals(modelId))
+			{
+				return model.minCacheableTokens;
+			}
+		}
+		return DEFAULT_MIN_CACHEABLE_TOKENS;
+	}
 
 	@Override
 	public String toString()
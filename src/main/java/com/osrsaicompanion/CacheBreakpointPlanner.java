@@ -0,0 +1,308 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonObject;
+
+import java.util.Arrays;
+
+/**
+ * Decides which blocks of a request carry the (at most four) cache_control breakpoints.
+ *
+ * A request is a sequence of blocks in the order the API caches them: tools, slow system
+ * block, history summary, fast system block, then the history messages. A breakpoint after
+ * block k lets the next request read everything up to k from the cache, provided none of
+ * those blocks has changed. The planner measures how often each block changes between
+ * requests and how much of what it expected to be read actually was (the cache expires
+ * after a few idle minutes), and picks the breakpoints that maximise the tokens expected
+ * to be read next time, less the premium paid for writing blocks that will not be reused.
+ *
+ * Until it has seen {@link #WARM_UP_RESPONSES} responses it uses the fixed layout the
+ * plugin has always used: tools, slow block, summary and the second-to-last message.
+ */
+public class CacheBreakpointPlanner
+{
+	static final int MAX_BREAKPOINTS = 4;
+	static final int WARM_UP_RESPONSES = 5;
+
+	// Block positions ahead of the history messages
+	static final int TOOLS = 0;
+	static final int SLOW = 1;
+	static final int SUMMARY = 2;
+	static final int FAST = 3;
+	static final int FIRST_MESSAGE = 4;
+
+	// Cache reads cost a tenth of normal input, cache writes a quarter more
+	private static final double READ_SAVING = 0.9;
+	private static final double WRITE_PREMIUM = 0.25;
+	private static final double ALPHA = 0.2;
+
+	private final TokenEstimator tokenEstimator;
+
+	// Guarded by this. Chance that each block is unchanged from one request to the next;
+	// the first message stands for the whole history, which only changes when it is trimmed.
+	private double slowStability = 0.9;
+	private double summaryStability = 0.9;
+	private double fastStability = 0.5;
+	private double historyStability = 0.9;
+	// Fraction of the expected cache reads that actually happened
+	private double warmth = 1.0;
+	private int responses;
+	// Raw tokens the request just planned should read from the previous request's writes
+	private long expectedRead;
+	private long[] lastBreakpointPrefixes = new long[0];
+	private int[] lastBreakpointBlocks = new int[0];
+
+	public CacheBreakpointPlanner(TokenEstimator tokenEstimator)
+	{
+		this.tokenEstimator = tokenEstimator;
+	}
+
+	/**
+	 * Plans the breakpoints for one request and records what changed since the previous one.
+	 *
+	 * @param blockTokens raw token estimates per block: tools, slow, summary (0 if there is
+	 *                    none), fast, then one per history message
+	 * @param changed     which of slow, summary, fast and the first history message differ
+	 *                    from the previous request, indexed by block position; null for the
+	 *                    first request
+	 * @param minCacheableTokens the model's shortest cacheable prefix, in real tokens
+	 * @return whether each block carries a breakpoint
+	 */
+	public synchronized boolean[] plan(long[] blockTokens, boolean[] changed, int minCacheableTokens)
+	{
+		if (changed != null)
+		{
+			observe(changed);
+		}
+
+		boolean[] breakpoints = responses < WARM_UP_RESPONSES
+			? fixedLayout(blockTokens)
+			: optimise(blockTokens, stabilities(blockTokens.length), warmth, tokenEstimator.toRaw(minCacheableTokens));
+
+		int count = 0;
+		for (int i = 0; i < blockTokens.length; i++)
+		{
+			if (breakpoints[i])
+			{
+				count++;
+			}
+		}
+		lastBreakpointPrefixes = new long[count];
+		lastBreakpointBlocks = new int[count];
+		int n = 0;
+		long prefix = 0;
+		for (int i = 0; i < blockTokens.length; i++)
+		{
+			prefix += blockTokens[i];
+			if (breakpoints[i])
+			{
+				lastBreakpointPrefixes[n] = prefix;
+				lastBreakpointBlocks[n] = i;
+				n++;
+			}
+		}
+		return breakpoints;
+	}
+
+	/**
+	 * Compares the cache reads a response reports with what the plan expected to be read.
+	 */
+	public synchronized void recordUsage(JsonObject usage)
+	{
+		if (usage == null)
+		{
+			return;
+		}
+		responses++;
+		long expected = tokenEstimator.toTokens(expectedRead);
+		if (expected > 0)
+		{
+			long read = PromptCacheStats.count(usage, "cache_read_input_tokens");
+			warmth = ewma(warmth, Math.min(1.0, (double) read / expected));
+		}
+		else if (lastBreakpointBlocks.length == 0)
+		{
+			// With no breakpoints there is nothing to measure; drift back up so that a
+			// session whose cache kept expiring tries again once turns come quicker
+			warmth = ewma(warmth, 1.0);
+		}
+		expectedRead = 0;
+	}
+
+	public synchronized double getWarmth()
+	{
+		return warmth;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return String.format("stability slow=%.2f summary=%.2f fast=%.2f history=%.2f, warmth=%.2f",
+			slowStability, summaryStability, fastStability, historyStability, warmth);
+	}
+
+	private void observe(boolean[] changed)
+	{
+		slowStability = ewma(slowStability, changed[SLOW] ? 0 : 1);
+		summaryStability = ewma(summaryStability, changed[SUMMARY] ? 0 : 1);
+		fastStability = ewma(fastStability, changed[FAST] ? 0 : 1);
+		historyStability = ewma(historyStability, changed.length > FIRST_MESSAGE && changed[FIRST_MESSAGE] ? 0 : 1);
+
+		// The previous request's longest breakpoint in front of the first change is what
+		// this one should be able to read
+		int firstChange = Integer.MAX_VALUE;
+		for (int i = 0; i < changed.length; i++)
+		{
+			if (changed[i])
+			{
+				firstChange = i;
+				break;
+			}
+		}
+		expectedRead = 0;
+		for (int i = 0; i < lastBreakpointBlocks.length; i++)
+		{
+			if (lastBreakpointBlocks[i] < firstChange)
+			{
+				expectedRead = lastBreakpointPrefixes[i];
+			}
+		}
+	}
+
+	private double[] stabilities(int blocks)
+	{
+		double[] stability = new double[blocks];
+		for (int i = 0; i < blocks; i++)
+		{
+			stability[i] = 1.0;
+		}
+		stability[SLOW] = slowStability;
+		stability[SUMMARY] = summaryStability;
+		stability[FAST] = fastStability;
+		if (blocks > FIRST_MESSAGE)
+		{
+			stability[FIRST_MESSAGE] = historyStability;
+		}
+		return stability;
+	}
+
+	/**
+	 * The layout used before there is anything to go on.
+	 */
+	static boolean[] fixedLayout(long[] blockTokens)
+	{
+		boolean[] breakpoints = new boolean[blockTokens.length];
+		breakpoints[TOOLS] = true;
+		breakpoints[SLOW] = true;
+		breakpoints[SUMMARY] = blockTokens[SUMMARY] > 0;
+		int messages = blockTokens.length - FIRST_MESSAGE;
+		if (messages >= 2)
+		{
+			breakpoints[FIRST_MESSAGE + messages - 2] = true;
+		}
+		return breakpoints;
+	}
+
+	/**
+	 * Picks up to {@link #MAX_BREAKPOINTS} blocks maximising
+	 * <pre>
+	 *   sum over breakpoints k: READ_SAVING * (h(k) - h(next)) * prefix(k)
+	 *                         - WRITE_PREMIUM * (prefix(k) - prefix(previous)) * (1 - h(k))
+	 * </pre>
+	 * where h(k) is the chance the prefix up to k is still cached for the next request
+	 * (warmth times the stability of every block up to k) and h is 0 past the last
+	 * breakpoint. The value only depends on neighbouring breakpoints, so it is solved
+	 * exactly with a dynamic programme over (last breakpoint, breakpoints used).
+	 * Blocks whose prefix is shorter than minRawTokens, or that are empty, are skipped.
+	 */
+	static boolean[] optimise(long[] blockTokens, double[] stability, double warmth, long minRawTokens)
+	{
+		int n = blockTokens.length;
+		long[] prefix = new long[n];
+		double[] hit = new double[n];
+		long runningTokens = 0;
+		double runningHit = warmth;
+		for (int i = 0; i < n; i++)
+		{
+			runningTokens += blockTokens[i];
+			runningHit *= stability[i];
+			prefix[i] = runningTokens;
+			hit[i] = runningHit;
+		}
+
+		// best[k][c]: best value of c breakpoints ending at block k, counting every term
+		// except the read term of k itself, which depends on the breakpoint after it
+		double[][] best = new double[n][MAX_BREAKPOINTS + 1];
+		int[][] from = new int[n][MAX_BREAKPOINTS + 1];
+		for (double[] row : best)
+		{
+			Arrays.fill(row, Double.NEGATIVE_INFINITY);
+		}
+
+		for (int k = 0; k < n; k++)
+		{
+			if (blockTokens[k] <= 0 || prefix[k] < minRawTokens)
+			{
+				continue;
+			}
+			double write = WRITE_PREMIUM * (1 - hit[k]);
+			best[k][1] = -write * prefix[k];
+			from[k][1] = -1;
+			for (int c = 2; c <= MAX_BREAKPOINTS; c++)
+			{
+				for (int j = 0; j < k; j++)
+				{
+					if (best[j][c - 1] == Double.NEGATIVE_INFINITY)
+					{
+						continue;
+					}
+					double value = best[j][c - 1]
+						+ READ_SAVING * (hit[j] - hit[k]) * prefix[j]
+						- write * (prefix[k] - prefix[j]);
+					if (value > best[k][c])
+					{
+						best[k][c] = value;
+						from[k][c] = j;
+					}
+				}
+			}
+		}
+
+		// Close off with the last breakpoint's read term; no breakpoints at all is worth 0
+		double bestValue = 0;
+		int bestLast = -1;
+		int bestCount = 0;
+		for (int k = 0; k < n; k++)
+		{
+			for (int c = 1; c <= MAX_BREAKPOINTS; c++)
+			{
+				if (best[k][c] == Double.NEGATIVE_INFINITY)
+				{
+					continue;
+				}
+				double value = best[k][c] + READ_SAVING * hit[k] * prefix[k];
+				if (value > bestValue)
+				{
+					bestValue = value;
+					bestLast = k;
+					bestCount = c;
+				}
+			}
+		}
+
+		boolean[] breakpoints = new boolean[n];
+		for (int k = bestLast, c = bestCount; k >= 0; k = from[k][c], c--)
+		{
+			breakpoints[k] = true;
+			if (c == 1)
+			{
+				break;
+			}
+		}
+		return breakpoints;
+	}
+
+	private static double ewma(double current, double sample)
+	{
+		return current + ALPHA * (sample - current);
+	}
+}
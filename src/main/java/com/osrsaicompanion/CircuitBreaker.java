@@ -0,0 +1,146 @@
+package com.osrsaicompanion;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending requests to the Messages API for a while after it has failed several
+ * times in a row, so a player on a broken connection gets an immediate error instead of
+ * a long string of timeouts.
+ *
+ * CLOSED is normal operation. After {@link #FAILURE_THRESHOLD} consecutive failures the
+ * breaker OPENs and every request is refused until {@link #COOLDOWN_MS} has passed. It
+ * then goes HALF_OPEN and lets a single trial request through: success closes it again,
+ * failure re-opens it for another cooldown.
+ */
+@Slf4j
+public class CircuitBreaker
+{
+	public enum State
+	{
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+
+	static final int FAILURE_THRESHOLD = 5;
+	static final long COOLDOWN_MS = 30_000;
+
+	private final LongSupplier clock;
+	private volatile Consumer<State> stateListener = s -> { };
+
+	// Guarded by this
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean trialInFlight;
+
+	public CircuitBreaker()
+	{
+		this(System::currentTimeMillis);
+	}
+
+	CircuitBreaker(LongSupplier clock)
+	{
+		this.clock = clock;
+	}
+
+	/**
+	 * Called with the new state on every transition, on whichever thread caused it.
+	 */
+	public void setStateListener(Consumer<State> stateListener)
+	{
+		this.stateListener = stateListener;
+	}
+
+	public synchronized State getState()
+	{
+		return state;
+	}
+
+	/**
+	 * Whether a request may be sent now. In HALF_OPEN only the first caller is let through.
+	 */
+	public synchronized boolean allowRequest()
+	{
+		refresh();
+		switch (state)
+		{
+			case CLOSED:
+				return true;
+			case HALF_OPEN:
+				if (trialInFlight)
+				{
+					return false;
+				}
+				trialInFlight = true;
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	public synchronized void recordSuccess()
+	{
+		consecutiveFailures = 0;
+		trialInFlight = false;
+		if (state != State.CLOSED)
+		{
+			log.info("[AI] Claude API reachable again, circuit closed");
+			transition(State.CLOSED);
+		}
+	}
+
+	public synchronized void recordFailure()
+	{
+		consecutiveFailures++;
+		trialInFlight = false;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD))
+		{
+			openedAt = clock.getAsLong();
+			log.warn("[AI] {} consecutive API failures, pausing requests for {}s", consecutiveFailures, COOLDOWN_MS / 1000);
+			transition(State.OPEN);
+		}
+	}
+
+	/**
+	 * For a request that was cancelled before it got an answer: it says nothing about the
+	 * API, but must not keep holding the HALF_OPEN trial slot.
+	 */
+	public synchronized void recordCancelled()
+	{
+		trialInFlight = false;
+	}
+
+	/**
+	 * Moves an OPEN breaker to HALF_OPEN once its cooldown is over. Requests do this
+	 * themselves; calling it from a timer just lets the state change be shown sooner.
+	 */
+	public synchronized void refresh()
+	{
+		if (state == State.OPEN && remainingCooldownMillis() == 0)
+		{
+			transition(State.HALF_OPEN);
+		}
+	}
+
+	/**
+	 * How much longer an OPEN breaker will refuse requests; 0 in any other state.
+	 */
+	public synchronized long remainingCooldownMillis()
+	{
+		if (state != State.OPEN)
+		{
+			return 0;
+		}
+		return Math.max(0, openedAt + COOLDOWN_MS - clock.getAsLong());
+	}
+
+	private void transition(State next)
+	{
+		state = next;
+		stateListener.accept(next);
+	}
+}
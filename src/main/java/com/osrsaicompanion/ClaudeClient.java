@@ -5,12 +5,11 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.osrsaicompanion.tools.ClaudeTools;
-import lombok.RequiredArgsConstructor;
+import com.osrsaicompanion.tools.ToolExecutor;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.callback.ClientThread;
 import okhttp3.Call;
 import okhttp3.Callback;
-import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -21,151 +20,451 @@ import javax.swing.SwingUtilities;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Slf4j
-@RequiredArgsConstructor
 public class ClaudeClient
 {
-	private static final String API_URL = "https://api.anthropic.com/v1/messages";
-	private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
-	private static final int MAX_HISTORY_CHARS = 32_000;
+	static final String API_URL = "https://api.anthropic.com/v1/messages";
 
 	private final OkHttpClient httpClient;
 	private final Gson gson;
 	private final OsrsAiCompanionConfig config;
 	private final PlayerContextBuilder contextBuilder;
-	private final ClaudeTools claudeTools;
 	private final ClientThread clientThread;
 
 	private static final int MAX_TOOL_ROUNDS = 10;
+	// Once history passes its budget it is trimmed to this fraction of it, so the cached
+	// prefix survives many turns instead of shifting by a message every turn.
+	private static final double HISTORY_LOW_WATER = 0.6;
+	// Messages brought back from the journal when an account logs in
+	private static final int RESTORE_MESSAGES = 40;
+	private static final long METRICS_LOG_INTERVAL_MS = 5 * 60_000;
 
-	private final List<JsonObject> conversationHistory = Collections.synchronizedList(new ArrayList<>());
+	private final ConversationLog conversationLog = new ConversationLog();
+	private final MessagesRequestEncoder requestEncoder;
+	private final RequestRouter router;
+	private final TokenEstimator tokenEstimator = new TokenEstimator();
+	private final CacheBreakpointPlanner breakpointPlanner;
+	private final CompanionMetrics metrics = new CompanionMetrics();
+	private final ResponseCache responseCache = new ResponseCache();
+	private final PromptCacheStats cacheStats = metrics.getCacheStats();
+	// Only touched by the scheduler thread
+	private long lastLoggedTurns;
+	private final HistorySummarizer historySummarizer;
+	private final ToolExecutor toolExecutor;
+	private volatile ConversationJournal journal;
+	private volatile String apiUrl = API_URL;
 	private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor();
+	private final RetryPolicy retryPolicy = new RetryPolicy();
+	private final CircuitBreaker circuitBreaker = new CircuitBreaker();
 	public volatile boolean apiCallInProgress = false;
+	// The turn whose call, retry or tool round is in flight; guarded by this
+	private ActiveTurn activeTurn;
+	// Set at login until the first turn on the configured model has been timed
+	private volatile boolean firstTurnPending;
+	private volatile boolean cacheWarmed;
+	private volatile Runnable idleListener = () -> { };
+	private volatile Consumer<CircuitBreaker.State> connectionListener = s -> { };
 
-	// Tracks tool results that were already returned as not-found/not-tradeable this turn.
-	// Key: "toolName:inputKey=inputValue", value: the cached result string.
-	// Cleared at the start of each new user message so it doesn't persist across turns.
-	private final java.util.concurrent.ConcurrentHashMap<String, String> toolResultCache = new java.util.concurrent.ConcurrentHashMap<>();
+	public ClaudeClient(OkHttpClient httpClient, Gson gson, OsrsAiCompanionConfig config,
+		PlayerContextBuilder contextBuilder, ClaudeTools claudeTools, ClientThread clientThread)
+	{
+		this.httpClient = httpClient;
+		this.gson = gson;
+		this.config = config;
+		this.contextBuilder = contextBuilder;
+		this.clientThread = clientThread;
+		this.router = new RequestRouter(config);
+		this.breakpointPlanner = new CacheBreakpointPlanner(tokenEstimator);
+		this.requestEncoder = new MessagesRequestEncoder(gson, breakpointPlanner);
+		this.historySummarizer = new HistorySummarizer(httpClient, gson, config);
+		this.toolExecutor = new ToolExecutor(claudeTools, clientThread);
+		this.toolExecutor.setTimingListener(metrics::recordTool);
+		this.historySummarizer.setSummaryListener(summary -> {
+			ConversationJournal j = journal;
+			if (j != null)
+			{
+				j.recordSummary(summary);
+			}
+		});
+		this.circuitBreaker.setStateListener(state -> {
+			if (state == CircuitBreaker.State.OPEN)
+			{
+				// Nothing else would notice the cooldown ending until the next request
+				schedule(circuitBreaker::refresh, CircuitBreaker.COOLDOWN_MS);
+			}
+			connectionListener.accept(state);
+		});
+		retryScheduler.scheduleAtFixedRate(this::logMetrics, METRICS_LOG_INTERVAL_MS, METRICS_LOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Starts a turn for a message typed by the player. Any turn still in flight is
+	 * cancelled and its partial exchange removed from history first.
+	 */
+	public synchronized void sendMessage(String userPrompt, AiCompanionPanel panel)
+	{
+		startTurn(userPrompt, panel, ActiveTurn.Source.USER);
+	}
 
-	public void sendMessage(String userPrompt, AiCompanionPanel panel)
+	/**
+	 * Sends the prompt only if no call is in flight. Used for event reactions so they never
+	 * overlap a conversation turn.
+	 */
+	public synchronized boolean sendIfIdle(String prompt, AiCompanionPanel panel)
+	{
+		if (apiCallInProgress)
+		{
+			return false;
+		}
+		startTurn(prompt, panel, ActiveTurn.Source.EVENT);
+		return true;
+	}
+
+	/**
+	 * Cancels the turn in flight, if any, and removes what it added to history. Returns
+	 * true if there was one.
+	 */
+	public boolean cancelActiveTurn()
 	{
-		toolResultCache.clear();
+		ActiveTurn turn;
+		synchronized (this)
+		{
+			turn = activeTurn;
+			if (turn == null)
+			{
+				return false;
+			}
+			abandon(turn);
+		}
+		finishCall(null);
+		return true;
+	}
+
+	// Caller holds the lock
+	private void startTurn(String prompt, AiCompanionPanel panel, ActiveTurn.Source source)
+	{
+		ActiveTurn previous = activeTurn;
+		if (previous != null)
+		{
+			log.info("[AI] Cancelling {} turn in favour of a new {} turn", previous.getSource(), source);
+			abandon(previous);
+			SwingUtilities.invokeLater(() -> {
+				if (panel != null)
+				{
+					panel.abandonClaudeStream();
+				}
+			});
+		}
+
+		ActiveTurn turn = new ActiveTurn(source, RequestRouter.classify(source, prompt));
+		activeTurn = turn;
+		apiCallInProgress = true;
 		JsonObject userMessage = new JsonObject();
 		userMessage.addProperty("role", "user");
-		userMessage.addProperty("content", withTimestamp(userPrompt));
-		conversationHistory.add(userMessage);
+		userMessage.addProperty("content", withTimestamp(prompt));
+		appendToHistory(turn, userMessage);
+
+		// Only the snapshot needs the client thread (Quest.getState() and the item containers);
+		// formatting and encoding run on the scheduler so they never cost the client a frame
+		clientThread.invokeLater(() -> {
+			if (turn.isCancelled())
+			{
+				return;
+			}
+			metrics.recordSince(CompanionMetrics.Phase.CLIENT_THREAD_WAIT, turn.getStartedNanos());
+			PlayerSnapshot snapshot = takeSnapshot();
+			if (schedule(() -> callApi(turn, prompt, snapshot, panel), 0) == null)
+			{
+				finishCall(turn);
+			}
+		});
+	}
 
-		// buildSlowSystemPrompt() calls Quest.getState() which requires the client thread
-		clientThread.invokeLater(() -> callApi(panel));
+	// Caller holds the lock. Cancels everything the turn has in flight and rolls history
+	// back to where it started, so no half-finished exchange (e.g. a tool_use without its
+	// tool_result) is left for the next request.
+	private void abandon(ActiveTurn turn)
+	{
+		turn.cancel();
+		activeTurn = null;
+		int rolledBack = conversationLog.removeNewest(turn.getAppendedMessages());
+		ConversationJournal j = journal;
+		if (j != null && rolledBack > 0)
+		{
+			j.recordRollback(rolledBack);
+		}
 	}
 
-	public void clearHistory()
+	public boolean isBusy()
 	{
-		conversationHistory.clear();
+		return apiCallInProgress;
 	}
 
-	// Must be called on the client thread (buildSlowSystemPrompt needs it for Quest.getState())
-	public void callApi(AiCompanionPanel panel)
+	/**
+	 * Called on an arbitrary thread every time a call finishes, successfully or not.
+	 */
+	public void setIdleListener(Runnable idleListener)
 	{
-		apiCallInProgress = true;
+		this.idleListener = idleListener;
+	}
 
-		JsonObject requestBody = new JsonObject();
-		requestBody.addProperty("model", config.model().getModelId());
-		requestBody.addProperty("max_tokens", config.maxTokens());
-		JsonObject cacheControl = new JsonObject();
-		cacheControl.addProperty("type", "ephemeral");
+	/**
+	 * Called with the circuit breaker's state whenever it changes, from a background thread.
+	 */
+	public void setConnectionListener(Consumer<CircuitBreaker.State> connectionListener)
+	{
+		this.connectionListener = connectionListener;
+	}
 
-		JsonObject slowBlock = new JsonObject();
-		slowBlock.addProperty("type", "text");
-		slowBlock.addProperty("text", contextBuilder.buildSlowSystemPrompt());
-		slowBlock.add("cache_control", cacheControl);
+	/**
+	 * Points this client (and its history summarizer) at another Messages API endpoint.
+	 * Only for tests against a local stand-in server.
+	 */
+	void setApiUrl(String apiUrl)
+	{
+		this.apiUrl = apiUrl;
+		historySummarizer.setApiUrl(apiUrl);
+	}
 
-		JsonObject fastBlock = new JsonObject();
-		fastBlock.addProperty("type", "text");
-		fastBlock.addProperty("text", contextBuilder.buildFastSystemPrompt());
+	/**
+	 * Marks the start of a play session, once the login has settled. The next turn on the
+	 * configured model is timed as the session's first, and if the config allows it the
+	 * prompt cache is warmed for it first.
+	 */
+	public void startSession()
+	{
+		cacheWarmed = false;
+		firstTurnPending = true;
+		if (config.warmPromptCache())
+		{
+			clientThread.invokeLater(() -> {
+				PlayerSnapshot snapshot = takeSnapshot();
+				schedule(() -> warmUpCache(snapshot), 0);
+			});
+		}
+	}
+
+	public CompanionMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Drops cached tool results that were read from varbits. Called when a varbit or varp
+	 * the diary or combat achievement tools read changes.
+	 */
+	public void invalidateGameStateTools()
+	{
+		toolExecutor.getCache().invalidateGameState();
+	}
 
-		JsonArray systemBlocks = new JsonArray();
-		systemBlocks.add(slowBlock);
-		systemBlocks.add(fastBlock);
+	public void clearHistory()
+	{
+		cancelActiveTurn();
+		conversationLog.clear();
+		historySummarizer.clear();
+		responseCache.clear();
+		ConversationJournal j = journal;
+		if (j != null)
+		{
+			j.clear();
+		}
+	}
+
+	/**
+	 * Switches to the journal of the account that just logged in. The in-memory history is
+	 * replaced by the newest turns from that journal, which are read in the background.
+	 * Passing null stops journalling.
+	 */
+	public void attachJournal(ConversationJournal newJournal, AiCompanionPanel panel)
+	{
+		cancelActiveTurn();
+		ConversationJournal old = journal;
+		journal = newJournal;
+		if (old != null)
+		{
+			old.close();
+		}
+		conversationLog.clear();
+		historySummarizer.clear();
+		responseCache.clear();
+		if (newJournal == null)
+		{
+			return;
+		}
 
-		requestBody.add("system", systemBlocks);
+		newJournal.restore(RESTORE_MESSAGES).thenAccept(restored -> {
+			if (restored.getSummary() != null)
+			{
+				historySummarizer.restore(restored.getSummary());
+			}
+			List<JsonObject> messages = restored.getMessages();
+			int complete = ConversationLog.completeLength(messages);
+			if (complete < messages.size())
+			{
+				// A turn the last session was killed part-way through; it is not restored,
+				// so undo it in the journal before anything is appended after it
+				newJournal.recordRollback(messages.size() - complete);
+			}
+			int count = conversationLog.restore(messages);
+			int skipped = complete - count;
+			if (skipped > 0)
+			{
+				// Keep the journal's live messages in line with what is actually in history
+				newJournal.recordEviction(skipped);
+			}
+			if (count > 0)
+			{
+				log.info("[AI] Restored {} message(s) from the conversation journal", count);
+				SwingUtilities.invokeLater(() -> {
+					if (panel != null)
+					{
+						panel.appendEventMessage("Continuing your last conversation (" + count + " messages)");
+					}
+				});
+			}
+		});
+	}
 
-		// Mark the last tool definition with cache_control so the entire tools array
-		// is cached — it's large and completely static between requests.
-		JsonArray tools = ClaudeTools.buildToolDefinitions();
-		JsonObject lastTool = tools.get(tools.size() - 1).getAsJsonObject();
-		JsonObject toolCacheControl = new JsonObject();
-		toolCacheControl.addProperty("type", "ephemeral");
-		lastTool.add("cache_control", toolCacheControl);
-		requestBody.add("tools", tools);
+	public void shutdown()
+	{
+		// Rolled back so the journal never ends on a half-finished exchange
+		cancelActiveTurn();
+		retryScheduler.shutdownNow();
+		toolExecutor.shutdown();
+		historySummarizer.shutdown();
+		ConversationJournal j = journal;
+		journal = null;
+		if (j != null)
+		{
+			j.close();
+		}
+	}
 
-		log.info("[AI] Sending request (model={}, history={} messages)", config.model().getModelId(), conversationHistory.size());
-		enqueueRequest(requestBody, panel, 0, 0);
+	// Every message goes to both the in-memory log and the on-disk journal. Messages from a
+	// turn that has been cancelled are dropped; returns false in that case.
+	private synchronized boolean appendToHistory(ActiveTurn turn, JsonObject message)
+	{
+		if (turn.isCancelled())
+		{
+			return false;
+		}
+		turn.messageAppended();
+		conversationLog.append(message);
+		ConversationJournal j = journal;
+		if (j != null)
+		{
+			j.append(message);
+		}
+		return true;
 	}
 
+	// Must be called on the client thread
+	private PlayerSnapshot takeSnapshot()
+	{
+		long start = System.nanoTime();
+		PlayerSnapshot snapshot = contextBuilder.snapshot();
+		metrics.recordSince(CompanionMetrics.Phase.SNAPSHOT, start);
+		return snapshot;
+	}
 
-	// Builds the messages array, placing a cache_control breakpoint on the second-to-last
-	// message so the full conversation history up to that point gets cached between turns.
-	// Only messages with plain string content are wrapped; array-content messages (tool
-	// use / tool result turns) are passed through unchanged.
-	private JsonArray buildMessagesWithCache()
+	// Runs on the scheduler thread, with game state copied beforehand on the client thread
+	private void callApi(ActiveTurn turn, String prompt, PlayerSnapshot snapshot, AiCompanionPanel panel)
 	{
-		synchronized (conversationHistory)
+		if (turn.isCancelled())
 		{
-			JsonArray messages = new JsonArray();
-			int size = conversationHistory.size();
-			// We cache up to (but not including) the final user message, so we need at
-			// least 2 messages for the breakpoint to make sense.
-			int cacheIndex = size - 2;
+			return;
+		}
+
+		long promptStart = System.nanoTime();
+		String slowSystemPrompt = contextBuilder.buildSlowSystemPrompt(snapshot);
+		String fastSystemPrompt = contextBuilder.buildFastSystemPrompt(snapshot);
+		metrics.recordSince(CompanionMetrics.Phase.SYSTEM_PROMPT, promptStart);
 
-			for (int i = 0; i < size; i++)
+		if (turn.getSource() == ActiveTurn.Source.USER && config.reuseAnswers())
+		{
+			ResponseCache.Key cacheKey = ResponseCache.key(prompt, cacheState(slowSystemPrompt, snapshot));
+			String cached = cacheKey != null ? responseCache.get(cacheKey) : null;
+			if (cached != null)
 			{
-				JsonObject msg = conversationHistory.get(i);
-				if (i == cacheIndex && msg.get("content").isJsonPrimitive())
-				{
-					// Wrap the plain-string content in an array block with cache_control
-					JsonObject textBlock = new JsonObject();
-					textBlock.addProperty("type", "text");
-					textBlock.addProperty("text", msg.get("content").getAsString());
-
-					JsonObject cc = new JsonObject();
-					cc.addProperty("type", "ephemeral");
-					textBlock.add("cache_control", cc);
-
-					JsonArray contentArray = new JsonArray();
-					contentArray.add(textBlock);
-
-					JsonObject cachedMsg = new JsonObject();
-					cachedMsg.addProperty("role", msg.get("role").getAsString());
-					cachedMsg.add("content", contentArray);
-					messages.add(cachedMsg);
-				}
-				else
-				{
-					messages.add(msg);
-				}
+				answerFromCache(turn, cached, panel);
+				return;
 			}
-			return messages;
+			turn.setCacheKey(cacheKey);
+		}
+
+		RequestRouter.Route route = turn.getRoute();
+		AiModel model = router.model(route);
+		long encodeStart = System.nanoTime();
+		MessagesRequestEncoder.RequestPrefix prefix = requestEncoder.encodePrefix(
+			model.getModelId(),
+			router.maxTokens(route),
+			config.streamResponses(),
+			slowSystemPrompt,
+			historySummarizer.getSummary(),
+			fastSystemPrompt,
+			route.isToolsEnabled());
+		metrics.recordSince(CompanionMetrics.Phase.SERIALIZE, encodeStart);
+
+		log.info("[AI] Sending {} request (model={}, history={} messages)", route.getLabel(), model.getModelId(), conversationLog.size());
+		enqueueRequest(prefix, panel, turn, 0, 0);
+	}
+
+	// What a reused answer must have been given in
+	private Map<ResponseCache.Dependency, String> cacheState(String slowSystemPrompt, PlayerSnapshot snapshot)
+	{
+		Map<ResponseCache.Dependency, String> state = new EnumMap<>(ResponseCache.Dependency.class);
+		state.put(ResponseCache.Dependency.PROGRESS, PlayerContextBuilder.withoutXp(slowSystemPrompt));
+		state.put(ResponseCache.Dependency.LOCATION, contextBuilder.getLocationKey(snapshot));
+		state.put(ResponseCache.Dependency.ITEMS, contextBuilder.getItemsKey(snapshot));
+		state.put(ResponseCache.Dependency.SLAYER, contextBuilder.getSlayerTask(snapshot));
+		return state;
+	}
+
+	// Ends the turn with an earlier reply to the same question; it still goes into history
+	// so the conversation reads the same as if Claude had answered
+	private void answerFromCache(ActiveTurn turn, String answer, AiCompanionPanel panel)
+	{
+		log.info("[AI] Answered from the response cache");
+		JsonObject assistantMessage = new JsonObject();
+		assistantMessage.addProperty("role", "assistant");
+		assistantMessage.addProperty("content", withTimestamp(answer));
+		if (!appendToHistory(turn, assistantMessage))
+		{
+			return;
 		}
+		metrics.recordCachedAnswer();
+		finishCall(turn);
+		SwingUtilities.invokeLater(() -> {
+			if (panel != null)
+			{
+				panel.appendCachedClaudeMessage(answer);
+			}
+		});
 	}
 
-	private void enqueueRequest(JsonObject requestBody, AiCompanionPanel panel, int toolRound, int retryCount)
+	private void enqueueRequest(MessagesRequestEncoder.RequestPrefix prefix, AiCompanionPanel panel, ActiveTurn turn, int toolRound, int retryCount)
 	{
-		// Rebuild the messages array from conversationHistory on every call so that
-		// tool results added between rounds are included in the next request.
-		requestBody.add("messages", buildMessagesWithCache());
-		log.info("[AI] enqueueRequest toolRound={} retryCount={} history={}", toolRound, retryCount, conversationHistory.size());
+		if (turn.isCancelled())
+		{
+			return;
+		}
+		log.info("[AI] enqueueRequest toolRound={} retryCount={} history={}", toolRound, retryCount, conversationLog.size());
 
 		if (toolRound >= MAX_TOOL_ROUNDS)
 		{
-			apiCallInProgress = false;
+			finishCall(turn);
 			log.warn("[AI] Aborting after {} tool rounds to prevent infinite loop", MAX_TOOL_ROUNDS);
 			SwingUtilities.invokeLater(() -> {
 				if (panel != null)
@@ -176,70 +475,82 @@ public class ClaudeClient
 			return;
 		}
 
-		if (retryCount >= MAX_TOOL_ROUNDS)
+		if (!circuitBreaker.allowRequest())
 		{
-			apiCallInProgress = false;
-			log.warn("[AI] Aborting after {} retries", MAX_TOOL_ROUNDS);
+			finishCall(turn);
+			long waitSecs = Math.max(1, (circuitBreaker.remainingCooldownMillis() + 999) / 1000);
+			log.warn("[AI] Circuit open, refusing request ({}s of cooldown left)", waitSecs);
 			SwingUtilities.invokeLater(() -> {
 				if (panel != null)
 				{
-					panel.appendErrorMessage("Error: Rate limit hit repeatedly — please wait a minute and try again");
+					panel.appendErrorMessage("Error: Claude API is unreachable — try again in " + waitSecs + "s");
 				}
 			});
 			return;
 		}
 
-		Request request = new Request.Builder()
-			.url(API_URL)
-			.header("Content-Type", "application/json")
-			.header("x-api-key", config.apiKey())
-			.header("anthropic-version", "2023-06-01")
-			.header("anthropic-beta", "prompt-caching-2024-07-31")
-			.post(RequestBody.create(JSON, gson.toJson(requestBody)))
-			.build();
+		// Re-encode the messages on every call so that tool results added between rounds
+		// are included in the next request. Previously sent messages reuse their bytes.
+		long encodeStart = System.nanoTime();
+		ConversationLog.Snapshot history = conversationLog.snapshot();
+		RequestBody requestBody = requestEncoder.encode(prefix, history);
+		metrics.recordSince(CompanionMetrics.Phase.SERIALIZE, encodeStart);
+		long estimatedTokens = prefix.getEstimatedTokens() + history.totalTokens();
 
-		httpClient.newCall(request).enqueue(new Callback()
+		Call apiCall = httpClient.newCall(newRequest(requestBody));
+		turn.setCall(apiCall);
+		long sentAt = System.nanoTime();
+		apiCall.enqueue(new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
 			{
-				log.error("[AI] API call failed (retry {})", retryCount + 1, e);
-				enqueueRequest(requestBody, panel, toolRound, retryCount + 1);
+				if (turn.isCancelled())
+				{
+					log.info("[AI] Cancelled {} turn's request", turn.getSource());
+					circuitBreaker.recordCancelled();
+					return;
+				}
+				circuitBreaker.recordFailure();
+				log.warn("[AI] API call failed: {}", e.toString());
+				retryOrFail(prefix, panel, turn, toolRound, retryCount, null, "Error: Could not reach Claude — check your connection");
 			}
 
 			@Override
 			public void onResponse(Call call, Response response) throws IOException
 			{
+				metrics.recordSince(CompanionMetrics.Phase.FIRST_BYTE, sentAt);
 				try (ResponseBody body = response.body())
 				{
-					if (response.code() == 429)
+					int code = response.code();
+					if (RetryPolicy.isServerFailure(code))
+					{
+						circuitBreaker.recordFailure();
+					}
+					else
+					{
+						// Any other answer, even an error, means the API itself is up
+						circuitBreaker.recordSuccess();
+					}
+
+					if (turn.isCancelled())
 					{
-						String retryAfterHeader = response.header("retry-after");
-						long delaySecs = 60; // safe fallback
-						if (retryAfterHeader != null)
-						{
-							try { delaySecs = Long.parseLong(retryAfterHeader.trim()); }
-							catch (NumberFormatException ignored) { }
-						}
-
-						final long waitSecs = delaySecs;
-						log.warn("[AI] Rate limited (429). Retrying in {}s (retry {}/{})", waitSecs, retryCount + 1, MAX_TOOL_ROUNDS);
-						SwingUtilities.invokeLater(() -> {
-							if (panel != null)
-							{
-								panel.appendErrorMessage("Rate limited — retrying in " + waitSecs + "s...");
-							}
-						});
-						retryScheduler.schedule(
-							() -> enqueueRequest(requestBody, panel, toolRound, retryCount + 1),
-							waitSecs, TimeUnit.SECONDS
-						);
+						return;
+					}
+
+					if (RetryPolicy.isRetryable(code))
+					{
+						log.warn("[AI] API returned {}", code);
+						String message = code == 429
+							? "Error: Rate limit hit repeatedly — please wait a minute and try again"
+							: "Error: Claude API returned " + code + " — please try again shortly";
+						retryOrFail(prefix, panel, turn, toolRound, retryCount, response.header("retry-after"), message);
 						return;
 					}
 
 					if (!response.isSuccessful())
 					{
-						apiCallInProgress = false;
+						finishCall(turn);
 						String errorBody = body != null ? body.string() : "Unknown error";
 						log.error("[AI] API error {}: {}", response.code(), errorBody);
 						SwingUtilities.invokeLater(() -> {
@@ -253,7 +564,7 @@ public class ClaudeClient
 
 					if (body == null)
 					{
-						apiCallInProgress = false;
+						finishCall(turn);
 						SwingUtilities.invokeLater(() -> {
 							if (panel != null)
 							{
@@ -263,32 +574,128 @@ public class ClaudeClient
 						return;
 					}
 
-					handleResponse(body.string(), requestBody, panel, toolRound, retryCount);
+					if (prefix.isStream())
+					{
+						handleStream(body, prefix, estimatedTokens, panel, turn, toolRound, retryCount);
+						return;
+					}
+
+					JsonObject parsed;
+					long readStart = System.nanoTime();
+					try
+					{
+						parsed = gson.fromJson(body.string(), JsonObject.class);
+						metrics.recordSince(CompanionMetrics.Phase.RESPONSE, readStart);
+					}
+					catch (Exception e)
+					{
+						finishCall(turn);
+						log.error("Failed to parse Claude response JSON", e);
+						SwingUtilities.invokeLater(() -> {
+							if (panel != null)
+							{
+								panel.appendErrorMessage("Error: Could not parse Claude's response");
+							}
+						});
+						return;
+					}
+					handleResponse(parsed, prefix, estimatedTokens, panel, turn, toolRound, retryCount);
 				}
 			}
 		});
 	}
 
-	private void handleResponse(String responseJson, JsonObject requestBody, AiCompanionPanel panel, int toolRound, int retryCount)
+	// Reads the SSE stream on the OkHttp callback thread, pushing text to the panel as it
+	// arrives, then hands the reassembled message to handleResponse like a normal reply.
+	private void handleStream(ResponseBody body, MessagesRequestEncoder.RequestPrefix prefix, long estimatedTokens, AiCompanionPanel panel, ActiveTurn turn, int toolRound, int retryCount)
 	{
+		PanelTextStream textStream = new PanelTextStream(panel, turn);
+		StreamingResponseParser parser = new StreamingResponseParser(gson, textStream);
+		textStream.parser = parser;
+
 		JsonObject response;
+		long readStart = System.nanoTime();
 		try
 		{
-			response = gson.fromJson(responseJson, JsonObject.class);
+			response = parser.parse(body.source());
+			metrics.recordSince(CompanionMetrics.Phase.RESPONSE, readStart);
 		}
-		catch (Exception e)
+		catch (IOException e)
 		{
-			apiCallInProgress = false;
-			log.error("Failed to parse Claude response JSON", e);
+			if (turn.isCancelled())
+			{
+				// Cancelling the call closes the stream under us
+				return;
+			}
+			circuitBreaker.recordFailure();
+			if (!textStream.hasDelivered())
+			{
+				// Same as failing to connect as long as the player has not seen any of the answer
+				log.warn("[AI] Stream interrupted before any text: {}", e.toString());
+				retryOrFail(prefix, panel, turn, toolRound, retryCount, null, "Error: Connection to Claude was interrupted");
+				return;
+			}
+			finishCall(turn);
+			log.error("[AI] Stream interrupted", e);
 			SwingUtilities.invokeLater(() -> {
 				if (panel != null)
 				{
-					panel.appendErrorMessage("Error: Could not parse Claude's response");
+					panel.appendErrorMessage("Error: Connection to Claude was interrupted");
 				}
 			});
 			return;
 		}
 
+		if (parser.hasError())
+		{
+			boolean serverFailure = "overloaded_error".equals(parser.getErrorType()) || "api_error".equals(parser.getErrorType());
+			if (serverFailure)
+			{
+				circuitBreaker.recordFailure();
+			}
+			if (serverFailure && !textStream.hasDelivered())
+			{
+				// Same as an HTTP 529 as long as the player has not seen any of the answer
+				log.warn("[AI] Stream error {} before any text", parser.getErrorType());
+				retryOrFail(prefix, panel, turn, toolRound, retryCount, null,
+					"Error: Claude API stream failed (" + parser.getErrorType() + ") — please try again shortly");
+				return;
+			}
+			finishCall(turn);
+			log.error("[AI] Stream error {}: {}", parser.getErrorType(), parser.getErrorMessage());
+			SwingUtilities.invokeLater(() -> {
+				if (panel != null)
+				{
+					panel.appendErrorMessage("Error: Claude API stream failed (" + parser.getErrorType() + ")");
+				}
+			});
+			return;
+		}
+
+		handleResponse(response, prefix, estimatedTokens, panel, turn, toolRound, retryCount);
+	}
+
+	private void handleResponse(JsonObject response, MessagesRequestEncoder.RequestPrefix prefix, long estimatedTokens, AiCompanionPanel panel, ActiveTurn turn, int toolRound, int retryCount)
+	{
+		if (turn.isCancelled())
+		{
+			return;
+		}
+		JsonObject usage = response.has("usage") ? response.getAsJsonObject("usage") : null;
+		if (usage != null)
+		{
+			tokenEstimator.calibrate(estimatedTokens, usage);
+			metrics.recordUsage(usage);
+			metrics.recordCost(turn.getRoute(), router.model(turn.getRoute()).cost(usage));
+			breakpointPlanner.recordUsage(usage);
+			log.info("[AI] Usage: input={} cache_read={} cache_write={} output={} ({})",
+				PromptCacheStats.count(usage, "input_tokens"),
+				PromptCacheStats.count(usage, "cache_read_input_tokens"),
+				PromptCacheStats.count(usage, "cache_creation_input_tokens"),
+				PromptCacheStats.count(usage, "output_tokens"),
+				cacheStats);
+		}
+
 		String stopReason = response.has("stop_reason") ? response.get("stop_reason").getAsString() : "";
 		String responseModel = response.has("model") ? response.get("model").getAsString() : null;
 		JsonArray contentBlocks = response.has("content") ? response.getAsJsonArray("content") : new JsonArray();
@@ -298,10 +705,21 @@ public class ClaudeClient
 			// Claude wants to call tools — record its response in history, execute all tools
 			// in parallel, then fire a single continuation once every result is ready.
 			log.info("[AI] stop_reason=tool_use (toolRound={})", toolRound);
+			// Any text streamed before the tool call stays in its own bubble; show the
+			// thinking indicator again while the tools run.
+			SwingUtilities.invokeLater(() -> {
+				if (panel != null)
+				{
+					panel.endClaudeStream();
+				}
+			});
 			JsonObject assistantMessage = new JsonObject();
 			assistantMessage.addProperty("role", "assistant");
 			assistantMessage.add("content", contentBlocks);
-			conversationHistory.add(assistantMessage);
+			if (!appendToHistory(turn, assistantMessage))
+			{
+				return;
+			}
 
 			// Collect all tool_use blocks first so we know the total count
 			List<JsonObject> toolUseBlocks = new ArrayList<>();
@@ -311,13 +729,11 @@ public class ClaudeClient
 				if ("tool_use".equals(block.get("type").getAsString()))
 				{
 					toolUseBlocks.add(block);
+					turn.toolUsed(block.get("name").getAsString());
 				}
 			}
 
-			// Pre-allocate result slots — each thread writes to its own index, no locking needed.
-			// Only the last thread to finish triggers the single API continuation.
-			int toolCount = toolUseBlocks.size();
-			log.info("[AI] Executing {} tool(s) in parallel: {}", toolCount,
+			log.info("[AI] Executing {} tool(s) in parallel: {}", toolUseBlocks.size(),
 				toolUseBlocks.stream().map(b -> {
 					String name = b.get("name").getAsString();
 					JsonObject input = b.has("input") ? b.getAsJsonObject("input") : null;
@@ -325,60 +741,21 @@ public class ClaudeClient
 					if (input != null && input.has("query"))     return name + "(" + input.get("query").getAsString() + ")";
 					return name;
 				}).collect(java.util.stream.Collectors.joining(", ")));
-			JsonObject[] resultSlots = new JsonObject[toolCount];
-			AtomicInteger remaining = new AtomicInteger(toolCount);
-
-			for (int i = 0; i < toolCount; i++)
-			{
-				final int slot = i;
-				JsonObject block = toolUseBlocks.get(slot);
-				String toolUseId = block.get("id").getAsString();
-				String toolName = block.get("name").getAsString();
-				JsonObject toolInput = block.has("input") ? block.getAsJsonObject("input") : null;
-
-				Runnable task = () -> {
-					String toolResult = executeTool(toolName, toolInput);
-					String logKey = toolInput != null && toolInput.has("item_name") ? toolInput.get("item_name").getAsString() :
-						toolInput != null && toolInput.has("query") ? toolInput.get("query").getAsString() : "";
-					log.info("[AI] Tool result for {}({}): [{}]", toolName, logKey,
-						toolResult.replace("\n", "\\n"));
-					JsonObject resultContent = new JsonObject();
-					resultContent.addProperty("type", "tool_result");
-					resultContent.addProperty("tool_use_id", toolUseId);
-					resultContent.addProperty("content", toolResult);
-					boolean isError = toolResult.startsWith("Error:") || toolResult.startsWith("GE price lookup failed") || toolResult.startsWith("Wiki search failed") || toolResult.startsWith("Unknown tool");
-					if (isError)
-					{
-						resultContent.addProperty("is_error", true);
-					}
-					resultSlots[slot] = resultContent;
-
-					// Only the last tool to finish triggers the API continuation
-					if (remaining.decrementAndGet() == 0)
-					{
-						JsonArray toolResults = new JsonArray();
-						for (JsonObject r : resultSlots)
-						{
-							toolResults.add(r);
-						}
-						JsonObject toolResultMessage = new JsonObject();
-						toolResultMessage.addProperty("role", "user");
-						toolResultMessage.add("content", toolResults);
-						conversationHistory.add(toolResultMessage);
-						enqueueRequest(requestBody, panel, toolRound + 1, 0);
-					}
-				};
 
-				// HTTP tools run on OkHttp's thread pool; varbit tools on the client thread
-				if ("search_wiki".equals(toolName) || "get_ge_price".equals(toolName))
+			// One continuation once every tool has answered or timed out
+			long roundStart = System.nanoTime();
+			CompletableFuture<JsonArray> round = toolExecutor.executeRound(toolUseBlocks);
+			turn.setToolRound(round);
+			round.thenAccept(toolResults -> {
+				metrics.recordSince(CompanionMetrics.Phase.TOOL_ROUND, roundStart);
+				JsonObject toolResultMessage = new JsonObject();
+				toolResultMessage.addProperty("role", "user");
+				toolResultMessage.add("content", toolResults);
+				if (appendToHistory(turn, toolResultMessage))
 				{
-					httpClient.dispatcher().executorService().execute(task);
+					enqueueRequest(prefix, panel, turn, toolRound + 1, 0);
 				}
-				else
-				{
-					clientThread.invokeLater(task);
-				}
-			}
+			});
 		}
 		else
 		{
@@ -392,21 +769,31 @@ public class ClaudeClient
 				// Store with timestamp in history for Claude's temporal awareness,
 				// but display the raw text without the timestamp prefix.
 				assistantMessage.addProperty("content", withTimestamp(claudeText));
-				conversationHistory.add(assistantMessage);
-				trimHistoryIfNeeded();
-				apiCallInProgress = false;
+				if (!appendToHistory(turn, assistantMessage))
+				{
+					return;
+				}
+				trimHistoryIfNeeded(prefix);
+				rememberAnswer(turn, claudeText);
+				metrics.recordTurn(turn.getRoute(), turn.getStartedNanos(), toolRound);
+				if (firstTurnPending && router.model(turn.getRoute()) == config.model())
+				{
+					firstTurnPending = false;
+					metrics.recordFirstTurn(cacheWarmed, turn.getStartedNanos());
+				}
+				finishCall(turn);
 
 				final String finalModel = responseModel;
 				SwingUtilities.invokeLater(() -> {
 					if (panel != null)
 					{
-						panel.appendClaudeMessage(claudeText, finalModel);
+						panel.finishClaudeStream(claudeText, finalModel);
 					}
 				});
 			}
 			else
 			{
-				apiCallInProgress = false;
+				finishCall(turn);
 				SwingUtilities.invokeLater(() -> {
 					if (panel != null)
 					{
@@ -417,23 +804,192 @@ public class ClaudeClient
 		}
 	}
 
-	/**
-	 * Returns a copy of requestBody with tool_choice set to {type: "none"}, which
-	 * forces the model to produce a text response without calling any more tools.
-	 * Used after the first tool round to break looping behaviour.
-	 */
-	private JsonObject requestBodyWithNoTools(JsonObject requestBody)
+	// Schedules another attempt with backoff, or gives up and reports errorMessage once
+	// the retry budget is spent. A server asking for a wait longer than RetryPolicy allows
+	// fails the turn at once.
+	private void retryOrFail(MessagesRequestEncoder.RequestPrefix prefix, AiCompanionPanel panel, ActiveTurn turn, int toolRound, int retryCount,
+		String retryAfterHeader, String errorMessage)
+	{
+		if (!retryPolicy.canRetry(retryCount))
+		{
+			finishCall(turn);
+			log.warn("[AI] Giving up after {} retries", retryCount);
+			SwingUtilities.invokeLater(() -> {
+				if (panel != null)
+				{
+					panel.appendErrorMessage(errorMessage);
+				}
+			});
+			return;
+		}
+
+		long delayMs = retryPolicy.delayMillis(retryCount, retryAfterHeader);
+		if (delayMs == RetryPolicy.NO_RETRY)
+		{
+			finishCall(turn);
+			log.warn("[AI] Not retrying, server asked to wait {}s", retryAfterHeader);
+			SwingUtilities.invokeLater(() -> {
+				if (panel != null)
+				{
+					panel.appendErrorMessage("Error: Claude is busy and asked us to wait over a minute — please try again later");
+				}
+			});
+			return;
+		}
+		metrics.recordRetry();
+		log.info("[AI] Retrying in {}ms (retry {}/{})", delayMs, retryCount + 1, RetryPolicy.MAX_RETRIES);
+		if (delayMs >= 5000)
+		{
+			long waitSecs = delayMs / 1000;
+			SwingUtilities.invokeLater(() -> {
+				if (panel != null)
+				{
+					panel.appendEventMessage("Claude is busy — retrying in " + waitSecs + "s...");
+				}
+			});
+		}
+		ScheduledFuture<?> retry = schedule(() -> enqueueRequest(prefix, panel, turn, toolRound, retryCount + 1), delayMs);
+		if (retry == null)
+		{
+			finishCall(turn);
+			return;
+		}
+		turn.setPendingRetry(retry);
+	}
+
+	// Answers that read the player's varbit progress through a tool are not reused: that
+	// progress is not part of the state the cache compares
+	private void rememberAnswer(ActiveTurn turn, String answer)
+	{
+		ResponseCache.Key cacheKey = turn.getCacheKey();
+		if (cacheKey == null
+			|| turn.hasUsedTool("get_achievement_diary_status")
+			|| turn.hasUsedTool("get_combat_achievement_status"))
+		{
+			return;
+		}
+		responseCache.put(cacheKey, answer, turn.hasUsedTool("get_ge_price") || turn.hasUsedTool("get_ge_prices"));
+	}
+
+	private Request newRequest(RequestBody body)
+	{
+		return new Request.Builder()
+			.url(apiUrl)
+			.header("Content-Type", "application/json")
+			.header("x-api-key", config.apiKey())
+			.header("anthropic-version", "2023-06-01")
+			.header("anthropic-beta", "prompt-caching-2024-07-31")
+			.post(body)
+			.build();
+	}
+
+	// Runs on the scheduler thread, like callApi. Sends the prefix the next question will use
+	// with max_tokens of 1, so its tools and system blocks are already cached when it
+	// arrives. Best effort: failures are logged and never retried.
+	private void warmUpCache(PlayerSnapshot snapshot)
+	{
+		String apiKey = config.apiKey();
+		if (apiKey == null || apiKey.isEmpty() || circuitBreaker.getState() != CircuitBreaker.State.CLOSED)
+		{
+			return;
+		}
+
+		AiModel model = config.model();
+		MessagesRequestEncoder.RequestPrefix prefix = requestEncoder.encodePrefix(
+			model.getModelId(),
+			1,
+			false,
+			contextBuilder.buildSlowSystemPrompt(snapshot),
+			historySummarizer.getSummary(),
+			contextBuilder.buildFastSystemPrompt(snapshot),
+			true);
+		if (tokenEstimator.toTokens(prefix.getEstimatedTokens()) < model.getMinCacheableTokens())
+		{
+			log.debug("[AI] Skipping cache warm-up, prompt is below the {} token minimum", model.getMinCacheableTokens());
+			return;
+		}
+
+		long sentAt = System.nanoTime();
+		httpClient.newCall(newRequest(requestEncoder.encodeWarmUp(prefix))).enqueue(new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				log.debug("[AI] Cache warm-up failed: {}", e.toString());
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) throws IOException
+			{
+				try (ResponseBody body = response.body())
+				{
+					if (!response.isSuccessful() || body == null)
+					{
+						log.debug("[AI] Cache warm-up returned {}", response.code());
+						return;
+					}
+					JsonObject usage = gson.fromJson(body.charStream(), JsonObject.class).getAsJsonObject("usage");
+					metrics.recordSince(CompanionMetrics.Phase.WARM_UP, sentAt);
+					if (usage == null)
+					{
+						return;
+					}
+					metrics.recordUsage(usage);
+					long written = PromptCacheStats.count(usage, "cache_creation_input_tokens");
+					long read = PromptCacheStats.count(usage, "cache_read_input_tokens");
+					cacheWarmed = written + read > 0;
+					log.info("[AI] Cache warm-up: wrote {} and read {} cached tokens", written, read);
+				}
+				catch (RuntimeException e)
+				{
+					log.debug("[AI] Could not parse the cache warm-up response", e);
+				}
+			}
+		});
+	}
+
+	private void logMetrics()
 	{
-		JsonObject copy = requestBody.deepCopy();
-		JsonObject toolChoice = new JsonObject();
-		toolChoice.addProperty("type", "none");
-		copy.add("tool_choice", toolChoice);
-		return copy;
+		long turns = metrics.getTurns();
+		if (turns == lastLoggedTurns)
+		{
+			return;
+		}
+		lastLoggedTurns = turns;
+		log.info("[AI] Metrics: {}; cache breakpoints: {}", metrics, breakpointPlanner);
 	}
 
-	private String executeTool(String toolName, JsonObject input)
+	// Returns null if the plugin is shutting down
+	private ScheduledFuture<?> schedule(Runnable task, long delayMs)
 	{
-		return claudeTools.execute(toolName, input);
+		try
+		{
+			return retryScheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException e)
+		{
+			return null;
+		}
+	}
+
+	// Ends the turn and lets queued events go. Does nothing if the turn has already been
+	// cancelled or superseded, so a stale callback can never mark a newer turn as done.
+	// A null turn means the active turn was just cancelled by the caller.
+	private void finishCall(ActiveTurn turn)
+	{
+		synchronized (this)
+		{
+			if (turn != null)
+			{
+				if (activeTurn != turn)
+				{
+					return;
+				}
+				activeTurn = null;
+			}
+			apiCallInProgress = false;
+		}
+		idleListener.run();
 	}
 
 	private static String extractText(JsonArray contentBlocks)
@@ -449,33 +1005,88 @@ public class ClaudeClient
 		return null;
 	}
 
-	private void trimHistoryIfNeeded()
+	// Keeps the history within the model's token budget, and always within what is left
+	// of the context window once the system prompt, tools and reply are accounted for.
+	// Trimming is deliberately coarse: the history cache breakpoint only pays off while the
+	// head of the history stays the same, so we evict rarely and in large chunks.
+	private void trimHistoryIfNeeded(MessagesRequestEncoder.RequestPrefix prefix)
 	{
-		synchronized (conversationHistory)
+		AiModel model = config.model();
+		long available = model.getContextWindow() - config.maxTokens() - tokenEstimator.toTokens(prefix.getEstimatedTokens());
+		long budget = Math.min(model.getHistoryTokenBudget(), available);
+
+		List<ConversationLog.Entry> evicted = conversationLog.trim(
+			tokenEstimator.toRaw(budget),
+			tokenEstimator.toRaw((long) (budget * HISTORY_LOW_WATER)));
+		if (!evicted.isEmpty())
 		{
-			int total = conversationHistory.stream()
-				.mapToInt(m -> contentLength(m))
-				.sum();
-			while (total > MAX_HISTORY_CHARS && conversationHistory.size() > 2)
+			cacheStats.recordTrim();
+			log.info("[AI] Trimmed {} message(s) from history (~{} tokens left, budget {}); cached prefix resets next turn",
+				evicted.size(), tokenEstimator.toTokens(conversationLog.totalTokens()), budget);
+			historySummarizer.summarize(evicted);
+			ConversationJournal j = journal;
+			if (j != null)
 			{
-				total -= contentLength(conversationHistory.remove(0));
+				j.recordEviction(evicted.size());
 			}
 		}
 	}
 
-	private static int contentLength(JsonObject message)
+	/**
+	 * Coalesces streamed text deltas so that at most one panel update is queued on the
+	 * EDT at a time, however quickly tokens arrive.
+	 */
+	private static class PanelTextStream implements Consumer<String>
 	{
-		JsonElement content = message.get("content");
-		if (content == null)
+		private final AiCompanionPanel panel;
+		private final ActiveTurn turn;
+		private final StringBuilder pending = new StringBuilder();
+		private boolean flushScheduled;
+		private boolean delivered;
+		private StreamingResponseParser parser;
+
+		PanelTextStream(AiCompanionPanel panel, ActiveTurn turn)
 		{
-			return 0;
+			this.panel = panel;
+			this.turn = turn;
 		}
-		if (content.isJsonPrimitive())
+
+		@Override
+		public synchronized void accept(String delta)
 		{
-			return content.getAsString().length();
+			delivered = true;
+			if (panel == null)
+			{
+				return;
+			}
+			pending.append(delta);
+			if (!flushScheduled)
+			{
+				flushScheduled = true;
+				SwingUtilities.invokeLater(this::flush);
+			}
+		}
+
+		// Whether any of the answer's text has been passed on to the panel
+		synchronized boolean hasDelivered()
+		{
+			return delivered;
+		}
+
+		private void flush()
+		{
+			String chunk;
+			synchronized (this)
+			{
+				chunk = pending.toString();
+				pending.setLength(0);
+				flushScheduled = false;
+			}
+			if (!chunk.isEmpty() && !turn.isCancelled())
+			{
+				panel.appendClaudeStreamText(chunk, parser != null ? parser.getModel() : null);
+			}
 		}
-		// JsonArray (tool_use / tool_result turns) — use serialised length as approximation
-		return content.toString().length();
 	}
 
 	private static String withTimestamp(String content)
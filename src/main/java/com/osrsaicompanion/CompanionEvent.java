@@ -0,0 +1,83 @@
+package com.osrsaicompanion;
+
+/**
+ * Something that happened in game which the companion should react to. Events are handed
+ * to the {@link CompanionEventQueue} rather than sent straight to Claude, so that bursts
+ * can be merged into a single prompt.
+ */
+public class CompanionEvent
+{
+	/**
+	 * Event kinds, highest priority first. When several events are merged, the details of
+	 * events of the same type are joined behind a shared prefix, e.g. "levelled " +
+	 * "Attack to 70 and Strength to 71".
+	 */
+	public enum Type
+	{
+		WELCOME(100, ""),
+		QUEST(80, ""),
+		DIARY(80, ""),
+		COLLECTION_LOG(70, ""),
+		BOSS_KILL(60, ""),
+		LEVEL_UP(50, "levelled "),
+		XP_MILESTONE(50, "reached "),
+		LOOT(40, ""),
+		DEATH(30, "");
+
+		private final int priority;
+		private final String prefix;
+
+		Type(int priority, String prefix)
+		{
+			this.priority = priority;
+			this.prefix = prefix;
+		}
+
+		public int getPriority()
+		{
+			return priority;
+		}
+
+		public String getPrefix()
+		{
+			return prefix;
+		}
+	}
+
+	private final Type type;
+	private final String detail;
+	private final String prompt;
+
+	/**
+	 * @param detail short first-person phrase used when merged with other events, without
+	 *               the type's prefix (e.g. "Attack to 70" for a level-up)
+	 * @param prompt the full prompt used when the event is sent on its own
+	 */
+	public CompanionEvent(Type type, String detail, String prompt)
+	{
+		this.type = type;
+		this.detail = detail;
+		this.prompt = prompt;
+	}
+
+	public Type getType()
+	{
+		return type;
+	}
+
+	public String getDetail()
+	{
+		return detail;
+	}
+
+	public String getPrompt()
+	{
+		return prompt;
+	}
+
+	@Override
+	public String toString()
+	{
+		return type + "(" + type.getPrefix() + detail + ")";
+	}
+}
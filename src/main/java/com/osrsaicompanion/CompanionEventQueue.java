@@ -0,0 +1,207 @@
+package com.osrsaicompanion;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Collects in-game events and turns them into as few Claude calls as possible.
+ *
+ * The first event of a burst opens a short coalescing window; everything that arrives
+ * before it closes is merged into one prompt ("I levelled Attack to 70 and Strength to
+ * 71"). If a call is already in flight when the window closes, the events wait and are
+ * sent as soon as {@link ClaudeClient} reports it is idle again, instead of being dropped.
+ * Higher-priority events go first when a batch is larger than one prompt should carry,
+ * and events that have waited too long to still be worth reacting to are discarded.
+ */
+@Slf4j
+public class CompanionEventQueue
+{
+	static final long COALESCE_WINDOW_MS = 1200;
+	static final long MAX_EVENT_AGE_MS = 120_000;
+	static final int MAX_EVENTS_PER_PROMPT = 6;
+
+	private final ClaudeClient claudeClient;
+	private final Supplier<AiCompanionPanel> panelSupplier;
+	private final ScheduledExecutorService scheduler;
+	private final LongSupplier clock;
+
+	// Guarded by this
+	private final List<Pending> pending = new ArrayList<>();
+	private boolean windowOpen;
+
+	private static class Pending
+	{
+		final CompanionEvent event;
+		final long queuedAt;
+
+		Pending(CompanionEvent event, long queuedAt)
+		{
+			this.event = event;
+			this.queuedAt = queuedAt;
+		}
+	}
+
+	public CompanionEventQueue(ClaudeClient claudeClient, Supplier<AiCompanionPanel> panelSupplier)
+	{
+		this(claudeClient, panelSupplier, Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "ai-companion-events");
+			thread.setDaemon(true);
+			return thread;
+		}), System::currentTimeMillis);
+	}
+
+	CompanionEventQueue(ClaudeClient claudeClient, Supplier<AiCompanionPanel> panelSupplier,
+		ScheduledExecutorService scheduler, LongSupplier clock)
+	{
+		this.claudeClient = claudeClient;
+		this.panelSupplier = panelSupplier;
+		this.scheduler = scheduler;
+		this.clock = clock;
+		claudeClient.setIdleListener(this::drain);
+	}
+
+	public void submit(CompanionEvent event)
+	{
+		synchronized (this)
+		{
+			pending.add(new Pending(event, clock.getAsLong()));
+			if (windowOpen)
+			{
+				return;
+			}
+			windowOpen = true;
+		}
+		scheduler.schedule(this::closeWindow, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void clear()
+	{
+		pending.clear();
+	}
+
+	public void shutdown()
+	{
+		scheduler.shutdownNow();
+		clear();
+	}
+
+	synchronized int size()
+	{
+		return pending.size();
+	}
+
+	void closeWindow()
+	{
+		synchronized (this)
+		{
+			windowOpen = false;
+		}
+		drain();
+	}
+
+	/**
+	 * Sends whatever is pending as one merged prompt, unless the coalescing window is still
+	 * open or Claude is busy. Called when the window closes and whenever a call finishes.
+	 */
+	void drain()
+	{
+		List<Pending> batch;
+		synchronized (this)
+		{
+			if (windowOpen || pending.isEmpty() || claudeClient.isBusy())
+			{
+				return;
+			}
+
+			long now = clock.getAsLong();
+			for (Iterator<Pending> it = pending.iterator(); it.hasNext(); )
+			{
+				Pending p = it.next();
+				if (now - p.queuedAt > MAX_EVENT_AGE_MS)
+				{
+					log.info("[AI] Dropping stale event {}", p.event);
+					it.remove();
+				}
+			}
+			if (pending.isEmpty())
+			{
+				return;
+			}
+
+			// Stable sort, so events of equal priority keep their arrival order
+			pending.sort(Comparator.comparingInt((Pending p) -> -p.event.getType().getPriority()));
+			int count = Math.min(MAX_EVENTS_PER_PROMPT, pending.size());
+			batch = new ArrayList<>(pending.subList(0, count));
+			pending.subList(0, count).clear();
+		}
+
+		List<CompanionEvent> events = new ArrayList<>(batch.size());
+		for (Pending p : batch)
+		{
+			events.add(p.event);
+		}
+		String prompt = buildPrompt(events);
+		if (events.size() > 1)
+		{
+			log.info("[AI] Coalesced {} events into one prompt: {}", events.size(), events);
+		}
+
+		if (!claudeClient.sendIfIdle(prompt, panelSupplier.get()))
+		{
+			// Lost the race with a message from the player; try again when that call ends
+			synchronized (this)
+			{
+				pending.addAll(0, batch);
+			}
+		}
+	}
+
+	/**
+	 * A single event is sent with its own prompt. Several are merged into one sentence,
+	 * grouping events of the same type behind their shared prefix.
+	 */
+	static String buildPrompt(List<CompanionEvent> events)
+	{
+		if (events.size() == 1)
+		{
+			return events.get(0).getPrompt();
+		}
+
+		Map<CompanionEvent.Type, List<String>> byType = new LinkedHashMap<>();
+		for (CompanionEvent event : events)
+		{
+			byType.computeIfAbsent(event.getType(), t -> new ArrayList<>()).add(event.getDetail());
+		}
+
+		List<String> phrases = new ArrayList<>(byType.size());
+		for (Map.Entry<CompanionEvent.Type, List<String>> entry : byType.entrySet())
+		{
+			phrases.add(entry.getKey().getPrefix() + joinWithAnd(entry.getValue()));
+		}
+
+		return "A few things just happened at once: I " + joinWithAnd(phrases)
+			+ ". React to all of it together in one message.";
+	}
+
+	private static String joinWithAnd(List<String> parts)
+	{
+		int last = parts.size() - 1;
+		if (last == 0)
+		{
+			return parts.get(0);
+		}
+		String head = String.join(", ", parts.subList(0, last));
+		return head + (last == 1 ? " and " : ", and ") + parts.get(last);
+	}
+}
@@ -0,0 +1,399 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Session-wide timings for each stage of a turn, plus the token usage reported by every
+ * response, so a slow reply can be traced to the stage that made it slow.
+ *
+ * Every stage keeps a {@link Histogram} of its durations. Tools get a histogram each,
+ * keyed by tool name, and every {@link RequestRouter.Route} gets its turn latency and
+ * running cost. The summary is logged periodically and shown in the panel in
+ * developer mode.
+ */
+public class CompanionMetrics
+{
+	public enum Phase
+	{
+		/** From the turn starting to the client thread picking it up. */
+		CLIENT_THREAD_WAIT("client thread wait"),
+		/** Copying the game state the prompts need, on the client thread. */
+		SNAPSHOT("game state snapshot"),
+		/** Formatting the system prompts from that snapshot, on a worker thread. */
+		SYSTEM_PROMPT("system prompt"),
+		/** Encoding the request body. */
+		SERIALIZE("serialize"),
+		/** From the request being enqueued to the response headers arriving. */
+		FIRST_BYTE("time to first byte"),
+		/** Reading and parsing the response body, including the whole stream. */
+		RESPONSE("response body"),
+		/** A round of tool executions, from submission to its last result. */
+		TOOL_ROUND("tool round"),
+		/** A whole turn that ended in a reply, from being sent to the reply arriving. */
+		TURN("turn"),
+		/** The one-token request that loads the prompt into the cache after login. */
+		WARM_UP("cache warm-up");
+
+		private final String label;
+
+		Phase(String label)
+		{
+			this.label = label;
+		}
+
+		public String getLabel()
+		{
+			return label;
+		}
+	}
+
+	private final Map<Phase, Histogram> phases = new ConcurrentHashMap<>();
+	private final Map<String, Histogram> tools = new ConcurrentHashMap<>();
+	// Filled in the constructor and never modified after, so safe to read from any thread
+	private final Map<RequestRouter.Route, Histogram> routeLatency = new EnumMap<>(RequestRouter.Route.class);
+	private final Map<RequestRouter.Route, DoubleAdder> routeCost = new EnumMap<>(RequestRouter.Route.class);
+	// The first turn on the configured model after each login, with and without a warm-up
+	private final Histogram firstTurnWarm = new Histogram();
+	private final Histogram firstTurnCold = new Histogram();
+	private final PromptCacheStats cacheStats = new PromptCacheStats();
+	private final AtomicLong outputTokens = new AtomicLong();
+	private final AtomicLong turns = new AtomicLong();
+	private final AtomicLong toolRounds = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong cachedAnswers = new AtomicLong();
+
+	public CompanionMetrics()
+	{
+		for (Phase phase : Phase.values())
+		{
+			phases.put(phase, new Histogram());
+		}
+		for (RequestRouter.Route route : RequestRouter.Route.values())
+		{
+			routeLatency.put(route, new Histogram());
+			routeCost.put(route, new DoubleAdder());
+		}
+	}
+
+	public void record(Phase phase, long millis)
+	{
+		phases.get(phase).record(millis);
+	}
+
+	/**
+	 * Records the time since startNanos, a {@link System#nanoTime()} reading. Kept to the
+	 * microsecond, as stages such as {@link Phase#SNAPSHOT} usually take well under a
+	 * millisecond.
+	 */
+	public void recordSince(Phase phase, long startNanos)
+	{
+		phases.get(phase).recordMicros(elapsedMicros(startNanos));
+	}
+
+	public void recordTool(String toolName, long millis)
+	{
+		tools.computeIfAbsent(toolName, k -> new Histogram()).record(millis);
+	}
+
+	/**
+	 * Records a turn that ended in a reply after the given number of tool rounds.
+	 */
+	public void recordTurn(RequestRouter.Route route, long startNanos, int rounds)
+	{
+		long micros = elapsedMicros(startNanos);
+		phases.get(Phase.TURN).recordMicros(micros);
+		routeLatency.get(route).recordMicros(micros);
+		turns.incrementAndGet();
+		toolRounds.addAndGet(rounds);
+	}
+
+	/**
+	 * Records the first turn on the configured model since login, and whether the prompt
+	 * cache had been warmed for it.
+	 */
+	public void recordFirstTurn(boolean warmed, long startNanos)
+	{
+		(warmed ? firstTurnWarm : firstTurnCold).recordMicros(elapsedMicros(startNanos));
+	}
+
+	public Histogram getFirstTurnHistogram(boolean warmed)
+	{
+		return warmed ? firstTurnWarm : firstTurnCold;
+	}
+
+	/**
+	 * Records a failed request being scheduled for another attempt.
+	 */
+	public void recordRetry()
+	{
+		retries.incrementAndGet();
+	}
+
+	/**
+	 * Records a question answered from the {@link ResponseCache} without calling the API.
+	 */
+	public void recordCachedAnswer()
+	{
+		cachedAnswers.incrementAndGet();
+	}
+
+	/**
+	 * Records the usage block of a response. Cache fields also go to {@link #getCacheStats()}.
+	 */
+	public void recordUsage(JsonObject usage)
+	{
+		if (usage == null)
+		{
+			return;
+		}
+		cacheStats.record(usage);
+		outputTokens.addAndGet(PromptCacheStats.count(usage, "output_tokens"));
+	}
+
+	/**
+	 * Adds the cost of one response, in US dollars, to its route's total.
+	 */
+	public void recordCost(RequestRouter.Route route, double usd)
+	{
+		routeCost.get(route).add(usd);
+	}
+
+	public Histogram getRouteHistogram(RequestRouter.Route route)
+	{
+		return routeLatency.get(route);
+	}
+
+	public double getRouteCost(RequestRouter.Route route)
+	{
+		return routeCost.get(route).sum();
+	}
+
+	public Histogram getHistogram(Phase phase)
+	{
+		return phases.get(phase);
+	}
+
+	/**
+	 * The histogram of a tool, or null if it has never run.
+	 */
+	public Histogram getToolHistogram(String toolName)
+	{
+		return tools.get(toolName);
+	}
+
+	public PromptCacheStats getCacheStats()
+	{
+		return cacheStats;
+	}
+
+	public long getOutputTokens()
+	{
+		return outputTokens.get();
+	}
+
+	public long getTurns()
+	{
+		return turns.get();
+	}
+
+	public long getToolRounds()
+	{
+		return toolRounds.get();
+	}
+
+	public long getRetries()
+	{
+		return retries.get();
+	}
+
+	public long getCachedAnswers()
+	{
+		return cachedAnswers.get();
+	}
+
+	/**
+	 * One line per stage and tool that has any samples, then the token totals.
+	 */
+	public List<String> summaryLines()
+	{
+		List<String> lines = new ArrayList<>();
+		for (Phase phase : Phase.values())
+		{
+			Histogram histogram = phases.get(phase);
+			if (histogram.getCount() > 0)
+			{
+				lines.add(phase.getLabel() + ": " + histogram);
+			}
+		}
+		for (Map.Entry<String, Histogram> tool : new TreeMap<>(tools).entrySet())
+		{
+			lines.add("tool " + tool.getKey() + ": " + tool.getValue());
+		}
+		for (RequestRouter.Route route : RequestRouter.Route.values())
+		{
+			Histogram latency = routeLatency.get(route);
+			if (latency.getCount() > 0)
+			{
+				lines.add(String.format("route %s: %s, $%.4f", route.getLabel(), latency, routeCost.get(route).sum()));
+			}
+		}
+		if (firstTurnWarm.getCount() > 0)
+		{
+			lines.add("first turn after login, warm cache: " + firstTurnWarm);
+		}
+		if (firstTurnCold.getCount() > 0)
+		{
+			lines.add("first turn after login, cold cache: " + firstTurnCold);
+		}
+		long t = turns.get();
+		if (t > 0)
+		{
+			lines.add(String.format("tool rounds per turn: %.1f", (double) toolRounds.get() / t));
+		}
+		if (retries.get() > 0)
+		{
+			lines.add("retries: " + retries.get());
+		}
+		if (cachedAnswers.get() > 0)
+		{
+			lines.add("answers from cache: " + cachedAnswers.get());
+		}
+		lines.add("output tokens: " + outputTokens.get());
+		lines.add("prompt cache: " + cacheStats);
+		return lines;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.join("; ", summaryLines());
+	}
+
+	static long elapsedMicros(long startNanos)
+	{
+		return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Counts durations into fixed, roughly logarithmic buckets. Recording is lock-free and
+	 * the memory used never grows, so it is cheap enough to keep on for a whole session.
+	 * Percentiles are reported as the upper bound of the bucket they fall in. Durations are
+	 * kept in microseconds so sub-millisecond stages do not all read as 0.
+	 */
+	public static class Histogram
+	{
+		// Upper bucket bounds in microseconds; a final bucket takes everything longer
+		static final long[] BOUNDS_US = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000,
+			500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000, 20_000_000, 30_000_000, 60_000_000};
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_US.length + 1);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong totalUs = new AtomicLong();
+		private final AtomicLong maxUs = new AtomicLong();
+
+		public void record(long millis)
+		{
+			recordMicros(TimeUnit.MILLISECONDS.toMicros(millis));
+		}
+
+		public void recordMicros(long micros)
+		{
+			long value = Math.max(0, micros);
+			buckets.incrementAndGet(bucketOf(value));
+			count.incrementAndGet();
+			totalUs.addAndGet(value);
+			maxUs.accumulateAndGet(value, Math::max);
+		}
+
+		public long getCount()
+		{
+			return count.get();
+		}
+
+		public long getMaxMillis()
+		{
+			return getMaxMicros() / 1_000;
+		}
+
+		public long getMaxMicros()
+		{
+			return maxUs.get();
+		}
+
+		public long getMeanMillis()
+		{
+			return getMeanMicros() / 1_000;
+		}
+
+		public long getMeanMicros()
+		{
+			long n = count.get();
+			return n == 0 ? 0 : totalUs.get() / n;
+		}
+
+		/**
+		 * Upper bound of the bucket holding the given percentile (0 to 1), never more than
+		 * the largest value seen. 0 if nothing has been recorded.
+		 */
+		public long percentileMillis(double percentile)
+		{
+			return percentileMicros(percentile) / 1_000;
+		}
+
+		public long percentileMicros(double percentile)
+		{
+			long n = count.get();
+			if (n == 0)
+			{
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile * n));
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++)
+			{
+				seen += buckets.get(i);
+				if (seen >= rank)
+				{
+					return i < BOUNDS_US.length ? Math.min(BOUNDS_US[i], maxUs.get()) : maxUs.get();
+				}
+			}
+			return maxUs.get();
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("n=%d mean=%s p50<=%s p95<=%s max=%s", getCount(), format(getMeanMicros()),
+				format(percentileMicros(0.5)), format(percentileMicros(0.95)), format(getMaxMicros()));
+		}
+
+		// Whole milliseconds, with two decimals below 10ms where the fraction matters
+		static String format(long micros)
+		{
+			return micros < 10_000 ? String.format("%.2fms", micros / 1_000.0) : (micros / 1_000) + "ms";
+		}
+
+		private static int bucketOf(long micros)
+		{
+			for (int i = 0; i < BOUNDS_US.length; i++)
+			{
+				if (micros <= BOUNDS_US[i])
+				{
+					return i;
+				}
+			}
+			return BOUNDS_US.length;
+		}
+	}
+}
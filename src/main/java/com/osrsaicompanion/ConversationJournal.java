@@ -0,0 +1,451 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk journal of one account's conversation, so history survives a client
+ * restart.
+ *
+ * The file is a sequence of records: [int payload length][int CRC32 of type + payload]
+ * [byte type][payload]. Messages are stored as JSON; evictions and summary updates are
+ * small records of their own, as are rollbacks of the newest messages when a turn is
+ * abandoned, so nothing is ever rewritten in place. Opening the journal
+ * only walks the record headers; the payloads of the last few live messages are the only
+ * ones parsed on restore. A record torn by a crash can only be the last one, and is cut
+ * off when the journal is next opened. Once enough of the file is dead (evicted messages
+ * and old summaries) the live records are copied to a new file which atomically replaces
+ * the old one.
+ *
+ * All file access happens on the journal's own thread; the public methods only queue work.
+ */
+@Slf4j
+public class ConversationJournal
+{
+	static final byte MESSAGE = 1;
+	static final byte EVICT = 2;
+	static final byte SUMMARY = 3;
+	static final byte ROLLBACK = 4;
+
+	private static final int HEADER_BYTES = 9;
+	// Compact once the file is at least this big and more than half of it is dead
+	private static final long COMPACT_MIN_BYTES = 256 * 1024;
+
+	private final Path file;
+	private final Gson gson;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "ai-companion-journal");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Everything below is only touched on the journal thread
+	private FileChannel channel;
+	// Offsets of every message record in the file; the first evictedCount are dead
+	private final List<Long> messageOffsets = new ArrayList<>();
+	private int evictedCount;
+	private long summaryOffset = -1;
+
+	public ConversationJournal(Path file, Gson gson)
+	{
+		this.file = file;
+		this.gson = gson;
+	}
+
+	/**
+	 * What a previous session left behind: the newest live messages, oldest first, and the
+	 * history summary if there was one.
+	 */
+	public static class Restored
+	{
+		private final List<JsonObject> messages;
+		private final String summary;
+
+		Restored(List<JsonObject> messages, String summary)
+		{
+			this.messages = messages;
+			this.summary = summary;
+		}
+
+		public List<JsonObject> getMessages()
+		{
+			return messages;
+		}
+
+		public String getSummary()
+		{
+			return summary;
+		}
+	}
+
+	/**
+	 * Opens the journal and reads back at most maxMessages of the newest live messages.
+	 */
+	public CompletableFuture<Restored> restore(int maxMessages)
+	{
+		return CompletableFuture.supplyAsync(() -> {
+			try
+			{
+				open();
+				return readTail(maxMessages);
+			}
+			catch (IOException e)
+			{
+				log.warn("[AI] Could not read conversation journal {}", file, e);
+				return new Restored(Collections.emptyList(), null);
+			}
+		}, executor);
+	}
+
+	public void append(JsonObject message)
+	{
+		byte[] payload = gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+		submit(() -> messageOffsets.add(write(MESSAGE, payload)));
+	}
+
+	public void recordEviction(int count)
+	{
+		submit(() -> {
+			write(EVICT, ByteBuffer.allocate(4).putInt(count).array());
+			evictedCount = Math.min(messageOffsets.size(), evictedCount + count);
+			compactIfNeeded();
+		});
+	}
+
+	/**
+	 * Drops the newest count messages, which belonged to a turn that was cancelled.
+	 */
+	public void recordRollback(int count)
+	{
+		submit(() -> {
+			write(ROLLBACK, ByteBuffer.allocate(4).putInt(count).array());
+			dropNewest(count);
+		});
+	}
+
+	public void recordSummary(String summary)
+	{
+		byte[] payload = summary.getBytes(StandardCharsets.UTF_8);
+		submit(() -> summaryOffset = write(SUMMARY, payload));
+	}
+
+	/**
+	 * Deletes everything in the journal. Used when the player clears the conversation.
+	 */
+	public void clear()
+	{
+		submit(() -> {
+			channel.truncate(0);
+			channel.force(true);
+			messageOffsets.clear();
+			evictedCount = 0;
+			summaryOffset = -1;
+		});
+	}
+
+	/**
+	 * Finishes pending writes and closes the file.
+	 */
+	public void close()
+	{
+		executor.execute(() -> {
+			try
+			{
+				if (channel != null)
+				{
+					channel.close();
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn("[AI] Could not close conversation journal", e);
+			}
+		});
+		executor.shutdown();
+		try
+		{
+			executor.awaitTermination(2, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private interface JournalTask
+	{
+		void run() throws IOException;
+	}
+
+	private void submit(JournalTask task)
+	{
+		executor.execute(() -> {
+			try
+			{
+				open();
+				task.run();
+			}
+			catch (IOException e)
+			{
+				log.warn("[AI] Conversation journal write failed", e);
+			}
+		});
+	}
+
+	// Scans record headers to index the file, cutting off a torn or corrupt final record.
+	private void open() throws IOException
+	{
+		if (channel != null)
+		{
+			return;
+		}
+		Files.createDirectories(file.getParent());
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		long size = channel.size();
+		long position = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		while (position < size)
+		{
+			long next = -1;
+			if (size - position >= HEADER_BYTES)
+			{
+				header.clear();
+				readFully(header, position);
+				header.flip();
+				int length = header.getInt();
+				int crc = header.getInt();
+				byte type = header.get();
+				long end = position + HEADER_BYTES + length;
+				if (length >= 0 && end <= size)
+				{
+					// Payloads are only read where we need them, and for the last record,
+					// which is the one a crash could have left half-written.
+					boolean needsPayload = type == EVICT || type == ROLLBACK || end == size;
+					byte[] payload = needsPayload ? readPayload(position, length) : null;
+					if (payload == null || checksum(type, payload) == crc)
+					{
+						next = end;
+						index(type, position, payload);
+					}
+				}
+			}
+
+			if (next < 0)
+			{
+				log.warn("[AI] Truncating damaged conversation journal {} at byte {} of {}", file, position, size);
+				channel.truncate(position);
+				break;
+			}
+			position = next;
+		}
+		channel.position(channel.size());
+	}
+
+	private void index(byte type, long offset, byte[] payload)
+	{
+		switch (type)
+		{
+			case MESSAGE:
+				messageOffsets.add(offset);
+				break;
+			case EVICT:
+				evictedCount = Math.min(messageOffsets.size(), evictedCount + ByteBuffer.wrap(payload).getInt());
+				break;
+			case ROLLBACK:
+				dropNewest(ByteBuffer.wrap(payload).getInt());
+				break;
+			case SUMMARY:
+				summaryOffset = offset;
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void dropNewest(int count)
+	{
+		int keep = Math.max(evictedCount, messageOffsets.size() - count);
+		messageOffsets.subList(keep, messageOffsets.size()).clear();
+	}
+
+	private Restored readTail(int maxMessages) throws IOException
+	{
+		int from = Math.max(evictedCount, messageOffsets.size() - maxMessages);
+		if (from > evictedCount)
+		{
+			// Older messages are not coming back, so mark them dead for compaction
+			write(EVICT, ByteBuffer.allocate(4).putInt(from - evictedCount).array());
+			evictedCount = from;
+		}
+		List<JsonObject> messages = new ArrayList<>(messageOffsets.size() - from);
+		for (int i = from; i < messageOffsets.size(); i++)
+		{
+			String json = readRecord(messageOffsets.get(i));
+			if (json != null)
+			{
+				messages.add(gson.fromJson(json, JsonObject.class));
+			}
+		}
+		String summary = summaryOffset >= 0 ? readRecord(summaryOffset) : null;
+		return new Restored(messages, summary);
+	}
+
+	// Reads and verifies one record's payload; returns null if it fails its checksum.
+	private String readRecord(long offset) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		readFully(header, offset);
+		header.flip();
+		int length = header.getInt();
+		int crc = header.getInt();
+		byte type = header.get();
+		byte[] payload = readPayload(offset, length);
+		if (checksum(type, payload) != crc)
+		{
+			log.warn("[AI] Skipping corrupt conversation journal record at byte {}", offset);
+			return null;
+		}
+		return new String(payload, StandardCharsets.UTF_8);
+	}
+
+	private long write(byte type, byte[] payload) throws IOException
+	{
+		long offset = channel.size();
+		ByteBuffer record = record(type, payload);
+		while (record.hasRemaining())
+		{
+			channel.write(record, offset + record.position());
+		}
+		channel.force(false);
+		return offset;
+	}
+
+	private void compactIfNeeded() throws IOException
+	{
+		long size = channel.size();
+		if (size < COMPACT_MIN_BYTES)
+		{
+			return;
+		}
+		long liveBytes = 0;
+		for (int i = evictedCount; i < messageOffsets.size(); i++)
+		{
+			liveBytes += recordLength(messageOffsets.get(i));
+		}
+		if (summaryOffset >= 0)
+		{
+			liveBytes += recordLength(summaryOffset);
+		}
+		if (liveBytes * 2 > size)
+		{
+			return;
+		}
+		compact();
+	}
+
+	// Copies the live records verbatim into a temp file, then swaps it in with an atomic
+	// rename, so a crash at any point leaves either the old or the new journal intact.
+	private void compact() throws IOException
+	{
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		List<Long> newOffsets = new ArrayList<>();
+		long newSummaryOffset = -1;
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			if (summaryOffset >= 0)
+			{
+				newSummaryOffset = out.position();
+				copyRecord(summaryOffset, out);
+			}
+			for (int i = evictedCount; i < messageOffsets.size(); i++)
+			{
+				newOffsets.add(out.position());
+				copyRecord(messageOffsets.get(i), out);
+			}
+			out.force(true);
+		}
+
+		long before = channel.size();
+		channel.close();
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+
+		messageOffsets.clear();
+		messageOffsets.addAll(newOffsets);
+		evictedCount = 0;
+		summaryOffset = newSummaryOffset;
+		log.info("[AI] Compacted conversation journal from {} to {} bytes", before, channel.size());
+	}
+
+	private void copyRecord(long offset, FileChannel out) throws IOException
+	{
+		long length = recordLength(offset);
+		long copied = 0;
+		while (copied < length)
+		{
+			copied += channel.transferTo(offset + copied, length - copied, out);
+		}
+	}
+
+	private long recordLength(long offset) throws IOException
+	{
+		ByteBuffer length = ByteBuffer.allocate(4);
+		readFully(length, offset);
+		length.flip();
+		return HEADER_BYTES + length.getInt();
+	}
+
+	private byte[] readPayload(long offset, int length) throws IOException
+	{
+		ByteBuffer payload = ByteBuffer.allocate(length);
+		readFully(payload, offset + HEADER_BYTES);
+		return payload.array();
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new IOException("Unexpected end of journal");
+			}
+		}
+	}
+
+	static ByteBuffer record(byte type, byte[] payload)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+		buffer.putInt(payload.length).putInt(checksum(type, payload)).put(type).put(payload);
+		buffer.flip();
+		return buffer;
+	}
+
+	private static int checksum(byte type, byte[] payload)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(type);
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue();
+	}
+}
@@ -0,0 +1,341 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only store for the conversation sent to Claude.
+ *
+ * Messages are appended at the tail and evicted from the head in O(1), with the total
+ * estimated token count kept as a running sum. All mutation happens under the log's lock and
+ * publishes a new immutable {@link State}; readers take a {@link Snapshot} without
+ * locking. Array slots are never overwritten while a snapshot could still see them:
+ * when the tail reaches the end of the array the live range is copied into a fresh
+ * array instead of wrapping around.
+ */
+public class ConversationLog
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * A single history message plus the values derived from it. The message must not
+	 * be modified once appended, which is what makes caching its encoding safe.
+	 */
+	public static final class Entry
+	{
+		private final JsonObject message;
+		// Raw estimate from TokenEstimator; scale with TokenEstimator.toTokens
+		private final int tokens;
+		// Serialised form, filled in lazily by MessagesRequestEncoder
+		volatile byte[] encoded;
+
+		Entry(JsonObject message)
+		{
+			this.message = message;
+			this.tokens = TokenEstimator.estimate(message);
+		}
+
+		public JsonObject getMessage()
+		{
+			return message;
+		}
+
+		public int getTokens()
+		{
+			return tokens;
+		}
+	}
+
+	private static final class State
+	{
+		final Entry[] entries;
+		final int head;
+		final int tail;
+		final long totalTokens;
+
+		State(Entry[] entries, int head, int tail, long totalTokens)
+		{
+			this.entries = entries;
+			this.head = head;
+			this.tail = tail;
+			this.totalTokens = totalTokens;
+		}
+	}
+
+	/**
+	 * Immutable view of the log at a point in time. Later appends and evictions do not
+	 * affect an existing snapshot.
+	 */
+	public static final class Snapshot
+	{
+		private final State state;
+
+		private Snapshot(State state)
+		{
+			this.state = state;
+		}
+
+		public int size()
+		{
+			return state.tail - state.head;
+		}
+
+		public Entry get(int index)
+		{
+			if (index < 0 || index >= size())
+			{
+				throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+			}
+			return state.entries[state.head + index];
+		}
+
+		public long totalTokens()
+		{
+			return state.totalTokens;
+		}
+
+		/** The snapshot's messages as a read-only list. */
+		public List<JsonObject> messages()
+		{
+			return new AbstractList<JsonObject>()
+			{
+				@Override
+				public JsonObject get(int index)
+				{
+					return Snapshot.this.get(index).getMessage();
+				}
+
+				@Override
+				public int size()
+				{
+					return Snapshot.this.size();
+				}
+			};
+		}
+	}
+
+	private volatile State state = new State(new Entry[INITIAL_CAPACITY], 0, 0, 0);
+
+	public synchronized void append(JsonObject message)
+	{
+		Entry entry = new Entry(message);
+		State s = state;
+		Entry[] entries = s.entries;
+		int head = s.head;
+		int tail = s.tail;
+
+		if (tail == entries.length)
+		{
+			// Compact into a fresh array; snapshots holding the old one are unaffected
+			int live = tail - head;
+			Entry[] grown = new Entry[Math.max(INITIAL_CAPACITY, live * 2)];
+			System.arraycopy(entries, head, grown, 0, live);
+			entries = grown;
+			head = 0;
+			tail = live;
+		}
+
+		entries[tail] = entry;
+		state = new State(entries, head, tail + 1, s.totalTokens + entry.tokens);
+	}
+
+	/**
+	 * Removes and returns the oldest entry, or null if the log is empty.
+	 */
+	public synchronized Entry evictOldest()
+	{
+		State s = state;
+		if (s.head == s.tail)
+		{
+			return null;
+		}
+		Entry evicted = s.entries[s.head];
+		state = new State(s.entries, s.head + 1, s.tail, s.totalTokens - evicted.tokens);
+		return evicted;
+	}
+
+	/**
+	 * Evicts whole exchanges from the head until the remaining raw token total fits in
+	 * maxTokens. The log is only ever cut in front of a user message with plain text
+	 * content, so a tool_result is never left without the tool_use it answers and the
+	 * history always starts with a user turn. The most recent exchange is always kept,
+	 * even if it alone is over budget. Returns the evicted entries, oldest first.
+	 */
+	public synchronized List<Entry> evictToBudget(long maxTokens)
+	{
+		State s = state;
+		if (s.totalTokens <= maxTokens)
+		{
+			return Collections.emptyList();
+		}
+
+		int cut = s.head;
+		long cutTotal = s.totalTokens;
+		long remaining = s.totalTokens;
+		for (int i = s.head + 1; i < s.tail; i++)
+		{
+			remaining -= s.entries[i - 1].tokens;
+			if (isTurnStart(s.entries[i].message))
+			{
+				cut = i;
+				cutTotal = remaining;
+				if (remaining <= maxTokens)
+				{
+					break;
+				}
+			}
+		}
+		if (cut == s.head)
+		{
+			return Collections.emptyList();
+		}
+
+		List<Entry> evicted = new ArrayList<>(cut - s.head);
+		for (int i = s.head; i < cut; i++)
+		{
+			evicted.add(s.entries[i]);
+		}
+		state = new State(s.entries, cut, s.tail, cutTotal);
+		return evicted;
+	}
+
+	/**
+	 * Trims with hysteresis: nothing is evicted until the total passes highWater, and then
+	 * whole exchanges are dropped until it is at or below lowWater. Between trims the
+	 * head of the log, and therefore the cached prompt prefix, stays byte-identical.
+	 */
+	public synchronized List<Entry> trim(long highWater, long lowWater)
+	{
+		if (state.totalTokens <= highWater)
+		{
+			return Collections.emptyList();
+		}
+		return evictToBudget(lowWater);
+	}
+
+	/**
+	 * Fills an empty log with messages from a previous session, starting at the first
+	 * plain-text user message and ending at the last {@link #completeLength complete}
+	 * exchange, so the history never opens or closes on a dangling turn. Returns the
+	 * number of messages restored; nothing is restored if the log is not empty.
+	 */
+	public synchronized int restore(List<JsonObject> messages)
+	{
+		if (size() > 0)
+		{
+			return 0;
+		}
+		int end = completeLength(messages);
+		int start = 0;
+		while (start < end && !isTurnStart(messages.get(start)))
+		{
+			start++;
+		}
+		for (int i = start; i < end; i++)
+		{
+			append(messages.get(i));
+		}
+		return end - start;
+	}
+
+	/**
+	 * How many of the messages make up whole exchanges: up to and including the last
+	 * assistant message that is not waiting on a tool_result. A session killed mid-turn
+	 * leaves its question, or a tool_use, after that point, and the API rejects any
+	 * request where a new question follows either.
+	 */
+	public static int completeLength(List<JsonObject> messages)
+	{
+		for (int i = messages.size() - 1; i >= 0; i--)
+		{
+			JsonObject message = messages.get(i);
+			JsonElement role = message.get("role");
+			if (role != null && "assistant".equals(role.getAsString()) && !hasToolUse(message))
+			{
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Removes the newest count entries (or all of them, if there are fewer), undoing the
+	 * appends of a turn that was abandoned part-way. Returns the number removed. The
+	 * survivors are copied to a fresh array, since appending over slots an older snapshot
+	 * still covers would change what that snapshot sees.
+	 */
+	public synchronized int removeNewest(int count)
+	{
+		State s = state;
+		int removed = Math.min(count, s.tail - s.head);
+		if (removed <= 0)
+		{
+			return 0;
+		}
+		int newTail = s.tail - removed;
+		long removedTokens = 0;
+		for (int i = newTail; i < s.tail; i++)
+		{
+			removedTokens += s.entries[i].tokens;
+		}
+		int live = newTail - s.head;
+		Entry[] entries = new Entry[Math.max(INITIAL_CAPACITY, live * 2)];
+		System.arraycopy(s.entries, s.head, entries, 0, live);
+		state = new State(entries, 0, live, s.totalTokens - removedTokens);
+		return removed;
+	}
+
+	public synchronized void clear()
+	{
+		state = new State(new Entry[INITIAL_CAPACITY], 0, 0, 0);
+	}
+
+	public Snapshot snapshot()
+	{
+		return new Snapshot(state);
+	}
+
+	public int size()
+	{
+		State s = state;
+		return s.tail - s.head;
+	}
+
+	public long totalTokens()
+	{
+		return state.totalTokens;
+	}
+
+	private static boolean hasToolUse(JsonObject message)
+	{
+		JsonElement content = message.get("content");
+		if (content == null || !content.isJsonArray())
+		{
+			return false;
+		}
+		for (JsonElement block : content.getAsJsonArray())
+		{
+			JsonElement type = block.isJsonObject() ? block.getAsJsonObject().get("type") : null;
+			if (type != null && "tool_use".equals(type.getAsString()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// A user message typed by the player (or sent by an event handler) as opposed to a
+	// tool_result turn, which has array content.
+	private static boolean isTurnStart(JsonObject message)
+	{
+		JsonElement role = message.get("role");
+		JsonElement content = message.get("content");
+		return role != null && "user".equals(role.getAsString())
+			&& content != null && content.isJsonPrimitive();
+	}
+}
@@ -0,0 +1,260 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Folds history that has been trimmed from the conversation into a short rolling summary,
+ * which is sent back to Claude as its own system block so long sessions keep continuity.
+ *
+ * Summaries are produced by Haiku on a dedicated single thread, one batch of evicted
+ * messages at a time, using a blocking call. Nothing here is ever on the path of a
+ * user-facing request: until a new summary is ready the previous one keeps being sent.
+ */
+@Slf4j
+public class HistorySummarizer
+{
+	private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+	private static final int MAX_TOKENS = 400;
+	// Tool output is mostly lookups that can be repeated; only a taste of it is worth keeping
+	private static final int MAX_TOOL_RESULT_CHARS = 200;
+
+	private static final String SYSTEM_PROMPT =
+		"You maintain the long-term memory of an Old School RuneScape companion. " +
+		"Merge the new conversation turns into the existing memory. Keep the player's goals, " +
+		"decisions, progress, preferences and any facts they will likely refer back to; drop " +
+		"small talk and anything that was only looked up. Write terse notes in the third person, " +
+		"at most 200 words. Reply with the updated memory only.";
+
+	private final OkHttpClient httpClient;
+	private final Gson gson;
+	private final OsrsAiCompanionConfig config;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "ai-companion-summarizer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile String summary;
+	private volatile String apiUrl = ClaudeClient.API_URL;
+	private volatile Consumer<String> summaryListener = s -> { };
+	// Bumped by clear() so a summary that was in flight is discarded rather than restored
+	private final AtomicInteger generation = new AtomicInteger();
+
+	public HistorySummarizer(OkHttpClient httpClient, Gson gson, OsrsAiCompanionConfig config)
+	{
+		this.httpClient = httpClient;
+		this.gson = gson;
+		this.config = config;
+	}
+
+	/**
+	 * The current summary, or null if nothing has been summarised yet.
+	 */
+	public String getSummary()
+	{
+		return summary;
+	}
+
+	/**
+	 * Queues evicted history to be folded into the summary. Returns immediately.
+	 */
+	public void summarize(List<ConversationLog.Entry> evicted)
+	{
+		if (evicted.isEmpty())
+		{
+			return;
+		}
+		String transcript = buildTranscript(evicted);
+		int expectedGeneration = generation.get();
+		executor.execute(() -> fold(transcript, expectedGeneration));
+	}
+
+	/**
+	 * Called on the summarizer thread with every new summary.
+	 */
+	public void setSummaryListener(Consumer<String> summaryListener)
+	{
+		this.summaryListener = summaryListener;
+	}
+
+	/**
+	 * Seeds the summary with one saved by an earlier session, unless there already is one.
+	 */
+	public void restore(String savedSummary)
+	{
+		if (summary == null)
+		{
+			summary = savedSummary;
+		}
+	}
+
+	void setApiUrl(String apiUrl)
+	{
+		this.apiUrl = apiUrl;
+	}
+
+	public void clear()
+	{
+		generation.incrementAndGet();
+		summary = null;
+	}
+
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	private void fold(String transcript, int expectedGeneration)
+	{
+		if (generation.get() != expectedGeneration)
+		{
+			return;
+		}
+
+		Request request = new Request.Builder()
+			.url(apiUrl)
+			.header("Content-Type", "application/json")
+			.header("x-api-key", config.apiKey())
+			.header("anthropic-version", "2023-06-01")
+			.post(RequestBody.create(JSON, gson.toJson(buildRequest(summary, transcript))))
+			.build();
+
+		try (Response response = httpClient.newCall(request).execute())
+		{
+			ResponseBody body = response.body();
+			if (!response.isSuccessful() || body == null)
+			{
+				log.warn("[AI] History summary request failed ({}); keeping previous summary", response.code());
+				return;
+			}
+
+			JsonObject parsed = gson.fromJson(body.string(), JsonObject.class);
+			String text = extractText(parsed);
+			if (text == null || text.isEmpty())
+			{
+				return;
+			}
+			if (generation.get() == expectedGeneration)
+			{
+				summary = text.trim();
+				log.info("[AI] History summary updated ({} chars)", summary.length());
+				summaryListener.accept(summary);
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			log.warn("[AI] History summary request failed; keeping previous summary", e);
+		}
+	}
+
+	static JsonObject buildRequest(String previousSummary, String transcript)
+	{
+		StringBuilder prompt = new StringBuilder();
+		prompt.append("Existing memory:\n")
+			.append(previousSummary != null ? previousSummary : "(none)")
+			.append("\n\nNew turns:\n")
+			.append(transcript);
+
+		JsonObject userMessage = new JsonObject();
+		userMessage.addProperty("role", "user");
+		userMessage.addProperty("content", prompt.toString());
+		JsonArray messages = new JsonArray();
+		messages.add(userMessage);
+
+		JsonObject body = new JsonObject();
+		body.addProperty("model", AiModel.HAIKU.getModelId());
+		body.addProperty("max_tokens", MAX_TOKENS);
+		body.addProperty("system", SYSTEM_PROMPT);
+		body.add("messages", messages);
+		return body;
+	}
+
+	/**
+	 * Flattens history messages into a plain transcript. Tool calls are reduced to their
+	 * name and input, and tool results are truncated.
+	 */
+	static String buildTranscript(List<ConversationLog.Entry> entries)
+	{
+		StringBuilder sb = new StringBuilder();
+		for (ConversationLog.Entry entry : entries)
+		{
+			JsonObject message = entry.getMessage();
+			String role = "assistant".equals(message.get("role").getAsString()) ? "Companion" : "Player";
+			JsonElement content = message.get("content");
+			if (content == null)
+			{
+				continue;
+			}
+			if (content.isJsonPrimitive())
+			{
+				sb.append(role).append(": ").append(content.getAsString()).append('\n');
+				continue;
+			}
+			for (JsonElement el : content.getAsJsonArray())
+			{
+				JsonObject block = el.getAsJsonObject();
+				String type = block.has("type") ? block.get("type").getAsString() : "";
+				switch (type)
+				{
+					case "text":
+						sb.append(role).append(": ").append(block.get("text").getAsString()).append('\n');
+						break;
+					case "tool_use":
+						sb.append("(looked up ").append(block.get("name").getAsString());
+						if (block.has("input"))
+						{
+							sb.append(' ').append(block.get("input"));
+						}
+						sb.append(")\n");
+						break;
+					case "tool_result":
+						String result = block.has("content") && block.get("content").isJsonPrimitive()
+							? block.get("content").getAsString() : String.valueOf(block.get("content"));
+						if (result.length() > MAX_TOOL_RESULT_CHARS)
+						{
+							result = result.substring(0, MAX_TOOL_RESULT_CHARS) + "…";
+						}
+						sb.append("(result: ").append(result.replace('\n', ' ')).append(")\n");
+						break;
+					default:
+						break;
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String extractText(JsonObject response)
+	{
+		if (response == null || !response.has("content"))
+		{
+			return null;
+		}
+		for (JsonElement el : response.getAsJsonArray("content"))
+		{
+			JsonObject block = el.getAsJsonObject();
+			if ("text".equals(block.get("type").getAsString()))
+			{
+				return block.get("text").getAsString();
+			}
+		}
+		return null;
+	}
+}
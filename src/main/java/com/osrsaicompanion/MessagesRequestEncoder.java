@@ -0,0 +1,430 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import com.osrsaicompanion.tools.ClaudeTools;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Assembles Messages API request bodies from pre-encoded UTF-8 segments.
+ *
+ * The tools block never changes and history messages never change once they are
+ * appended to the {@link ConversationLog}, so each is serialised exactly once and
+ * the bytes are reused on every later round. A request is then just the per-turn
+ * prefix (model, system prompt, tools) followed by the message segments, written
+ * straight into the request sink.
+ *
+ * Where the cache_control breakpoints go is left to a {@link CacheBreakpointPlanner}.
+ * The tools and system blocks are kept encoded both with and without a breakpoint, so
+ * moving a breakpoint never re-serialises them.
+ */
+public class MessagesRequestEncoder
+{
+	private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+	private static final byte[] SYSTEM_OPEN = utf8(",\"system\":[");
+	private static final byte[] TOOLS_OPEN = utf8("],\"tools\":");
+	private static final byte[] MESSAGES_OPEN = utf8("\"messages\":[");
+	private static final byte[] COMMA = utf8(",");
+	private static final byte[] CLOSE = utf8("]}");
+	private static final byte[] WARM_UP_MESSAGE = utf8("{\"role\":\"user\",\"content\":\"Hi\"}");
+
+	private final Gson gson;
+	private final CacheBreakpointPlanner planner;
+
+	private Segment toolsSegment;
+	private String lastSlowPrompt;
+	private Segment lastSlowSegment;
+	private String lastSummary;
+	private Segment lastSummarySegment;
+
+	// What the previous request sent, to tell the planner which blocks changed. Guarded by this.
+	private RequestPrefix lastSentPrefix;
+	private ConversationLog.Entry lastSentHead;
+
+	public MessagesRequestEncoder(Gson gson)
+	{
+		this(gson, new CacheBreakpointPlanner(new TokenEstimator()));
+	}
+
+	public MessagesRequestEncoder(Gson gson, CacheBreakpointPlanner planner)
+	{
+		this.gson = gson;
+		this.planner = planner;
+	}
+
+	/**
+	 * A tools or system block encoded with and without a cache_control breakpoint.
+	 */
+	private static final class Segment
+	{
+		final byte[] plain;
+		final byte[] cached;
+		final int tokens;
+
+		Segment(byte[] plain, byte[] cached, int tokens)
+		{
+			this.plain = plain;
+			this.cached = cached;
+			this.tokens = tokens;
+		}
+
+		byte[] get(boolean breakpoint)
+		{
+			return breakpoint ? cached : plain;
+		}
+	}
+
+	/**
+	 * The part of a request that stays the same for every tool round of a turn:
+	 * everything up to (but not including) the messages array.
+	 */
+	public static class RequestPrefix
+	{
+		private final byte[] header;
+		private final String model;
+		private final boolean toolsEnabled;
+		private final Segment tools;
+		private final Segment slow;
+		private final Segment summary;
+		private final Segment fast;
+		private final String fastPrompt;
+		private final int minCacheableTokens;
+		private final boolean stream;
+		private final int estimatedTokens;
+
+		RequestPrefix(byte[] header, String model, boolean toolsEnabled, Segment tools, Segment slow, Segment summary,
+			Segment fast, String fastPrompt, int minCacheableTokens, boolean stream)
+		{
+			this.header = header;
+			this.model = model;
+			this.toolsEnabled = toolsEnabled;
+			this.tools = tools;
+			this.slow = slow;
+			this.summary = summary;
+			this.fast = fast;
+			this.fastPrompt = fastPrompt;
+			this.minCacheableTokens = minCacheableTokens;
+			this.stream = stream;
+			this.estimatedTokens = tools.tokens + slow.tokens + fast.tokens + (summary != null ? summary.tokens : 0);
+		}
+
+		public boolean isStream()
+		{
+			return stream;
+		}
+
+		/** Raw {@link TokenEstimator} estimate for the system prompt and tools. */
+		public int getEstimatedTokens()
+		{
+			return estimatedTokens;
+		}
+	}
+
+	public RequestPrefix encodePrefix(String model, int maxTokens, boolean stream, String slowPrompt, String summary, String fastPrompt)
+	{
+		return encodePrefix(model, maxTokens, stream, slowPrompt, summary, fastPrompt, true);
+	}
+
+	/**
+	 * Encodes the per-turn prefix. The slow system block and the history summary (if
+	 * any) are only re-encoded when their text changes; the tools block is encoded once
+	 * for the lifetime of the encoder.
+	 *
+	 * With toolsEnabled false the tool definitions are still sent, since history may hold
+	 * tool_use blocks the API only accepts alongside them, but tool_choice forbids using
+	 * any.
+	 */
+	public synchronized RequestPrefix encodePrefix(String model, int maxTokens, boolean stream, String slowPrompt, String summary, String fastPrompt,
+		boolean toolsEnabled)
+	{
+		if (lastSlowSegment == null || !slowPrompt.equals(lastSlowPrompt))
+		{
+			lastSlowSegment = textSegment(slowPrompt);
+			lastSlowPrompt = slowPrompt;
+		}
+
+		// The summary sits between the slow and fast blocks: it changes far less often than
+		// the fast block, but more often than the slow one.
+		boolean hasSummary = summary != null && !summary.isEmpty();
+		if (hasSummary && (lastSummarySegment == null || !summary.equals(lastSummary)))
+		{
+			lastSummarySegment = textSegment("Summary of earlier conversation this session:\n" + summary);
+			lastSummary = summary;
+		}
+
+		Buffer buffer = new Buffer();
+		buffer.writeUtf8("{\"model\":").writeUtf8(gson.toJson(model));
+		buffer.writeUtf8(",\"max_tokens\":").writeUtf8(Integer.toString(maxTokens));
+		buffer.writeUtf8(",\"stream\":").writeUtf8(Boolean.toString(stream));
+		if (!toolsEnabled)
+		{
+			buffer.writeUtf8(",\"tool_choice\":{\"type\":\"none\"}");
+		}
+		return new RequestPrefix(buffer.readByteArray(), model, toolsEnabled, toolsSegment(), lastSlowSegment,
+			hasSummary ? lastSummarySegment : null, textSegment(fastPrompt), fastPrompt,
+			AiModel.minCacheableTokens(model), stream);
+	}
+
+	/**
+	 * Builds the request body for one round. Only messages that have not been sent
+	 * before are serialised; their bytes are kept on the log entry for later rounds.
+	 * Messages carrying a history cache breakpoint are re-encoded, since the breakpoints
+	 * move from request to request.
+	 */
+	public RequestBody encode(RequestPrefix prefix, ConversationLog.Snapshot history)
+	{
+		int size = history.size();
+		boolean[] breakpoints = planBreakpoints(prefix, history);
+
+		List<byte[]> segments = new ArrayList<>(size * 2 + 10);
+		segments.add(prefix.header);
+		segments.add(SYSTEM_OPEN);
+		segments.add(prefix.slow.get(breakpoints[CacheBreakpointPlanner.SLOW]));
+		segments.add(COMMA);
+		if (prefix.summary != null)
+		{
+			segments.add(prefix.summary.get(breakpoints[CacheBreakpointPlanner.SUMMARY]));
+			segments.add(COMMA);
+		}
+		segments.add(prefix.fast.get(breakpoints[CacheBreakpointPlanner.FAST]));
+		segments.add(TOOLS_OPEN);
+		segments.add(prefix.tools.get(breakpoints[CacheBreakpointPlanner.TOOLS]));
+		segments.add(COMMA);
+		segments.add(MESSAGES_OPEN);
+
+		for (int i = 0; i < size; i++)
+		{
+			ConversationLog.Entry entry = history.get(i);
+			if (i > 0)
+			{
+				segments.add(COMMA);
+			}
+			if (breakpoints[CacheBreakpointPlanner.FIRST_MESSAGE + i])
+			{
+				segments.add(encode(withCacheBreakpoint(entry.getMessage())));
+				continue;
+			}
+
+			byte[] plain = entry.encoded;
+			if (plain == null)
+			{
+				plain = encode(entry.getMessage());
+				entry.encoded = plain;
+			}
+			segments.add(plain);
+		}
+		segments.add(CLOSE);
+
+		return new SegmentedRequestBody(Collections.unmodifiableList(segments));
+	}
+
+	/**
+	 * Builds a request that only writes the prefix to the cache: breakpoints on the tools,
+	 * the slow block and the summary, as on the first request of a session, followed by a
+	 * one-word user message since the API needs one. The planner is not told about it, so
+	 * the next real request is planned as if this one had not been sent.
+	 */
+	public RequestBody encodeWarmUp(RequestPrefix prefix)
+	{
+		List<byte[]> segments = new ArrayList<>(12);
+		segments.add(prefix.header);
+		segments.add(SYSTEM_OPEN);
+		segments.add(prefix.slow.get(true));
+		segments.add(COMMA);
+		if (prefix.summary != null)
+		{
+			segments.add(prefix.summary.get(true));
+			segments.add(COMMA);
+		}
+		segments.add(prefix.fast.get(false));
+		segments.add(TOOLS_OPEN);
+		segments.add(prefix.tools.get(true));
+		segments.add(COMMA);
+		segments.add(MESSAGES_OPEN);
+		segments.add(WARM_UP_MESSAGE);
+		segments.add(CLOSE);
+		return new SegmentedRequestBody(Collections.unmodifiableList(segments));
+	}
+
+	// Tells the planner what changed since the previous request and asks it where this
+	// one's breakpoints go
+	private synchronized boolean[] planBreakpoints(RequestPrefix prefix, ConversationLog.Snapshot history)
+	{
+		int size = history.size();
+		long[] blockTokens = new long[CacheBreakpointPlanner.FIRST_MESSAGE + size];
+		blockTokens[CacheBreakpointPlanner.TOOLS] = prefix.tools.tokens;
+		blockTokens[CacheBreakpointPlanner.SLOW] = prefix.slow.tokens;
+		blockTokens[CacheBreakpointPlanner.SUMMARY] = prefix.summary != null ? prefix.summary.tokens : 0;
+		blockTokens[CacheBreakpointPlanner.FAST] = prefix.fast.tokens;
+		for (int i = 0; i < size; i++)
+		{
+			blockTokens[CacheBreakpointPlanner.FIRST_MESSAGE + i] = history.get(i).getTokens();
+		}
+
+		ConversationLog.Entry head = size > 0 ? history.get(0) : null;
+		boolean[] changed = null;
+		RequestPrefix last = lastSentPrefix;
+		if (last != null)
+		{
+			// Segments are reused while their text is unchanged, so identity is enough
+			changed = new boolean[CacheBreakpointPlanner.FIRST_MESSAGE + 1];
+			// Caches are per model, and changing tool_choice invalidates them too
+			changed[CacheBreakpointPlanner.TOOLS] = !prefix.model.equals(last.model) || prefix.toolsEnabled != last.toolsEnabled;
+			changed[CacheBreakpointPlanner.SLOW] = prefix.slow != last.slow;
+			changed[CacheBreakpointPlanner.SUMMARY] = prefix.summary != last.summary;
+			changed[CacheBreakpointPlanner.FAST] = !prefix.fastPrompt.equals(last.fastPrompt);
+			changed[CacheBreakpointPlanner.FIRST_MESSAGE] = head != lastSentHead;
+		}
+		lastSentPrefix = prefix;
+		lastSentHead = head;
+
+		return planner.plan(blockTokens, changed, prefix.minCacheableTokens);
+	}
+
+	// Places a cache_control breakpoint on a message so the full conversation history up
+	// to that point gets cached between turns. Plain-string content is wrapped in a text
+	// block; for array content (tool use / tool result turns) the last block is marked.
+	static JsonObject withCacheBreakpoint(JsonObject msg)
+	{
+		JsonArray contentArray = new JsonArray();
+		if (msg.get("content").isJsonPrimitive())
+		{
+			// Wrap the plain-string content in an array block with cache_control
+			JsonObject textBlock = new JsonObject();
+			textBlock.addProperty("type", "text");
+			textBlock.addProperty("text", msg.get("content").getAsString());
+			textBlock.add("cache_control", ephemeral());
+			contentArray.add(textBlock);
+		}
+		else
+		{
+			// Copied, since the logged message must never change
+			JsonArray content = msg.getAsJsonArray("content");
+			if (content.size() == 0)
+			{
+				return msg;
+			}
+			for (int i = 0; i < content.size() - 1; i++)
+			{
+				contentArray.add(content.get(i));
+			}
+			JsonObject last = content.get(content.size() - 1).getAsJsonObject().deepCopy();
+			last.add("cache_control", ephemeral());
+			contentArray.add(last);
+		}
+
+		JsonObject cachedMsg = new JsonObject();
+		cachedMsg.addProperty("role", msg.get("role").getAsString());
+		cachedMsg.add("content", contentArray);
+		return cachedMsg;
+	}
+
+	private Segment toolsSegment()
+	{
+		if (toolsSegment == null)
+		{
+			// The tools array is large and completely static between requests; its
+			// breakpoint goes on the last tool definition so the whole array is cached.
+			JsonArray tools = ClaudeTools.buildToolDefinitions();
+			byte[] plain = encode(tools);
+			int tokens = TokenEstimator.estimate(tools);
+			tools.get(tools.size() - 1).getAsJsonObject().add("cache_control", ephemeral());
+			toolsSegment = new Segment(plain, encode(tools), tokens);
+		}
+		return toolsSegment;
+	}
+
+	private Segment textSegment(String text)
+	{
+		JsonObject block = new JsonObject();
+		block.addProperty("type", "text");
+		block.addProperty("text", text);
+		byte[] plain = encode(block);
+		block.add("cache_control", ephemeral());
+		return new Segment(plain, encode(block), TokenEstimator.estimate(text));
+	}
+
+	private byte[] encode(JsonElement element)
+	{
+		Buffer buffer = new Buffer();
+		try
+		{
+			JsonWriter writer = gson.newJsonWriter(new OutputStreamWriter(buffer.outputStream(), StandardCharsets.UTF_8));
+			gson.toJson(element, writer);
+			writer.flush();
+		}
+		catch (IOException e)
+		{
+			throw new JsonIOException(e);
+		}
+		return buffer.readByteArray();
+	}
+
+	private static JsonObject ephemeral()
+	{
+		JsonObject cacheControl = new JsonObject();
+		cacheControl.addProperty("type", "ephemeral");
+		return cacheControl;
+	}
+
+	private static byte[] utf8(String s)
+	{
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the segments directly to the request sink. Segments are immutable, so the
+	 * body can be written again if OkHttp retries the call.
+	 */
+	private static class SegmentedRequestBody extends RequestBody
+	{
+		private final List<byte[]> segments;
+		private final long length;
+
+		SegmentedRequestBody(List<byte[]> segments)
+		{
+			this.segments = segments;
+			long total = 0;
+			for (byte[] segment : segments)
+			{
+				total += segment.length;
+			}
+			this.length = total;
+		}
+
+		@Override
+		public MediaType contentType()
+		{
+			return JSON;
+		}
+
+		@Override
+		public long contentLength()
+		{
+			return length;
+		}
+
+		@Override
+		public void writeTo(BufferedSink sink) throws IOException
+		{
+			for (byte[] segment : segments)
+			{
+				sink.write(segment);
+			}
+		}
+	}
+}
@@ -82,6 +82,54 @@ public interface OsrsAiCompanionConfig extends Config
 		return "";
 	}
 
+	@ConfigItem(
+		keyName = "streamResponses",
+		name = "Stream responses",
+		description = "Show Claude's reply word by word as it is generated instead of waiting for the full response",
+		position = 6,
+		section = apiSection
+	)
+	default boolean streamResponses()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+		keyName = "rememberConversations",
+		name = "Remember conversations",
+		description = "Keep the conversation on disk so it carries on after restarting the client. Clearing the chat deletes it.",
+		position = 7,
+		section = apiSection
+	)
+	default boolean rememberConversations()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+		keyName = "warmPromptCache",
+		name = "Warm cache on login",
+		description = "Once you have logged in, send a one-token request that loads your character and Claude's tools into the prompt cache, so your first question is answered sooner. Costs a cache write each login.",
+		position = 8,
+		section = apiSection
+	)
+	default boolean warmPromptCache()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "reuseAnswers",
+		name = "Reuse recent answers",
+		description = "Answer a question you asked recently straight away with the same reply, as long as nothing it depends on (prices, location, items, progress) has changed",
+		position = 9,
+		section = apiSection
+	)
+	default boolean reuseAnswers()
+	{
+		return true;
+	}
+
 	// -------------------------------------------------------------------------
 	// Event Toggles
 	// -------------------------------------------------------------------------
@@ -11,11 +11,19 @@ import com.osrsaicompanion.handlers.LevelUpEventHandler;
 import com.osrsaicompanion.handlers.LootDropEventHandler;
 import com.osrsaicompanion.handlers.QuestCompleteEventHandler;
 import com.osrsaicompanion.tools.ClaudeTools;
+import com.osrsaicompanion.tools.GePriceService;
+import com.osrsaicompanion.tools.ToolExecutor;
+import com.osrsaicompanion.tools.WikiPageCache;
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.game.ItemManager;
 import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.VarbitChanged;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.ui.ClientToolbar;
@@ -26,6 +34,9 @@ import okhttp3.OkHttpClient;
 import javax.inject.Inject;
 import javax.swing.SwingUtilities;
 import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @PluginDescriptor(
@@ -35,6 +46,9 @@ import java.awt.image.BufferedImage;
 )
 public class OsrsAiCompanionPlugin extends Plugin
 {
+	private static final Path JOURNAL_DIR = RuneLite.RUNELITE_DIR.toPath().resolve("osrs-ai-companion").resolve("journal");
+	private static final Path WIKI_CACHE_DIR = RuneLite.RUNELITE_DIR.toPath().resolve("osrs-ai-companion").resolve("wiki-cache");
+
 	@Inject private Client client;
 	@Inject private ClientThread clientThread;
 	@Inject private ClientToolbar clientToolbar;
@@ -48,6 +62,8 @@ public class OsrsAiCompanionPlugin extends Plugin
 	private AiCompanionPanel panel;
 	private NavigationButton navigationButton;
 	private ClaudeClient claudeClient;
+	private GePriceService priceService;
+	private CompanionEventQueue eventQueue;
 	private LevelUpEventHandler levelUpEventHandler;
 	private QuestCompleteEventHandler questCompleteEventHandler;
 	private DiaryCompletionEventHandler diaryCompletionEventHandler;
@@ -55,12 +71,21 @@ public class OsrsAiCompanionPlugin extends Plugin
 	private BossKillEventHandler bossKillEventHandler;
 	private CollectionLogEventHandler collectionLogEventHandler;
 	private LootDropEventHandler lootDropEventHandler;
+	// Account whose conversation journal is attached, or -1
+	private long journalAccountHash = -1;
 
 	@Override
 	protected void startUp() throws Exception
 	{
 		PlayerContextBuilder contextBuilder = new PlayerContextBuilder(client, itemManager, config);
-		ClaudeTools claudeTools = new ClaudeTools(client, httpClient, gson, itemManager);
+		// Tool requests are cut off on their own, since interrupting a tool does not stop a read
+		OkHttpClient toolHttpClient = httpClient.newBuilder()
+			.callTimeout(ToolExecutor.HTTP_CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+			.build();
+		priceService = new GePriceService(toolHttpClient);
+		priceService.start();
+		ClaudeTools claudeTools = new ClaudeTools(client, toolHttpClient, gson, itemManager, priceService,
+			new WikiPageCache(WIKI_CACHE_DIR, gson));
 		claudeClient = new ClaudeClient(httpClient, gson, config, contextBuilder, claudeTools, clientThread);
 
 		panel = new AiCompanionPanel(this);
@@ -73,25 +98,29 @@ public class OsrsAiCompanionPlugin extends Plugin
 			.build();
 		clientToolbar.addNavigation(navigationButton);
 
-		levelUpEventHandler = new LevelUpEventHandler(claudeClient, contextBuilder, config, () -> panel);
+		claudeClient.setConnectionListener(state -> SwingUtilities.invokeLater(() -> panel.setConnectionState(state)));
+		eventQueue = new CompanionEventQueue(claudeClient, () -> panel);
+
+		levelUpEventHandler = new LevelUpEventHandler(eventQueue, contextBuilder, config, () -> panel);
+		levelUpEventHandler.setLoginSettledListener(claudeClient::startSession);
 		eventBus.register(levelUpEventHandler);
 
-		questCompleteEventHandler = new QuestCompleteEventHandler(client, claudeClient, contextBuilder, config, () -> panel);
+		questCompleteEventHandler = new QuestCompleteEventHandler(client, eventQueue, contextBuilder, config, () -> panel);
 		eventBus.register(questCompleteEventHandler);
 
-		diaryCompletionEventHandler = new DiaryCompletionEventHandler(client, claudeClient, contextBuilder, config, () -> panel);
+		diaryCompletionEventHandler = new DiaryCompletionEventHandler(client, eventQueue, contextBuilder, config, () -> panel);
 		eventBus.register(diaryCompletionEventHandler);
 
-		deathEventHandler = new DeathEventHandler(claudeClient, contextBuilder, config, () -> panel);
+		deathEventHandler = new DeathEventHandler(eventQueue, contextBuilder, config, () -> panel);
 		eventBus.register(deathEventHandler);
 
-		bossKillEventHandler = new BossKillEventHandler(claudeClient, contextBuilder, config, () -> panel);
+		bossKillEventHandler = new BossKillEventHandler(eventQueue, contextBuilder, config, () -> panel);
 		eventBus.register(bossKillEventHandler);
 
-		collectionLogEventHandler = new CollectionLogEventHandler(claudeClient, contextBuilder, config, () -> panel);
+		collectionLogEventHandler = new CollectionLogEventHandler(eventQueue, contextBuilder, config, () -> panel);
 		eventBus.register(collectionLogEventHandler);
 
-		lootDropEventHandler = new LootDropEventHandler(client, itemManager, claudeClient, contextBuilder, config, () -> panel);
+		lootDropEventHandler = new LootDropEventHandler(client, itemManager, eventQueue, contextBuilder, config, () -> panel);
 		eventBus.register(lootDropEventHandler);
 
 		log.info("AI Companion plugin started");
@@ -128,12 +157,56 @@ public class OsrsAiCompanionPlugin extends Plugin
 		panel = null;
 		navigationButton = null;
 
-		claudeClient.clearHistory();
+		eventQueue.shutdown();
+		eventQueue = null;
+
+		// Only the in-memory conversation goes away; the journal keeps it for next time
+		claudeClient.shutdown();
 		claudeClient = null;
+		priceService.shutdown();
+		priceService = null;
+		journalAccountHash = -1;
 
 		log.info("AI Companion plugin stopped");
 	}
 
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		if (event.getGameState() != GameState.LOGGED_IN)
+		{
+			return;
+		}
+		if (!config.rememberConversations())
+		{
+			if (journalAccountHash != -1)
+			{
+				journalAccountHash = -1;
+				claudeClient.attachJournal(null, panel);
+			}
+			return;
+		}
+		long accountHash = client.getAccountHash();
+		if (accountHash == -1 || accountHash == journalAccountHash)
+		{
+			return;
+		}
+		journalAccountHash = accountHash;
+		claudeClient.attachJournal(new ConversationJournal(JOURNAL_DIR.resolve(accountHash + ".journal"), gson), panel);
+	}
+
+	@Subscribe
+	public void onVarbitChanged(VarbitChanged event)
+	{
+		// Diary and combat achievement tool results are read from these varbits and varps;
+		// the rest change many times a tick and would keep their cached results from ever
+		// being reused
+		if (ClaudeTools.readsStatusVar(event.getVarpId(), event.getVarbitId()))
+		{
+			claudeClient.invalidateGameStateTools();
+		}
+	}
+
 	public void sendMessage(String userPrompt)
 	{
 		String apiKey = config.apiKey();
@@ -159,6 +232,7 @@ public class OsrsAiCompanionPlugin extends Plugin
 
 	public void clearHistory()
 	{
+		eventQueue.clear();
 		claudeClient.clearHistory();
 	}
 
@@ -177,6 +251,11 @@ public class OsrsAiCompanionPlugin extends Plugin
 		return config.companionTone();
 	}
 
+	public List<String> getMetricsSummary()
+	{
+		return claudeClient.getMetrics().summaryLines();
+	}
+
 	public boolean isDeveloperMode()
 	{
 		return Boolean.getBoolean("plugin.developerMode");
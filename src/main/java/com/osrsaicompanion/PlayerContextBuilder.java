@@ -17,23 +17,139 @@ import net.runelite.api.coords.WorldPoint;
 import net.runelite.client.game.ItemManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the system prompts in two steps: {@link #snapshot()} copies the raw game state on
+ * the client thread, and the build methods format a snapshot into text on any thread, so
+ * the string work never costs the client frame time.
+ *
+ * Quest states and item names are the only things that are slow to read. Quest states are
+ * kept until {@link #invalidateQuestStates()} is called when the quest handler sees a quest
+ * change state, and item names never change, so both are only looked up the first time
+ * they are needed.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class PlayerContextBuilder
 {
+	// "Total XP: 1,234,567. " and each skill's " (737,627 XP)"
+	private static final Pattern XP_FIGURES = Pattern.compile("Total XP: [\\d,]+\\. | \\([\\d,]+ XP\\)");
+
+	private static final int COINS = 995;
+	private static final int BANK_ITEMS = 50;
+
+	private static final Skill[] BREAKDOWN_SKILLS = {
+		Skill.ATTACK, Skill.STRENGTH, Skill.DEFENCE, Skill.RANGED, Skill.PRAYER,
+		Skill.MAGIC, Skill.RUNECRAFT, Skill.HITPOINTS, Skill.CRAFTING, Skill.MINING,
+		Skill.SMITHING, Skill.FISHING, Skill.COOKING, Skill.FIREMAKING, Skill.WOODCUTTING,
+		Skill.AGILITY, Skill.HERBLORE, Skill.THIEVING, Skill.FLETCHING, Skill.SLAYER,
+		Skill.FARMING, Skill.CONSTRUCTION, Skill.HUNTER, Skill.SAILING
+	};
+
+	private static final String[] DIARY_TIERS = {null, "Easy", "Medium", "Hard", "Elite"};
+	private static final String[] DIARY_NAMES = {
+		"Ardougne", "Desert", "Falador", "Fremennik", "Kandarin", "Karamja",
+		"Kourend", "Lumbridge", "Morytania", "Varrock", "Western", "Wilderness"
+	};
+	// Easy, medium, hard and elite completion varbits, in DIARY_NAMES order
+	private static final int[][] DIARY_VARBITS = {
+		{Varbits.DIARY_ARDOUGNE_EASY, Varbits.DIARY_ARDOUGNE_MEDIUM, Varbits.DIARY_ARDOUGNE_HARD, Varbits.DIARY_ARDOUGNE_ELITE},
+		{Varbits.DIARY_DESERT_EASY, Varbits.DIARY_DESERT_MEDIUM, Varbits.DIARY_DESERT_HARD, Varbits.DIARY_DESERT_ELITE},
+		{Varbits.DIARY_FALADOR_EASY, Varbits.DIARY_FALADOR_MEDIUM, Varbits.DIARY_FALADOR_HARD, Varbits.DIARY_FALADOR_ELITE},
+		{Varbits.DIARY_FREMENNIK_EASY, Varbits.DIARY_FREMENNIK_MEDIUM, Varbits.DIARY_FREMENNIK_HARD, Varbits.DIARY_FREMENNIK_ELITE},
+		{Varbits.DIARY_KANDARIN_EASY, Varbits.DIARY_KANDARIN_MEDIUM, Varbits.DIARY_KANDARIN_HARD, Varbits.DIARY_KANDARIN_ELITE},
+		{Varbits.DIARY_KARAMJA_EASY, Varbits.DIARY_KARAMJA_MEDIUM, Varbits.DIARY_KARAMJA_HARD, Varbits.DIARY_KARAMJA_ELITE},
+		{Varbits.DIARY_KOUREND_EASY, Varbits.DIARY_KOUREND_MEDIUM, Varbits.DIARY_KOUREND_HARD, Varbits.DIARY_KOUREND_ELITE},
+		{Varbits.DIARY_LUMBRIDGE_EASY, Varbits.DIARY_LUMBRIDGE_MEDIUM, Varbits.DIARY_LUMBRIDGE_HARD, Varbits.DIARY_LUMBRIDGE_ELITE},
+		{Varbits.DIARY_MORYTANIA_EASY, Varbits.DIARY_MORYTANIA_MEDIUM, Varbits.DIARY_MORYTANIA_HARD, Varbits.DIARY_MORYTANIA_ELITE},
+		{Varbits.DIARY_VARROCK_EASY, Varbits.DIARY_VARROCK_MEDIUM, Varbits.DIARY_VARROCK_HARD, Varbits.DIARY_VARROCK_ELITE},
+		{Varbits.DIARY_WESTERN_EASY, Varbits.DIARY_WESTERN_MEDIUM, Varbits.DIARY_WESTERN_HARD, Varbits.DIARY_WESTERN_ELITE},
+		{Varbits.DIARY_WILDERNESS_EASY, Varbits.DIARY_WILDERNESS_MEDIUM, Varbits.DIARY_WILDERNESS_HARD, Varbits.DIARY_WILDERNESS_ELITE}
+	};
+
 	private final Client client;
 	private final ItemManager itemManager;
 	private final OsrsAiCompanionConfig config;
 
-	public String buildSlowSystemPrompt()
+	// Filled on the client thread, read when formatting; "" for ids without a name
+	private final Map<Integer, String> itemNames = new ConcurrentHashMap<>();
+	// Null until read, and again after a quest changes state
+	private volatile QuestState[] questStates;
+
+	/**
+	 * Copies everything the prompts need. Must be called on the client thread.
+	 */
+	public PlayerSnapshot snapshot()
 	{
-		String playerName = getPlayerName();
 		Player localPlayer = client.getLocalPlayer();
-		int combatLevel = localPlayer != null ? localPlayer.getCombatLevel() : 0;
+		Skill[] skills = Skill.values();
+		int[] realLevels = new int[skills.length];
+		int[] boostedLevels = new int[skills.length];
+		int[] experience = new int[skills.length];
+		for (Skill skill : skills)
+		{
+			if (skill == Skill.OVERALL)
+			{
+				continue;
+			}
+			realLevels[skill.ordinal()] = client.getRealSkillLevel(skill);
+			boostedLevels[skill.ordinal()] = client.getBoostedSkillLevel(skill);
+			experience[skill.ordinal()] = client.getSkillExperience(skill);
+		}
+
+		int[] diaryTiers = new int[DIARY_VARBITS.length];
+		for (int i = 0; i < DIARY_VARBITS.length; i++)
+		{
+			for (int tier = DIARY_VARBITS[i].length; tier > 0; tier--)
+			{
+				if (client.getVarbitValue(DIARY_VARBITS[i][tier - 1]) == 1)
+				{
+					diaryTiers[i] = tier;
+					break;
+				}
+			}
+		}
+
+		WorldPoint location = localPlayer != null ? localPlayer.getWorldLocation() : null;
+		return new PlayerSnapshot(
+			localPlayer != null ? localPlayer.getName() : null,
+			localPlayer != null ? localPlayer.getCombatLevel() : 0,
+			realLevels,
+			boostedLevels,
+			experience,
+			client.getEnergy(),
+			questStates(),
+			diaryTiers,
+			items(InventoryID.INVENTORY, Integer.MAX_VALUE),
+			items(InventoryID.EQUIPMENT, Integer.MAX_VALUE),
+			items(InventoryID.BANK, BANK_ITEMS),
+			location != null,
+			location != null ? location.getRegionID() : 0,
+			location != null ? location.getX() : 0,
+			location != null ? location.getY() : 0,
+			location != null ? location.getPlane() : 0,
+			client.getVarpValue(VarPlayer.SLAYER_TASK_SIZE));
+	}
+
+	/**
+	 * Forgets the quest states read so far, so the next snapshot reads every quest again.
+	 * That re-read runs a client script per quest, so this is only called when a quest's
+	 * state is known to have changed or the player logs out, not on every varbit change.
+	 */
+	public void invalidateQuestStates()
+	{
+		questStates = null;
+	}
+
+	public String buildSlowSystemPrompt(PlayerSnapshot snapshot)
+	{
+		String playerName = snapshot.getPlayerName() != null ? snapshot.getPlayerName() : "a player";
 
 		int totalLevel = 0;
 		long totalXp = 0;
@@ -43,8 +159,8 @@ public class PlayerContextBuilder
 			{
 				continue;
 			}
-			totalLevel += client.getRealSkillLevel(skill);
-			totalXp += client.getSkillExperience(skill);
+			totalLevel += snapshot.getRealLevels()[skill.ordinal()];
+			totalXp += snapshot.getExperience()[skill.ordinal()];
 		}
 
 		StringBuilder sb = new StringBuilder();
@@ -56,13 +172,13 @@ public class PlayerContextBuilder
 			sb.append(tone.getSystemPrompt()).append(" ");
 		}
 
-		sb.append("Combat level: ").append(combatLevel).append(". ");
+		sb.append("Combat level: ").append(snapshot.getCombatLevel()).append(". ");
 		sb.append("Total level: ").append(totalLevel).append(". ");
 		sb.append("Total XP: ").append(String.format("%,d", totalXp)).append(". ");
-		sb.append("Skill breakdown: ").append(getSkillBreakdown()).append(". ");
-		sb.append("Completed quests: ").append(emptyOr(getQuestsByState(QuestState.FINISHED), "None")).append(". ");
-		sb.append("Quests in progress: ").append(emptyOr(getQuestsByState(QuestState.IN_PROGRESS), "None")).append(". ");
-		sb.append("Achievement diaries: ").append(emptyOr(getAchievementDiaryStatus(), "None completed")).append(". ");
+		sb.append("Skill breakdown: ").append(getSkillBreakdown(snapshot)).append(". ");
+		sb.append("Completed quests: ").append(emptyOr(getQuestsByState(snapshot, QuestState.FINISHED), "None")).append(". ");
+		sb.append("Quests in progress: ").append(emptyOr(getQuestsByState(snapshot, QuestState.IN_PROGRESS), "None")).append(". ");
+		sb.append("Achievement diaries: ").append(emptyOr(getAchievementDiaryStatus(snapshot), "None completed")).append(". ");
 
 		String goal = config.playerGoal();
 		if (goal != null && !goal.trim().isEmpty())
@@ -71,8 +187,9 @@ public class PlayerContextBuilder
 		}
 
 		sb.append("Be concise, helpful, and friendly. Do not use emojis. ");
-		sb.append("When you need to call the same tool multiple times for different inputs (e.g. pricing several items), call ALL of them in parallel in a single response — never call them one at a time across multiple rounds. ");
-		sb.append("If a get_ge_price tool call returns a not-found or not-tradeable result, accept it immediately and do not retry that item — answer the player using whatever prices you did receive. ");
+		sb.append("To price several items, call get_ge_prices once with all of them. ");
+		sb.append("When you need to call any other tool multiple times for different inputs, call ALL of them in parallel in a single response — never call them one at a time across multiple rounds. ");
+		sb.append("If a GE price lookup reports an item as not found or not tradeable, accept it immediately and do not retry that item — answer the player using whatever prices you did receive. ");
 		sb.append("Each message is prefixed with a timestamp tag like <t:2026-01-01T12:00:00Z>. ");
 		sb.append("Use these timestamps internally to be temporally aware — notice how long ago the player last levelled up, how quickly they are progressing, or how long they have been playing. ");
 		sb.append("IMPORTANT: Never include timestamp tags or any date/time strings in your replies. Never echo back anything inside <t:...> tags. ");
@@ -83,41 +200,70 @@ public class PlayerContextBuilder
 		return sb.toString();
 	}
 
-	public String buildFastSystemPrompt()
+	public String buildFastSystemPrompt(PlayerSnapshot snapshot)
 	{
-		int currentHp = client.getBoostedSkillLevel(Skill.HITPOINTS);
-		int maxHp = client.getRealSkillLevel(Skill.HITPOINTS);
-		int currentPrayer = client.getBoostedSkillLevel(Skill.PRAYER);
-		int maxPrayer = client.getRealSkillLevel(Skill.PRAYER);
-		double runEnergy = client.getEnergy() / 100.0;
+		int hp = Skill.HITPOINTS.ordinal();
+		int prayer = Skill.PRAYER.ordinal();
+		double runEnergy = snapshot.getEnergy() / 100.0;
 
 		StringBuilder sb = new StringBuilder();
 		sb.append("Current live state: ");
-		sb.append("HP: ").append(currentHp).append("/").append(maxHp).append(". ");
-		sb.append("Prayer: ").append(currentPrayer).append("/").append(maxPrayer).append(". ");
+		sb.append("HP: ").append(snapshot.getBoostedLevels()[hp]).append("/").append(snapshot.getRealLevels()[hp]).append(". ");
+		sb.append("Prayer: ").append(snapshot.getBoostedLevels()[prayer]).append("/").append(snapshot.getRealLevels()[prayer]).append(". ");
 		sb.append("Run energy: ").append(String.format("%.1f", runEnergy)).append("%. ");
-		sb.append("Coins: ").append(String.format("%,d", getCoins())).append(" gp. ");
-		sb.append("Inventory: ").append(emptyOr(getInventoryItems(), "Empty")).append(". ");
-		sb.append("Equipped: ").append(emptyOr(getEquippedItems(), "Nothing")).append(". ");
-		sb.append("Location: ").append(getPlayerLocation()).append(". ");
-		sb.append("Slayer task: ").append(getSlayerTask()).append(". ");
-		sb.append("Bank: ").append(getBankContents()).append(".");
+		sb.append("Coins: ").append(String.format("%,d", getCoins(snapshot))).append(" gp. ");
+		sb.append("Inventory: ").append(emptyOr(formatItems(snapshot.getInventory(), true), "Empty")).append(". ");
+		sb.append("Equipped: ").append(emptyOr(formatItems(snapshot.getEquipment(), false), "Nothing")).append(". ");
+		sb.append("Location: ").append(getPlayerLocation(snapshot)).append(". ");
+		sb.append("Slayer task: ").append(getSlayerTask(snapshot)).append(". ");
+		sb.append("Bank: ").append(getBankContents(snapshot)).append(".");
 
 		return sb.toString();
 	}
 
-	private long getCoins()
+	/**
+	 * The slow system prompt without its XP figures: levels, quests, diaries, goal and tone
+	 * stay, XP that changes with every action goes. Cheap, since it only edits the text.
+	 */
+	public static String withoutXp(String slowSystemPrompt)
+	{
+		return XP_FIGURES.matcher(slowSystemPrompt).replaceAll("");
+	}
+
+	/**
+	 * The region the player is standing in, or "" if unknown.
+	 */
+	public String getLocationKey(PlayerSnapshot snapshot)
 	{
-		ItemContainer inventory = client.getItemContainer(InventoryID.INVENTORY);
+		return snapshot.hasLocation() ? Integer.toString(snapshot.getRegionId()) : "";
+	}
+
+	/**
+	 * Inventory and worn equipment, as listed in the fast system prompt.
+	 */
+	public String getItemsKey(PlayerSnapshot snapshot)
+	{
+		return formatItems(snapshot.getInventory(), true) + "|" + formatItems(snapshot.getEquipment(), false);
+	}
+
+	public String getSlayerTask(PlayerSnapshot snapshot)
+	{
+		int taskSize = snapshot.getSlayerTaskSize();
+		return taskSize > 0 ? taskSize + " remaining" : "No slayer task";
+	}
+
+	private static long getCoins(PlayerSnapshot snapshot)
+	{
+		int[] inventory = snapshot.getInventory();
 		if (inventory == null)
 		{
 			return 0;
 		}
-		for (Item item : inventory.getItems())
+		for (int i = 0; i < inventory.length; i += 2)
 		{
-			if (item.getId() == 995) // Coins
+			if (inventory[i] == COINS)
 			{
-				return item.getQuantity();
+				return inventory[i + 1];
 			}
 		}
 		return 0;
@@ -142,24 +288,16 @@ public class PlayerContextBuilder
 		return "a player";
 	}
 
-	private String getSkillBreakdown()
+	private String getSkillBreakdown(PlayerSnapshot snapshot)
 	{
-		Skill[] skills = {
-			Skill.ATTACK, Skill.STRENGTH, Skill.DEFENCE, Skill.RANGED, Skill.PRAYER,
-			Skill.MAGIC, Skill.RUNECRAFT, Skill.HITPOINTS, Skill.CRAFTING, Skill.MINING,
-			Skill.SMITHING, Skill.FISHING, Skill.COOKING, Skill.FIREMAKING, Skill.WOODCUTTING,
-			Skill.AGILITY, Skill.HERBLORE, Skill.THIEVING, Skill.FLETCHING, Skill.SLAYER,
-			Skill.FARMING, Skill.CONSTRUCTION, Skill.HUNTER, Skill.SAILING
-		};
-
 		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < skills.length; i++)
+		for (int i = 0; i < BREAKDOWN_SKILLS.length; i++)
 		{
-			Skill skill = skills[i];
+			Skill skill = BREAKDOWN_SKILLS[i];
 			sb.append(formatSkillName(skill.getName()))
-				.append(" - ").append(client.getRealSkillLevel(skill))
-				.append(" (").append(String.format("%,d", client.getSkillExperience(skill))).append(" XP)");
-			if (i < skills.length - 1)
+				.append(" - ").append(snapshot.getRealLevels()[skill.ordinal()])
+				.append(" (").append(String.format("%,d", snapshot.getExperience()[skill.ordinal()])).append(" XP)");
+			if (i < BREAKDOWN_SKILLS.length - 1)
 			{
 				sb.append(", ");
 			}
@@ -167,168 +305,151 @@ public class PlayerContextBuilder
 		return sb.toString();
 	}
 
-	private String getQuestsByState(QuestState targetState)
+	// Must be called on the client thread
+	private QuestState[] questStates()
 	{
-		List<String> quests = new ArrayList<>();
-		for (Quest quest : Quest.values())
+		QuestState[] states = questStates;
+		if (states != null)
+		{
+			return states;
+		}
+		Quest[] quests = Quest.values();
+		states = new QuestState[quests.length];
+		for (Quest quest : quests)
 		{
 			try
 			{
-				if (quest.getState(client) == targetState)
-				{
-					quests.add(quest.getName());
-				}
+				states[quest.ordinal()] = quest.getState(client);
 			}
 			catch (Exception e)
 			{
 				log.debug("Could not get state for quest: {}", quest.getName());
 			}
 		}
-		return String.join(", ", quests);
-	}
-
-	private String getInventoryItems()
-	{
-		return itemsFromContainer(InventoryID.INVENTORY, Integer.MAX_VALUE);
+		questStates = states;
+		return states;
 	}
 
-	private String getEquippedItems()
+	private static String getQuestsByState(PlayerSnapshot snapshot, QuestState targetState)
 	{
-		ItemContainer equipment = client.getItemContainer(InventoryID.EQUIPMENT);
-		if (equipment == null)
-		{
-			return "";
-		}
-		List<String> items = new ArrayList<>();
-		for (Item item : equipment.getItems())
+		List<String> quests = new ArrayList<>();
+		QuestState[] states = snapshot.getQuestStates();
+		for (Quest quest : Quest.values())
 		{
-			if (item.getId() != -1 && item.getQuantity() > 0)
+			if (states[quest.ordinal()] == targetState)
 			{
-				String name = getItemName(item.getId());
-				if (name != null && !name.isEmpty())
-				{
-					items.add(name);
-				}
+				quests.add(quest.getName());
 			}
 		}
-		return String.join(", ", items);
-	}
-
-	private String getBankContents()
-	{
-		ItemContainer bank = client.getItemContainer(InventoryID.BANK);
-		if (bank == null)
-		{
-			return "Bank not open";
-		}
-		String contents = itemsFromContainer(InventoryID.BANK, 50);
-		return contents.isEmpty() ? "Empty" : contents;
+		return String.join(", ", quests);
 	}
 
-	private String itemsFromContainer(InventoryID id, int limit)
+	// Must be called on the client thread. Pairs of id and quantity for the first limit
+	// items that have a name, or null if the container is not loaded.
+	private int[] items(InventoryID id, int limit)
 	{
 		ItemContainer container = client.getItemContainer(id);
 		if (container == null)
 		{
-			return "";
+			return null;
 		}
-		List<String> items = new ArrayList<>();
+		Item[] items = container.getItems();
+		int[] pairs = new int[Math.min(items.length, limit) * 2];
 		int count = 0;
-		for (Item item : container.getItems())
+		for (Item item : items)
 		{
-			if (count >= limit)
+			if (count * 2 >= pairs.length)
 			{
 				break;
 			}
-			if (item.getId() != -1 && item.getQuantity() > 0)
+			if (item.getId() != -1 && item.getQuantity() > 0 && !itemName(item.getId()).isEmpty())
 			{
-				String name = getItemName(item.getId());
-				if (name != null && !name.isEmpty())
-				{
-					items.add(item.getQuantity() > 1 ? name + " x" + item.getQuantity() : name);
-					count++;
-				}
+				pairs[count * 2] = item.getId();
+				pairs[count * 2 + 1] = item.getQuantity();
+				count++;
 			}
 		}
+		return count * 2 == pairs.length ? pairs : Arrays.copyOf(pairs, count * 2);
+	}
+
+	private String formatItems(int[] pairs, boolean withQuantities)
+	{
+		if (pairs == null)
+		{
+			return "";
+		}
+		List<String> items = new ArrayList<>();
+		for (int i = 0; i < pairs.length; i += 2)
+		{
+			String name = itemNames.getOrDefault(pairs[i], "");
+			int quantity = pairs[i + 1];
+			items.add(withQuantities && quantity > 1 ? name + " x" + quantity : name);
+		}
 		return String.join(", ", items);
 	}
 
-	private String getItemName(int itemId)
+	private String getBankContents(PlayerSnapshot snapshot)
 	{
+		if (snapshot.getBank() == null)
+		{
+			return "Bank not open";
+		}
+		return emptyOr(formatItems(snapshot.getBank(), true), "Empty");
+	}
+
+	// Must be called on the client thread
+	private String itemName(int itemId)
+	{
+		String name = itemNames.get(itemId);
+		if (name != null)
+		{
+			return name;
+		}
+		name = "";
 		try
 		{
 			ItemComposition composition = itemManager.getItemComposition(itemId);
-			if (composition != null)
+			if (composition != null && composition.getName() != null)
 			{
-				return composition.getName();
+				name = composition.getName();
 			}
 		}
 		catch (Exception e)
 		{
 			log.debug("Could not get name for item ID: {}", itemId);
 		}
-		return null;
+		itemNames.put(itemId, name);
+		return name;
 	}
 
-	private String getPlayerLocation()
+	private String getPlayerLocation(PlayerSnapshot snapshot)
 	{
-		Player localPlayer = client.getLocalPlayer();
-		if (localPlayer == null)
-		{
-			return "Unknown";
-		}
-		WorldPoint location = localPlayer.getWorldLocation();
-		if (location == null)
+		if (!snapshot.hasLocation())
 		{
 			return "Unknown";
 		}
-		int regionId = location.getRegionID();
+		int regionId = snapshot.getRegionId();
 		String areaName = getAreaName(regionId);
-		String coords = "(" + location.getX() + ", " + location.getY() + ", " + location.getPlane() + ")";
+		String coords = "(" + snapshot.getX() + ", " + snapshot.getY() + ", " + snapshot.getPlane() + ")";
 		return areaName != null ? areaName + " " + coords : "Region " + regionId + " " + coords;
 	}
 
-	private String getSlayerTask()
-	{
-		int taskSize = client.getVarpValue(VarPlayer.SLAYER_TASK_SIZE);
-		return taskSize > 0 ? taskSize + " remaining" : "No slayer task";
-	}
-
-	private String getAchievementDiaryStatus()
+	private static String getAchievementDiaryStatus(PlayerSnapshot snapshot)
 	{
 		StringBuilder sb = new StringBuilder();
-		appendDiary(sb, "Ardougne", Varbits.DIARY_ARDOUGNE_EASY, Varbits.DIARY_ARDOUGNE_MEDIUM, Varbits.DIARY_ARDOUGNE_HARD, Varbits.DIARY_ARDOUGNE_ELITE);
-		appendDiary(sb, "Desert", Varbits.DIARY_DESERT_EASY, Varbits.DIARY_DESERT_MEDIUM, Varbits.DIARY_DESERT_HARD, Varbits.DIARY_DESERT_ELITE);
-		appendDiary(sb, "Falador", Varbits.DIARY_FALADOR_EASY, Varbits.DIARY_FALADOR_MEDIUM, Varbits.DIARY_FALADOR_HARD, Varbits.DIARY_FALADOR_ELITE);
-		appendDiary(sb, "Fremennik", Varbits.DIARY_FREMENNIK_EASY, Varbits.DIARY_FREMENNIK_MEDIUM, Varbits.DIARY_FREMENNIK_HARD, Varbits.DIARY_FREMENNIK_ELITE);
-		appendDiary(sb, "Kandarin", Varbits.DIARY_KANDARIN_EASY, Varbits.DIARY_KANDARIN_MEDIUM, Varbits.DIARY_KANDARIN_HARD, Varbits.DIARY_KANDARIN_ELITE);
-		appendDiary(sb, "Karamja", Varbits.DIARY_KARAMJA_EASY, Varbits.DIARY_KARAMJA_MEDIUM, Varbits.DIARY_KARAMJA_HARD, Varbits.DIARY_KARAMJA_ELITE);
-		appendDiary(sb, "Kourend", Varbits.DIARY_KOUREND_EASY, Varbits.DIARY_KOUREND_MEDIUM, Varbits.DIARY_KOUREND_HARD, Varbits.DIARY_KOUREND_ELITE);
-		appendDiary(sb, "Lumbridge", Varbits.DIARY_LUMBRIDGE_EASY, Varbits.DIARY_LUMBRIDGE_MEDIUM, Varbits.DIARY_LUMBRIDGE_HARD, Varbits.DIARY_LUMBRIDGE_ELITE);
-		appendDiary(sb, "Morytania", Varbits.DIARY_MORYTANIA_EASY, Varbits.DIARY_MORYTANIA_MEDIUM, Varbits.DIARY_MORYTANIA_HARD, Varbits.DIARY_MORYTANIA_ELITE);
-		appendDiary(sb, "Varrock", Varbits.DIARY_VARROCK_EASY, Varbits.DIARY_VARROCK_MEDIUM, Varbits.DIARY_VARROCK_HARD, Varbits.DIARY_VARROCK_ELITE);
-		appendDiary(sb, "Western", Varbits.DIARY_WESTERN_EASY, Varbits.DIARY_WESTERN_MEDIUM, Varbits.DIARY_WESTERN_HARD, Varbits.DIARY_WESTERN_ELITE);
-		appendDiary(sb, "Wilderness", Varbits.DIARY_WILDERNESS_EASY, Varbits.DIARY_WILDERNESS_MEDIUM, Varbits.DIARY_WILDERNESS_HARD, Varbits.DIARY_WILDERNESS_ELITE);
-		return sb.toString();
-	}
-
-	private void appendDiary(StringBuilder sb, String name, int easy, int medium, int hard, int elite)
-	{
-		String tier = null;
-		if (client.getVarbitValue(elite) == 1) tier = "Elite";
-		else if (client.getVarbitValue(hard) == 1) tier = "Hard";
-		else if (client.getVarbitValue(medium) == 1) tier = "Medium";
-		else if (client.getVarbitValue(easy) == 1) tier = "Easy";
-
-		if (tier != null)
+		int[] tiers = snapshot.getDiaryTiers();
+		for (int i = 0; i < DIARY_NAMES.length; i++)
 		{
-			if (sb.length() > 0) sb.append(", ");
-			sb.append(name).append(": ").append(tier);
+			if (tiers[i] > 0)
+			{
+				if (sb.length() > 0) sb.append(", ");
+				sb.append(DIARY_NAMES[i]).append(": ").append(DIARY_TIERS[tiers[i]]);
+			}
 		}
+		return sb.toString();
 	}
 
-
-	private String getAreaName(int regionId)
+	String getAreaName(int regionId)
 	{
 		Map<Integer, String> regionNames = new HashMap<>();
 
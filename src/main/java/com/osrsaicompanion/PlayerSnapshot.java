@@ -0,0 +1,147 @@
+package com.osrsaicompanion;
+
+import net.runelite.api.QuestState;
+
+/**
+ * The raw game state the system prompts are built from, copied on the client thread so
+ * that all formatting can happen on another one. Holds only ints, ids and enum values;
+ * {@link PlayerContextBuilder} turns it into text.
+ *
+ * Arrays are shared, not copied, and must not be modified. Skill arrays are indexed by
+ * {@code Skill.ordinal()}, quest states by {@code Quest.ordinal()} (null where the state
+ * could not be read) and diary tiers by the builder's diary order (0 for none, 4 for
+ * elite). Item arrays are null when the container is not loaded.
+ */
+public final class PlayerSnapshot
+{
+	private final String playerName;
+	private final int combatLevel;
+	private final int[] realLevels;
+	private final int[] boostedLevels;
+	private final int[] experience;
+	private final int energy;
+	private final QuestState[] questStates;
+	private final int[] diaryTiers;
+	private final int[] inventory;
+	private final int[] equipment;
+	private final int[] bank;
+	private final boolean hasLocation;
+	private final int regionId;
+	private final int x;
+	private final int y;
+	private final int plane;
+	private final int slayerTaskSize;
+
+	PlayerSnapshot(String playerName, int combatLevel, int[] realLevels, int[] boostedLevels, int[] experience,
+		int energy, QuestState[] questStates, int[] diaryTiers, int[] inventory, int[] equipment, int[] bank,
+		boolean hasLocation, int regionId, int x, int y, int plane, int slayerTaskSize)
+	{
+		this.playerName = playerName;
+		this.combatLevel = combatLevel;
+		this.realLevels = realLevels;
+		this.boostedLevels = boostedLevels;
+		this.experience = experience;
+		this.energy = energy;
+		this.questStates = questStates;
+		this.diaryTiers = diaryTiers;
+		this.inventory = inventory;
+		this.equipment = equipment;
+		this.bank = bank;
+		this.hasLocation = hasLocation;
+		this.regionId = regionId;
+		this.x = x;
+		this.y = y;
+		this.plane = plane;
+		this.slayerTaskSize = slayerTaskSize;
+	}
+
+	/** The local player's name, or null if not known yet. */
+	public String getPlayerName()
+	{
+		return playerName;
+	}
+
+	public int getCombatLevel()
+	{
+		return combatLevel;
+	}
+
+	public int[] getRealLevels()
+	{
+		return realLevels;
+	}
+
+	public int[] getBoostedLevels()
+	{
+		return boostedLevels;
+	}
+
+	public int[] getExperience()
+	{
+		return experience;
+	}
+
+	/** Run energy in hundredths of a percent. */
+	public int getEnergy()
+	{
+		return energy;
+	}
+
+	public QuestState[] getQuestStates()
+	{
+		return questStates;
+	}
+
+	public int[] getDiaryTiers()
+	{
+		return diaryTiers;
+	}
+
+	/** Pairs of item id and quantity, empty slots left out. */
+	public int[] getInventory()
+	{
+		return inventory;
+	}
+
+	/** Pairs of item id and quantity, empty slots left out. */
+	public int[] getEquipment()
+	{
+		return equipment;
+	}
+
+	/** Pairs of item id and quantity for the first banked items, or null if the bank is not open. */
+	public int[] getBank()
+	{
+		return bank;
+	}
+
+	public boolean hasLocation()
+	{
+		return hasLocation;
+	}
+
+	public int getRegionId()
+	{
+		return regionId;
+	}
+
+	public int getX()
+	{
+		return x;
+	}
+
+	public int getY()
+	{
+		return y;
+	}
+
+	public int getPlane()
+	{
+		return plane;
+	}
+
+	public int getSlayerTaskSize()
+	{
+		return slayerTaskSize;
+	}
+}
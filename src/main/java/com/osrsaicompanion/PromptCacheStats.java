@@ -0,0 +1,79 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session totals of the prompt-cache fields in Messages API usage, so the effect of
+ * cache breakpoints and history trimming shows up in the log as a hit rate.
+ */
+public class PromptCacheStats
+{
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong inputTokens = new AtomicLong();
+	private final AtomicLong cacheReadTokens = new AtomicLong();
+	private final AtomicLong cacheWriteTokens = new AtomicLong();
+	private final AtomicLong trims = new AtomicLong();
+
+	public void record(JsonObject usage)
+	{
+		if (usage == null)
+		{
+			return;
+		}
+		requests.incrementAndGet();
+		inputTokens.addAndGet(count(usage, "input_tokens"));
+		cacheReadTokens.addAndGet(count(usage, "cache_read_input_tokens"));
+		cacheWriteTokens.addAndGet(count(usage, "cache_creation_input_tokens"));
+	}
+
+	public void recordTrim()
+	{
+		trims.incrementAndGet();
+	}
+
+	/**
+	 * Fraction of all input tokens this session that were served from the cache.
+	 */
+	public double hitRate()
+	{
+		long read = cacheReadTokens.get();
+		long total = read + cacheWriteTokens.get() + inputTokens.get();
+		return total == 0 ? 0 : (double) read / total;
+	}
+
+	public long getRequests()
+	{
+		return requests.get();
+	}
+
+	public long getCacheReadTokens()
+	{
+		return cacheReadTokens.get();
+	}
+
+	public long getCacheWriteTokens()
+	{
+		return cacheWriteTokens.get();
+	}
+
+	public long getTrims()
+	{
+		return trims.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("requests=%d, cache_read=%d, cache_write=%d, uncached=%d, hit_rate=%.1f%%, trims=%d",
+			requests.get(), cacheReadTokens.get(), cacheWriteTokens.get(), inputTokens.get(), hitRate() * 100, trims.get());
+	}
+
+	static long count(JsonObject usage, String key)
+	{
+		JsonElement value = usage.get(key);
+		return value != null && !value.isJsonNull() ? value.getAsLong() : 0;
+	}
+}
@@ -0,0 +1,103 @@
+package com.osrsaicompanion;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sorts every turn into a {@link Route} and picks the model, max_tokens and tool use
+ * for it, so a one-line level-up reaction does not go to the configured (possibly Opus)
+ * model with the full tool set.
+ *
+ * Event reactions always go to Haiku with a short reply limit and tool use switched off.
+ * Questions typed by the player keep the configured model; short factual ones get a
+ * smaller reply limit, anything that looks like it needs lookups or planning gets the
+ * configured limit.
+ */
+public class RequestRouter
+{
+	static final int EVENT_MAX_TOKENS = 300;
+	static final int QUICK_MAX_TOKENS = 600;
+	// Longer than this and it is not a quick question, whatever it asks
+	static final int QUICK_MAX_CHARS = 100;
+
+	private static final List<String> RESEARCH_HINTS = Arrays.asList(
+		"price", "worth", " ge ", "grand exchange", "wiki", "guide", "how do i", "how should", "what should",
+		"best", "compare", "recommend", "plan", "route", "setup", "gear", "money", "profit", "diary",
+		"diaries", "combat achievement", "requirement", "strategy", "step");
+
+	public enum Route
+	{
+		/** A reaction to an in-game event: Haiku, short, no tools. */
+		EVENT_REACTION("event reaction", false),
+		/** A short factual question from the player. */
+		QUICK_QUESTION("quick question", true),
+		/** A question that will likely need tool lookups or a longer answer. */
+		RESEARCH("research", true);
+
+		private final String label;
+		private final boolean toolsEnabled;
+
+		Route(String label, boolean toolsEnabled)
+		{
+			this.label = label;
+			this.toolsEnabled = toolsEnabled;
+		}
+
+		public String getLabel()
+		{
+			return label;
+		}
+
+		public boolean isToolsEnabled()
+		{
+			return toolsEnabled;
+		}
+	}
+
+	private final OsrsAiCompanionConfig config;
+
+	public RequestRouter(OsrsAiCompanionConfig config)
+	{
+		this.config = config;
+	}
+
+	public static Route classify(ActiveTurn.Source source, String prompt)
+	{
+		if (source == ActiveTurn.Source.EVENT)
+		{
+			return Route.EVENT_REACTION;
+		}
+		String text = " " + prompt.trim().toLowerCase(Locale.ROOT) + " ";
+		if (text.length() - 2 > QUICK_MAX_CHARS || text.indexOf('?') != text.lastIndexOf('?'))
+		{
+			return Route.RESEARCH;
+		}
+		for (String hint : RESEARCH_HINTS)
+		{
+			if (text.contains(hint))
+			{
+				return Route.RESEARCH;
+			}
+		}
+		return Route.QUICK_QUESTION;
+	}
+
+	public AiModel model(Route route)
+	{
+		return route == Route.EVENT_REACTION ? AiModel.HAIKU : config.model();
+	}
+
+	public int maxTokens(Route route)
+	{
+		switch (route)
+		{
+			case EVENT_REACTION:
+				return Math.min(config.maxTokens(), EVENT_MAX_TOKENS);
+			case QUICK_QUESTION:
+				return Math.min(config.maxTokens(), QUICK_MAX_TOKENS);
+			default:
+				return config.maxTokens();
+		}
+	}
+}
@@ -0,0 +1,366 @@
+package com.osrsaicompanion;
+
+import com.osrsaicompanion.tools.ItemAliases;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Answers a question the player has recently asked again without calling the API.
+ *
+ * Questions are reduced to a set of words: lower-cased, punctuation and stop words
+ * dropped, plurals folded and common item abbreviations ("whip", "dds") expanded, so
+ * "How much is a whip?" and "how much are whips" share an entry. Each question depends
+ * on some of the player's state ({@link Dependency}), and an answer is only reused while
+ * that state is the same as when it was given and the answer is fresh. Prices go stale
+ * much sooner than anything else.
+ *
+ * Questions that refer back to the conversation ("what about that one?") or ask about
+ * live stats such as HP are never cached, since the answer depends on more than the
+ * question. Close matches may differ only by filler words such as "level", so
+ * a question about a different boss, item or number never matches; they are looked up
+ * among at most {@link #MAX_ENTRIES} entries, least recently used first out.
+ */
+public class ResponseCache
+{
+	static final int MAX_ENTRIES = 64;
+	static final long FRESH_MS = 30 * 60_000L;
+	static final long PRICE_FRESH_MS = 5 * 60_000L;
+	// Share of words two questions must have in common to count as the same question, on
+	// top of every word they do not share being filler
+	static final double MIN_SIMILARITY = 0.8;
+	// Longer questions are too specific to come up again
+	static final int MAX_WORDS = 12;
+
+	/**
+	 * State an answer may depend on. The caller supplies a value for each, compared for
+	 * equality only.
+	 */
+	public enum Dependency
+	{
+		/** Levels, quests, diaries, goal and tone; every answer depends on these. */
+		PROGRESS,
+		/** The region the player is in. */
+		LOCATION,
+		/** Inventory and worn equipment. */
+		ITEMS,
+		/** The current slayer task. */
+		SLAYER,
+		/** Grand Exchange prices; only bounds freshness, there is no state to compare. */
+		PRICES
+	}
+
+	private static final Set<String> STOP_WORDS = new TreeSet<>(Arrays.asList(
+		"a", "an", "the", "is", "are", "was", "were", "be", "am", "what", "whats", "how", "hows", "much",
+		"does", "do", "did", "i", "im", "ive", "me", "my", "you", "your", "can", "could", "would", "should",
+		"of", "for", "to", "in", "on", "at", "please", "tell", "hey", "hi", "claude", "right", "now",
+		"currently", "current", "and", "or", "so", "just", "about", "any", "some", "with", "whether"));
+
+	// Words that can be added to or left out of a question without changing what it asks.
+	// Close matches may only differ by these; any other word, and every number, must match.
+	private static final Set<String> FILLER = new TreeSet<>(Arrays.asList(
+		"level", "lvl", "really", "actually", "exactly", "like", "want", "need", "know", "wondering",
+		"wonder", "think", "guess", "question", "quick", "quickly", "thing", "thank", "thanks", "pls",
+		"plz", "mate", "bro", "ok", "okay", "yeah"));
+
+	// Refer back to earlier turns, or to state that changes from moment to moment
+	private static final Set<String> UNCACHEABLE = new TreeSet<>(Arrays.asList(
+		"it", "its", "that", "this", "those", "these", "they", "them", "their", "he", "she", "him", "her",
+		"other", "else", "again", "more", "instead", "also", "too", "then", "previous", "last", "earlier",
+		"hp", "health", "hitpoint", "hitpoints", "energy", "today", "time"));
+
+	// Words with the same meaning in a question, on top of the item abbreviations in ItemAliases
+	private static final Map<String, String> ALIASES = new HashMap<>();
+	private static final Map<Dependency, Set<String>> DEPENDENCY_WORDS = new EnumMap<>(Dependency.class);
+
+	static
+	{
+		ALIASES.put("dhide", "dragonhide");
+		ALIASES.put("ge", "grand exchange");
+		ALIASES.put("worth", "price");
+		ALIASES.put("cost", "price");
+		ALIASES.put("value", "price");
+
+		DEPENDENCY_WORDS.put(Dependency.LOCATION, set("where", "here", "nearby", "near", "nearest", "closest", "location", "area", "around"));
+		DEPENDENCY_WORDS.put(Dependency.ITEMS, set("inventory", "invent", "bank", "gear", "equipment", "equipped",
+			"wearing", "wear", "carrying", "have", "got", "coin", "cash", "setup"));
+		DEPENDENCY_WORDS.put(Dependency.SLAYER, set("slayer", "task"));
+		DEPENDENCY_WORDS.put(Dependency.PRICES, set("price", "gp", "sell", "buy", "exchange", "profit", "money"));
+	}
+
+	/**
+	 * A normalised question plus the state it was asked in.
+	 */
+	public static final class Key
+	{
+		private final Set<String> words;
+		private final Set<Dependency> dependencies;
+		private final Map<Dependency, String> state;
+
+		Key(Set<String> words, Set<Dependency> dependencies, Map<Dependency, String> state)
+		{
+			this.words = words;
+			this.dependencies = dependencies;
+			this.state = state;
+		}
+
+		Set<String> getWords()
+		{
+			return words;
+		}
+
+		Set<Dependency> getDependencies()
+		{
+			return dependencies;
+		}
+	}
+
+	private static final class Entry
+	{
+		final Key key;
+		final Set<Dependency> dependencies;
+		final String answer;
+		final long expiresAt;
+
+		Entry(Key key, Set<Dependency> dependencies, String answer, long expiresAt)
+		{
+			this.key = key;
+			this.dependencies = dependencies;
+			this.answer = answer;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private final LongSupplier clock;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	// Keyed by the sorted words; access-ordered so iteration starts at the least recently
+	// used entry. Guarded by this.
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+		{
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	public ResponseCache()
+	{
+		this(System::currentTimeMillis);
+	}
+
+	ResponseCache(LongSupplier clock)
+	{
+		this.clock = clock;
+	}
+
+	/**
+	 * The key for a question asked in the given state, or null if its answer should never
+	 * be reused.
+	 */
+	public static Key key(String prompt, Map<Dependency, String> state)
+	{
+		Set<String> words = normalise(prompt);
+		if (words == null || words.isEmpty() || words.size() > MAX_WORDS)
+		{
+			return null;
+		}
+		Set<Dependency> dependencies = EnumSet.of(Dependency.PROGRESS);
+		for (Map.Entry<Dependency, Set<String>> dependency : DEPENDENCY_WORDS.entrySet())
+		{
+			if (!Collections.disjoint(words, dependency.getValue()))
+			{
+				dependencies.add(dependency.getKey());
+			}
+		}
+		Map<Dependency, String> snapshot = new EnumMap<>(Dependency.class);
+		snapshot.putAll(state);
+		return new Key(words, dependencies, snapshot);
+	}
+
+	/**
+	 * The question's words, or null if it refers to something the words alone do not
+	 * pin down.
+	 */
+	static Set<String> normalise(String prompt)
+	{
+		Set<String> words = new TreeSet<>();
+		String text = prompt.toLowerCase(Locale.ROOT).replace("'", "").replace("’", "");
+		for (String word : text.split("[^a-z0-9]+"))
+		{
+			if (word.isEmpty() || STOP_WORDS.contains(word))
+			{
+				continue;
+			}
+			if (UNCACHEABLE.contains(word))
+			{
+				return null;
+			}
+			String alias = alias(word);
+			if (alias == null)
+			{
+				alias = alias(singular(word));
+			}
+			for (String part : (alias != null ? alias : word).split(" "))
+			{
+				words.add(singular(part));
+			}
+		}
+		return words;
+	}
+
+	private static String alias(String word)
+	{
+		String alias = ALIASES.get(word);
+		return alias != null ? alias : ItemAliases.get(word);
+	}
+
+	/**
+	 * A fresh answer to the same or a closely matching question asked in the same state,
+	 * or null.
+	 */
+	public synchronized String get(Key key)
+	{
+		long now = clock.getAsLong();
+		Entry entry = entries.get(String.join(" ", key.words));
+		if (entry == null || !matches(entry, key, now))
+		{
+			entry = null;
+			for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); )
+			{
+				Entry candidate = it.next();
+				if (now >= candidate.expiresAt)
+				{
+					it.remove();
+				}
+				else if (entry == null && closeMatch(candidate.key.words, key.words) && matches(candidate, key, now))
+				{
+					entry = candidate;
+				}
+			}
+		}
+		if (entry == null)
+		{
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.answer;
+	}
+
+	/**
+	 * Remembers the answer to a question. usedPrices marks an answer that quoted GE prices,
+	 * which goes stale sooner whatever the question's wording.
+	 */
+	public synchronized void put(Key key, String answer, boolean usedPrices)
+	{
+		Set<Dependency> dependencies = EnumSet.copyOf(key.dependencies);
+		if (usedPrices)
+		{
+			dependencies.add(Dependency.PRICES);
+		}
+		long freshFor = dependencies.contains(Dependency.PRICES) ? PRICE_FRESH_MS : FRESH_MS;
+		entries.put(String.join(" ", key.words), new Entry(key, dependencies, answer, clock.getAsLong() + freshFor));
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+	}
+
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	// Fresh, and every piece of state either question depends on is unchanged
+	private static boolean matches(Entry entry, Key key, long now)
+	{
+		if (now >= entry.expiresAt)
+		{
+			return false;
+		}
+		for (Dependency dependency : Dependency.values())
+		{
+			if ((entry.dependencies.contains(dependency) || key.dependencies.contains(dependency))
+				&& !Objects.equals(entry.key.state.get(dependency), key.state.get(dependency)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Every word the questions do not share is filler, and there is little enough of it
+	static boolean closeMatch(Set<String> a, Set<String> b)
+	{
+		for (String word : a)
+		{
+			if (!b.contains(word) && !FILLER.contains(word))
+			{
+				return false;
+			}
+		}
+		for (String word : b)
+		{
+			if (!a.contains(word) && !FILLER.contains(word))
+			{
+				return false;
+			}
+		}
+		return similarity(a, b) >= MIN_SIMILARITY;
+	}
+
+	// Jaccard similarity of two word sets
+	static double similarity(Set<String> a, Set<String> b)
+	{
+		int common = 0;
+		for (String word : a)
+		{
+			if (b.contains(word))
+			{
+				common++;
+			}
+		}
+		int union = a.size() + b.size() - common;
+		return union == 0 ? 1.0 : (double) common / union;
+	}
+
+	private static String singular(String word)
+	{
+		if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss"))
+		{
+			return word.substring(0, word.length() - 1);
+		}
+		return word;
+	}
+
+	private static Set<String> set(String... words)
+	{
+		return new TreeSet<>(Arrays.asList(words));
+	}
+}
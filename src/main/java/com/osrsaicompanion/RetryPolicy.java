@@ -0,0 +1,101 @@
+package com.osrsaicompanion;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides whether a failed Messages API request is worth repeating and how long to wait
+ * first.
+ *
+ * Connection failures, 408, 429, 5xx and 529 (overloaded) are retried. The delay doubles
+ * with every attempt up to a cap, and half of it is randomised ("equal jitter") so that a
+ * brief outage does not have every retry land on the API at the same moment, while still
+ * guaranteeing the wait actually grows. A retry-after header from the server takes
+ * precedence over the computed delay; one asking for more than {@link #MAX_RETRY_AFTER_MS}
+ * means the turn fails straight away rather than retrying sooner than the server asked.
+ */
+public class RetryPolicy
+{
+	static final int MAX_RETRIES = 4;
+	static final long BASE_DELAY_MS = 1000;
+	static final long MAX_DELAY_MS = 30_000;
+	// Longer retry-after waits are not retried at all; the player would rather see an error
+	static final long MAX_RETRY_AFTER_MS = 60_000;
+	// Returned by delayMillis when the server asked for a longer wait than that
+	public static final long NO_RETRY = -1;
+
+	private final DoubleSupplier random;
+
+	public RetryPolicy()
+	{
+		this(() -> ThreadLocalRandom.current().nextDouble());
+	}
+
+	RetryPolicy(DoubleSupplier random)
+	{
+		this.random = random;
+	}
+
+	/**
+	 * True for status codes that indicate a transient problem on the API side.
+	 */
+	public static boolean isRetryable(int statusCode)
+	{
+		return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+	}
+
+	/**
+	 * True for status codes that suggest the API itself is unhealthy, as opposed to
+	 * rejecting this particular request. Only these count towards the circuit breaker.
+	 */
+	public static boolean isServerFailure(int statusCode)
+	{
+		return statusCode == 408 || statusCode >= 500;
+	}
+
+	/**
+	 * Whether another attempt is allowed after retryCount retries have already been made.
+	 */
+	public boolean canRetry(int retryCount)
+	{
+		return retryCount < MAX_RETRIES;
+	}
+
+	/**
+	 * Delay before retry number retryCount + 1.
+	 */
+	public long backoffMillis(int retryCount)
+	{
+		long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(retryCount, 20));
+		long half = ceiling / 2;
+		return half + (long) (random.getAsDouble() * half);
+	}
+
+	/**
+	 * Delay before the next retry, honouring a retry-after header (in seconds) if the
+	 * server sent a usable one, or {@link #NO_RETRY} if it asked for too long a wait.
+	 */
+	public long delayMillis(int retryCount, String retryAfterHeader)
+	{
+		if (retryAfterHeader != null)
+		{
+			try
+			{
+				long millis = Long.parseLong(retryAfterHeader.trim()) * 1000;
+				if (millis > MAX_RETRY_AFTER_MS)
+				{
+					return NO_RETRY;
+				}
+				if (millis >= 0)
+				{
+					return millis;
+				}
+			}
+			catch (NumberFormatException ignored)
+			{
+				// HTTP-date form or garbage: fall back to our own backoff
+			}
+		}
+		return backoffMillis(retryCount);
+	}
+}
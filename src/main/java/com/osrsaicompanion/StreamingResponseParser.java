@@ -0,0 +1,313 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Incrementally parses a streamed ("stream": true) Messages API response.
+ * Server-sent events are folded back into the same JSON shape a non-streaming
+ * response has (model, stop_reason, content, usage), so the rest of the client
+ * doesn't need to care which mode was used. Text deltas are forwarded to the
+ * listener as soon as they arrive.
+ */
+@Slf4j
+public class StreamingResponseParser
+{
+	private final Gson gson;
+	private final Consumer<String> textListener;
+
+	private final JsonObject usage = new JsonObject();
+	// Indexed by the content block "index" field. Text and partial tool input JSON are
+	// accumulated in builders and only materialised when the block stops.
+	private final List<JsonObject> blocks = new ArrayList<>();
+	private final List<StringBuilder> blockBuffers = new ArrayList<>();
+
+	private volatile String model;
+	private String stopReason;
+	private String errorType;
+	private String errorMessage;
+	private boolean complete;
+
+	public StreamingResponseParser(Gson gson, Consumer<String> textListener)
+	{
+		this.gson = gson;
+		this.textListener = textListener;
+	}
+
+	/**
+	 * Reads the event stream until message_stop, an error event or end of input, then
+	 * returns the assembled message.
+	 */
+	public JsonObject parse(BufferedSource source) throws IOException
+	{
+		String eventType = null;
+		StringBuilder data = new StringBuilder();
+
+		String line;
+		while (!complete && (line = source.readUtf8Line()) != null)
+		{
+			if (line.isEmpty())
+			{
+				// Blank line terminates the current event
+				if (data.length() > 0)
+				{
+					onEvent(eventType, data.toString());
+				}
+				eventType = null;
+				data.setLength(0);
+			}
+			else if (line.startsWith("event:"))
+			{
+				eventType = line.substring(6).trim();
+			}
+			else if (line.startsWith("data:"))
+			{
+				if (data.length() > 0)
+				{
+					data.append('\n');
+				}
+				data.append(line.substring(5).trim());
+			}
+			// Comment lines (":") and unknown fields are ignored per the SSE spec
+		}
+
+		if (!complete && data.length() > 0)
+		{
+			onEvent(eventType, data.toString());
+		}
+
+		return getMessage();
+	}
+
+	void onEvent(String eventType, String data)
+	{
+		JsonObject event;
+		try
+		{
+			event = gson.fromJson(data, JsonObject.class);
+		}
+		catch (Exception e)
+		{
+			log.warn("[AI] Ignoring malformed stream event {}: {}", eventType, data);
+			return;
+		}
+		if (event == null)
+		{
+			return;
+		}
+
+		String type = event.has("type") ? event.get("type").getAsString() : eventType;
+		if (type == null)
+		{
+			return;
+		}
+
+		switch (type)
+		{
+			case "message_start":
+				JsonObject message = event.getAsJsonObject("message");
+				if (message != null)
+				{
+					if (message.has("model"))
+					{
+						model = message.get("model").getAsString();
+					}
+					mergeUsage(message.getAsJsonObject("usage"));
+				}
+				break;
+			case "content_block_start":
+				startBlock(event.get("index").getAsInt(), event.getAsJsonObject("content_block"));
+				break;
+			case "content_block_delta":
+				applyDelta(event.get("index").getAsInt(), event.getAsJsonObject("delta"));
+				break;
+			case "content_block_stop":
+				stopBlock(event.get("index").getAsInt());
+				break;
+			case "message_delta":
+				JsonObject delta = event.getAsJsonObject("delta");
+				if (delta != null && delta.has("stop_reason") && !delta.get("stop_reason").isJsonNull())
+				{
+					stopReason = delta.get("stop_reason").getAsString();
+				}
+				mergeUsage(event.getAsJsonObject("usage"));
+				break;
+			case "message_stop":
+				complete = true;
+				break;
+			case "error":
+				JsonObject error = event.getAsJsonObject("error");
+				errorType = error != null && error.has("type") ? error.get("type").getAsString() : "error";
+				errorMessage = error != null && error.has("message") ? error.get("message").getAsString() : "";
+				complete = true;
+				break;
+			default:
+				// "ping" and any future event types
+				break;
+		}
+	}
+
+	private void startBlock(int index, JsonObject contentBlock)
+	{
+		while (blocks.size() <= index)
+		{
+			blocks.add(null);
+			blockBuffers.add(null);
+		}
+		JsonObject block = contentBlock != null ? contentBlock.deepCopy() : new JsonObject();
+		StringBuilder buffer = new StringBuilder();
+		if (block.has("text"))
+		{
+			buffer.append(block.get("text").getAsString());
+			if (buffer.length() > 0)
+			{
+				textListener.accept(buffer.toString());
+			}
+		}
+		blocks.set(index, block);
+		blockBuffers.set(index, buffer);
+	}
+
+	private void applyDelta(int index, JsonObject delta)
+	{
+		if (delta == null || index >= blockBuffers.size() || blockBuffers.get(index) == null)
+		{
+			return;
+		}
+		String deltaType = delta.has("type") ? delta.get("type").getAsString() : "";
+		if ("text_delta".equals(deltaType))
+		{
+			String text = delta.get("text").getAsString();
+			blockBuffers.get(index).append(text);
+			textListener.accept(text);
+		}
+		else if ("input_json_delta".equals(deltaType))
+		{
+			blockBuffers.get(index).append(delta.get("partial_json").getAsString());
+		}
+	}
+
+	private void stopBlock(int index)
+	{
+		if (index >= blocks.size() || blocks.get(index) == null)
+		{
+			return;
+		}
+		finishBlock(blocks.get(index), blockBuffers.get(index));
+		blockBuffers.set(index, null);
+	}
+
+	private void finishBlock(JsonObject block, StringBuilder buffer)
+	{
+		if (buffer == null)
+		{
+			return;
+		}
+		String type = block.has("type") ? block.get("type").getAsString() : "";
+		if ("text".equals(type))
+		{
+			block.addProperty("text", buffer.toString());
+		}
+		else if ("tool_use".equals(type))
+		{
+			JsonElement input = null;
+			if (buffer.length() > 0)
+			{
+				try
+				{
+					input = gson.fromJson(buffer.toString(), JsonElement.class);
+				}
+				catch (Exception e)
+				{
+					log.warn("[AI] Could not parse streamed tool input: {}", buffer);
+				}
+			}
+			if (input != null && input.isJsonObject())
+			{
+				block.add("input", input);
+			}
+			else if (!block.has("input"))
+			{
+				block.add("input", new JsonObject());
+			}
+		}
+	}
+
+	/**
+	 * Returns the message assembled so far. Blocks that never received a stop event
+	 * (e.g. the stream was cut off) are included with whatever content arrived.
+	 */
+	public JsonObject getMessage()
+	{
+		JsonArray content = new JsonArray();
+		for (int i = 0; i < blocks.size(); i++)
+		{
+			JsonObject block = blocks.get(i);
+			if (block == null)
+			{
+				continue;
+			}
+			finishBlock(block, blockBuffers.get(i));
+			blockBuffers.set(i, null);
+			content.add(block);
+		}
+
+		JsonObject message = new JsonObject();
+		if (model != null)
+		{
+			message.addProperty("model", model);
+		}
+		if (stopReason != null)
+		{
+			message.addProperty("stop_reason", stopReason);
+		}
+		message.add("content", content);
+		message.add("usage", usage);
+		return message;
+	}
+
+	public String getModel()
+	{
+		return model;
+	}
+
+	public boolean hasError()
+	{
+		return errorType != null;
+	}
+
+	public String getErrorType()
+	{
+		return errorType;
+	}
+
+	public String getErrorMessage()
+	{
+		return errorMessage;
+	}
+
+	private void mergeUsage(JsonObject delta)
+	{
+		if (delta == null)
+		{
+			return;
+		}
+		for (String key : delta.keySet())
+		{
+			JsonElement value = delta.get(key);
+			if (value != null && !value.isJsonNull())
+			{
+				usage.add(key, value);
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+
+/**
+ * Cheap local approximation of Claude's tokenizer, used to budget conversation history.
+ *
+ * {@link #estimate(String)} counts runs of letters and digits at roughly four characters
+ * per token and every symbol as a token of its own, which tracks JSON and wikitext
+ * (brace- and pipe-heavy) much better than a flat characters-per-token ratio. Estimates
+ * are "raw" units; {@link #calibrate} compares them against the input token counts the
+ * API reports and keeps a moving correction factor so budgets converge on real tokens.
+ */
+@Slf4j
+public class TokenEstimator
+{
+	// Role markers and message framing the API adds around every message
+	private static final int MESSAGE_OVERHEAD = 4;
+	private static final int CHARS_PER_WORD_TOKEN = 4;
+
+	// Weight of the newest observation in the moving average
+	private static final double ALPHA = 0.3;
+	private static final double MIN_SCALE = 0.5;
+	private static final double MAX_SCALE = 3.0;
+
+	private volatile double scale = 1.0;
+
+	/**
+	 * Raw token estimate for a piece of text.
+	 */
+	public static int estimate(String text)
+	{
+		if (text == null)
+		{
+			return 0;
+		}
+		int tokens = 0;
+		int run = 0;
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if (c < 128 && Character.isLetterOrDigit(c))
+			{
+				run++;
+				continue;
+			}
+			if (run > 0)
+			{
+				tokens += (run + CHARS_PER_WORD_TOKEN - 1) / CHARS_PER_WORD_TOKEN;
+				run = 0;
+			}
+			// Single spaces merge into the following word; anything else (punctuation,
+			// newlines, non-ASCII) is counted as its own token.
+			if (c != ' ')
+			{
+				tokens++;
+			}
+		}
+		if (run > 0)
+		{
+			tokens += (run + CHARS_PER_WORD_TOKEN - 1) / CHARS_PER_WORD_TOKEN;
+		}
+		return tokens;
+	}
+
+	/**
+	 * Raw token estimate for a history message. Array content (tool_use and tool_result
+	 * turns) is walked rather than serialised, so escaped quotes and newlines in tool
+	 * output are not counted twice.
+	 */
+	public static int estimate(JsonObject message)
+	{
+		JsonElement content = message.get("content");
+		return MESSAGE_OVERHEAD + (content == null ? 0 : estimate(content));
+	}
+
+	static int estimate(JsonElement element)
+	{
+		if (element == null || element.isJsonNull())
+		{
+			return 0;
+		}
+		if (element.isJsonPrimitive())
+		{
+			return element.getAsJsonPrimitive().isString() ? estimate(element.getAsString()) : 1;
+		}
+		int tokens = 1;
+		if (element.isJsonArray())
+		{
+			for (JsonElement child : element.getAsJsonArray())
+			{
+				tokens += estimate(child) + 1;
+			}
+			return tokens;
+		}
+		for (Map.Entry<String, JsonElement> field : element.getAsJsonObject().entrySet())
+		{
+			tokens += estimate(field.getKey()) + 2 + estimate(field.getValue());
+		}
+		return tokens;
+	}
+
+	/**
+	 * Converts a raw estimate into calibrated tokens.
+	 */
+	public long toTokens(long raw)
+	{
+		return Math.round(raw * scale);
+	}
+
+	/**
+	 * Converts a token budget into the raw units stored on history entries.
+	 */
+	public long toRaw(long tokens)
+	{
+		return (long) (tokens / scale);
+	}
+
+	public double getScale()
+	{
+		return scale;
+	}
+
+	/**
+	 * Folds one observation into the correction factor. rawEstimate is the raw estimate
+	 * for the whole request; usage is the "usage" object of the response. Cached input is
+	 * reported separately from input_tokens, so all three counts are summed.
+	 */
+	public void calibrate(long rawEstimate, JsonObject usage)
+	{
+		if (rawEstimate <= 0 || usage == null)
+		{
+			return;
+		}
+		long actual = PromptCacheStats.count(usage, "input_tokens")
+			+ PromptCacheStats.count(usage, "cache_read_input_tokens")
+			+ PromptCacheStats.count(usage, "cache_creation_input_tokens");
+		if (actual <= 0)
+		{
+			return;
+		}
+
+		double observed = Math.max(MIN_SCALE, Math.min(MAX_SCALE, (double) actual / rawEstimate));
+		scale = scale + ALPHA * (observed - scale);
+		log.debug("[AI] Token estimate {} vs actual {} input tokens, scale now {}", rawEstimate, actual, String.format("%.3f", scale));
+	}
+}
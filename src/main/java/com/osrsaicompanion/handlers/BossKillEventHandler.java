@@ -25,7 +25,7 @@ public class BossKillEventHandler
 	// Milestones to celebrate
 	private static final int[] MILESTONES = {1, 50, 100, 250, 500, 1000, 2000, 5000};
 
-	private final ClaudeClient claudeClient;
+	private final CompanionEventQueue eventQueue;
 	private final PlayerContextBuilder contextBuilder;
 	private final OsrsAiCompanionConfig config;
 	private final Supplier<AiCompanionPanel> panelSupplier;
@@ -60,7 +60,7 @@ public class BossKillEventHandler
 			return;
 		}
 
-		if (!config.celebrateBossKills() || claudeClient.apiCallInProgress)
+		if (!config.celebrateBossKills())
 		{
 			return;
 		}
@@ -82,7 +82,10 @@ public class BossKillEventHandler
 			}
 		});
 
-		claudeClient.sendMessage(prompt, panel);
+		String detail = killCount == 1
+			? "killed " + bossName + " for the first time"
+			: "reached " + killCount + " " + bossName + " kills";
+		eventQueue.submit(new CompanionEvent(CompanionEvent.Type.BOSS_KILL, detail, prompt));
 	}
 
 	private static boolean isMilestone(int kc)
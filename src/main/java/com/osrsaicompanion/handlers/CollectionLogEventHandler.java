@@ -17,7 +17,7 @@ public class CollectionLogEventHandler
 {
 	private static final String COLLECTION_LOG_PREFIX = "New item added to your collection log: ";
 
-	private final ClaudeClient claudeClient;
+	private final CompanionEventQueue eventQueue;
 	private final PlayerContextBuilder contextBuilder;
 	private final OsrsAiCompanionConfig config;
 	private final Supplier<AiCompanionPanel> panelSupplier;
@@ -36,7 +36,7 @@ public class CollectionLogEventHandler
 			return;
 		}
 
-		if (!config.celebrateCollectionLog() || claudeClient.apiCallInProgress)
+		if (!config.celebrateCollectionLog())
 		{
 			return;
 		}
@@ -56,6 +56,7 @@ public class CollectionLogEventHandler
 			}
 		});
 
-		claudeClient.sendMessage(prompt, panel);
+		eventQueue.submit(new CompanionEvent(CompanionEvent.Type.COLLECTION_LOG,
+			"added " + itemName + " to my collection log", prompt));
 	}
 }
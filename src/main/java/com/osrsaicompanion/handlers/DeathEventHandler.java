@@ -17,7 +17,7 @@ public class DeathEventHandler
 {
 	private static final String DEATH_MESSAGE = "Oh dear, you are dead!";
 
-	private final ClaudeClient claudeClient;
+	private final CompanionEventQueue eventQueue;
 	private final PlayerContextBuilder contextBuilder;
 	private final OsrsAiCompanionConfig config;
 	private final Supplier<AiCompanionPanel> panelSupplier;
@@ -35,7 +35,7 @@ public class DeathEventHandler
 			return;
 		}
 
-		if (!config.commiserateDeath() || claudeClient.apiCallInProgress)
+		if (!config.commiserateDeath())
 		{
 			return;
 		}
@@ -51,6 +51,6 @@ public class DeathEventHandler
 			}
 		});
 
-		claudeClient.sendMessage(prompt, panel);
+		eventQueue.submit(new CompanionEvent(CompanionEvent.Type.DEATH, "died", prompt));
 	}
 }
@@ -22,7 +22,7 @@ import java.util.function.Supplier;
 public class DiaryCompletionEventHandler
 {
 	private final Client client;
-	private final ClaudeClient claudeClient;
+	private final CompanionEventQueue eventQueue;
 	private final PlayerContextBuilder contextBuilder;
 	private final OsrsAiCompanionConfig config;
 	private final Supplier<AiCompanionPanel> panelSupplier;
@@ -121,7 +121,7 @@ public class DiaryCompletionEventHandler
 
 				if (cached == 0 && current == 1)
 				{
-					if (!config.celebrateDiaryCompletions() || claudeClient.apiCallInProgress)
+					if (!config.celebrateDiaryCompletions())
 					{
 						continue;
 					}
@@ -141,8 +141,8 @@ public class DiaryCompletionEventHandler
 						}
 					});
 
-					claudeClient.sendMessage(prompt, panel);
-					return;
+					eventQueue.submit(new CompanionEvent(CompanionEvent.Type.DIARY,
+						"completed the " + tierName + " " + diaryName + " Achievement Diary", prompt));
 				}
 			}
 		}
@@ -22,7 +22,7 @@ public class LevelUpEventHandler
 	private static final int MAX_LEVEL = 99;
 	private static final long XP_MILESTONE_INTERVAL = 50_000_000L;
 
-	private final ClaudeClient claudeClient;
+	private final CompanionEventQueue eventQueue;
 	private final PlayerContextBuilder contextBuilder;
 	private final OsrsAiCompanionConfig config;
 	private final Supplier<AiCompanionPanel> panelSupplier;
@@ -34,11 +34,21 @@ public class LevelUpEventHandler
 	private volatile boolean cacheReady = false;
 	private volatile boolean needsCacheInit = false;
 	private volatile boolean welcomeSent = false;
+	private volatile Runnable loginSettledListener = () -> { };
 
 	private void sendWelcomeMessage()
 	{
-		AiCompanionPanel panel = panelSupplier.get();
-		claudeClient.sendMessage("I just logged in. Welcome me back and ask what I want to work on today.", panel);
+		eventQueue.submit(new CompanionEvent(CompanionEvent.Type.WELCOME, "logged back in",
+			"I just logged in. Welcome me back and ask what I want to work on today."));
+	}
+
+	/**
+	 * Called once per login, when the initial flood of StatChanged events is over and just
+	 * before the welcome message is queued.
+	 */
+	public void setLoginSettledListener(Runnable loginSettledListener)
+	{
+		this.loginSettledListener = loginSettledListener;
 	}
 
 	public void clearCache()
@@ -88,6 +98,7 @@ public class LevelUpEventHandler
 				if (!welcomeSent)
 				{
 					welcomeSent = true;
+					loginSettledListener.run();
 					sendWelcomeMessage();
 				}
 			}
@@ -107,7 +118,7 @@ public class LevelUpEventHandler
 
 		if (cachedLevel != null && newLevel > cachedLevel)
 		{
-			if (!config.celebrateLevelUps() || claudeClient.apiCallInProgress)
+			if (!config.celebrateLevelUps())
 			{
 				return;
 			}
@@ -124,7 +135,7 @@ public class LevelUpEventHandler
 				}
 			});
 
-			claudeClient.sendMessage(prompt, panel);
+			eventQueue.submit(new CompanionEvent(CompanionEvent.Type.LEVEL_UP, skillName + " to " + newLevel, prompt));
 		}
 		else if (newLevel == MAX_LEVEL && cachedXp != null && newXp > cachedXp)
 		{
@@ -134,7 +145,7 @@ public class LevelUpEventHandler
 
 			if (newMilestone > previousMilestone && newMilestone > 0)
 			{
-				if (!config.celebrateXpMilestones() || claudeClient.apiCallInProgress)
+				if (!config.celebrateXpMilestones())
 				{
 					return;
 				}
@@ -153,7 +164,8 @@ public class LevelUpEventHandler
 					}
 				});
 
-				claudeClient.sendMessage(prompt, panel);
+				eventQueue.submit(new CompanionEvent(CompanionEvent.Type.XP_MILESTONE,
+					milestoneMillions + "m " + skillName + " XP", prompt));
 			}
 		}
 	}
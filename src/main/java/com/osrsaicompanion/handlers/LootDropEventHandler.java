@@ -28,7 +28,7 @@ public class LootDropEventHandler
 
 	private final Client client;
 	private final ItemManager itemManager;
-	private final ClaudeClient claudeClient;
+	private final CompanionEventQueue eventQueue;
 	private final PlayerContextBuilder contextBuilder;
 	private final OsrsAiCompanionConfig config;
 	private final Supplier<AiCompanionPanel> panelSupplier;
@@ -151,7 +151,7 @@ public class LootDropEventHandler
 			return;
 		}
 
-		if (!config.celebrateLoot() || claudeClient.apiCallInProgress)
+		if (!config.celebrateLoot())
 		{
 			return;
 		}
@@ -183,6 +183,7 @@ public class LootDropEventHandler
 			}
 		});
 
-		claudeClient.sendMessage(prompt, panel);
+		eventQueue.submit(new CompanionEvent(CompanionEvent.Type.LOOT,
+			"got a " + String.format("%,d", totalValue) + " gp drop from " + npcName, prompt));
 	}
 }
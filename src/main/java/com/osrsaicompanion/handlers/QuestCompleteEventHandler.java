@@ -23,7 +23,7 @@ import java.util.function.Supplier;
 public class QuestCompleteEventHandler
 {
 	private final Client client;
-	private final ClaudeClient claudeClient;
+	private final CompanionEventQueue eventQueue;
 	private final PlayerContextBuilder contextBuilder;
 	private final OsrsAiCompanionConfig config;
 	private final Supplier<AiCompanionPanel> panelSupplier;
@@ -36,6 +36,7 @@ public class QuestCompleteEventHandler
 	public void clearCache()
 	{
 		questStateCache.clear();
+		contextBuilder.invalidateQuestStates();
 		cacheReady = false;
 		questVarbitChanged = false;
 		needsCacheInit = false;
@@ -111,11 +112,18 @@ public class QuestCompleteEventHandler
 				continue;
 			}
 
+			if (currentState != cachedState)
+			{
+				// This scan is the one place every quest's state is checked after a varbit
+				// change, so the prompt's quest lists are refreshed only from here
+				contextBuilder.invalidateQuestStates();
+			}
+
 			if (currentState == QuestState.FINISHED)
 			{
 				questStateCache.put(quest, QuestState.FINISHED);
 
-				if (!config.celebrateQuestCompletions() || claudeClient.apiCallInProgress)
+				if (!config.celebrateQuestCompletions())
 				{
 					continue;
 				}
@@ -132,8 +140,8 @@ public class QuestCompleteEventHandler
 						panel.appendEventMessage(playerName + " completed " + quest.getName());
 					}
 				});
-				claudeClient.sendMessage(prompt, panel);
-				return;
+				eventQueue.submit(new CompanionEvent(CompanionEvent.Type.QUEST,
+					"completed the quest \"" + quest.getName() + "\"", prompt));
 			}
 			else if (currentState != cachedState)
 			{
@@ -2,24 +2,38 @@ package com.osrsaicompanion.tools;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
 import net.runelite.api.VarPlayer;
 import net.runelite.api.Varbits;
 import net.runelite.client.game.ItemManager;
 import net.runelite.http.api.item.ItemPrice;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Defines and executes the tools exposed to Claude via the Anthropic tool use API.
  * All execute* methods must be called on the client thread.
  */
 @Slf4j
-@RequiredArgsConstructor
 public class ClaudeTools
 {
 	// VarPlayer IDs for bit-packed individual diary task completion.
@@ -50,14 +64,68 @@ public class ClaudeTools
 	private static final int TOTAL_HARD   = 57;
 	private static final int TOTAL_ELITE  = 43;
 
+	// Everything the diary and combat achievement tools read; a change to any other
+	// variable leaves their cached results valid
+	private static final Set<Integer> STATUS_VARPS = Set.of(
+		VARP_TASKCOUNT_EASY, VARP_TASKCOUNT_MEDIUM, VARP_TASKCOUNT_HARD, VARP_TASKCOUNT_ELITE,
+		VARP_ARDOUGNE_1, VARP_ARDOUGNE_2, VARP_DESERT_1, VARP_DESERT_2, VARP_FALADOR_1, VARP_FALADOR_2,
+		VARP_FREMENNIK_1, VARP_FREMENNIK_2, VARP_KANDARIN_1, VARP_KANDARIN_2, VARP_KARAMJA_1, VARP_KARAMJA_2,
+		VARP_KOUREND_1, VARP_KOUREND_2, VARP_LUMBRIDGE_1, VARP_LUMBRIDGE_2, VARP_MORYTANIA_1, VARP_MORYTANIA_2,
+		VARP_VARROCK_1, VARP_VARROCK_2, VARP_WESTERN_1, VARP_WESTERN_2, VARP_WILDERNESS_1, VARP_WILDERNESS_2);
+	private static final Set<Integer> STATUS_VARBITS = Set.of(
+		Varbits.DIARY_ARDOUGNE_EASY, Varbits.DIARY_ARDOUGNE_MEDIUM, Varbits.DIARY_ARDOUGNE_HARD, Varbits.DIARY_ARDOUGNE_ELITE,
+		Varbits.DIARY_DESERT_EASY, Varbits.DIARY_DESERT_MEDIUM, Varbits.DIARY_DESERT_HARD, Varbits.DIARY_DESERT_ELITE,
+		Varbits.DIARY_FALADOR_EASY, Varbits.DIARY_FALADOR_MEDIUM, Varbits.DIARY_FALADOR_HARD, Varbits.DIARY_FALADOR_ELITE,
+		Varbits.DIARY_FREMENNIK_EASY, Varbits.DIARY_FREMENNIK_MEDIUM, Varbits.DIARY_FREMENNIK_HARD, Varbits.DIARY_FREMENNIK_ELITE,
+		Varbits.DIARY_KANDARIN_EASY, Varbits.DIARY_KANDARIN_MEDIUM, Varbits.DIARY_KANDARIN_HARD, Varbits.DIARY_KANDARIN_ELITE,
+		Varbits.DIARY_KARAMJA_EASY, Varbits.DIARY_KARAMJA_MEDIUM, Varbits.DIARY_KARAMJA_HARD, Varbits.DIARY_KARAMJA_ELITE,
+		Varbits.DIARY_KOUREND_EASY, Varbits.DIARY_KOUREND_MEDIUM, Varbits.DIARY_KOUREND_HARD, Varbits.DIARY_KOUREND_ELITE,
+		Varbits.DIARY_LUMBRIDGE_EASY, Varbits.DIARY_LUMBRIDGE_MEDIUM, Varbits.DIARY_LUMBRIDGE_HARD, Varbits.DIARY_LUMBRIDGE_ELITE,
+		Varbits.DIARY_MORYTANIA_EASY, Varbits.DIARY_MORYTANIA_MEDIUM, Varbits.DIARY_MORYTANIA_HARD, Varbits.DIARY_MORYTANIA_ELITE,
+		Varbits.DIARY_VARROCK_EASY, Varbits.DIARY_VARROCK_MEDIUM, Varbits.DIARY_VARROCK_HARD, Varbits.DIARY_VARROCK_ELITE,
+		Varbits.DIARY_WESTERN_EASY, Varbits.DIARY_WESTERN_MEDIUM, Varbits.DIARY_WESTERN_HARD, Varbits.DIARY_WESTERN_ELITE,
+		Varbits.DIARY_WILDERNESS_EASY, Varbits.DIARY_WILDERNESS_MEDIUM, Varbits.DIARY_WILDERNESS_HARD, Varbits.DIARY_WILDERNESS_ELITE,
+		Varbits.COMBAT_ACHIEVEMENT_TIER_EASY, Varbits.COMBAT_ACHIEVEMENT_TIER_MEDIUM, Varbits.COMBAT_ACHIEVEMENT_TIER_HARD,
+		Varbits.COMBAT_ACHIEVEMENT_TIER_ELITE, Varbits.COMBAT_ACHIEVEMENT_TIER_MASTER, Varbits.COMBAT_ACHIEVEMENT_TIER_GRANDMASTER);
+
 	private static final String WIKI_API = "https://oldschool.runescape.wiki/api.php";
 
-	private static final String GE_API = "https://prices.runescape.wiki/api/v1/osrs";
+	// A full inventory plus worn gear; longer lists are cut short with a note
+	static final int MAX_BATCH_ITEMS = 40;
+	// How long search_wiki waits for a page's infobox section before answering without it
+	private static final long SECTION1_TIMEOUT_MS = 8_000;
 
 	private final Client client;
 	private final OkHttpClient httpClient;
 	private final Gson gson;
 	private final ItemManager itemManager;
+	private final GePriceService priceService;
+	private final WikiPageCache wikiCache;
+
+	public ClaudeTools(Client client, OkHttpClient httpClient, Gson gson, ItemManager itemManager)
+	{
+		this(client, httpClient, gson, itemManager, new GePriceService(httpClient), new WikiPageCache(null, gson));
+	}
+
+	public ClaudeTools(Client client, OkHttpClient httpClient, Gson gson, ItemManager itemManager,
+		GePriceService priceService, WikiPageCache wikiCache)
+	{
+		this.client = client;
+		this.httpClient = httpClient;
+		this.gson = gson;
+		this.itemManager = itemManager;
+		this.priceService = priceService;
+		this.wikiCache = wikiCache;
+	}
+
+	/**
+	 * Whether a varp or varbit change can alter a diary or combat achievement tool result.
+	 * Either id may be -1, as in a VarbitChanged event.
+	 */
+	public static boolean readsStatusVar(int varpId, int varbitId)
+	{
+		return STATUS_VARPS.contains(varpId) || STATUS_VARBITS.contains(varbitId);
+	}
 
 	// -------------------------------------------------------------------------
 	// Tool definitions (sent to Claude in every API request)
@@ -100,7 +168,7 @@ public class ClaudeTools
 			"Returns the latest buy and sell prices from the OSRS GE. " +
 			"Use this when the player asks how much something costs, whether something is worth buying or selling, " +
 			"or when giving money-making or shopping advice that depends on current market prices. " +
-			"When pricing multiple items (e.g. a full gear set), call this tool for ALL items in parallel in a single response rather than one at a time.");
+			"To price more than one item (e.g. a full gear set), use get_ge_prices instead.");
 		JsonObject geProperties = new JsonObject();
 		JsonObject geItemProp = new JsonObject();
 		geItemProp.addProperty("type", "string");
@@ -115,6 +183,30 @@ public class ClaudeTools
 		geTool.add("input_schema", geSchema);
 		tools.add(geTool);
 
+		JsonObject geBatchTool = new JsonObject();
+		geBatchTool.addProperty("name", "get_ge_prices");
+		geBatchTool.addProperty("description",
+			"Looks up the current Grand Exchange prices for several OSRS items at once and returns them as one table. " +
+			"Use this instead of get_ge_price whenever more than one item needs pricing, e.g. a gear set, " +
+			"an inventory or the ingredients of a money-making method, and pass ALL the items in a single call.");
+		JsonObject geBatchProperties = new JsonObject();
+		JsonObject geItemsProp = new JsonObject();
+		geItemsProp.addProperty("type", "array");
+		JsonObject geItemsType = new JsonObject();
+		geItemsType.addProperty("type", "string");
+		geItemsProp.add("items", geItemsType);
+		geItemsProp.addProperty("maxItems", MAX_BATCH_ITEMS);
+		geItemsProp.addProperty("description", "Exact or approximate item names, e.g. ['Abyssal whip', 'Dragon defender', 'Fire cape']");
+		geBatchProperties.add("item_names", geItemsProp);
+		JsonObject geBatchSchema = new JsonObject();
+		geBatchSchema.addProperty("type", "object");
+		geBatchSchema.add("properties", geBatchProperties);
+		JsonArray geBatchRequired = new JsonArray();
+		geBatchRequired.add("item_names");
+		geBatchSchema.add("required", geBatchRequired);
+		geBatchTool.add("input_schema", geBatchSchema);
+		tools.add(geBatchTool);
+
 		JsonObject wikiTool = new JsonObject();
 		wikiTool.addProperty("name", "search_wiki");
 		wikiTool.addProperty("description",
@@ -143,6 +235,15 @@ public class ClaudeTools
 	// Tool execution
 	// -------------------------------------------------------------------------
 
+	/**
+	 * True if a result returned by {@link #execute} reports a failure rather than data.
+	 */
+	public static boolean isErrorResult(String result)
+	{
+		return result.startsWith("Error:") || result.startsWith("GE price lookup failed")
+			|| result.startsWith("Wiki search failed") || result.startsWith("Unknown tool");
+	}
+
 	public String execute(String toolName)
 	{
 		return execute(toolName, null);
@@ -159,6 +260,10 @@ public class ClaudeTools
 			case "get_ge_price":
 				String itemName = input != null && input.has("item_name") ? input.get("item_name").getAsString() : "";
 				return executeGetGePrice(itemName);
+			case "get_ge_prices":
+				JsonArray itemNames = input != null && input.has("item_names") && input.get("item_names").isJsonArray()
+					? input.getAsJsonArray("item_names") : new JsonArray();
+				return executeGetGePrices(itemNames);
 			case "search_wiki":
 				String query = input != null && input.has("query") ? input.get("query").getAsString() : "";
 				return executeSearchWiki(query);
@@ -255,24 +360,12 @@ public class ClaudeTools
 			return "No item name provided.";
 		}
 
-		// Resolve item name to ID via RuneLite's ItemManager search.
-		// If not found, ask the wiki — it understands that e.g. "Iron helmet" → "Iron full helm".
-		java.util.List<ItemPrice> results = itemManager.search(itemName);
-		String wikiTitle = null;
-		if (results == null || results.isEmpty())
-		{
-			wikiTitle = resolveItemNameViaWiki(itemName);
-			if (wikiTitle != null)
-			{
-				results = itemManager.search(wikiTitle);
-			}
-		}
-		if (results == null || results.isEmpty())
+		ItemPrice match = findItem(itemName);
+		if (match == null)
 		{
 			// Item exists on the wiki but isn't tradeable on the GE — fetch a short
 			// description so Claude understands why and doesn't keep retrying.
-			String title = wikiTitle != null ? wikiTitle : itemName;
-			String snippet = fetchWikiSnippet(title);
+			String snippet = fetchWikiSnippet(itemName);
 			if (snippet != null)
 			{
 				return "\"" + itemName + "\" is not tradeable on the GE. " + snippet;
@@ -280,58 +373,142 @@ public class ClaudeTools
 			return "\"" + itemName + "\" is not available on the Grand Exchange.";
 		}
 
-		// Always use the best match — RuneLite's search handles fuzzy matching.
 		// Include the resolved name so Claude knows exactly what was looked up.
-		ItemPrice match = results.get(0);
 		int itemId = match.getId();
 		String resolvedName = match.getName();
 		String nameNote = resolvedName.equalsIgnoreCase(itemName.trim()) ? ""
 			: " (best match for \"" + itemName.trim() + "\")";
 
+		GePriceService.Price price;
 		try
 		{
-			okhttp3.HttpUrl url = okhttp3.HttpUrl.get(GE_API).newBuilder()
-				.addPathSegment("latest")
-				.addQueryParameter("id", String.valueOf(itemId))
-				.build();
+			price = priceService.get(itemId);
+		}
+		catch (Exception e)
+		{
+			log.error("GE price lookup failed for: {}", itemName, e);
+			return "GE price lookup failed: " + e.getMessage();
+		}
+		if (price == null)
+		{
+			return "No price data available for: " + resolvedName;
+		}
 
-			Request request = new Request.Builder()
-				.url(url)
-				.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
-				.build();
+		StringBuilder sb = new StringBuilder();
+		sb.append("GE prices for ").append(resolvedName).append(nameNote).append(":\n");
+		sb.append("  Sell price (high): ").append(formatPrice(price.getHigh())).append("\n");
+		sb.append("  Buy price (low):   ").append(formatPrice(price.getLow()));
+		return sb.toString();
+	}
+
+	/**
+	 * Prices every named item against one price table and returns them as a single table.
+	 * Names are resolved as in get_ge_price, but untradeable items just get a line rather
+	 * than a wiki extract each.
+	 */
+	private String executeGetGePrices(JsonArray itemNames)
+	{
+		Map<String, String> names = new LinkedHashMap<>();
+		for (JsonElement element : itemNames)
+		{
+			String name = element.isJsonPrimitive() ? element.getAsString().trim() : "";
+			if (!name.isEmpty())
+			{
+				names.putIfAbsent(name.toLowerCase(), name);
+			}
+		}
+		if (names.isEmpty())
+		{
+			return "No item names provided.";
+		}
+
+		// Resolve every name first, so the prices all come from one table
+		List<String> requested = new ArrayList<>(names.values());
+		if (requested.size() > MAX_BATCH_ITEMS)
+		{
+			requested = requested.subList(0, MAX_BATCH_ITEMS);
+		}
+		List<ItemPrice> matches = new ArrayList<>(requested.size());
+		for (String name : requested)
+		{
+			matches.add(findItem(name));
+		}
 
-			try (Response response = httpClient.newCall(request).execute())
+		StringBuilder sb = new StringBuilder("GE prices (sell = high, buy = low):\n");
+		try
+		{
+			for (int i = 0; i < requested.size(); i++)
 			{
-				if (!response.isSuccessful() || response.body() == null)
+				String name = requested.get(i);
+				ItemPrice match = matches.get(i);
+				if (match == null)
 				{
-					return "GE price lookup failed: HTTP " + response.code();
+					sb.append(name).append(": not tradeable on the GE\n");
+					continue;
 				}
-
-				JsonObject body = gson.fromJson(response.body().string(), JsonObject.class);
-				JsonObject data = body.has("data") ? body.getAsJsonObject("data") : null;
-				if (data == null || !data.has(String.valueOf(itemId)))
+				sb.append(match.getName());
+				if (!match.getName().equalsIgnoreCase(name))
 				{
-					return "No price data available for: " + resolvedName;
+					sb.append(" (for \"").append(name).append("\")");
 				}
-
-				JsonObject priceData = data.getAsJsonObject(String.valueOf(itemId));
-				long high = priceData.has("high") && !priceData.get("high").isJsonNull()
-					? priceData.get("high").getAsLong() : -1;
-				long low = priceData.has("low") && !priceData.get("low").isJsonNull()
-					? priceData.get("low").getAsLong() : -1;
-
-				StringBuilder sb = new StringBuilder();
-				sb.append("GE prices for ").append(resolvedName).append(nameNote).append(":\n");
-				sb.append("  Sell price (high): ").append(high >= 0 ? String.format("%,d", high) + " gp" : "N/A").append("\n");
-				sb.append("  Buy price (low):   ").append(low >= 0 ? String.format("%,d", low) + " gp" : "N/A");
-				return sb.toString();
+				GePriceService.Price price = priceService.get(match.getId());
+				if (price == null)
+				{
+					sb.append(": no price data\n");
+					continue;
+				}
+				sb.append(": sell ").append(formatPrice(price.getHigh()))
+					.append(", buy ").append(formatPrice(price.getLow())).append('\n');
 			}
 		}
 		catch (Exception e)
 		{
-			log.error("GE price lookup failed for: {}", itemName, e);
+			log.error("GE price lookup failed for {} items", requested.size(), e);
 			return "GE price lookup failed: " + e.getMessage();
 		}
+		if (names.size() > requested.size())
+		{
+			sb.append("Only the first ").append(MAX_BATCH_ITEMS).append(" items were priced.");
+		}
+		return sb.toString().trim();
+	}
+
+	/**
+	 * The GE item a name most likely means, or null. RuneLite's search handles names that
+	 * are close to right; misspellings and informal names (e.g. "Iron gloves" for "Iron
+	 * gauntlets") go to the local name index. Only if that could not be fetched is the
+	 * wiki asked for the canonical name.
+	 */
+	private ItemPrice findItem(String itemName)
+	{
+		List<ItemPrice> results = itemManager.search(itemName);
+		if (results != null && !results.isEmpty())
+		{
+			return results.get(0);
+		}
+
+		ItemNameIndex nameIndex = priceService.getNameIndex();
+		if (nameIndex != null)
+		{
+			ItemNameIndex.Match match = nameIndex.find(itemName);
+			if (match == null)
+			{
+				return null;
+			}
+			ItemPrice item = new ItemPrice();
+			item.setId(match.getId());
+			item.setName(match.getName());
+			return item;
+		}
+
+		String wikiTitle = resolveItemNameViaWiki(itemName);
+		results = wikiTitle != null ? itemManager.search(wikiTitle) : null;
+		return results == null || results.isEmpty() ? null : results.get(0);
+	}
+
+	private static String formatPrice(int price)
+	{
+		return price != GePriceService.NONE ? String.format("%,d", price) + " gp" : "N/A";
 	}
 
 	/**
@@ -357,7 +534,7 @@ public class ClaudeTools
 				.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
 				.build();
 
-			try (Response response = httpClient.newCall(request).execute())
+			try (Response response = execute(request))
 			{
 				if (!response.isSuccessful() || response.body() == null) return null;
 				JsonObject result = gson.fromJson(response.body().string(), JsonObject.class);
@@ -377,7 +554,7 @@ public class ClaudeTools
 	/**
 	 * Queries the OSRS wiki search API and returns the title of the best-matching page.
 	 * Used to resolve informal item names (e.g. "Iron gloves") to their canonical OSRS
-	 * names (e.g. "Iron gauntlets") before looking up a GE price.
+	 * names (e.g. "Iron gauntlets") when the local name index is unavailable.
 	 * Returns null if no match is found or the request fails.
 	 */
 	private String resolveItemNameViaWiki(String itemName)
@@ -398,7 +575,7 @@ public class ClaudeTools
 				.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
 				.build();
 
-			try (Response response = httpClient.newCall(request).execute())
+			try (Response response = execute(request))
 			{
 				if (!response.isSuccessful() || response.body() == null) return null;
 				JsonObject result = gson.fromJson(response.body().string(), JsonObject.class);
@@ -421,129 +598,268 @@ public class ClaudeTools
 			return "No search query provided.";
 		}
 
-		try
+		WikiPageCache.Page cached = wikiCache.get(query);
+		if (cached != null && cached.isFresh())
 		{
-			// First: search for the best matching page title
-			okhttp3.HttpUrl searchHttpUrl = okhttp3.HttpUrl.get(WIKI_API).newBuilder()
-				.addQueryParameter("action", "query")
-				.addQueryParameter("list", "search")
-				.addQueryParameter("srsearch", query)
-				.addQueryParameter("srnamespace", "0")
-				.addQueryParameter("srlimit", "1")
-				.addQueryParameter("format", "json")
-				.build();
-
-			Request searchRequest = new Request.Builder()
-				.url(searchHttpUrl)
-				.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
-				.build();
+			return cached.getContent();
+		}
 
-			String pageTitle;
-			try (Response searchResponse = httpClient.newCall(searchRequest).execute())
+		CompletableFuture<JsonObject> section1 = null;
+		try
+		{
+			JsonObject page;
+			if (cached != null)
 			{
-				if (!searchResponse.isSuccessful() || searchResponse.body() == null)
+				// Seen before: only the revision id is needed to tell whether the page changed
+				if (fetchRevisionId(cached.getTitle()) == cached.getRevisionId())
 				{
-					return "Wiki search failed: HTTP " + searchResponse.code();
+					wikiCache.revalidated(cached.getTitle());
+					return cached.getContent();
 				}
-				JsonObject searchResult = gson.fromJson(searchResponse.body().string(), JsonObject.class);
-				JsonArray results = searchResult
-					.getAsJsonObject("query")
-					.getAsJsonArray("search");
-				if (results.size() == 0)
+				section1 = fetchSection1(cached.getTitle());
+				page = fetchExtract(wikiQuery().addQueryParameter("titles", cached.getTitle()));
+			}
+			else
+			{
+				// The search and the intro of its best match come back in one request. The query
+				// often names the page already, so section 1 is asked for alongside it.
+				section1 = fetchSection1(query);
+				page = fetchExtract(wikiQuery()
+					.addQueryParameter("generator", "search")
+					.addQueryParameter("gsrsearch", query)
+					.addQueryParameter("gsrnamespace", "0")
+					.addQueryParameter("gsrlimit", "1"));
+				if (page == null)
 				{
+					section1.cancel(true);
 					return "No wiki page found for: " + query;
 				}
-				pageTitle = results.get(0).getAsJsonObject().get("title").getAsString();
 			}
-
-			// Second: fetch section 1 (Details/infobox) as wikitext — quest/item pages
-			// store requirements, stats etc. there, which the plain extract API omits.
-			okhttp3.HttpUrl section1Url = okhttp3.HttpUrl.get(WIKI_API).newBuilder()
-				.addQueryParameter("action", "parse")
-				.addQueryParameter("page", pageTitle)
-				.addQueryParameter("prop", "wikitext")
-				.addQueryParameter("section", "1")
-				.addQueryParameter("format", "json")
-				.build();
-
-			Request section1Request = new Request.Builder()
-				.url(section1Url)
-				.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
-				.build();
-
+			String pageTitle = page.get("title").getAsString();
+			String introText = page.has("extract") ? page.get("extract").getAsString().trim() : "";
+
+			// Section 1 (Details/infobox) as wikitext — quest/item pages store requirements,
+			// stats etc. there, which the plain extract API omits. Fetched again by the found
+			// title if the query turned out not to name the page.
+			JsonObject parsed = awaitSection1(section1, pageTitle);
+			if (parsed == null || !pageTitle.equals(parsed.get("title").getAsString()))
+			{
+				section1 = fetchSection1(pageTitle);
+				parsed = awaitSection1(section1, pageTitle);
+			}
 			String section1Text = null;
-			try (Response section1Response = httpClient.newCall(section1Request).execute())
+			if (parsed != null)
 			{
-				if (section1Response.isSuccessful() && section1Response.body() != null)
+				String wikitext = parsed.getAsJsonObject("wikitext").get("*").getAsString().trim();
+				if (!wikitext.isEmpty())
 				{
-					JsonObject parsed = gson.fromJson(section1Response.body().string(), JsonObject.class);
-					if (parsed.has("parse"))
-					{
-						String wikitext = parsed.getAsJsonObject("parse")
-							.getAsJsonObject("wikitext")
-							.get("*").getAsString().trim();
-						if (!wikitext.isEmpty())
-						{
-							section1Text = wikitext;
-						}
-					}
+					section1Text = wikitext;
 				}
 			}
-			catch (Exception e)
+
+			if (introText.isEmpty() && section1Text == null)
 			{
-				log.debug("Section 1 fetch failed for {}, falling back to extract", pageTitle);
+				return cached != null ? cached.getContent() : "Wiki page '" + pageTitle + "' has no content.";
 			}
 
-			// Third: fetch a plain-text intro for general context
-			okhttp3.HttpUrl extractUrl = okhttp3.HttpUrl.get(WIKI_API).newBuilder()
-				.addQueryParameter("action", "query")
-				.addQueryParameter("prop", "extracts")
-				.addQueryParameter("titles", pageTitle)
-				.addQueryParameter("exintro", "true")
-				.addQueryParameter("explaintext", "true")
-				.addQueryParameter("exchars", "1000")
-				.addQueryParameter("format", "json")
-				.build();
+			StringBuilder result = new StringBuilder("OSRS Wiki \u2014 ").append(pageTitle).append(":\n\n");
+			if (!introText.isEmpty())
+			{
+				result.append(introText).append("\n\n");
+			}
+			if (section1Text != null)
+			{
+				result.append("--- Details/Infobox ---\n").append(section1Text);
+			}
+			wikiCache.put(query, new WikiPageCache.Page(pageTitle, revisionId(page), result.toString()));
+			return result.toString();
+		}
+		catch (Exception e)
+		{
+			if (section1 != null)
+			{
+				section1.cancel(true);
+			}
+			if (cached != null)
+			{
+				// A page a few hours old beats no answer
+				log.debug("Wiki revalidation failed for {}, serving the cached page", cached.getTitle(), e);
+				return cached.getContent();
+			}
+			log.error("Wiki search failed for query: {}", query, e);
+			return "Wiki search failed: " + e.getMessage();
+		}
+	}
 
-			Request extractRequest = new Request.Builder()
-				.url(extractUrl)
-				.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
-				.build();
+	// A query for a page's plain-text intro and the revision it was read from; the caller
+	// adds the titles or the search generator
+	private static okhttp3.HttpUrl.Builder wikiQuery()
+	{
+		return okhttp3.HttpUrl.get(WIKI_API).newBuilder()
+			.addQueryParameter("action", "query")
+			.addQueryParameter("prop", "extracts|revisions")
+			.addQueryParameter("rvprop", "ids")
+			.addQueryParameter("exintro", "true")
+			.addQueryParameter("explaintext", "true")
+			.addQueryParameter("exchars", "1000")
+			.addQueryParameter("format", "json");
+	}
+
+	/**
+	 * Runs a {@link #wikiQuery()} and returns its page, or null if a search found nothing.
+	 */
+	private JsonObject fetchExtract(okhttp3.HttpUrl.Builder url) throws IOException
+	{
+		Request request = new Request.Builder()
+			.url(url.build())
+			.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
+			.build();
 
-			try (Response extractResponse = httpClient.newCall(extractRequest).execute())
+		try (Response response = execute(request))
+		{
+			if (!response.isSuccessful() || response.body() == null)
 			{
-				String introText = "";
-				if (extractResponse.isSuccessful() && extractResponse.body() != null)
-				{
-					JsonObject extractResult = gson.fromJson(extractResponse.body().string(), JsonObject.class);
-					JsonObject pages = extractResult.getAsJsonObject("query").getAsJsonObject("pages");
-					JsonObject page = pages.entrySet().iterator().next().getValue().getAsJsonObject();
-					introText = page.has("extract") ? page.get("extract").getAsString().trim() : "";
-				}
+				throw new IOException("HTTP " + response.code());
+			}
+			JsonObject result = gson.fromJson(response.body().string(), JsonObject.class);
+			// A search with no results has no query block at all
+			if (!result.has("query"))
+			{
+				return null;
+			}
+			JsonObject pages = result.getAsJsonObject("query").getAsJsonObject("pages");
+			return pages.entrySet().iterator().next().getValue().getAsJsonObject();
+		}
+	}
 
-				if (introText.isEmpty() && section1Text == null)
-				{
-					return "Wiki page '" + pageTitle + "' has no content.";
-				}
+	// ToolExecutor interrupts a tool that missed its timeout. OkHttp does not notice that
+	// during a blocking read, which the client's call timeout bounds instead, but no further
+	// request is started for it.
+	private Response execute(Request request) throws IOException
+	{
+		if (Thread.currentThread().isInterrupted())
+		{
+			throw new InterruptedIOException("Tool was cancelled");
+		}
+		return httpClient.newCall(request).execute();
+	}
 
-				StringBuilder result = new StringBuilder("OSRS Wiki \u2014 ").append(pageTitle).append(":\n\n");
-				if (!introText.isEmpty())
+	/**
+	 * Starts fetching section 1 of a page as wikitext, following redirects. Completes with the
+	 * response's parse block, or null if the page or section does not exist or the request
+	 * fails. Cancelling the future cancels the request.
+	 */
+	private CompletableFuture<JsonObject> fetchSection1(String pageTitle)
+	{
+		okhttp3.HttpUrl url = okhttp3.HttpUrl.get(WIKI_API).newBuilder()
+			.addQueryParameter("action", "parse")
+			.addQueryParameter("page", pageTitle)
+			.addQueryParameter("redirects", "true")
+			.addQueryParameter("prop", "wikitext")
+			.addQueryParameter("section", "1")
+			.addQueryParameter("format", "json")
+			.build();
+
+		Request request = new Request.Builder()
+			.url(url)
+			.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
+			.build();
+
+		CompletableFuture<JsonObject> future = new CompletableFuture<>();
+		Call call = httpClient.newCall(request);
+		future.whenComplete((parsed, e) -> {
+			if (future.isCancelled())
+			{
+				call.cancel();
+			}
+		});
+		call.enqueue(new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				log.debug("Section 1 fetch failed for {}: {}", pageTitle, e.toString());
+				future.complete(null);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response)
+			{
+				try (ResponseBody body = response.body())
 				{
-					result.append(introText).append("\n\n");
+					JsonObject parsed = response.isSuccessful() && body != null
+						? gson.fromJson(body.string(), JsonObject.class)
+						: null;
+					future.complete(parsed != null && parsed.has("parse") ? parsed.getAsJsonObject("parse") : null);
 				}
-				if (section1Text != null)
+				catch (Exception e)
 				{
-					result.append("--- Details/Infobox ---\n").append(section1Text);
+					log.debug("Section 1 fetch failed for {}: {}", pageTitle, e.toString());
+					future.complete(null);
 				}
-				return result.toString();
-			}		}
-		catch (Exception e)
+			}
+		});
+		return future;
+	}
+
+	private static JsonObject awaitSection1(CompletableFuture<JsonObject> section1, String pageTitle)
+	{
+		try
 		{
-			log.error("Wiki search failed for query: {}", query, e);
-			return "Wiki search failed: " + e.getMessage();
+			return section1.get(SECTION1_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			section1.cancel(true);
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException | TimeoutException e)
+		{
+			section1.cancel(true);
+			log.debug("Section 1 fetch failed for {}, falling back to extract", pageTitle);
+			return null;
+		}
+	}
+
+	/**
+	 * The id of a wiki page's current revision, or 0 if the page does not exist.
+	 */
+	private long fetchRevisionId(String pageTitle) throws IOException
+	{
+		okhttp3.HttpUrl url = okhttp3.HttpUrl.get(WIKI_API).newBuilder()
+			.addQueryParameter("action", "query")
+			.addQueryParameter("prop", "revisions")
+			.addQueryParameter("rvprop", "ids")
+			.addQueryParameter("titles", pageTitle)
+			.addQueryParameter("format", "json")
+			.build();
+
+		Request request = new Request.Builder()
+			.url(url)
+			.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
+			.build();
+
+		try (Response response = execute(request))
+		{
+			if (!response.isSuccessful() || response.body() == null)
+			{
+				throw new IOException("HTTP " + response.code());
+			}
+			JsonObject result = gson.fromJson(response.body().string(), JsonObject.class);
+			JsonObject pages = result.getAsJsonObject("query").getAsJsonObject("pages");
+			return revisionId(pages.entrySet().iterator().next().getValue().getAsJsonObject());
 		}
 	}
 
+	private static long revisionId(JsonObject page)
+	{
+		JsonArray revisions = page.getAsJsonArray("revisions");
+		return revisions != null && revisions.size() > 0
+			? revisions.get(0).getAsJsonObject().get("revid").getAsLong()
+			: 0;
+	}
+
 	private String executeGetCombatAchievementStatus()
 	{
 		boolean easyDone        = client.getVarbitValue(Varbits.COMBAT_ACHIEVEMENT_TIER_EASY)        == 1;
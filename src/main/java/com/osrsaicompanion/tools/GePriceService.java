@@ -0,0 +1,373 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Grand Exchange prices for every item, fetched from the wiki's /latest endpoint in one
+ * request and answered from memory. Also holds the {@link ItemNameIndex} over every GE
+ * item's name, read once from /mapping.
+ *
+ * The response is streamed straight into a {@link PriceTable}: an open-addressed table of
+ * item ids with parallel int arrays of prices, around 100 KB for the whole GE, with no
+ * JSON tree or boxed values kept. A refreshed table replaces the old one whole, so readers
+ * never see a half-built one.
+ *
+ * Once started, the table is refreshed every {@link #REFRESH_MS} while prices are being
+ * asked for; after {@link #IDLE_MS} without a lookup the refreshes stop until the next one.
+ * A lookup against a table older than {@link #MAX_AGE_MS} (or none at all) fetches first.
+ * A failed refresh keeps the previous table.
+ */
+@Slf4j
+public class GePriceService
+{
+	static final String API_URL = "https://prices.runescape.wiki/api/v1/osrs";
+	static final long REFRESH_MS = 60_000;
+	static final long MAX_AGE_MS = 3 * REFRESH_MS;
+	static final long IDLE_MS = 10 * 60_000L;
+	// Item names only change with game updates; after a failed fetch, wait this long
+	static final long MAPPING_RETRY_MS = 5 * 60_000L;
+
+	/** A price the wiki has no trade for. */
+	public static final int NONE = -1;
+
+	/**
+	 * The latest instant-buy ("high") and instant-sell ("low") prices of an item, either of
+	 * which may be {@link #NONE}.
+	 */
+	public static final class Price
+	{
+		private final int high;
+		private final int low;
+
+		Price(int high, int low)
+		{
+			this.high = high;
+			this.low = low;
+		}
+
+		public int getHigh()
+		{
+			return high;
+		}
+
+		public int getLow()
+		{
+			return low;
+		}
+	}
+
+	private final OkHttpClient httpClient;
+	private final String apiUrl;
+	private final LongSupplier clock;
+
+	private volatile ItemNameIndex nameIndex;
+	private long nameIndexFailedAt = Long.MIN_VALUE;
+	private volatile PriceTable table;
+	private volatile long fetchedAt;
+	private volatile long lastLookupAt;
+	private ScheduledExecutorService scheduler;
+
+	public GePriceService(OkHttpClient httpClient)
+	{
+		this(httpClient, API_URL, System::currentTimeMillis);
+	}
+
+	GePriceService(OkHttpClient httpClient, String apiUrl, LongSupplier clock)
+	{
+		this.httpClient = httpClient;
+		this.apiUrl = apiUrl;
+		this.clock = clock;
+	}
+
+	/**
+	 * Starts the scheduled refreshes. Nothing is fetched until the first lookup.
+	 */
+	public synchronized void start()
+	{
+		if (scheduler != null)
+		{
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "ai-companion-ge-prices");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::scheduledRefresh, REFRESH_MS, REFRESH_MS, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void shutdown()
+	{
+		if (scheduler != null)
+		{
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * The latest prices for an item, or null if the GE has never traded it. Blocks on a
+	 * fetch only if the table is missing or too old.
+	 *
+	 * @throws IOException if a fetch was needed and failed
+	 */
+	public Price get(int itemId) throws IOException
+	{
+		long now = clock.getAsLong();
+		lastLookupAt = now;
+		PriceTable prices = table;
+		if (prices == null || now - fetchedAt >= MAX_AGE_MS)
+		{
+			prices = fetchIfOlderThan(MAX_AGE_MS);
+		}
+		int index = prices.indexOf(itemId);
+		return index < 0 ? null : new Price(prices.high[index], prices.low[index]);
+	}
+
+	/**
+	 * The name index, fetched on first use. Null if it could not be fetched; it is tried
+	 * again after {@link #MAPPING_RETRY_MS}.
+	 */
+	public ItemNameIndex getNameIndex()
+	{
+		ItemNameIndex index = nameIndex;
+		return index != null ? index : fetchNameIndex();
+	}
+
+	/** Items in the current table, 0 before the first fetch. */
+	public int size()
+	{
+		PriceTable prices = table;
+		return prices != null ? prices.size : 0;
+	}
+
+	private void scheduledRefresh()
+	{
+		if (table == null || clock.getAsLong() - lastLookupAt >= IDLE_MS)
+		{
+			return;
+		}
+		try
+		{
+			fetchIfOlderThan(REFRESH_MS / 2);
+		}
+		catch (IOException e)
+		{
+			log.debug("[AI] GE price refresh failed: {}", e.toString());
+		}
+	}
+
+	// Parallel lookups in one tool round share a single fetch
+	private synchronized PriceTable fetchIfOlderThan(long maxAgeMs) throws IOException
+	{
+		PriceTable prices = table;
+		if (prices != null && clock.getAsLong() - fetchedAt < maxAgeMs)
+		{
+			return prices;
+		}
+
+		long startedAt = System.nanoTime();
+		try (Response response = httpClient.newCall(request("latest")).execute())
+		{
+			ResponseBody body = response.body();
+			if (!response.isSuccessful() || body == null)
+			{
+				throw new IOException("HTTP " + response.code());
+			}
+			prices = PriceTable.read(new JsonReader(body.charStream()));
+		}
+		table = prices;
+		fetchedAt = clock.getAsLong();
+		log.debug("[AI] Fetched {} GE prices in {} ms", prices.size, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+		return prices;
+	}
+
+	private synchronized ItemNameIndex fetchNameIndex()
+	{
+		if (nameIndex != null || clock.getAsLong() - nameIndexFailedAt < MAPPING_RETRY_MS)
+		{
+			return nameIndex;
+		}
+		try (Response response = httpClient.newCall(request("mapping")).execute())
+		{
+			ResponseBody body = response.body();
+			if (!response.isSuccessful() || body == null)
+			{
+				throw new IOException("HTTP " + response.code());
+			}
+			nameIndex = ItemNameIndex.read(new JsonReader(body.charStream()));
+			log.debug("[AI] Indexed {} GE item names", nameIndex.size());
+		}
+		catch (Exception e)
+		{
+			// Also covers a response that is not the expected JSON
+			log.warn("[AI] Could not fetch GE item names: {}", e.toString());
+			nameIndexFailedAt = clock.getAsLong();
+		}
+		return nameIndex;
+	}
+
+	private Request request(String endpoint)
+	{
+		return new Request.Builder()
+			.url(apiUrl + "/" + endpoint)
+			.header("User-Agent", "osrs-ai-companion/1.0 (RuneLite plugin)")
+			.build();
+	}
+
+	/**
+	 * Item ids in an open-addressed table with linear probing, with prices in parallel
+	 * arrays at the same index. Never modified once read.
+	 */
+	static final class PriceTable
+	{
+		private static final int EMPTY = -1;
+
+		private final int[] ids;
+		private final int[] high;
+		private final int[] low;
+		private final int mask;
+		private final int shift;
+		private int size;
+
+		PriceTable(int expected)
+		{
+			// At most half full, so probes stay short
+			int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+			ids = new int[capacity];
+			high = new int[capacity];
+			low = new int[capacity];
+			mask = capacity - 1;
+			shift = 32 - Integer.numberOfTrailingZeros(capacity);
+			Arrays.fill(ids, EMPTY);
+		}
+
+		int indexOf(int itemId)
+		{
+			for (int i = slot(itemId); ; i = (i + 1) & mask)
+			{
+				if (ids[i] == itemId)
+				{
+					return i;
+				}
+				if (ids[i] == EMPTY)
+				{
+					return -1;
+				}
+			}
+		}
+
+		int size()
+		{
+			return size;
+		}
+
+		// Only while reading; the table must not grow past half full
+		private void put(int itemId, int highPrice, int lowPrice)
+		{
+			int i = slot(itemId);
+			while (ids[i] != EMPTY && ids[i] != itemId)
+			{
+				i = (i + 1) & mask;
+			}
+			if (ids[i] == EMPTY)
+			{
+				size++;
+			}
+			ids[i] = itemId;
+			high[i] = highPrice;
+			low[i] = lowPrice;
+		}
+
+		private int slot(int itemId)
+		{
+			// Fibonacci hashing spreads the mostly sequential ids across the whole table
+			return (itemId * 0x9E3779B9) >>> shift;
+		}
+
+		private PriceTable grow()
+		{
+			PriceTable bigger = new PriceTable(ids.length);
+			for (int i = 0; i < ids.length; i++)
+			{
+				if (ids[i] != EMPTY)
+				{
+					bigger.put(ids[i], high[i], low[i]);
+				}
+			}
+			return bigger;
+		}
+
+		/**
+		 * Reads a /latest response: {"data":{"2":{"high":..,"highTime":..,"low":..,"lowTime":..},..}}.
+		 */
+		static PriceTable read(JsonReader reader) throws IOException
+		{
+			// The GE lists a little over 4,000 items
+			PriceTable prices = new PriceTable(4_096);
+			reader.beginObject();
+			while (reader.hasNext())
+			{
+				if (!reader.nextName().equals("data"))
+				{
+					reader.skipValue();
+					continue;
+				}
+				reader.beginObject();
+				while (reader.hasNext())
+				{
+					int itemId = Integer.parseInt(reader.nextName());
+					int highPrice = NONE;
+					int lowPrice = NONE;
+					reader.beginObject();
+					while (reader.hasNext())
+					{
+						switch (reader.nextName())
+						{
+							case "high":
+								highPrice = readPrice(reader);
+								break;
+							case "low":
+								lowPrice = readPrice(reader);
+								break;
+							default:
+								reader.skipValue();
+						}
+					}
+					reader.endObject();
+					if (prices.size * 2 >= prices.ids.length)
+					{
+						prices = prices.grow();
+					}
+					prices.put(itemId, highPrice, lowPrice);
+				}
+				reader.endObject();
+			}
+			reader.endObject();
+			return prices;
+		}
+
+		private static int readPrice(JsonReader reader) throws IOException
+		{
+			if (reader.peek() == JsonToken.NULL)
+			{
+				reader.nextNull();
+				return NONE;
+			}
+			return reader.nextInt();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.osrsaicompanion.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Abbreviations players use for items ("ags", "bp", "addy"), shared by the GE name lookup
+ * and the response cache's question matching so both read them the same way.
+ *
+ * Keys are single lower-case words. Expansions are lower-case words separated by spaces
+ * and name the item as the GE lists it, so they can be matched exactly.
+ */
+public final class ItemAliases
+{
+	private static final Map<String, String> ALIASES = new HashMap<>();
+
+	static
+	{
+		ALIASES.put("whip", "abyssal whip");
+		ALIASES.put("dds", "dragon dagger");
+		ALIASES.put("ags", "armadyl godsword");
+		ALIASES.put("bgs", "bandos godsword");
+		ALIASES.put("sgs", "saradomin godsword");
+		ALIASES.put("zgs", "zamorak godsword");
+		ALIASES.put("tbow", "twisted bow");
+		ALIASES.put("bcp", "bandos chestplate");
+		ALIASES.put("tassy", "bandos tassets");
+		ALIASES.put("tassets", "bandos tassets");
+		ALIASES.put("dfs", "dragonfire shield");
+		ALIASES.put("fury", "amulet of fury");
+		ALIASES.put("torture", "amulet of torture");
+		ALIASES.put("bp", "toxic blowpipe");
+		ALIASES.put("blowpipe", "toxic blowpipe");
+		ALIASES.put("sang", "sanguinesti staff");
+		ALIASES.put("scythe", "scythe of vitur");
+		ALIASES.put("addy", "adamant");
+		ALIASES.put("mith", "mithril");
+	}
+
+	private ItemAliases()
+	{
+	}
+
+	/**
+	 * What a single lower-case word stands for, or null if it is not an abbreviation.
+	 */
+	public static String get(String word)
+	{
+		return ALIASES.get(word);
+	}
+}
@@ -0,0 +1,374 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the GE item a player means from a loose or misspelled name, without a network
+ * round-trip.
+ *
+ * Names are lower-cased with punctuation dropped ("Green d'hide body" is "green dhide
+ * body"). A query is tried as typed and with common aliases expanded ("whip", "iron
+ * gloves" for "Iron gauntlets", "rune legs" for "Rune platelegs"). An exact match wins
+ * outright. Otherwise the items sharing the most trigrams with the query are ranked by
+ * edit distance, and the closest is returned if it is similar enough.
+ *
+ * Trigram postings live in one array indexed by the packed trigram, so a lookup touches
+ * only the items that share a trigram with the query. Never modified once built.
+ */
+public class ItemNameIndex
+{
+	// Share of the longer name that may differ, as edits, for a fuzzy match to count
+	static final double MIN_SIMILARITY = 0.6;
+	// Items with the most trigrams in common that are ranked by edit distance
+	static final int MAX_CANDIDATES = 32;
+
+	// Space, a-z and 0-9
+	private static final int ALPHABET = 37;
+	private static final int[] NO_ITEMS = new int[0];
+
+	// Item abbreviations come from ItemAliases. These are words for armour pieces and
+	// potion doses, which only make sense when the whole query is an item name: in a
+	// question "body" or "legs" need not mean plate armour, so the response cache does
+	// not use them.
+	private static final Map<String, String> PIECE_WORDS = new HashMap<>();
+
+	static
+	{
+		PIECE_WORDS.put("gloves", "gauntlets");
+		PIECE_WORDS.put("helmet", "full helm");
+		PIECE_WORDS.put("helm", "full helm");
+		PIECE_WORDS.put("legs", "platelegs");
+		PIECE_WORDS.put("skirt", "plateskirt");
+		PIECE_WORDS.put("plate", "platebody");
+		PIECE_WORDS.put("chest", "platebody");
+		PIECE_WORDS.put("body", "platebody");
+		PIECE_WORDS.put("scim", "scimitar");
+		PIECE_WORDS.put("kite", "kiteshield");
+		PIECE_WORDS.put("pick", "pickaxe");
+		PIECE_WORDS.put("pot", "potion(4)");
+		PIECE_WORDS.put("ppot", "prayer potion(4)");
+	}
+
+	/**
+	 * An item the query was resolved to.
+	 */
+	public static final class Match
+	{
+		private final int id;
+		private final String name;
+
+		Match(int id, String name)
+		{
+			this.id = id;
+			this.name = name;
+		}
+
+		public int getId()
+		{
+			return id;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+	}
+
+	private final int[] ids;
+	private final String[] names;
+	private final String[] normalised;
+	private final int[] trigramCounts;
+	private final Map<String, Integer> exact = new HashMap<>();
+	// Items containing each packed trigram, in ascending order
+	private final int[][] postings = new int[ALPHABET * ALPHABET * ALPHABET][];
+
+	ItemNameIndex(int[] ids, String[] names)
+	{
+		this.ids = ids;
+		this.names = names;
+		this.normalised = new String[names.length];
+		this.trigramCounts = new int[names.length];
+
+		int[] postingSizes = new int[postings.length];
+		int[][] itemTrigrams = new int[names.length][];
+		for (int i = 0; i < names.length; i++)
+		{
+			normalised[i] = normalise(names[i]);
+			exact.putIfAbsent(normalised[i], i);
+			itemTrigrams[i] = trigrams(normalised[i]);
+			trigramCounts[i] = itemTrigrams[i].length;
+			for (int trigram : itemTrigrams[i])
+			{
+				postingSizes[trigram]++;
+			}
+		}
+		for (int i = 0; i < names.length; i++)
+		{
+			for (int trigram : itemTrigrams[i])
+			{
+				if (postings[trigram] == null)
+				{
+					postings[trigram] = new int[postingSizes[trigram]];
+					postingSizes[trigram] = 0;
+				}
+				postings[trigram][postingSizes[trigram]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Reads the wiki's /mapping response, an array of {"id":..,"name":..,..} objects.
+	 */
+	static ItemNameIndex read(JsonReader reader) throws IOException
+	{
+		List<String> names = new ArrayList<>();
+		int[] ids = new int[4_096];
+		reader.beginArray();
+		while (reader.hasNext())
+		{
+			int id = -1;
+			String name = null;
+			reader.beginObject();
+			while (reader.hasNext())
+			{
+				switch (reader.nextName())
+				{
+					case "id":
+						id = reader.nextInt();
+						break;
+					case "name":
+						name = reader.nextString();
+						break;
+					default:
+						reader.skipValue();
+				}
+			}
+			reader.endObject();
+			if (id >= 0 && name != null)
+			{
+				if (names.size() == ids.length)
+				{
+					ids = Arrays.copyOf(ids, ids.length * 2);
+				}
+				ids[names.size()] = id;
+				names.add(name);
+			}
+		}
+		reader.endArray();
+		return new ItemNameIndex(Arrays.copyOf(ids, names.size()), names.toArray(new String[0]));
+	}
+
+	public int size()
+	{
+		return names.length;
+	}
+
+	/**
+	 * The item the query most likely means, or null if nothing is close enough.
+	 */
+	public Match find(String query)
+	{
+		String asTyped = normalise(query);
+		if (asTyped.isEmpty())
+		{
+			return null;
+		}
+		String aliased = expandAliases(asTyped);
+		Integer hit = exact.get(asTyped);
+		if (hit == null)
+		{
+			hit = exact.get(aliased);
+		}
+		if (hit != null)
+		{
+			return new Match(ids[hit], names[hit]);
+		}
+
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		double bestSimilarity = MIN_SIMILARITY;
+		for (String variant : aliased.equals(asTyped) ? new String[]{asTyped} : new String[]{asTyped, aliased})
+		{
+			for (int candidate : candidates(variant))
+			{
+				String name = normalised[candidate];
+				int distance = distance(variant, name);
+				double similarity = 1 - (double) distance / Math.max(variant.length(), name.length());
+				if (similarity > bestSimilarity || similarity == bestSimilarity && best >= 0 && distance < bestDistance)
+				{
+					best = candidate;
+					bestDistance = distance;
+					bestSimilarity = similarity;
+				}
+			}
+		}
+		return best >= 0 ? new Match(ids[best], names[best]) : null;
+	}
+
+	static String normalise(String name)
+	{
+		StringBuilder sb = new StringBuilder(name.length());
+		boolean space = true;
+		for (int i = 0; i < name.length(); i++)
+		{
+			char c = Character.toLowerCase(name.charAt(i));
+			if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9')
+			{
+				sb.append(c);
+				space = false;
+			}
+			else if ((c == ' ' || c == '-' || c == '_') && !space)
+			{
+				sb.append(' ');
+				space = true;
+			}
+		}
+		int length = sb.length();
+		return length > 0 && sb.charAt(length - 1) == ' ' ? sb.substring(0, length - 1) : sb.toString();
+	}
+
+	private static String expandAliases(String normalisedQuery)
+	{
+		String[] words = normalisedQuery.split(" ");
+		for (int i = 0; i < words.length; i++)
+		{
+			String alias = ItemAliases.get(words[i]);
+			if (alias == null)
+			{
+				alias = PIECE_WORDS.get(words[i]);
+			}
+			if (alias != null)
+			{
+				words[i] = normalise(alias);
+			}
+		}
+		return String.join(" ", words);
+	}
+
+	// The items sharing the most trigrams with the query, relative to both their sizes
+	private int[] candidates(String query)
+	{
+		int[] queryTrigrams = trigrams(query);
+		int[] shared = new int[names.length];
+		int[] touched = new int[names.length];
+		int touchedCount = 0;
+		for (int trigram : queryTrigrams)
+		{
+			int[] items = postings[trigram];
+			if (items == null)
+			{
+				continue;
+			}
+			for (int item : items)
+			{
+				if (shared[item]++ == 0)
+				{
+					touched[touchedCount++] = item;
+				}
+			}
+		}
+		if (touchedCount == 0)
+		{
+			return NO_ITEMS;
+		}
+
+		// Keep the best MAX_CANDIDATES by Dice coefficient, worst last
+		int[] best = new int[Math.min(MAX_CANDIDATES, touchedCount)];
+		double[] bestScores = new double[best.length];
+		int kept = 0;
+		for (int t = 0; t < touchedCount; t++)
+		{
+			int item = touched[t];
+			double score = 2.0 * shared[item] / (queryTrigrams.length + trigramCounts[item]);
+			if (kept == best.length && score <= bestScores[kept - 1])
+			{
+				continue;
+			}
+			int i = kept < best.length ? kept++ : kept - 1;
+			while (i > 0 && bestScores[i - 1] < score)
+			{
+				best[i] = best[i - 1];
+				bestScores[i] = bestScores[i - 1];
+				i--;
+			}
+			best[i] = item;
+			bestScores[i] = score;
+		}
+		return best;
+	}
+
+	// Distinct packed trigrams of the name padded with a space each side, so word starts
+	// and ends count too
+	static int[] trigrams(String name)
+	{
+		String padded = " " + name + " ";
+		int count = Math.max(padded.length() - 2, 0);
+		int[] trigrams = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			trigrams[i] = (code(padded.charAt(i)) * ALPHABET + code(padded.charAt(i + 1))) * ALPHABET + code(padded.charAt(i + 2));
+		}
+		Arrays.sort(trigrams);
+		int distinct = 0;
+		for (int i = 0; i < count; i++)
+		{
+			if (i == 0 || trigrams[i] != trigrams[i - 1])
+			{
+				trigrams[distinct++] = trigrams[i];
+			}
+		}
+		return distinct == count ? trigrams : Arrays.copyOf(trigrams, distinct);
+	}
+
+	private static int code(char c)
+	{
+		if (c >= 'a' && c <= 'z')
+		{
+			return c - 'a' + 1;
+		}
+		if (c >= '0' && c <= '9')
+		{
+			return c - '0' + 27;
+		}
+		return 0;
+	}
+
+	// Optimal string alignment distance: insertions, deletions, substitutions and
+	// transpositions of adjacent characters each cost one
+	static int distance(String a, String b)
+	{
+		int[] previous2 = new int[b.length() + 1];
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++)
+		{
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++)
+		{
+			current[0] = i;
+			for (int j = 1; j <= b.length(); j++)
+			{
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+				{
+					value = Math.min(value, previous2[j - 2] + 1);
+				}
+				current[j] = value;
+			}
+			int[] recycled = previous2;
+			previous2 = previous;
+			previous = current;
+			current = recycled;
+		}
+		return previous[b.length()];
+	}
+}
@@ -0,0 +1,236 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.callback.ClientThread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs one round of Claude's tool calls and collects their tool_result blocks.
+ *
+ * Tools that make HTTP requests run on a small pool of their own rather than OkHttp's
+ * dispatcher threads, so a slow wiki lookup can never hold up the callback of the next
+ * API call. Tools that read game state run on the client thread. Every tool has its own
+ * timeout, counted from when it starts running, and the round as a whole has a deadline
+ * counted from when it was submitted; a tool that misses either is answered with an error
+ * tool_result so the round still completes and Claude can carry on without it.
+ *
+ * A tool that is given up on is interrupted, but OkHttp's blocking reads ignore interrupts.
+ * What bounds how long it keeps its pool thread is the call timeout of the HTTP client the
+ * tools use, {@link #HTTP_CALL_TIMEOUT_MS}, and ClaudeTools not starting another request
+ * once interrupted.
+ */
+@Slf4j
+public class ToolExecutor
+{
+	private static final int POOL_SIZE = 4;
+	private static final int QUEUE_CAPACITY = 32;
+
+	// search_wiki takes at most two round trips. The GE tools resolve names locally and
+	// usually price from the table GePriceService refreshes in the background, but the
+	// first lookup of a session fetches the item names and then the prices, about a
+	// megabyte each; get_ge_price may add a wiki snippet for an untradeable item.
+	// get_ge_prices keeps room for resolving names through the wiki when the item names
+	// could not be fetched.
+	private static final Map<String, Long> HTTP_TOOL_TIMEOUTS_MS = Map.of(
+		"search_wiki", 12_000L,
+		"get_ge_price", 10_000L,
+		"get_ge_prices", 15_000L);
+	private static final long CLIENT_TOOL_TIMEOUT_MS = 3_000;
+	// Call timeout for the HTTP client the tools use, so a request outlives the tool that
+	// made it by at most this long; no more than the shortest HTTP tool timeout
+	public static final long HTTP_CALL_TIMEOUT_MS = 8_000;
+	static final long ROUND_DEADLINE_MS = 20_000;
+
+	private final ClaudeTools claudeTools;
+	private final ClientThread clientThread;
+	private final long roundDeadlineMs;
+	private final ThreadPoolExecutor pool;
+	private final ToolResultCache cache = new ToolResultCache();
+	private volatile BiConsumer<String, Long> timingListener = (name, ms) -> { };
+
+	public ToolExecutor(ClaudeTools claudeTools, ClientThread clientThread)
+	{
+		this(claudeTools, clientThread, ROUND_DEADLINE_MS);
+	}
+
+	ToolExecutor(ClaudeTools claudeTools, ClientThread clientThread, long roundDeadlineMs)
+	{
+		this.claudeTools = claudeTools;
+		this.clientThread = clientThread;
+		this.roundDeadlineMs = roundDeadlineMs;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+				Thread thread = new Thread(r, "ai-companion-tool-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		this.pool.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Executes every tool_use block. The returned future completes with the matching
+	 * tool_result blocks, in the same order, once all have finished or timed out.
+	 * Cancelling it abandons the round and interrupts any tool still running, which stops
+	 * it at its next request at the latest.
+	 */
+	public CompletableFuture<JsonArray> executeRound(List<JsonObject> toolUseBlocks)
+	{
+		List<CompletableFuture<String>> outputs = new ArrayList<>(toolUseBlocks.size());
+		List<CompletableFuture<JsonObject>> results = new ArrayList<>(toolUseBlocks.size());
+		for (JsonObject block : toolUseBlocks)
+		{
+			CompletableFuture<String> output = new CompletableFuture<>();
+			outputs.add(output);
+			results.add(execute(block, output));
+		}
+
+		CompletableFuture<JsonArray> round = CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).thenApply(v -> {
+			JsonArray toolResults = new JsonArray();
+			for (CompletableFuture<JsonObject> result : results)
+			{
+				toolResults.add(result.join());
+			}
+			return toolResults;
+		});
+		round.whenComplete((r, e) -> {
+			if (round.isCancelled())
+			{
+				// Completing the outputs interrupts any tool still running on the pool
+				for (CompletableFuture<String> output : outputs)
+				{
+					output.complete("Error: cancelled");
+				}
+			}
+		});
+		return round;
+	}
+
+	/**
+	 * Called with the tool name and how long it ran, in milliseconds, each time a tool
+	 * returns, including ones that returned after their timeout. Cache hits are not reported.
+	 */
+	public void setTimingListener(BiConsumer<String, Long> timingListener)
+	{
+		this.timingListener = timingListener;
+	}
+
+	public ToolResultCache getCache()
+	{
+		return cache;
+	}
+
+	public void shutdown()
+	{
+		pool.shutdownNow();
+	}
+
+	private CompletableFuture<JsonObject> execute(JsonObject block, CompletableFuture<String> output)
+	{
+		String toolUseId = block.get("id").getAsString();
+		String toolName = block.get("name").getAsString();
+		JsonObject toolInput = block.has("input") ? block.getAsJsonObject("input") : null;
+
+		Long httpTimeout = HTTP_TOOL_TIMEOUTS_MS.get(toolName);
+		long toolTimeoutMs = httpTimeout != null ? httpTimeout : CLIENT_TOOL_TIMEOUT_MS;
+
+		String cached = cache.get(toolName, toolInput);
+		if (cached != null)
+		{
+			log.info("[AI] Tool cache hit for {} ({})", toolName, cache);
+			output.complete(cached);
+			return CompletableFuture.completedFuture(toolResult(toolUseId, cached));
+		}
+
+		AtomicBoolean returned = new AtomicBoolean();
+		output.completeOnTimeout("Error: " + toolName + " did not finish in time and was skipped",
+			roundDeadlineMs, TimeUnit.MILLISECONDS);
+
+		Runnable task = () -> {
+			if (output.isDone())
+			{
+				// Waited past the round deadline; nobody needs the result any more
+				return;
+			}
+			output.completeOnTimeout("Error: " + toolName + " timed out after " + toolTimeoutMs / 1000 + "s",
+				toolTimeoutMs, TimeUnit.MILLISECONDS);
+			long startedAt = System.nanoTime();
+			try
+			{
+				String result = claudeTools.execute(toolName, toolInput);
+				returned.set(true);
+				timingListener.accept(toolName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+				// Only cache what was actually used; a timed-out tool may return junk once interrupted
+				if (output.complete(result))
+				{
+					cache.put(toolName, toolInput, result);
+				}
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("[AI] Tool {} threw", toolName, e);
+				returned.set(true);
+				output.complete("Error: " + toolName + " failed");
+			}
+		};
+
+		if (httpTimeout != null)
+		{
+			try
+			{
+				Future<?> running = pool.submit(task);
+				// Stops the tool before its next request; a read already in progress runs on
+				// until the call timeout
+				output.whenComplete((r, e) -> {
+					if (!returned.get())
+					{
+						running.cancel(true);
+					}
+				});
+			}
+			catch (RejectedExecutionException e)
+			{
+				output.complete("Error: too many lookups in progress, " + toolName + " was skipped");
+			}
+		}
+		else
+		{
+			clientThread.invokeLater(task);
+		}
+
+		return output.thenApply(result -> {
+			String logKey = toolInput != null && toolInput.has("item_name") ? toolInput.get("item_name").getAsString() :
+				toolInput != null && toolInput.has("query") ? toolInput.get("query").getAsString() : "";
+			log.info("[AI] Tool result for {}({}): [{}]", toolName, logKey, result.replace("\n", "\\n"));
+			return toolResult(toolUseId, result);
+		});
+	}
+
+	static JsonObject toolResult(String toolUseId, String result)
+	{
+		JsonObject resultContent = new JsonObject();
+		resultContent.addProperty("type", "tool_result");
+		resultContent.addProperty("tool_use_id", toolUseId);
+		resultContent.addProperty("content", result);
+		if (ClaudeTools.isErrorResult(result))
+		{
+			resultContent.addProperty("is_error", true);
+		}
+		return resultContent;
+	}
+}
@@ -0,0 +1,235 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers tool results across turns so the same lookup asked twice in a row does not
+ * repeat its HTTP requests.
+ *
+ * Entries are keyed by tool name plus the tool input with its values normalised
+ * ("Dragon bones" and " dragon  BONES" share an entry). Each tool has its own lifetime:
+ * GE prices move quickly, wiki pages hardly at all. Results that read the player's own
+ * progress from varbits are instead dropped whenever one of those varbits changes, via
+ * {@link #invalidateGameState()}. The cache holds at most {@link #MAX_ENTRIES} entries
+ * and evicts the least recently used. Error results are never stored.
+ */
+public class ToolResultCache
+{
+	static final int MAX_ENTRIES = 256;
+
+	private static final Map<String, Long> TTL_MS = Map.of(
+		"get_ge_price", 60_000L,
+		"get_ge_prices", 60_000L,
+		"search_wiki", 6 * 60 * 60_000L,
+		// Normally invalidated by a varbit change long before this
+		"get_achievement_diary_status", 30 * 60_000L,
+		"get_combat_achievement_status", 30 * 60_000L);
+
+	private static final Set<String> GAME_STATE_TOOLS = Set.of(
+		"get_achievement_diary_status",
+		"get_combat_achievement_status");
+
+	private final LongSupplier clock;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	// Bumped on every varbit change; game-state entries from an older generation are stale
+	private final AtomicInteger gameStateGeneration = new AtomicInteger();
+
+	// Access-ordered, so iteration starts at the least recently used entry. Guarded by this.
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+		{
+			if (size() > MAX_ENTRIES)
+			{
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private static class Entry
+	{
+		final String result;
+		final long expiresAt;
+		final int generation;
+
+		Entry(String result, long expiresAt, int generation)
+		{
+			this.result = result;
+			this.expiresAt = expiresAt;
+			this.generation = generation;
+		}
+	}
+
+	public ToolResultCache()
+	{
+		this(System::currentTimeMillis);
+	}
+
+	ToolResultCache(LongSupplier clock)
+	{
+		this.clock = clock;
+	}
+
+	/**
+	 * Whether results of this tool are cached at all.
+	 */
+	public static boolean isCacheable(String toolName)
+	{
+		return TTL_MS.containsKey(toolName);
+	}
+
+	/**
+	 * The cached result, or null on a miss. Tools that are never cached do not count
+	 * towards the hit and miss totals.
+	 */
+	public String get(String toolName, JsonObject input)
+	{
+		if (!isCacheable(toolName))
+		{
+			return null;
+		}
+		String key = key(toolName, input);
+		synchronized (this)
+		{
+			Entry entry = entries.get(key);
+			if (entry != null && isFresh(toolName, entry))
+			{
+				hits.incrementAndGet();
+				return entry.result;
+			}
+			if (entry != null)
+			{
+				entries.remove(key);
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	public void put(String toolName, JsonObject input, String result)
+	{
+		if (!isCacheable(toolName) || result == null || ClaudeTools.isErrorResult(result))
+		{
+			return;
+		}
+		Entry entry = new Entry(result, clock.getAsLong() + TTL_MS.get(toolName), gameStateGeneration.get());
+		String key = key(toolName, input);
+		synchronized (this)
+		{
+			entries.put(key, entry);
+		}
+	}
+
+	/**
+	 * Marks every cached result derived from varbits as stale. Called when one of the
+	 * variables those tools read changes.
+	 */
+	public void invalidateGameState()
+	{
+		gameStateGeneration.incrementAndGet();
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+	}
+
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	public double hitRate()
+	{
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d hits, %d misses (%.0f%%), %d evictions, %d entries",
+			hits.get(), misses.get(), hitRate() * 100, evictions.get(), size());
+	}
+
+	private boolean isFresh(String toolName, Entry entry)
+	{
+		if (clock.getAsLong() >= entry.expiresAt)
+		{
+			return false;
+		}
+		return !GAME_STATE_TOOLS.contains(toolName) || entry.generation == gameStateGeneration.get();
+	}
+
+	/**
+	 * Tool name plus the input fields in a fixed order, with string values (including
+	 * those in arrays) trimmed, lower-cased and their whitespace collapsed.
+	 */
+	static String key(String toolName, JsonObject input)
+	{
+		StringBuilder sb = new StringBuilder(toolName);
+		if (input == null)
+		{
+			return sb.toString();
+		}
+		Map<String, JsonElement> sorted = new TreeMap<>();
+		for (Map.Entry<String, JsonElement> field : input.entrySet())
+		{
+			sorted.put(field.getKey(), field.getValue());
+		}
+		for (Map.Entry<String, JsonElement> field : sorted.entrySet())
+		{
+			JsonElement value = field.getValue();
+			sb.append('|').append(field.getKey()).append('=');
+			if (value.isJsonArray())
+			{
+				for (JsonElement element : value.getAsJsonArray())
+				{
+					sb.append(normalise(element)).append(',');
+				}
+			}
+			else
+			{
+				sb.append(normalise(value));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String normalise(JsonElement value)
+	{
+		return value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()
+			? value.getAsString().trim().replaceAll("\\s+", " ").toLowerCase()
+			: value.toString();
+	}
+}
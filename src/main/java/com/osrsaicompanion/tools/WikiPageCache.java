@@ -0,0 +1,409 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Wiki lookups kept on disk, so a page read yesterday or before a client restart does not
+ * cost a round trip to the wiki again.
+ *
+ * Each page is stored as a gzipped file holding the search_wiki result for it, next to
+ * an index that maps normalised queries to page titles and titles to their file, wiki
+ * revision id and when they were last checked. A page checked within {@link #FRESH_MS}
+ * is served without any request. An older one is {@link Page#isFresh() stale}: the caller
+ * asks the wiki for the page's current revision id and, if it is unchanged, calls
+ * {@link #revalidated} instead of fetching it again. Pages are evicted least recently
+ * used first once there are more than {@link #MAX_PAGES} or they take more than
+ * {@link #MAX_BYTES} compressed.
+ *
+ * Without a directory the cache only lives in memory. Methods do their file access inline
+ * and are called from the tool pool, never the client thread.
+ */
+@Slf4j
+public class WikiPageCache
+{
+	static final long FRESH_MS = 6 * 60 * 60_000L;
+	static final int MAX_PAGES = 200;
+	static final long MAX_BYTES = 4 * 1024 * 1024;
+	static final int MAX_QUERIES = 1_000;
+
+	private static final String INDEX_FILE = "index.json";
+
+	/**
+	 * A cached search_wiki result.
+	 */
+	public static final class Page
+	{
+		private final String title;
+		private final long revisionId;
+		private final String content;
+		private final boolean fresh;
+
+		public Page(String title, long revisionId, String content)
+		{
+			this(title, revisionId, content, true);
+		}
+
+		Page(String title, long revisionId, String content, boolean fresh)
+		{
+			this.title = title;
+			this.revisionId = revisionId;
+			this.content = content;
+			this.fresh = fresh;
+		}
+
+		public String getTitle()
+		{
+			return title;
+		}
+
+		/** The wiki revision the content was read from, or 0 if unknown. */
+		public long getRevisionId()
+		{
+			return revisionId;
+		}
+
+		public String getContent()
+		{
+			return content;
+		}
+
+		/** False once the page is due a revision check. */
+		public boolean isFresh()
+		{
+			return fresh;
+		}
+	}
+
+	private static final class Entry
+	{
+		final String file;
+		final long revisionId;
+		final int bytes;
+		long checkedAt;
+		// Only used when there is no directory to keep the page in
+		String content;
+
+		Entry(String file, long revisionId, int bytes, long checkedAt)
+		{
+			this.file = file;
+			this.revisionId = revisionId;
+			this.bytes = bytes;
+			this.checkedAt = checkedAt;
+		}
+	}
+
+	private final Path dir;
+	private final Gson gson;
+	private final LongSupplier clock;
+
+	// Keyed by title; access-ordered, so iteration starts at the least recently used page.
+	// Everything below is guarded by this.
+	private final LinkedHashMap<String, Entry> pages = new LinkedHashMap<>(64, 0.75f, true);
+	// Normalised query to title, oldest first
+	private final LinkedHashMap<String, String> queries = new LinkedHashMap<String, String>(64, 0.75f, false)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+		{
+			return size() > MAX_QUERIES;
+		}
+	};
+	private long totalBytes;
+	private boolean loaded;
+
+	public WikiPageCache(Path dir, Gson gson)
+	{
+		this(dir, gson, System::currentTimeMillis);
+	}
+
+	WikiPageCache(Path dir, Gson gson, LongSupplier clock)
+	{
+		this.dir = dir;
+		this.gson = gson;
+		this.clock = clock;
+	}
+
+	/**
+	 * The cached page a query led to, or null if there is none.
+	 */
+	public synchronized Page get(String query)
+	{
+		load();
+		String title = queries.get(normalise(query));
+		Entry entry = title != null ? pages.get(title) : null;
+		if (entry == null)
+		{
+			return null;
+		}
+		String content = read(entry);
+		if (content == null)
+		{
+			remove(title);
+			return null;
+		}
+		// The new recency is saved with the next put or revalidation rather than on every hit
+		return new Page(title, entry.revisionId, content, clock.getAsLong() - entry.checkedAt < FRESH_MS);
+	}
+
+	public synchronized void put(String query, Page page)
+	{
+		load();
+		byte[] compressed = compress(page.getContent());
+		String file = fileName(page.getTitle());
+		Entry entry = new Entry(file, page.getRevisionId(), compressed.length, clock.getAsLong());
+		if (dir == null)
+		{
+			entry.content = page.getContent();
+		}
+		else
+		{
+			try
+			{
+				Files.createDirectories(dir);
+				Path temp = dir.resolve(file + ".tmp");
+				Files.write(temp, compressed);
+				Files.move(temp, dir.resolve(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (IOException e)
+			{
+				log.warn("[AI] Could not cache wiki page {}: {}", page.getTitle(), e.toString());
+				return;
+			}
+		}
+
+		Entry previous = pages.put(page.getTitle(), entry);
+		if (previous != null)
+		{
+			totalBytes -= previous.bytes;
+		}
+		totalBytes += entry.bytes;
+		queries.put(normalise(query), page.getTitle());
+		evict();
+		saveIndex();
+	}
+
+	/**
+	 * Marks a stale page as current again after its revision was found unchanged.
+	 */
+	public synchronized void revalidated(String title)
+	{
+		Entry entry = pages.get(title);
+		if (entry != null)
+		{
+			entry.checkedAt = clock.getAsLong();
+			saveIndex();
+		}
+	}
+
+	public synchronized int size()
+	{
+		load();
+		return pages.size();
+	}
+
+	public synchronized long getTotalBytes()
+	{
+		return totalBytes;
+	}
+
+	static String normalise(String query)
+	{
+		return query.trim().replaceAll("\\s+", " ").toLowerCase();
+	}
+
+	private void evict()
+	{
+		for (Iterator<Map.Entry<String, Entry>> it = pages.entrySet().iterator();
+			it.hasNext() && (pages.size() > MAX_PAGES || totalBytes > MAX_BYTES); )
+		{
+			Map.Entry<String, Entry> eldest = it.next();
+			it.remove();
+			totalBytes -= eldest.getValue().bytes;
+			deleteFile(eldest.getValue());
+			queries.values().removeIf(eldest.getKey()::equals);
+		}
+	}
+
+	private void remove(String title)
+	{
+		Entry entry = pages.remove(title);
+		if (entry != null)
+		{
+			totalBytes -= entry.bytes;
+			deleteFile(entry);
+		}
+		queries.values().removeIf(title::equals);
+		saveIndex();
+	}
+
+	private String read(Entry entry)
+	{
+		if (dir == null)
+		{
+			return entry.content;
+		}
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(dir.resolve(entry.file))))
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream(entry.bytes * 4);
+			byte[] buffer = new byte[8192];
+			for (int n; (n = in.read(buffer)) != -1; )
+			{
+				out.write(buffer, 0, n);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+		catch (IOException e)
+		{
+			if (!(e instanceof NoSuchFileException))
+			{
+				log.warn("[AI] Could not read cached wiki page {}: {}", entry.file, e.toString());
+			}
+			return null;
+		}
+	}
+
+	private void deleteFile(Entry entry)
+	{
+		if (dir == null)
+		{
+			return;
+		}
+		try
+		{
+			Files.deleteIfExists(dir.resolve(entry.file));
+		}
+		catch (IOException e)
+		{
+			log.debug("[AI] Could not delete cached wiki page {}: {}", entry.file, e.toString());
+		}
+	}
+
+	// Reads the index the first time the cache is used; pages whose file is gone are dropped
+	private void load()
+	{
+		if (loaded || dir == null)
+		{
+			loaded = true;
+			return;
+		}
+		loaded = true;
+		Path index = dir.resolve(INDEX_FILE);
+		if (!Files.exists(index))
+		{
+			return;
+		}
+		try
+		{
+			JsonObject json = gson.fromJson(new String(Files.readAllBytes(index), StandardCharsets.UTF_8), JsonObject.class);
+			// Saved least recently used first, so re-inserting restores the order
+			for (Map.Entry<String, JsonElement> page : json.getAsJsonObject("pages").entrySet())
+			{
+				JsonObject fields = page.getValue().getAsJsonObject();
+				Entry entry = new Entry(fields.get("file").getAsString(), fields.get("revid").getAsLong(),
+					fields.get("bytes").getAsInt(), fields.get("checkedAt").getAsLong());
+				if (Files.exists(dir.resolve(entry.file)))
+				{
+					pages.put(page.getKey(), entry);
+					totalBytes += entry.bytes;
+				}
+			}
+			for (Map.Entry<String, JsonElement> query : json.getAsJsonObject("queries").entrySet())
+			{
+				if (pages.containsKey(query.getValue().getAsString()))
+				{
+					queries.put(query.getKey(), query.getValue().getAsString());
+				}
+			}
+			log.debug("[AI] Loaded {} cached wiki pages ({} bytes)", pages.size(), totalBytes);
+		}
+		catch (Exception e)
+		{
+			// Unreadable index: start afresh, the orphaned files are overwritten as pages are fetched again
+			log.warn("[AI] Could not read wiki cache index: {}", e.toString());
+			pages.clear();
+			queries.clear();
+			totalBytes = 0;
+		}
+	}
+
+	private void saveIndex()
+	{
+		if (dir == null)
+		{
+			return;
+		}
+		JsonObject pagesJson = new JsonObject();
+		for (Map.Entry<String, Entry> page : pages.entrySet())
+		{
+			JsonObject fields = new JsonObject();
+			fields.addProperty("file", page.getValue().file);
+			fields.addProperty("revid", page.getValue().revisionId);
+			fields.addProperty("bytes", page.getValue().bytes);
+			fields.addProperty("checkedAt", page.getValue().checkedAt);
+			pagesJson.add(page.getKey(), fields);
+		}
+		JsonObject queriesJson = new JsonObject();
+		for (Map.Entry<String, String> query : queries.entrySet())
+		{
+			queriesJson.addProperty(query.getKey(), query.getValue());
+		}
+		JsonObject json = new JsonObject();
+		json.add("pages", pagesJson);
+		json.add("queries", queriesJson);
+		try
+		{
+			Files.createDirectories(dir);
+			Path temp = dir.resolve(INDEX_FILE + ".tmp");
+			Files.write(temp, gson.toJson(json).getBytes(StandardCharsets.UTF_8));
+			Files.move(temp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			log.warn("[AI] Could not save wiki cache index: {}", e.toString());
+		}
+	}
+
+	private static byte[] compress(String content)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(bytes))
+		{
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		catch (IOException e)
+		{
+			// Writing to memory cannot fail
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	// Titles can hold characters no file system accepts, so files are named by a hash
+	private static String fileName(String title)
+	{
+		byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return String.format("%08x%04x.gz", crc.getValue(), bytes.length & 0xffff);
+	}
+}
@@ -0,0 +1,47 @@
+package com.osrsaicompanion;
+
+import okhttp3.Call;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ActiveTurnTest
+{
+	@Test
+	public void testCancelAbortsEverythingInFlight()
+	{
+		ActiveTurn turn = new ActiveTurn(ActiveTurn.Source.EVENT, RequestRouter.Route.EVENT_REACTION);
+		Call call = mock(Call.class);
+		CompletableFuture<Void> retry = new CompletableFuture<>();
+		CompletableFuture<Void> toolRound = new CompletableFuture<>();
+		turn.setCall(call);
+		turn.setPendingRetry(retry);
+		turn.setToolRound(toolRound);
+
+		turn.cancel();
+		turn.cancel();
+
+		assertTrue(turn.isCancelled());
+		verify(call, times(1)).cancel();
+		assertTrue(retry.isCancelled());
+		assertTrue(toolRound.isCancelled());
+	}
+
+	@Test
+	public void testHandlesRegisteredAfterCancelAreCancelledImmediately()
+	{
+		ActiveTurn turn = new ActiveTurn(ActiveTurn.Source.USER, RequestRouter.Route.RESEARCH);
+		turn.cancel();
+
+		Call call = mock(Call.class);
+		CompletableFuture<Void> toolRound = new CompletableFuture<>();
+		turn.setCall(call);
+		turn.setToolRound(toolRound);
+
+		verify(call).cancel();
+		assertTrue(toolRound.isCancelled());
+	}
+}
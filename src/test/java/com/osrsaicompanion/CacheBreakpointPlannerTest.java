@@ -0,0 +1,84 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CacheBreakpointPlannerTest
+{
+	// tools, slow, (no) summary, fast, then three history messages
+	private static final long[] BLOCKS = {2_000, 3_000, 0, 200, 500, 500, 500};
+
+	@Test
+	public void testFixedLayoutUntilWarmedUp()
+	{
+		CacheBreakpointPlanner planner = new CacheBreakpointPlanner(new TokenEstimator());
+
+		boolean[] breakpoints = planner.plan(BLOCKS, null, 0);
+
+		assertArrayEquals(new boolean[]{true, true, false, false, false, true, false}, breakpoints);
+	}
+
+	@Test
+	public void testStableRequestNeedsOnlyTheLastMessage()
+	{
+		boolean[] breakpoints = CacheBreakpointPlanner.optimise(BLOCKS, new double[]{1, 1, 1, 1, 1, 1, 1}, 1.0, 0);
+
+		assertArrayEquals(new boolean[]{false, false, false, false, false, false, true}, breakpoints);
+	}
+
+	@Test
+	public void testVolatileFastBlockKeepsBreakpointsOutOfHistory()
+	{
+		// Writing history that is never read back only costs the write premium
+		boolean[] breakpoints = CacheBreakpointPlanner.optimise(BLOCKS, new double[]{1, 1, 1, 0, 1, 1, 1}, 1.0, 0);
+
+		assertArrayEquals(new boolean[]{false, true, false, false, false, false, false}, breakpoints);
+	}
+
+	@Test
+	public void testPrefixBelowTheMinimumGetsNoBreakpoint()
+	{
+		double[] stability = {1, 0.5, 1, 1, 1, 1, 1};
+
+		assertTrue(CacheBreakpointPlanner.optimise(BLOCKS, stability, 1.0, 0)[CacheBreakpointPlanner.TOOLS]);
+		assertFalse(CacheBreakpointPlanner.optimise(BLOCKS, stability, 1.0, 2_500)[CacheBreakpointPlanner.TOOLS]);
+	}
+
+	@Test
+	public void testNeverMoreThanFourBreakpoints()
+	{
+		long[] blocks = {1_000, 1_000, 1_000, 1_000, 1_000, 1_000, 1_000, 1_000};
+		double[] stability = {0.9, 0.8, 0.7, 0.6, 0.5, 0.4, 0.3, 0.2};
+
+		int count = 0;
+		for (boolean breakpoint : CacheBreakpointPlanner.optimise(blocks, stability, 1.0, 0))
+		{
+			count += breakpoint ? 1 : 0;
+		}
+		assertEquals(CacheBreakpointPlanner.MAX_BREAKPOINTS, count);
+	}
+
+	@Test
+	public void testMissedCacheReadsLowerWarmth()
+	{
+		CacheBreakpointPlanner planner = new CacheBreakpointPlanner(new TokenEstimator());
+		planner.plan(BLOCKS, null, 0);
+		planner.recordUsage(usage(0));
+		planner.plan(BLOCKS, new boolean[5], 0);
+
+		// Nothing changed, so everything up to the previous breakpoints should have been read
+		planner.recordUsage(usage(0));
+
+		assertEquals(0.8, planner.getWarmth(), 0.0001);
+	}
+
+	private static JsonObject usage(int cacheRead)
+	{
+		JsonObject usage = new JsonObject();
+		usage.addProperty("input_tokens", 100);
+		usage.addProperty("cache_read_input_tokens", cacheRead);
+		return usage;
+	}
+}
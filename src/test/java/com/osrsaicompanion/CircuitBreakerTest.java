@@ -0,0 +1,82 @@
+package com.osrsaicompanion;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest
+{
+	private long now = 1_000_000L;
+	private final CircuitBreaker breaker = new CircuitBreaker(() -> now);
+
+	@Test
+	public void testOpensAfterConsecutiveFailures()
+	{
+		for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD - 1; i++)
+		{
+			breaker.recordFailure();
+		}
+		assertTrue(breaker.allowRequest());
+
+		breaker.recordFailure();
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest());
+		assertEquals(CircuitBreaker.COOLDOWN_MS, breaker.remainingCooldownMillis());
+	}
+
+	@Test
+	public void testSuccessResetsTheFailureCount()
+	{
+		for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD - 1; i++)
+		{
+			breaker.recordFailure();
+		}
+		breaker.recordSuccess();
+		breaker.recordFailure();
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testHalfOpenLetsOneTrialThrough()
+	{
+		trip();
+		now += CircuitBreaker.COOLDOWN_MS;
+
+		assertTrue(breaker.allowRequest());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertFalse("Only one trial request at a time", breaker.allowRequest());
+
+		breaker.recordSuccess();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void testFailedTrialReopens()
+	{
+		List<CircuitBreaker.State> transitions = new ArrayList<>();
+		breaker.setStateListener(transitions::add);
+		trip();
+		now += CircuitBreaker.COOLDOWN_MS;
+		breaker.refresh();
+
+		assertTrue(breaker.allowRequest());
+		breaker.recordFailure();
+
+		assertFalse(breaker.allowRequest());
+		assertEquals(List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.OPEN), transitions);
+	}
+
+	private void trip()
+	{
+		for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++)
+		{
+			breaker.recordFailure();
+		}
+	}
+}
@@ -7,12 +7,11 @@ import com.osrsaicompanion.tools.ClaudeTools;
 import net.runelite.api.Client;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.game.ItemManager;
+import okhttp3.RequestBody;
+import okio.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.lang.reflect.Method;
-import java.util.List;
-
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -34,8 +33,8 @@ public class ClaudeClientCacheTest
 		Client client = mock(Client.class);
 		ItemManager itemManager = mock(ItemManager.class);
 		PlayerContextBuilder contextBuilder = mock(PlayerContextBuilder.class);
-		when(contextBuilder.buildSlowSystemPrompt()).thenReturn("slow prompt");
-		when(contextBuilder.buildFastSystemPrompt()).thenReturn("fast prompt");
+		when(contextBuilder.buildSlowSystemPrompt(any())).thenReturn("slow prompt");
+		when(contextBuilder.buildFastSystemPrompt(any())).thenReturn("fast prompt");
 
 		ClaudeTools claudeTools = new ClaudeTools(client, null, gson, itemManager);
 		ClientThread clientThread = mock(ClientThread.class);
@@ -51,7 +50,7 @@ public class ClaudeClientCacheTest
 		// With 0 or 1 messages there's nothing to cache — no message should have cache_control
 		addMessage("user", "hello");
 
-		JsonArray messages = invokeBuilMessagesWithCache();
+		JsonArray messages = encodeMessages();
 		assertEquals(1, messages.size());
 
 		JsonObject msg = messages.get(0).getAsJsonObject();
@@ -66,7 +65,7 @@ public class ClaudeClientCacheTest
 		addMessage("assistant", "first response");
 		addMessage("user", "second message");
 
-		JsonArray messages = invokeBuilMessagesWithCache();
+		JsonArray messages = encodeMessages();
 		assertEquals(3, messages.size());
 
 		// Second-to-last (index 1) should have cache_control
@@ -92,7 +91,7 @@ public class ClaudeClientCacheTest
 		addMessage("assistant", "msg4");
 		addMessage("user", "msg5");
 
-		JsonArray messages = invokeBuilMessagesWithCache();
+		JsonArray messages = encodeMessages();
 		assertEquals(5, messages.size());
 
 		// Only index 3 (second-to-last) should be cached
@@ -133,7 +132,7 @@ public class ClaudeClientCacheTest
 
 		addMessage("user", "latest user message");
 
-		JsonArray messages = invokeBuilMessagesWithCache();
+		JsonArray messages = encodeMessages();
 		assertEquals(3, messages.size());
 
 		// The tool_use message at index 1 already has array content — should be passed through unchanged
@@ -152,27 +151,32 @@ public class ClaudeClientCacheTest
 		JsonObject msg = new JsonObject();
 		msg.addProperty("role", role);
 		msg.addProperty("content", content);
-		getHistory().add(msg);
+		getHistory().append(msg);
 	}
 
 	private void addRawMessage(JsonObject msg) throws Exception
 	{
-		getHistory().add(msg);
+		getHistory().append(msg);
 	}
 
-	@SuppressWarnings("unchecked")
-	private List<JsonObject> getHistory() throws Exception
+	private ConversationLog getHistory() throws Exception
 	{
-		var field = ClaudeClient.class.getDeclaredField("conversationHistory");
+		var field = ClaudeClient.class.getDeclaredField("conversationLog");
 		field.setAccessible(true);
-		return (List<JsonObject>) field.get(claudeClient);
+		return (ConversationLog) field.get(claudeClient);
 	}
 
-	private JsonArray invokeBuilMessagesWithCache() throws Exception
+	// Encodes a request the same way ClaudeClient does and reads the messages array back
+	private JsonArray encodeMessages() throws Exception
 	{
-		Method method = ClaudeClient.class.getDeclaredMethod("buildMessagesWithCache");
-		method.setAccessible(true);
-		return (JsonArray) method.invoke(claudeClient);
+		Gson gson = new Gson();
+		MessagesRequestEncoder encoder = new MessagesRequestEncoder(gson);
+		MessagesRequestEncoder.RequestPrefix prefix = encoder.encodePrefix("model", 1024, false, "slow prompt", null, "fast prompt");
+		RequestBody body = encoder.encode(prefix, getHistory().snapshot());
+
+		Buffer buffer = new Buffer();
+		body.writeTo(buffer);
+		return gson.fromJson(buffer.readUtf8(), JsonObject.class).getAsJsonArray("messages");
 	}
 
 	// Minimal stub — we never actually make HTTP calls in these tests
@@ -0,0 +1,175 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.osrsaicompanion.tools.ClaudeTools;
+import net.runelite.client.callback.ClientThread;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Drives ClaudeClient through scripted conversations against {@link MockAnthropicServer}
+ * and prints turn latency, retries and peak heap, so changes to the request path can be
+ * measured offline. Skipped in the normal test run; set -Dloadtest.conversations to the
+ * number of conversations to run it.
+ */
+public class ClaudeClientLoadTest
+{
+	// 0 unless asked for on the command line
+	private static final int CONVERSATIONS = Integer.getInteger("loadtest.conversations", 0);
+	private static final int TURNS_PER_CONVERSATION = 3;
+
+	private MockAnthropicServer server;
+	private ClaudeClient claudeClient;
+	private final Semaphore idle = new Semaphore(0);
+	private final AtomicBoolean stream = new AtomicBoolean();
+
+	@Before
+	public void setUp() throws Exception
+	{
+		assumeTrue("Set -Dloadtest.conversations to run the load test", CONVERSATIONS > 0);
+		server = new MockAnthropicServer();
+		Gson gson = new Gson();
+
+		OsrsAiCompanionConfig config = mock(OsrsAiCompanionConfig.class);
+		when(config.apiKey()).thenReturn("test-key");
+		when(config.model()).thenReturn(AiModel.SONNET);
+		when(config.maxTokens()).thenReturn(1024);
+		when(config.streamResponses()).thenAnswer(invocation -> stream.get());
+
+		PlayerContextBuilder contextBuilder = mock(PlayerContextBuilder.class);
+		when(contextBuilder.buildSlowSystemPrompt(any())).thenReturn("slow prompt");
+		when(contextBuilder.buildFastSystemPrompt(any())).thenReturn("fast prompt");
+
+		ClaudeTools claudeTools = mock(ClaudeTools.class);
+		when(claudeTools.execute(anyString(), any())).thenReturn("Dragon bones: 2,000 gp");
+
+		ClientThread clientThread = mock(ClientThread.class);
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArgument(0)).run();
+			return null;
+		}).when(clientThread).invokeLater(any(Runnable.class));
+
+		claudeClient = new ClaudeClient(new OkHttpClient(), gson, config, contextBuilder, claudeTools, clientThread);
+		claudeClient.setApiUrl(server.url());
+		claudeClient.setIdleListener(idle::release);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		if (server == null)
+		{
+			return;
+		}
+		claudeClient.shutdown();
+		server.close();
+	}
+
+	@Test
+	public void testScriptedConversations() throws Exception
+	{
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if (pool.getType() == MemoryType.HEAP)
+			{
+				pool.resetPeakUsage();
+				heapPools.add(pool);
+			}
+		}
+
+		List<Long> latencies = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int c = 0; c < CONVERSATIONS; c++)
+		{
+			claudeClient.clearHistory();
+			for (int t = 0; t < TURNS_PER_CONVERSATION; t++)
+			{
+				stream.set((c + t) % 2 == 0);
+				long turnStart = System.nanoTime();
+				claudeClient.sendMessage(prompt(c, t), null);
+				assertTrue("Conversation " + c + " turn " + t + " never finished", idle.tryAcquire(30, TimeUnit.SECONDS));
+				latencies.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - turnStart));
+			}
+		}
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : heapPools)
+		{
+			peakHeap += pool.getPeakUsage().getUsed();
+		}
+		Collections.sort(latencies);
+		int turns = latencies.size();
+		CompanionMetrics metrics = claudeClient.getMetrics();
+		System.out.printf("Load test: %d turns in %dms (%.1f turns/s)%n", turns, elapsedMs, turns * 1000.0 / elapsedMs);
+		System.out.printf("  turn latency p50=%.1fms p99=%.1fms max=%.1fms%n",
+			percentile(latencies, 0.50) / 1000.0, percentile(latencies, 0.99) / 1000.0, latencies.get(turns - 1) / 1000.0);
+		System.out.printf("  requests=%d retries=%d (429s=%d, overloaded incl. mid-stream=%d, dropped streams=%d) tool rounds=%d%n",
+			server.getRequests(), metrics.getRetries(), server.getRateLimited(), server.getOverloaded(), server.getDropped(),
+			metrics.getToolRounds());
+		System.out.printf("  peak heap=%dMB%n", peakHeap / (1024 * 1024));
+
+		assertEquals(turns, server.getReplies());
+		assertEquals(turns, metrics.getTurns());
+		assertEquals(server.getRateLimited() + server.getOverloaded() + server.getDropped(), metrics.getRetries());
+	}
+
+	// Every conversation opens with a scripted scenario; later turns are plain or use tools
+	private static String prompt(int conversation, int turn)
+	{
+		StringBuilder prompt = new StringBuilder("Conversation " + conversation + ", turn " + turn + ".");
+		if (turn == 0)
+		{
+			switch (conversation % 6)
+			{
+				case 0:
+					// Streamed as well, being even
+					prompt.append(" [stream-drop]");
+					break;
+				case 1:
+					prompt.append(" [429]");
+					break;
+				case 2:
+					prompt.append(" [overloaded]");
+					break;
+				case 3:
+					prompt.append(" [slow]");
+					break;
+				case 4:
+					// Always a streamed first turn, since even conversations open streaming
+					prompt.append(" [stream-overloaded]");
+					break;
+				default:
+					break;
+			}
+		}
+		if ((conversation + turn) % 3 == 0)
+		{
+			prompt.append(" [tools:").append(1 + turn).append("]");
+		}
+		return prompt.toString();
+	}
+
+	private static long percentile(List<Long> sorted, double percentile)
+	{
+		int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+	}
+}
@@ -5,6 +5,8 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.osrsaicompanion.tools.ClaudeTools;
 import net.runelite.api.Client;
+import net.runelite.api.VarPlayer;
+import net.runelite.api.Varbits;
 import net.runelite.client.game.ItemManager;
 import org.junit.Test;
 
@@ -67,6 +69,7 @@ public class ClaudeToolDefinitionsTest
 		assertTrue(names.contains("get_achievement_diary_status"));
 		assertTrue(names.contains("get_combat_achievement_status"));
 		assertTrue(names.contains("get_ge_price"));
+		assertTrue(names.contains("get_ge_prices"));
 		assertTrue(names.contains("search_wiki"));
 	}
 
@@ -129,4 +132,14 @@ public class ClaudeToolDefinitionsTest
 		String result = tools.execute("nonexistent_tool", null);
 		assertTrue("Should return error for unknown tool", result.startsWith("Unknown tool:"));
 	}
+
+	@Test
+	public void testOnlyDiaryAndCombatAchievementVarsAffectToolResults()
+	{
+		assertTrue(ClaudeTools.readsStatusVar(1196, -1));
+		assertTrue(ClaudeTools.readsStatusVar(-1, Varbits.DIARY_VARROCK_HARD));
+		assertTrue(ClaudeTools.readsStatusVar(-1, Varbits.COMBAT_ACHIEVEMENT_TIER_MASTER));
+		assertFalse(ClaudeTools.readsStatusVar(VarPlayer.SLAYER_TASK_SIZE, -1));
+		assertFalse(ClaudeTools.readsStatusVar(-1, Varbits.QUICK_PRAYER));
+	}
 }
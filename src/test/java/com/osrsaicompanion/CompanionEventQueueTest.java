@@ -0,0 +1,125 @@
+package com.osrsaicompanion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CompanionEventQueueTest
+{
+	private ClaudeClient claudeClient;
+	private ScheduledExecutorService scheduler;
+	private long now = 1_000_000L;
+	private CompanionEventQueue queue;
+
+	@Before
+	public void setUp()
+	{
+		claudeClient = mock(ClaudeClient.class);
+		scheduler = mock(ScheduledExecutorService.class);
+		when(claudeClient.sendIfIdle(anyString(), any())).thenReturn(true);
+		queue = new CompanionEventQueue(claudeClient, () -> null, scheduler, () -> now);
+	}
+
+	@Test
+	public void testSingleEventIsSentWithItsOwnPrompt()
+	{
+		queue.submit(levelUp("Attack to 70"));
+		verify(claudeClient, never()).sendIfIdle(anyString(), any());
+
+		queue.closeWindow();
+
+		verify(claudeClient).sendIfIdle(eq("prompt: Attack to 70"), any());
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testBurstIsMergedIntoOnePrompt()
+	{
+		queue.submit(levelUp("Attack to 70"));
+		queue.submit(levelUp("Strength to 71"));
+		queue.closeWindow();
+
+		verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), any());
+		verify(claudeClient, times(1)).sendIfIdle(contains("levelled Attack to 70 and Strength to 71"), any());
+	}
+
+	@Test
+	public void testEventsWaitWhileBusyAndDrainWhenIdle()
+	{
+		when(claudeClient.isBusy()).thenReturn(true);
+		queue.submit(levelUp("Attack to 70"));
+		queue.closeWindow();
+
+		verify(claudeClient, never()).sendIfIdle(anyString(), any());
+		assertEquals(1, queue.size());
+
+		when(claudeClient.isBusy()).thenReturn(false);
+		queue.drain();
+
+		verify(claudeClient).sendIfIdle(eq("prompt: Attack to 70"), any());
+	}
+
+	@Test
+	public void testStaleEventsAreDropped()
+	{
+		when(claudeClient.isBusy()).thenReturn(true);
+		queue.submit(levelUp("Attack to 70"));
+		queue.closeWindow();
+
+		now += CompanionEventQueue.MAX_EVENT_AGE_MS + 1;
+		when(claudeClient.isBusy()).thenReturn(false);
+		queue.drain();
+
+		verify(claudeClient, never()).sendIfIdle(anyString(), any());
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testHighestPriorityEventsGoFirstWhenOverTheCap()
+	{
+		for (int i = 0; i < CompanionEventQueue.MAX_EVENTS_PER_PROMPT; i++)
+		{
+			queue.submit(new CompanionEvent(CompanionEvent.Type.LOOT, "loot " + i, "loot " + i));
+		}
+		queue.submit(new CompanionEvent(CompanionEvent.Type.QUEST, "completed Dragon Slayer I", "quest"));
+		queue.closeWindow();
+
+		verify(claudeClient).sendIfIdle(startsWith("A few things just happened at once: I completed Dragon Slayer I"), any());
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void testBatchIsRequeuedWhenThePlayerGetsInFirst()
+	{
+		when(claudeClient.sendIfIdle(anyString(), any())).thenReturn(false);
+		queue.submit(levelUp("Attack to 70"));
+		queue.closeWindow();
+
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void testBuildPromptGroupsByType()
+	{
+		List<CompanionEvent> events = new ArrayList<>();
+		events.add(levelUp("Attack to 70"));
+		events.add(levelUp("Strength to 71"));
+		events.add(levelUp("Defence to 72"));
+		events.add(new CompanionEvent(CompanionEvent.Type.DEATH, "died", "died"));
+
+		assertEquals("A few things just happened at once: I levelled Attack to 70, Strength to 71, "
+			+ "and Defence to 72 and died. React to all of it together in one message.",
+			CompanionEventQueue.buildPrompt(events));
+	}
+
+	private static CompanionEvent levelUp(String detail)
+	{
+		return new CompanionEvent(CompanionEvent.Type.LEVEL_UP, detail, "prompt: " + detail);
+	}
+}
@@ -0,0 +1,99 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompanionMetricsTest
+{
+	@Test
+	public void testPercentilesReportTheBucketBound()
+	{
+		CompanionMetrics.Histogram histogram = new CompanionMetrics.Histogram();
+		for (int i = 0; i < 90; i++)
+		{
+			histogram.record(40);
+		}
+		for (int i = 0; i < 10; i++)
+		{
+			histogram.record(3_000);
+		}
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(50, histogram.percentileMillis(0.5));
+		assertEquals(3_000, histogram.percentileMillis(0.95));
+		assertEquals(3_000, histogram.getMaxMillis());
+		assertEquals(336, histogram.getMeanMillis());
+	}
+
+	@Test
+	public void testValuesPastTheLastBoundReportTheMax()
+	{
+		CompanionMetrics.Histogram histogram = new CompanionMetrics.Histogram();
+		histogram.record(95_000);
+
+		assertEquals(95_000, histogram.percentileMillis(0.5));
+		assertEquals(0, new CompanionMetrics.Histogram().percentileMillis(0.5));
+	}
+
+	@Test
+	public void testSubMillisecondStagesAreNotRoundedToZero()
+	{
+		CompanionMetrics.Histogram histogram = new CompanionMetrics.Histogram();
+		histogram.recordMicros(180);
+		histogram.recordMicros(420);
+
+		assertEquals(300, histogram.getMeanMicros());
+		assertEquals(250, histogram.percentileMicros(0.5));
+		assertEquals(420, histogram.getMaxMicros());
+		assertEquals(0, histogram.getMaxMillis());
+		assertEquals(String.format("n=2 mean=%.2fms p50<=%.2fms p95<=%.2fms max=%.2fms", 0.3, 0.25, 0.42, 0.42),
+			histogram.toString());
+	}
+
+	@Test
+	public void testUsageAndTurnsAreTotalled()
+	{
+		CompanionMetrics metrics = new CompanionMetrics();
+		metrics.recordUsage(usage(100, 900, 40));
+		metrics.recordUsage(usage(50, 0, 60));
+		metrics.recordUsage(null);
+		metrics.recordTurn(RequestRouter.Route.RESEARCH, System.nanoTime(), 2);
+		metrics.recordTurn(RequestRouter.Route.EVENT_REACTION, System.nanoTime(), 0);
+
+		assertEquals(100, metrics.getOutputTokens());
+		assertEquals(2, metrics.getCacheStats().getRequests());
+		assertEquals(900, metrics.getCacheStats().getCacheReadTokens());
+		assertEquals(2, metrics.getTurns());
+		assertEquals(2, metrics.getToolRounds());
+		assertEquals(2, metrics.getHistogram(CompanionMetrics.Phase.TURN).getCount());
+		assertEquals(1, metrics.getRouteHistogram(RequestRouter.Route.EVENT_REACTION).getCount());
+	}
+
+	@Test
+	public void testSummaryListsOnlyStagesWithSamples()
+	{
+		CompanionMetrics metrics = new CompanionMetrics();
+		metrics.record(CompanionMetrics.Phase.FIRST_BYTE, 800);
+		metrics.recordTool("search_wiki", 1_200);
+
+		List<String> lines = metrics.summaryLines();
+
+		assertTrue(lines.get(0).startsWith("time to first byte: n=1"));
+		assertTrue(lines.get(1).startsWith("tool search_wiki: n=1"));
+		assertFalse(lines.stream().anyMatch(l -> l.startsWith("system prompt")));
+		assertNull(metrics.getToolHistogram("get_ge_price"));
+	}
+
+	private static JsonObject usage(int input, int cacheRead, int output)
+	{
+		JsonObject usage = new JsonObject();
+		usage.addProperty("input_tokens", input);
+		usage.addProperty("cache_read_input_tokens", cacheRead);
+		usage.addProperty("output_tokens", output);
+		return usage;
+	}
+}
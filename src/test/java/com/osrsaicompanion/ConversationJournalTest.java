@@ -0,0 +1,190 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ConversationJournalTest
+{
+	private final Gson gson = new Gson();
+	private Path dir;
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		dir = Files.createTempDirectory("journal-test");
+		file = dir.resolve("account").resolve("123.journal");
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		try (Stream<Path> paths = Files.walk(dir))
+		{
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testMessagesAndSummarySurviveReopening() throws Exception
+	{
+		ConversationJournal journal = open();
+		journal.append(message("user", "hello"));
+		journal.append(message("assistant", "hi there"));
+		journal.recordSummary("Player is new to the game.");
+		journal.close();
+
+		ConversationJournal.Restored restored = open().restore(10).get();
+
+		assertEquals(2, restored.getMessages().size());
+		assertEquals("hi there", restored.getMessages().get(1).get("content").getAsString());
+		assertEquals("Player is new to the game.", restored.getSummary());
+	}
+
+	@Test
+	public void testRestoreSkipsEvictedAndOldMessages() throws Exception
+	{
+		ConversationJournal journal = open();
+		for (int i = 0; i < 10; i++)
+		{
+			journal.append(message("user", "m" + i));
+		}
+		journal.recordEviction(2);
+		journal.close();
+
+		List<JsonObject> messages = open().restore(5).get().getMessages();
+		assertEquals(5, messages.size());
+		assertEquals("m5", messages.get(0).get("content").getAsString());
+
+		List<JsonObject> all = open().restore(100).get().getMessages();
+		assertEquals("Messages outside the restored window are dropped for good", 5, all.size());
+	}
+
+	@Test
+	public void testTornFinalRecordIsTruncated() throws Exception
+	{
+		ConversationJournal journal = open();
+		journal.append(message("user", "one"));
+		journal.append(message("assistant", "two"));
+		journal.close();
+		long intactSize = Files.size(file);
+
+		// A crash part-way through writing a record: header promises more than was written
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw"))
+		{
+			raf.seek(intactSize);
+			raf.writeInt(500);
+			raf.writeInt(0);
+			raf.writeByte(ConversationJournal.MESSAGE);
+			raf.write("{\"role\":\"us".getBytes());
+		}
+
+		journal = open();
+		assertEquals(2, journal.restore(10).get().getMessages().size());
+		journal.append(message("user", "three"));
+		journal.close();
+
+		assertTrue(Files.size(file) > intactSize);
+		List<JsonObject> messages = open().restore(10).get().getMessages();
+		assertEquals(3, messages.size());
+		assertEquals("three", messages.get(2).get("content").getAsString());
+	}
+
+	@Test
+	public void testFinalRecordWithBadChecksumIsTruncated() throws Exception
+	{
+		ConversationJournal journal = open();
+		journal.append(message("user", "one"));
+		journal.append(message("assistant", "two"));
+		journal.close();
+
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw"))
+		{
+			raf.seek(raf.length() - 3);
+			raf.writeByte('X');
+		}
+
+		List<JsonObject> messages = open().restore(10).get().getMessages();
+		assertEquals(1, messages.size());
+		assertEquals("one", messages.get(0).get("content").getAsString());
+	}
+
+	@Test
+	public void testCompactionDropsDeadRecords() throws Exception
+	{
+		String filler = "x".repeat(10_000);
+		ConversationJournal journal = open();
+		for (int i = 0; i < 40; i++)
+		{
+			journal.append(message("user", i + filler));
+		}
+		journal.recordSummary("summary");
+		journal.recordEviction(35);
+		journal.close();
+
+		assertTrue("Journal should have been compacted, was " + Files.size(file), Files.size(file) < 100_000);
+		assertFalse(Files.exists(file.resolveSibling("123.journal.tmp")));
+
+		ConversationJournal.Restored restored = open().restore(100).get();
+		assertEquals(5, restored.getMessages().size());
+		assertTrue(restored.getMessages().get(0).get("content").getAsString().startsWith("35"));
+		assertEquals("summary", restored.getSummary());
+	}
+
+	@Test
+	public void testRollbackDropsTheNewestMessages() throws Exception
+	{
+		ConversationJournal journal = open();
+		journal.append(message("user", "question"));
+		journal.append(message("assistant", "answer"));
+		journal.append(message("user", "cancelled question"));
+		journal.recordRollback(1);
+		journal.append(message("user", "next question"));
+		journal.close();
+
+		List<JsonObject> messages = open().restore(10).get().getMessages();
+		assertEquals(3, messages.size());
+		assertEquals("answer", messages.get(1).get("content").getAsString());
+		assertEquals("next question", messages.get(2).get("content").getAsString());
+	}
+
+	@Test
+	public void testClearEmptiesTheJournal() throws Exception
+	{
+		ConversationJournal journal = open();
+		journal.append(message("user", "hello"));
+		journal.recordSummary("summary");
+		journal.clear();
+		journal.close();
+
+		ConversationJournal.Restored restored = open().restore(10).get();
+		assertTrue(restored.getMessages().isEmpty());
+		assertNull(restored.getSummary());
+	}
+
+	private ConversationJournal open()
+	{
+		return new ConversationJournal(file, gson);
+	}
+
+	private static JsonObject message(String role, String content)
+	{
+		JsonObject msg = new JsonObject();
+		msg.addProperty("role", role);
+		msg.addProperty("content", content);
+		return msg;
+	}
+}
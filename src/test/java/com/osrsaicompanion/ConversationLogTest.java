@@ -0,0 +1,224 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConversationLogTest
+{
+	private final ConversationLog log = new ConversationLog();
+
+	@Test
+	public void testRunningTotalTracksAppendsAndEvictions()
+	{
+		log.append(message("user", "12345"));
+		log.append(message("assistant", "123"));
+		long first = TokenEstimator.estimate(message("user", "12345"));
+		long second = TokenEstimator.estimate(message("assistant", "123"));
+		assertEquals(first + second, log.totalTokens());
+
+		ConversationLog.Entry evicted = log.evictOldest();
+		assertEquals("12345", evicted.getMessage().get("content").getAsString());
+		assertEquals(1, log.size());
+		assertEquals(second, log.totalTokens());
+	}
+
+	@Test
+	public void testEvictToBudgetDropsWholeExchanges()
+	{
+		log.append(message("user", "first question"));
+		log.append(message("assistant", "first answer"));
+		log.append(message("user", "second question"));
+		log.append(message("assistant", "second answer"));
+		long lastExchange = log.snapshot().get(2).getTokens() + log.snapshot().get(3).getTokens();
+
+		List<ConversationLog.Entry> evicted = log.evictToBudget(lastExchange);
+
+		assertEquals(2, evicted.size());
+		assertEquals(2, log.size());
+		assertEquals(lastExchange, log.totalTokens());
+		assertEquals("second question", log.snapshot().get(0).getMessage().get("content").getAsString());
+	}
+
+	@Test
+	public void testEvictToBudgetNeverOrphansToolResults()
+	{
+		log.append(message("user", "old question"));
+		log.append(message("assistant", "old answer"));
+		log.append(message("user", "price of a whip?"));
+		log.append(toolUse());
+		log.append(toolResult("{\"item\":\"Abyssal whip\",\"high\":1500000}"));
+		log.append(message("assistant", "About 1.5m."));
+
+		// Even a zero budget must keep the newest exchange intact, tool turns included
+		List<ConversationLog.Entry> evicted = log.evictToBudget(0);
+
+		assertEquals(2, evicted.size());
+		assertEquals(4, log.size());
+		JsonObject head = log.snapshot().get(0).getMessage();
+		assertEquals("user", head.get("role").getAsString());
+		assertTrue(head.get("content").isJsonPrimitive());
+	}
+
+	@Test
+	public void testEvictToBudgetLeavesLogAloneWhenUnderBudget()
+	{
+		log.append(message("user", "hello"));
+		log.append(message("assistant", "hi"));
+
+		assertTrue(log.evictToBudget(Long.MAX_VALUE).isEmpty());
+		assertEquals(2, log.size());
+	}
+
+	@Test
+	public void testTrimWaitsForHighWaterThenEvictsDownToLowWater()
+	{
+		for (int i = 0; i < 10; i++)
+		{
+			log.append(message("user", "question " + i));
+			log.append(message("assistant", "answer " + i));
+		}
+		long perExchange = log.totalTokens() / 10;
+		JsonObject head = log.snapshot().get(0).getMessage();
+
+		assertTrue(log.trim(log.totalTokens(), perExchange * 6).isEmpty());
+		assertSame("Under the high-water mark the prefix must not move", head, log.snapshot().get(0).getMessage());
+
+		List<ConversationLog.Entry> evicted = log.trim(log.totalTokens() - 1, perExchange * 6);
+
+		assertEquals(8, evicted.size());
+		assertEquals(12, log.size());
+		assertEquals("question 4", log.snapshot().get(0).getMessage().get("content").getAsString());
+	}
+
+	@Test
+	public void testSnapshotIsUnaffectedByLaterChanges()
+	{
+		log.append(message("user", "first"));
+		log.append(message("assistant", "second"));
+		ConversationLog.Snapshot snapshot = log.snapshot();
+
+		log.evictOldest();
+		// Enough appends to force the backing array to be compacted
+		for (int i = 0; i < 40; i++)
+		{
+			log.append(message("user", "m" + i));
+		}
+
+		assertEquals(2, snapshot.size());
+		assertEquals("first", snapshot.messages().get(0).get("content").getAsString());
+		assertEquals("second", snapshot.messages().get(1).get("content").getAsString());
+		assertEquals(41, log.size());
+		assertEquals("second", log.snapshot().get(0).getMessage().get("content").getAsString());
+		assertEquals("m39", log.snapshot().get(40).getMessage().get("content").getAsString());
+	}
+
+	@Test
+	public void testRestoreStartsAtAUserTurnAndOnlyFillsAnEmptyLog()
+	{
+		List<JsonObject> saved = List.of(
+			toolResult("stale"),
+			message("assistant", "dangling"),
+			message("user", "question"),
+			message("assistant", "answer"));
+
+		assertEquals(2, log.restore(saved));
+		assertEquals("question", log.snapshot().get(0).getMessage().get("content").getAsString());
+		assertEquals(0, log.restore(saved));
+		assertEquals(2, log.size());
+	}
+
+	@Test
+	public void testRestoreEndsAtTheLastCompleteExchange()
+	{
+		List<JsonObject> killedMidTool = List.of(message("user", "price of a whip?"), toolUse());
+
+		assertEquals(0, ConversationLog.completeLength(killedMidTool));
+		assertEquals(0, log.restore(killedMidTool));
+		assertEquals(0, log.size());
+
+		List<JsonObject> killedMidTurn = List.of(
+			message("user", "question"),
+			message("assistant", "answer"),
+			message("user", "unanswered"),
+			toolUse(),
+			toolResult("1.5m"));
+
+		assertEquals(2, ConversationLog.completeLength(killedMidTurn));
+		assertEquals(2, log.restore(killedMidTurn));
+		assertEquals("answer", log.snapshot().get(1).getMessage().get("content").getAsString());
+	}
+
+	@Test
+	public void testRemoveNewestUndoesAppendsWithoutTouchingSnapshots()
+	{
+		log.append(message("user", "kept question"));
+		log.append(message("assistant", "kept answer"));
+		long kept = log.totalTokens();
+		log.append(message("user", "abandoned question"));
+		log.append(toolUse());
+		ConversationLog.Snapshot before = log.snapshot();
+
+		assertEquals(2, log.removeNewest(2));
+		log.append(message("user", "new question"));
+
+		assertEquals(3, log.size());
+		assertEquals(kept + TokenEstimator.estimate(message("user", "new question")), log.totalTokens());
+		assertEquals("new question", log.snapshot().get(2).getMessage().get("content").getAsString());
+		assertEquals("abandoned question", before.get(2).getMessage().get("content").getAsString());
+		assertEquals(0, log.removeNewest(0));
+		assertEquals(3, log.removeNewest(10));
+	}
+
+	@Test
+	public void testClearEmptiesTheLog()
+	{
+		log.append(message("user", "hello"));
+		log.clear();
+
+		assertEquals(0, log.size());
+		assertEquals(0, log.totalTokens());
+		assertNull(log.evictOldest());
+	}
+
+	private static JsonObject toolUse()
+	{
+		JsonObject block = new JsonObject();
+		block.addProperty("type", "tool_use");
+		block.addProperty("id", "toolu_1");
+		block.addProperty("name", "get_ge_price");
+		block.add("input", new JsonObject());
+		JsonArray content = new JsonArray();
+		content.add(block);
+		JsonObject msg = new JsonObject();
+		msg.addProperty("role", "assistant");
+		msg.add("content", content);
+		return msg;
+	}
+
+	private static JsonObject toolResult(String result)
+	{
+		JsonObject block = new JsonObject();
+		block.addProperty("type", "tool_result");
+		block.addProperty("tool_use_id", "toolu_1");
+		block.addProperty("content", result);
+		JsonArray content = new JsonArray();
+		content.add(block);
+		JsonObject msg = new JsonObject();
+		msg.addProperty("role", "user");
+		msg.add("content", content);
+		return msg;
+	}
+
+	private static JsonObject message(String role, String content)
+	{
+		JsonObject msg = new JsonObject();
+		msg.addProperty("role", role);
+		msg.addProperty("content", content);
+		return msg;
+	}
+}
@@ -22,11 +22,15 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 /**
- * Tests the wiki-based item name resolution fallback in get_ge_price.
+ * Tests item name resolution in get_ge_price: the local item name index, and the wiki
+ * fallback when the index cannot be fetched.
  * Both ItemManager and OkHttpClient are mocked — no RuneLite or network required.
  */
 public class GePriceSuggestionTest
 {
+	private static final String ITEM_NAMES = "[{\"id\":9,\"name\":\"Iron gauntlets\",\"members\":false},"
+		+ "{\"id\":8,\"name\":\"Iron full helm\",\"members\":false},{\"id\":1115,\"name\":\"Iron platebody\"}]";
+
 	private ItemManager itemManager;
 	private OkHttpClient httpClient;
 	private ClaudeTools tools;
@@ -40,14 +44,11 @@ public class GePriceSuggestionTest
 	}
 
 	@Test
-	public void testWikiFallbackResolvesIronGlovesToGauntlets() throws IOException
+	public void testIndexResolvesIronGlovesToGauntlets() throws IOException
 	{
 		when(itemManager.search("Iron gloves")).thenReturn(Collections.emptyList());
-		when(itemManager.search("Iron gauntlets")).thenReturn(
-			Collections.singletonList(item(9, "Iron gauntlets"))
-		);
 		mockSequentialResponses(
-			"{\"query\":{\"search\":[{\"title\":\"Iron gauntlets\"}]}}",  // wiki
+			ITEM_NAMES,                                                  // item names
 			"{\"data\":{\"9\":{\"high\":150,\"low\":100}}}"               // GE price
 		);
 
@@ -58,13 +59,30 @@ public class GePriceSuggestionTest
 	}
 
 	@Test
-	public void testWikiFallbackResolvesIronHelmetToFullHelm() throws IOException
+	public void testIndexResolvesMisspelledNames() throws IOException
+	{
+		when(itemManager.search(anyString())).thenReturn(Collections.emptyList());
+		mockSequentialResponses(
+			ITEM_NAMES,                                                  // item names
+			"{\"data\":{\"8\":{\"high\":200,\"low\":150}}}"               // GE price
+		);
+
+		String result = tools.execute("get_ge_price", input("iorn helmet"));
+
+		assertTrue("Should return a price", result.contains("GE prices for"));
+		assertTrue("Should show the resolved name", result.contains("Iron full helm"));
+		verify(httpClient, times(2)).newCall(any());
+	}
+
+	@Test
+	public void testWikiFallbackWhenItemNamesAreUnavailable() throws IOException
 	{
 		when(itemManager.search("Iron helmet")).thenReturn(Collections.emptyList());
 		when(itemManager.search("Iron full helm")).thenReturn(
 			Collections.singletonList(item(8, "Iron full helm"))
 		);
 		mockSequentialResponses(
+			"{}",                                                        // item names, unusable
 			"{\"query\":{\"search\":[{\"title\":\"Iron full helm\"}]}}",  // wiki
 			"{\"data\":{\"8\":{\"high\":200,\"low\":150}}}"               // GE price
 		);
@@ -76,10 +94,13 @@ public class GePriceSuggestionTest
 	}
 
 	@Test
-	public void testWikiNoResultReturnsNotFound() throws IOException
+	public void testUnknownNameReturnsNotFound() throws IOException
 	{
 		when(itemManager.search("Unobtainium sword")).thenReturn(Collections.emptyList());
-		mockSequentialResponses("{\"query\":{\"search\":[]}}");
+		mockSequentialResponses(
+			ITEM_NAMES,                                                  // item names
+			"{\"query\":{\"pages\":{\"-1\":{\"missing\":\"\"}}}}"           // wiki extract
+		);
 
 		String result = tools.execute("get_ge_price", input("Unobtainium sword"));
 
@@ -99,6 +120,26 @@ public class GePriceSuggestionTest
 		assertTrue("Should return not-found when wiki is unreachable", result.contains("not available on the Grand Exchange"));
 	}
 
+	@Test
+	public void testBatchPricesEveryItemFromOnePriceRequest() throws IOException
+	{
+		when(itemManager.search("Abyssal whip")).thenReturn(Collections.singletonList(item(4151, "Abyssal whip")));
+		when(itemManager.search("dragon bones")).thenReturn(Collections.singletonList(item(536, "Dragon bones")));
+		when(itemManager.search("Unobtainium sword")).thenReturn(Collections.emptyList());
+		mockSequentialResponses(
+			ITEM_NAMES,                                                                          // item names
+			"{\"data\":{\"4151\":{\"high\":1520000,\"low\":1490000},\"536\":{\"high\":2100,\"low\":null}}}"  // GE prices
+		);
+
+		String result = tools.execute("get_ge_prices", names("Abyssal whip", "dragon bones", "Unobtainium sword", "abyssal whip"));
+
+		assertEquals("GE prices (sell = high, buy = low):\n"
+			+ "Abyssal whip: sell 1,520,000 gp, buy 1,490,000 gp\n"
+			+ "Dragon bones: sell 2,100 gp, buy N/A\n"
+			+ "Unobtainium sword: not tradeable on the GE", result);
+		verify(httpClient, times(2)).newCall(any());
+	}
+
 	@Test
 	public void testEmptyItemNameReturnsError()
 	{
@@ -145,6 +186,18 @@ public class GePriceSuggestionTest
 		return ip;
 	}
 
+	private static com.google.gson.JsonObject names(String... itemNames)
+	{
+		com.google.gson.JsonArray array = new com.google.gson.JsonArray();
+		for (String itemName : itemNames)
+		{
+			array.add(itemName);
+		}
+		com.google.gson.JsonObject obj = new com.google.gson.JsonObject();
+		obj.add("item_names", array);
+		return obj;
+	}
+
 	private static com.google.gson.JsonObject input(String itemName)
 	{
 		com.google.gson.JsonObject obj = new com.google.gson.JsonObject();
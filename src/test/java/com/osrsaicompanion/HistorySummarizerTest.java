@@ -0,0 +1,91 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HistorySummarizerTest
+{
+	@Test
+	public void testTranscriptKeepsConversationAndShortensToolOutput()
+	{
+		ConversationLog log = new ConversationLog();
+		log.append(message("user", "How much is a whip?"));
+		log.append(toolUse());
+		log.append(toolResult("x".repeat(1000)));
+		log.append(message("assistant", "About 1.5m."));
+
+		String transcript = HistorySummarizer.buildTranscript(entries(log));
+
+		assertTrue(transcript.contains("Player: How much is a whip?"));
+		assertTrue(transcript.contains("(looked up get_ge_price {\"item_name\":\"Abyssal whip\"})"));
+		assertTrue(transcript.contains("Companion: About 1.5m."));
+		assertTrue("Tool output should be truncated", transcript.length() < 600);
+	}
+
+	@Test
+	public void testRequestUsesHaikuAndCarriesPreviousSummary()
+	{
+		JsonObject request = HistorySummarizer.buildRequest("Player wants a fire cape.", "Player: hi\n");
+
+		assertEquals(AiModel.HAIKU.getModelId(), request.get("model").getAsString());
+		String prompt = request.getAsJsonArray("messages").get(0).getAsJsonObject().get("content").getAsString();
+		assertTrue(prompt.contains("Player wants a fire cape."));
+		assertTrue(prompt.contains("Player: hi"));
+	}
+
+	private static List<ConversationLog.Entry> entries(ConversationLog log)
+	{
+		ConversationLog.Snapshot snapshot = log.snapshot();
+		List<ConversationLog.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < snapshot.size(); i++)
+		{
+			entries.add(snapshot.get(i));
+		}
+		return entries;
+	}
+
+	private static JsonObject toolUse()
+	{
+		JsonObject input = new JsonObject();
+		input.addProperty("item_name", "Abyssal whip");
+		JsonObject block = new JsonObject();
+		block.addProperty("type", "tool_use");
+		block.addProperty("id", "toolu_1");
+		block.addProperty("name", "get_ge_price");
+		block.add("input", input);
+		JsonArray content = new JsonArray();
+		content.add(block);
+		JsonObject msg = new JsonObject();
+		msg.addProperty("role", "assistant");
+		msg.add("content", content);
+		return msg;
+	}
+
+	private static JsonObject toolResult(String result)
+	{
+		JsonObject block = new JsonObject();
+		block.addProperty("type", "tool_result");
+		block.addProperty("tool_use_id", "toolu_1");
+		block.addProperty("content", result);
+		JsonArray content = new JsonArray();
+		content.add(block);
+		JsonObject msg = new JsonObject();
+		msg.addProperty("role", "user");
+		msg.add("content", content);
+		return msg;
+	}
+
+	private static JsonObject message(String role, String content)
+	{
+		JsonObject msg = new JsonObject();
+		msg.addProperty("role", role);
+		msg.addProperty("content", content);
+		return msg;
+	}
+}
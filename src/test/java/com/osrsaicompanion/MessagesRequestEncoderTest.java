@@ -0,0 +1,180 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MessagesRequestEncoderTest
+{
+	private final Gson gson = new Gson();
+	private final MessagesRequestEncoder encoder = new MessagesRequestEncoder(gson);
+
+	@Test
+	public void testEncodedBodyIsAWellFormedRequest() throws IOException
+	{
+		MessagesRequestEncoder.RequestPrefix prefix = encoder.encodePrefix("claude-haiku-4-5-20251001", 1024, true, "slow \"quoted\" prompt", null, "fast prompt");
+		ConversationLog history = new ConversationLog();
+		history.append(message("user", "how much is a whip?"));
+
+		JsonObject body = parse(encoder.encode(prefix, history.snapshot()));
+
+		assertEquals("claude-haiku-4-5-20251001", body.get("model").getAsString());
+		assertEquals(1024, body.get("max_tokens").getAsInt());
+		assertTrue(body.get("stream").getAsBoolean());
+
+		JsonArray system = body.getAsJsonArray("system");
+		assertEquals(2, system.size());
+		assertEquals("slow \"quoted\" prompt", system.get(0).getAsJsonObject().get("text").getAsString());
+		assertTrue("Slow block should be cached", system.get(0).getAsJsonObject().has("cache_control"));
+		assertFalse("Fast block changes every request", system.get(1).getAsJsonObject().has("cache_control"));
+
+		JsonArray tools = body.getAsJsonArray("tools");
+		assertTrue(tools.get(tools.size() - 1).getAsJsonObject().has("cache_control"));
+		for (int i = 0; i < tools.size() - 1; i++)
+		{
+			assertFalse(tools.get(i).getAsJsonObject().has("cache_control"));
+		}
+
+		assertEquals(1, body.getAsJsonArray("messages").size());
+	}
+
+	@Test
+	public void testPrefixBytesAreStableAcrossRounds() throws IOException
+	{
+		ConversationLog history = new ConversationLog();
+		history.append(message("user", "first"));
+		history.append(message("assistant", "second"));
+		history.append(message("user", "third"));
+
+		MessagesRequestEncoder.RequestPrefix first = encoder.encodePrefix("m", 512, false, "slow", null, "fast");
+		String a = utf8(encoder.encode(first, history.snapshot()));
+		MessagesRequestEncoder.RequestPrefix second = encoder.encodePrefix("m", 512, false, "slow", null, "fast");
+		String b = utf8(encoder.encode(second, history.snapshot()));
+
+		assertEquals("Identical inputs must encode byte-identically so the prompt cache hits", a, b);
+	}
+
+	@Test
+	public void testNewMessagesAreAppendedToPreviouslyEncodedHistory() throws IOException
+	{
+		ConversationLog history = new ConversationLog();
+		history.append(message("user", "first"));
+		MessagesRequestEncoder.RequestPrefix prefix = encoder.encodePrefix("m", 512, false, "slow", null, "fast");
+		encoder.encode(prefix, history.snapshot());
+
+		history.append(message("assistant", "reply"));
+		history.append(message("user", "follow-up"));
+		JsonArray messages = parse(encoder.encode(prefix, history.snapshot())).getAsJsonArray("messages");
+
+		assertEquals(3, messages.size());
+		assertEquals("first", messages.get(0).getAsJsonObject().get("content").getAsString());
+		assertEquals("follow-up", messages.get(2).getAsJsonObject().get("content").getAsString());
+	}
+
+	@Test
+	public void testSummaryIsACachedBlockBetweenSlowAndFastPrompts() throws IOException
+	{
+		ConversationLog history = new ConversationLog();
+		history.append(message("user", "what next?"));
+		MessagesRequestEncoder.RequestPrefix prefix = encoder.encodePrefix("m", 512, false, "slow", "Player is working towards a fire cape.", "fast");
+
+		JsonArray system = parse(encoder.encode(prefix, history.snapshot())).getAsJsonArray("system");
+
+		assertEquals(3, system.size());
+		JsonObject summary = system.get(1).getAsJsonObject();
+		assertTrue(summary.get("text").getAsString().endsWith("Player is working towards a fire cape."));
+		assertTrue(summary.has("cache_control"));
+		assertEquals("fast", system.get(2).getAsJsonObject().get("text").getAsString());
+	}
+
+	@Test
+	public void testDisabledToolsAreStillSentButCannotBeUsed() throws IOException
+	{
+		ConversationLog history = new ConversationLog();
+		history.append(message("user", "I just got 99 Cooking!"));
+		MessagesRequestEncoder.RequestPrefix prefix = encoder.encodePrefix("m", 300, false, "slow", null, "fast", false);
+
+		JsonObject body = parse(encoder.encode(prefix, history.snapshot()));
+
+		assertEquals("none", body.getAsJsonObject("tool_choice").get("type").getAsString());
+		assertTrue(body.getAsJsonArray("tools").size() > 0);
+	}
+
+	@Test
+	public void testWarmedUpPlannerMovesTheHistoryBreakpointToTheLastMessage() throws IOException
+	{
+		CacheBreakpointPlanner planner = new CacheBreakpointPlanner(new TokenEstimator());
+		MessagesRequestEncoder adaptive = new MessagesRequestEncoder(gson, planner);
+		String slow = String.join(" ", java.util.Collections.nCopies(3_000, "word"));
+		ConversationLog history = new ConversationLog();
+		history.append(message("user", "first"));
+		history.append(message("assistant", "second"));
+		history.append(message("user", "third"));
+
+		JsonArray messages = null;
+		for (int i = 0; i <= CacheBreakpointPlanner.WARM_UP_RESPONSES; i++)
+		{
+			MessagesRequestEncoder.RequestPrefix prefix = adaptive.encodePrefix("m", 512, false, slow, null, "fast");
+			messages = parse(adaptive.encode(prefix, history.snapshot())).getAsJsonArray("messages");
+			JsonObject usage = new JsonObject();
+			usage.addProperty("cache_read_input_tokens", 100_000);
+			planner.recordUsage(usage);
+		}
+
+		assertTrue(messages.get(1).getAsJsonObject().get("content").isJsonPrimitive());
+		JsonArray last = messages.get(2).getAsJsonObject().getAsJsonArray("content");
+		assertTrue(last.get(0).getAsJsonObject().has("cache_control"));
+	}
+
+	@Test
+	public void testWarmUpCachesTheSamePrefixAsTheFirstRequest() throws IOException
+	{
+		MessagesRequestEncoder.RequestPrefix warmUpPrefix = encoder.encodePrefix("m", 1, false, "slow", "earlier", "fast");
+		JsonObject warmUp = parse(encoder.encodeWarmUp(warmUpPrefix));
+		MessagesRequestEncoder.RequestPrefix prefix = encoder.encodePrefix("m", 512, false, "slow", "earlier", "fast");
+		ConversationLog history = new ConversationLog();
+		history.append(message("user", "first"));
+		JsonObject first = parse(encoder.encode(prefix, history.snapshot()));
+
+		assertEquals(1, warmUp.get("max_tokens").getAsInt());
+		assertEquals(first.get("tools"), warmUp.get("tools"));
+		JsonArray system = warmUp.getAsJsonArray("system");
+		assertEquals(first.getAsJsonArray("system").get(0), system.get(0));
+		assertEquals(first.getAsJsonArray("system").get(1), system.get(1));
+		assertTrue(system.get(1).getAsJsonObject().has("cache_control"));
+		assertFalse(system.get(2).getAsJsonObject().has("cache_control"));
+		assertEquals(1, warmUp.getAsJsonArray("messages").size());
+	}
+
+	// -------------------------------------------------------------------------
+	// Helpers
+	// -------------------------------------------------------------------------
+
+	private JsonObject parse(RequestBody body) throws IOException
+	{
+		return gson.fromJson(utf8(body), JsonObject.class);
+	}
+
+	private static String utf8(RequestBody body) throws IOException
+	{
+		Buffer buffer = new Buffer();
+		body.writeTo(buffer);
+		assertEquals(body.contentLength(), buffer.size());
+		return buffer.readUtf8();
+	}
+
+	private static JsonObject message(String role, String content)
+	{
+		JsonObject msg = new JsonObject();
+		msg.addProperty("role", role);
+		msg.addProperty("content", content);
+		return msg;
+	}
+}
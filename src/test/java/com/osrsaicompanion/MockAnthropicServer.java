@@ -0,0 +1,355 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Messages API, scripted by directives in the player's prompt:
+ * <ul>
+ *   <li>{@code [tools:N]} answers with N rounds of get_ge_price tool_use before replying</li>
+ *   <li>{@code [429]} rate-limits the first attempt, with retry-after: 0</li>
+ *   <li>{@code [overloaded]} answers the first attempt with a 529 overloaded_error</li>
+ *   <li>{@code [stream-overloaded]} answers a streamed first attempt with a 200 whose
+ *   stream ends in an overloaded_error event before any content, as the API does under
+ *   load; a non-streamed first attempt gets a 529</li>
+ *   <li>{@code [stream-drop]} starts a streamed first attempt and cuts the connection
+ *   before any text is sent; non-streamed requests are answered normally</li>
+ *   <li>{@code [slow]} trickles a streamed reply out a few bytes at a time</li>
+ * </ul>
+ * Requests without tools (history summaries) get a plain text reply. Every prompt must be
+ * unique, since first attempts are tracked per prompt and tool round.
+ */
+public class MockAnthropicServer implements AutoCloseable
+{
+	private static final Pattern TOOLS = Pattern.compile("\\[tools:(\\d+)]");
+	private static final String MODEL = "claude-mock";
+
+	private final Gson gson = new Gson();
+	private final MockWebServer server = new MockWebServer();
+	private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger rateLimited = new AtomicInteger();
+	private final AtomicInteger overloaded = new AtomicInteger();
+	private final AtomicInteger dropped = new AtomicInteger();
+	private final AtomicInteger replies = new AtomicInteger();
+
+	public MockAnthropicServer() throws IOException
+	{
+		server.setDispatcher(new Dispatcher()
+		{
+			@Override
+			public MockResponse dispatch(RecordedRequest request)
+			{
+				return respond(gson.fromJson(request.getBody().readUtf8(), JsonObject.class));
+			}
+		});
+		server.start();
+	}
+
+	public String url()
+	{
+		return server.url("/v1/messages").toString();
+	}
+
+	public int getRequests()
+	{
+		return requests.get();
+	}
+
+	public int getRateLimited()
+	{
+		return rateLimited.get();
+	}
+
+	public int getOverloaded()
+	{
+		return overloaded.get();
+	}
+
+	public int getDropped()
+	{
+		return dropped.get();
+	}
+
+	/** Final text replies sent to conversation turns. */
+	public int getReplies()
+	{
+		return replies.get();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		server.shutdown();
+	}
+
+	private MockResponse respond(JsonObject body)
+	{
+		requests.incrementAndGet();
+		boolean stream = body.has("stream") && body.get("stream").getAsBoolean();
+		if (!body.has("tools"))
+		{
+			return json(message("Summary of the conversation so far.", null, "end_turn"));
+		}
+
+		JsonArray messages = body.getAsJsonArray("messages");
+		int turnStart = messages.size() - 1;
+		while (turnStart > 0 && isToolExchange(messages.get(turnStart).getAsJsonObject()))
+		{
+			turnStart--;
+		}
+		String prompt = text(messages.get(turnStart).getAsJsonObject());
+		int round = messages.size() - 1 - turnStart;
+		boolean firstAttempt = attempts.computeIfAbsent(prompt + "#" + round, k -> new AtomicInteger()).incrementAndGet() == 1;
+
+		if (firstAttempt && prompt.contains("[429]"))
+		{
+			rateLimited.incrementAndGet();
+			return error(429, "rate_limit_error");
+		}
+		if (firstAttempt && prompt.contains("[overloaded]"))
+		{
+			overloaded.incrementAndGet();
+			return error(529, "overloaded_error");
+		}
+		if (firstAttempt && prompt.contains("[stream-overloaded]"))
+		{
+			overloaded.incrementAndGet();
+			return stream ? streamError("overloaded_error") : error(529, "overloaded_error");
+		}
+		if (firstAttempt && stream && prompt.contains("[stream-drop]"))
+		{
+			dropped.incrementAndGet();
+			return streamDrop();
+		}
+
+		Matcher tools = TOOLS.matcher(prompt);
+		int toolRounds = tools.find() ? Integer.parseInt(tools.group(1)) : 0;
+		boolean toolsAllowed = !body.has("tool_choice");
+		JsonObject reply;
+		if (toolsAllowed && round / 2 < toolRounds)
+		{
+			JsonObject input = new JsonObject();
+			input.addProperty("item_name", "Dragon bones");
+			reply = message(null, toolUse("toolu_" + round, input), "tool_use");
+		}
+		else
+		{
+			replies.incrementAndGet();
+			reply = message("Done: " + prompt, null, "end_turn");
+		}
+
+		if (!stream)
+		{
+			return json(reply);
+		}
+		MockResponse response = new MockResponse()
+			.setHeader("Content-Type", "text/event-stream")
+			.setBody(sse(reply));
+		if (prompt.contains("[slow]"))
+		{
+			response.throttleBody(64, 10, TimeUnit.MILLISECONDS);
+		}
+		return response;
+	}
+
+	// Claude's tool_use turns and the tool_result turns answering them
+	private static boolean isToolExchange(JsonObject message)
+	{
+		if ("assistant".equals(message.get("role").getAsString()))
+		{
+			return true;
+		}
+		JsonElement content = message.get("content");
+		return content.isJsonArray() && content.getAsJsonArray().size() > 0
+			&& "tool_result".equals(content.getAsJsonArray().get(0).getAsJsonObject().get("type").getAsString());
+	}
+
+	// Plain string content, or the text block a cache breakpoint wraps it in
+	private static String text(JsonObject message)
+	{
+		JsonElement content = message.get("content");
+		if (content.isJsonPrimitive())
+		{
+			return content.getAsString();
+		}
+		return content.getAsJsonArray().get(0).getAsJsonObject().get("text").getAsString();
+	}
+
+	private static JsonObject message(String text, JsonObject toolUse, String stopReason)
+	{
+		JsonArray content = new JsonArray();
+		if (text != null)
+		{
+			JsonObject block = new JsonObject();
+			block.addProperty("type", "text");
+			block.addProperty("text", text);
+			content.add(block);
+		}
+		if (toolUse != null)
+		{
+			content.add(toolUse);
+		}
+		JsonObject usage = new JsonObject();
+		usage.addProperty("input_tokens", 120);
+		usage.addProperty("cache_read_input_tokens", 0);
+		usage.addProperty("cache_creation_input_tokens", 0);
+		usage.addProperty("output_tokens", 25);
+
+		JsonObject message = new JsonObject();
+		message.addProperty("id", "msg_mock");
+		message.addProperty("type", "message");
+		message.addProperty("role", "assistant");
+		message.addProperty("model", MODEL);
+		message.add("content", content);
+		message.addProperty("stop_reason", stopReason);
+		message.add("usage", usage);
+		return message;
+	}
+
+	private static JsonObject toolUse(String id, JsonObject input)
+	{
+		JsonObject block = new JsonObject();
+		block.addProperty("type", "tool_use");
+		block.addProperty("id", id);
+		block.addProperty("name", "get_ge_price");
+		block.add("input", input);
+		return block;
+	}
+
+	private MockResponse json(JsonObject body)
+	{
+		return new MockResponse()
+			.setHeader("Content-Type", "application/json")
+			.setBody(gson.toJson(body));
+	}
+
+	private MockResponse error(int code, String type)
+	{
+		JsonObject error = new JsonObject();
+		error.addProperty("type", type);
+		error.addProperty("message", "Scripted " + type);
+		JsonObject body = new JsonObject();
+		body.addProperty("type", "error");
+		body.add("error", error);
+		return json(body).setResponseCode(code).setHeader("retry-after", "0");
+	}
+
+	// A stream that starts a message and then fails, the way a mid-stream error arrives
+	private MockResponse streamError(String type)
+	{
+		JsonObject start = message(null, null, "end_turn");
+		start.add("stop_reason", null);
+		JsonObject error = new JsonObject();
+		error.addProperty("type", type);
+		error.addProperty("message", "Scripted " + type);
+
+		StringBuilder sb = new StringBuilder();
+		event(sb, "message_start", object("message", start));
+		event(sb, "ping", new JsonObject());
+		event(sb, "error", object("error", error));
+		return new MockResponse()
+			.setHeader("Content-Type", "text/event-stream")
+			.setBody(sb.toString());
+	}
+
+	// A stream that starts a message and loses its connection before any text delta;
+	// MockWebServer closes the socket halfway through the body
+	private MockResponse streamDrop()
+	{
+		JsonObject start = message(null, null, "end_turn");
+		start.add("stop_reason", null);
+
+		StringBuilder sb = new StringBuilder();
+		event(sb, "message_start", object("message", start));
+		event(sb, "ping", new JsonObject());
+		return new MockResponse()
+			.setHeader("Content-Type", "text/event-stream")
+			.setBody(sb.toString())
+			.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+	}
+
+	// The same message as a server-sent event stream, one delta per text word
+	private String sse(JsonObject message)
+	{
+		StringBuilder sb = new StringBuilder();
+		JsonObject start = message.deepCopy();
+		start.add("content", new JsonArray());
+		start.add("stop_reason", null);
+		event(sb, "message_start", object("message", start));
+
+		JsonArray content = message.getAsJsonArray("content");
+		for (int i = 0; i < content.size(); i++)
+		{
+			JsonObject block = content.get(i).getAsJsonObject();
+			JsonObject delta = new JsonObject();
+			JsonObject emptyBlock = block.deepCopy();
+			if ("text".equals(block.get("type").getAsString()))
+			{
+				emptyBlock.addProperty("text", "");
+				event(sb, "content_block_start", index(object("content_block", emptyBlock), i));
+				for (String word : block.get("text").getAsString().split("(?<= )"))
+				{
+					delta = new JsonObject();
+					delta.addProperty("type", "text_delta");
+					delta.addProperty("text", word);
+					event(sb, "content_block_delta", index(object("delta", delta), i));
+				}
+			}
+			else
+			{
+				emptyBlock.add("input", new JsonObject());
+				event(sb, "content_block_start", index(object("content_block", emptyBlock), i));
+				delta.addProperty("type", "input_json_delta");
+				delta.addProperty("partial_json", gson.toJson(block.get("input")));
+				event(sb, "content_block_delta", index(object("delta", delta), i));
+			}
+			event(sb, "content_block_stop", index(new JsonObject(), i));
+		}
+
+		JsonObject stop = new JsonObject();
+		stop.addProperty("stop_reason", message.get("stop_reason").getAsString());
+		JsonObject messageDelta = object("delta", stop);
+		JsonObject outputUsage = new JsonObject();
+		outputUsage.add("output_tokens", message.getAsJsonObject("usage").get("output_tokens"));
+		messageDelta.add("usage", outputUsage);
+		event(sb, "message_delta", messageDelta);
+		event(sb, "message_stop", new JsonObject());
+		return sb.toString();
+	}
+
+	private void event(StringBuilder sb, String type, JsonObject data)
+	{
+		data.addProperty("type", type);
+		sb.append("event: ").append(type).append('\n')
+			.append("data: ").append(gson.toJson(data)).append("\n\n");
+	}
+
+	private static JsonObject object(String key, JsonElement value)
+	{
+		JsonObject object = new JsonObject();
+		object.add(key, value);
+		return object;
+	}
+
+	private static JsonObject index(JsonObject object, int index)
+	{
+		object.addProperty("index", index);
+		return object;
+	}
+}
@@ -0,0 +1,82 @@
+package com.osrsaicompanion;
+
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.Player;
+import net.runelite.api.Skill;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.client.game.ItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class PlayerContextBuilderTest
+{
+	private Client client;
+	private ItemManager itemManager;
+	private PlayerContextBuilder contextBuilder;
+
+	@Before
+	public void setUp()
+	{
+		client = mock(Client.class);
+		Player player = mock(Player.class);
+		when(player.getName()).thenReturn("Scrambles56");
+		when(player.getWorldLocation()).thenReturn(new WorldPoint(3212, 3428, 0));
+		when(client.getLocalPlayer()).thenReturn(player);
+		when(client.getRealSkillLevel(Skill.HITPOINTS)).thenReturn(70);
+		when(client.getBoostedSkillLevel(Skill.HITPOINTS)).thenReturn(45);
+
+		ItemContainer inventory = mock(ItemContainer.class);
+		when(inventory.getItems()).thenReturn(new Item[]{new Item(995, 12_000), new Item(379, 5), new Item(-1, 0)});
+		when(client.getItemContainer(InventoryID.INVENTORY)).thenReturn(inventory);
+
+		itemManager = mock(ItemManager.class);
+		when(itemManager.getItemComposition(995)).thenReturn(composition("Coins"));
+		when(itemManager.getItemComposition(379)).thenReturn(composition("Lobster"));
+
+		OsrsAiCompanionConfig config = mock(OsrsAiCompanionConfig.class);
+		when(config.companionTone()).thenReturn(CompanionTone.NONE);
+		when(config.playerGoal()).thenReturn("");
+
+		contextBuilder = new PlayerContextBuilder(client, itemManager, config);
+	}
+
+	@Test
+	public void testFormatsTheStateAtTheTimeOfTheSnapshot()
+	{
+		PlayerSnapshot snapshot = contextBuilder.snapshot();
+		when(client.getBoostedSkillLevel(Skill.HITPOINTS)).thenReturn(10);
+		when(client.getItemContainer(InventoryID.INVENTORY)).thenReturn(null);
+
+		String fast = contextBuilder.buildFastSystemPrompt(snapshot);
+		assertTrue(fast, fast.contains("HP: 45/70. "));
+		assertTrue(fast, fast.contains("Coins: 12,000 gp. "));
+		assertTrue(fast, fast.contains("Inventory: Coins x12000, Lobster x5. "));
+		assertTrue(fast, fast.contains("Equipped: Nothing. "));
+		assertTrue(fast, fast.endsWith("Bank: Bank not open."));
+		assertTrue(contextBuilder.buildSlowSystemPrompt(snapshot).startsWith("You are Claude, an AI assistant responding to Scrambles56"));
+	}
+
+	@Test
+	public void testItemNamesAreOnlyLookedUpOnce()
+	{
+		contextBuilder.snapshot();
+		contextBuilder.snapshot();
+
+		verify(itemManager, times(1)).getItemComposition(995);
+		verify(itemManager, times(1)).getItemComposition(379);
+	}
+
+	private static ItemComposition composition(String name)
+	{
+		ItemComposition composition = mock(ItemComposition.class);
+		when(composition.getName()).thenReturn(name);
+		return composition;
+	}
+}
@@ -0,0 +1,44 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PromptCacheStatsTest
+{
+	@Test
+	public void testHitRateCountsAllInputTokens()
+	{
+		PromptCacheStats stats = new PromptCacheStats();
+		stats.record(usage(100, 0, 900));
+		stats.record(usage(100, 900, 0));
+
+		assertEquals(2, stats.getRequests());
+		assertEquals(900, stats.getCacheReadTokens());
+		assertEquals(900, stats.getCacheWriteTokens());
+		assertEquals(0.45, stats.hitRate(), 0.0001);
+	}
+
+	@Test
+	public void testMissingFieldsAreTreatedAsZero()
+	{
+		PromptCacheStats stats = new PromptCacheStats();
+		JsonObject usage = new JsonObject();
+		usage.addProperty("input_tokens", 50);
+		stats.record(usage);
+		stats.record(null);
+
+		assertEquals(1, stats.getRequests());
+		assertEquals(0.0, stats.hitRate(), 0.0);
+	}
+
+	private static JsonObject usage(int input, int cacheRead, int cacheWrite)
+	{
+		JsonObject usage = new JsonObject();
+		usage.addProperty("input_tokens", input);
+		usage.addProperty("cache_read_input_tokens", cacheRead);
+		usage.addProperty("cache_creation_input_tokens", cacheWrite);
+		return usage;
+	}
+}
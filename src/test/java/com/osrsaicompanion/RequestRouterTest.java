@@ -0,0 +1,65 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RequestRouterTest
+{
+	private RequestRouter router;
+
+	@Before
+	public void setUp()
+	{
+		OsrsAiCompanionConfig config = mock(OsrsAiCompanionConfig.class);
+		when(config.model()).thenReturn(AiModel.OPUS);
+		when(config.maxTokens()).thenReturn(1024);
+		router = new RequestRouter(config);
+	}
+
+	@Test
+	public void testEventReactionsGoToHaikuWithoutTools()
+	{
+		RequestRouter.Route route = RequestRouter.classify(ActiveTurn.Source.EVENT, "The player just reached 99 Cooking. Congratulate them.");
+
+		assertEquals(RequestRouter.Route.EVENT_REACTION, route);
+		assertEquals(AiModel.HAIKU, router.model(route));
+		assertEquals(RequestRouter.EVENT_MAX_TOKENS, router.maxTokens(route));
+		assertFalse(route.isToolsEnabled());
+	}
+
+	@Test
+	public void testShortQuestionIsQuick()
+	{
+		RequestRouter.Route route = RequestRouter.classify(ActiveTurn.Source.USER, "What level is needed for rune platebodies?");
+
+		assertEquals(RequestRouter.Route.QUICK_QUESTION, route);
+		assertEquals(AiModel.OPUS, router.model(route));
+		assertEquals(RequestRouter.QUICK_MAX_TOKENS, router.maxTokens(route));
+		assertTrue(route.isToolsEnabled());
+	}
+
+	@Test
+	public void testLookupsAndPlanningAreResearch()
+	{
+		assertEquals(RequestRouter.Route.RESEARCH, RequestRouter.classify(ActiveTurn.Source.USER, "What's the price of a whip?"));
+		assertEquals(RequestRouter.Route.RESEARCH, RequestRouter.classify(ActiveTurn.Source.USER, "Which diary should I do next?"));
+		assertEquals(RequestRouter.Route.RESEARCH, RequestRouter.classify(ActiveTurn.Source.USER, "Is it Zulrah? Or Vorkath?"));
+		assertEquals(1024, router.maxTokens(RequestRouter.Route.RESEARCH));
+	}
+
+	@Test
+	public void testCostUsesTheModelsPrices()
+	{
+		JsonObject usage = new JsonObject();
+		usage.addProperty("input_tokens", 1_000_000);
+		usage.addProperty("cache_read_input_tokens", 1_000_000);
+		usage.addProperty("output_tokens", 100_000);
+
+		// $1 input + $0.10 cache read + $0.50 output
+		assertEquals(1.6, AiModel.HAIKU.cost(usage), 0.0001);
+	}
+}
@@ -0,0 +1,121 @@
+package com.osrsaicompanion;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest
+{
+	private long now = 1_000_000L;
+	private final ResponseCache cache = new ResponseCache(() -> now);
+
+	@Test
+	public void testRewordedQuestionsShareAnEntry()
+	{
+		cache.put(key("How much is a whip?", state("Varrock")), "About 1.5m gp.", true);
+
+		assertEquals("About 1.5m gp.", cache.get(key("how much are abyssal whips", state("Varrock"))));
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testItemAbbreviationsMatchTheGeLookup()
+	{
+		cache.put(key("bp price", state("Varrock")), "About 2m gp.", false);
+		cache.put(key("mith bars worth", state("Varrock")), "About 1k gp each.", false);
+
+		assertEquals("About 2m gp.", cache.get(key("toxic blowpipe price", state("Varrock"))));
+		assertEquals("About 1k gp each.", cache.get(key("mithril bar price", state("Varrock"))));
+	}
+
+	@Test
+	public void testOnlyStateTheQuestionDependsOnIsCompared()
+	{
+		cache.put(key("What's the best way to train agility?", state("Varrock")), "Rooftop courses.", false);
+		cache.put(key("Where is the nearest bank?", state("Varrock")), "Varrock west bank.", false);
+
+		assertEquals("Rooftop courses.", cache.get(key("best way to train agility", state("Lumbridge"))));
+		assertNull(cache.get(key("Where is the nearest bank?", state("Lumbridge"))));
+		assertEquals("Varrock west bank.", cache.get(key("where is the nearest bank", state("Varrock"))));
+	}
+
+	@Test
+	public void testPricesGoStaleSooner()
+	{
+		cache.put(key("dragon bones price", state("Varrock")), "2,000 gp each.", false);
+		cache.put(key("Is dragon slayer 2 hard?", state("Varrock")), "Fairly.", true);
+		cache.put(key("how do vorkath mechanics work", state("Varrock")), "Acid, fireballs and a zombified spawn.", false);
+
+		now += ResponseCache.PRICE_FRESH_MS;
+
+		assertNull(cache.get(key("dragon bones price", state("Varrock"))));
+		assertNull("An answer that used prices expires with them", cache.get(key("Is dragon slayer 2 hard?", state("Varrock"))));
+		assertNotNull(cache.get(key("how do vorkath mechanics work", state("Varrock"))));
+
+		now += ResponseCache.FRESH_MS;
+		assertNull(cache.get(key("how do vorkath mechanics work", state("Varrock"))));
+	}
+
+	@Test
+	public void testCloseMatchesAreFound()
+	{
+		cache.put(key("best gear setup for vorkath at 85 ranged", state("Varrock")), "Armadyl and a dragon hunter crossbow.", false);
+
+		assertNotNull(cache.get(key("best gear setup for vorkath at 85 ranged level", state("Varrock"))));
+		assertNull(cache.get(key("best gear setup for zulrah at 85 ranged", state("Varrock"))));
+	}
+
+	@Test
+	public void testLongQuestionsDifferingByOneWordDoNotMatch()
+	{
+		cache.put(key("best gear setup for vorkath at 85 ranged 80 defence and 75 magic", state("Varrock")),
+			"Armadyl and a dragon hunter crossbow.", false);
+
+		assertNull(cache.get(key("best gear setup for zulrah at 85 ranged 80 defence and 75 magic", state("Varrock"))));
+		assertNull(cache.get(key("best gear setup for vorkath at 85 ranged 80 defence and 70 magic", state("Varrock"))));
+		assertEquals("Armadyl and a dragon hunter crossbow.",
+			cache.get(key("best gear setup for vorkath at 85 ranged level 80 defence and 75 magic", state("Varrock"))));
+	}
+
+	@Test
+	public void testQuestionsThatReferBackOrAskAboutLiveStatsAreNotCached()
+	{
+		assertNull(ResponseCache.key("How much is that worth?", state("Varrock")));
+		assertNull(ResponseCache.key("Should I eat at this hp?", state("Varrock")));
+		assertNull(ResponseCache.key("What should I do?", state("Varrock")));
+		assertNotNull(ResponseCache.key("What's my slayer task?", state("Varrock")));
+		assertTrue(ResponseCache.key("What's my slayer task?", state("Varrock")).getDependencies()
+			.contains(ResponseCache.Dependency.SLAYER));
+	}
+
+	@Test
+	public void testProgressChangesInvalidateEveryAnswer()
+	{
+		Map<ResponseCache.Dependency, String> before = state("Varrock");
+		Map<ResponseCache.Dependency, String> after = state("Varrock");
+		after.put(ResponseCache.Dependency.PROGRESS, "Completed quests: Dragon Slayer I");
+		cache.put(key("can I wear rune platebody", before), "Not yet.", false);
+
+		assertNull(cache.get(key("can I wear rune platebody", after)));
+	}
+
+	private static ResponseCache.Key key(String prompt, Map<ResponseCache.Dependency, String> state)
+	{
+		ResponseCache.Key key = ResponseCache.key(prompt, state);
+		assertNotNull(prompt, key);
+		return key;
+	}
+
+	private static Map<ResponseCache.Dependency, String> state(String location)
+	{
+		Map<ResponseCache.Dependency, String> state = new EnumMap<>(ResponseCache.Dependency.class);
+		state.put(ResponseCache.Dependency.PROGRESS, "Completed quests: None");
+		state.put(ResponseCache.Dependency.LOCATION, location);
+		state.put(ResponseCache.Dependency.ITEMS, "Lobster x20|Rune scimitar");
+		state.put(ResponseCache.Dependency.SLAYER, "No slayer task");
+		return state;
+	}
+}
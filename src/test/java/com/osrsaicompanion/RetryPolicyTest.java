@@ -0,0 +1,61 @@
+package com.osrsaicompanion;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest
+{
+	@Test
+	public void testTransientStatusCodesAreRetried()
+	{
+		assertTrue(RetryPolicy.isRetryable(429));
+		assertTrue(RetryPolicy.isRetryable(500));
+		assertTrue(RetryPolicy.isRetryable(529));
+		assertFalse(RetryPolicy.isRetryable(400));
+		assertFalse(RetryPolicy.isRetryable(401));
+
+		assertFalse("A rate limit is not an outage", RetryPolicy.isServerFailure(429));
+		assertTrue(RetryPolicy.isServerFailure(529));
+	}
+
+	@Test
+	public void testBackoffGrowsAndIsCapped()
+	{
+		RetryPolicy lowest = new RetryPolicy(() -> 0.0);
+		RetryPolicy highest = new RetryPolicy(() -> 0.999);
+
+		assertEquals(RetryPolicy.BASE_DELAY_MS / 2, lowest.backoffMillis(0));
+		assertEquals(RetryPolicy.BASE_DELAY_MS * 2, lowest.backoffMillis(2));
+		assertTrue(highest.backoffMillis(0) < RetryPolicy.BASE_DELAY_MS);
+		assertTrue(highest.backoffMillis(30) < RetryPolicy.MAX_DELAY_MS);
+		assertEquals(RetryPolicy.MAX_DELAY_MS / 2, lowest.backoffMillis(30));
+	}
+
+	@Test
+	public void testRetryAfterHeaderTakesPrecedence()
+	{
+		RetryPolicy policy = new RetryPolicy(() -> 0.0);
+
+		assertEquals(7000, policy.delayMillis(0, "7"));
+		assertEquals("Unparseable header falls back to backoff", 500, policy.delayMillis(0, "Wed, 21 Oct 2026 07:28:00 GMT"));
+		assertEquals(RetryPolicy.MAX_RETRY_AFTER_MS, policy.delayMillis(0, "60"));
+	}
+
+	@Test
+	public void testRetryAfterBeyondTheCapIsNotRetried()
+	{
+		RetryPolicy policy = new RetryPolicy(() -> 0.0);
+
+		assertEquals(RetryPolicy.NO_RETRY, policy.delayMillis(0, "61"));
+		assertEquals(RetryPolicy.NO_RETRY, policy.delayMillis(3, "3600"));
+	}
+
+	@Test
+	public void testRetryBudget()
+	{
+		RetryPolicy policy = new RetryPolicy();
+		assertTrue(policy.canRetry(RetryPolicy.MAX_RETRIES - 1));
+		assertFalse(policy.canRetry(RetryPolicy.MAX_RETRIES));
+	}
+}
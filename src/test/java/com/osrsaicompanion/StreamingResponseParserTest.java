@@ -0,0 +1,124 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StreamingResponseParserTest
+{
+	private final List<String> deltas = new ArrayList<>();
+	private final StreamingResponseParser parser = new StreamingResponseParser(new Gson(), deltas::add);
+
+	@Test
+	public void testTextDeltasAreForwardedAndAssembled() throws IOException
+	{
+		JsonObject message = parser.parse(stream(
+			event("message_start", "{\"type\":\"message_start\",\"message\":{\"model\":\"claude-haiku-4-5-20251001\",\"usage\":{\"input_tokens\":120,\"cache_read_input_tokens\":100,\"output_tokens\":1}}}"),
+			event("content_block_start", "{\"type\":\"content_block_start\",\"index\":0,\"content_block\":{\"type\":\"text\",\"text\":\"\"}}"),
+			event("ping", "{\"type\":\"ping\"}"),
+			event("content_block_delta", "{\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"Grats on \"}}"),
+			event("content_block_delta", "{\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"70 Attack!\"}}"),
+			event("content_block_stop", "{\"type\":\"content_block_stop\",\"index\":0}"),
+			event("message_delta", "{\"type\":\"message_delta\",\"delta\":{\"stop_reason\":\"end_turn\"},\"usage\":{\"output_tokens\":9}}"),
+			event("message_stop", "{\"type\":\"message_stop\"}")
+		));
+
+		assertEquals(2, deltas.size());
+		assertEquals("Grats on ", deltas.get(0));
+		assertEquals("claude-haiku-4-5-20251001", message.get("model").getAsString());
+		assertEquals("end_turn", message.get("stop_reason").getAsString());
+
+		JsonArray content = message.getAsJsonArray("content");
+		assertEquals(1, content.size());
+		assertEquals("Grats on 70 Attack!", content.get(0).getAsJsonObject().get("text").getAsString());
+
+		JsonObject usage = message.getAsJsonObject("usage");
+		assertEquals(120, usage.get("input_tokens").getAsInt());
+		assertEquals(100, usage.get("cache_read_input_tokens").getAsInt());
+		assertEquals("message_delta usage should replace the initial output count", 9, usage.get("output_tokens").getAsInt());
+	}
+
+	@Test
+	public void testToolUseInputJsonIsReassembledFromPartialDeltas() throws IOException
+	{
+		JsonObject message = parser.parse(stream(
+			event("message_start", "{\"type\":\"message_start\",\"message\":{\"model\":\"m\",\"usage\":{\"input_tokens\":5}}}"),
+			event("content_block_start", "{\"type\":\"content_block_start\",\"index\":0,\"content_block\":{\"type\":\"tool_use\",\"id\":\"toolu_1\",\"name\":\"get_ge_price\",\"input\":{}}}"),
+			event("content_block_delta", "{\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"input_json_delta\",\"partial_json\":\"{\\\"item_na\"}}"),
+			event("content_block_delta", "{\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"input_json_delta\",\"partial_json\":\"me\\\": \\\"Dragon bones\\\"}\"}}"),
+			event("content_block_stop", "{\"type\":\"content_block_stop\",\"index\":0}"),
+			event("message_delta", "{\"type\":\"message_delta\",\"delta\":{\"stop_reason\":\"tool_use\"},\"usage\":{\"output_tokens\":30}}"),
+			event("message_stop", "{\"type\":\"message_stop\"}")
+		));
+
+		assertTrue("Tool input JSON must not be forwarded as text", deltas.isEmpty());
+		assertEquals("tool_use", message.get("stop_reason").getAsString());
+		JsonObject block = message.getAsJsonArray("content").get(0).getAsJsonObject();
+		assertEquals("toolu_1", block.get("id").getAsString());
+		assertEquals("Dragon bones", block.getAsJsonObject("input").get("item_name").getAsString());
+	}
+
+	@Test
+	public void testToolUseWithNoInputDeltasHasEmptyInput() throws IOException
+	{
+		JsonObject message = parser.parse(stream(
+			event("content_block_start", "{\"type\":\"content_block_start\",\"index\":0,\"content_block\":{\"type\":\"tool_use\",\"id\":\"toolu_2\",\"name\":\"get_combat_achievement_status\",\"input\":{}}}"),
+			event("content_block_stop", "{\"type\":\"content_block_stop\",\"index\":0}"),
+			event("message_stop", "{\"type\":\"message_stop\"}")
+		));
+
+		JsonObject block = message.getAsJsonArray("content").get(0).getAsJsonObject();
+		assertTrue(block.getAsJsonObject("input").entrySet().isEmpty());
+	}
+
+	@Test
+	public void testErrorEventIsReported() throws IOException
+	{
+		parser.parse(stream(
+			event("message_start", "{\"type\":\"message_start\",\"message\":{\"model\":\"m\"}}"),
+			event("error", "{\"type\":\"error\",\"error\":{\"type\":\"overloaded_error\",\"message\":\"Overloaded\"}}")
+		));
+
+		assertTrue(parser.hasError());
+		assertEquals("overloaded_error", parser.getErrorType());
+	}
+
+	@Test
+	public void testTruncatedStreamKeepsPartialText() throws IOException
+	{
+		JsonObject message = parser.parse(stream(
+			event("content_block_start", "{\"type\":\"content_block_start\",\"index\":0,\"content_block\":{\"type\":\"text\",\"text\":\"\"}}"),
+			event("content_block_delta", "{\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"partial\"}}")
+		));
+
+		assertFalse(message.has("stop_reason"));
+		assertEquals("partial", message.getAsJsonArray("content").get(0).getAsJsonObject().get("text").getAsString());
+	}
+
+	// -------------------------------------------------------------------------
+	// Helpers
+	// -------------------------------------------------------------------------
+
+	private static String event(String type, String data)
+	{
+		return "event: " + type + "\ndata: " + data + "\n\n";
+	}
+
+	private static Buffer stream(String... events)
+	{
+		Buffer buffer = new Buffer();
+		for (String event : events)
+		{
+			buffer.writeUtf8(event);
+		}
+		return buffer;
+	}
+}
@@ -0,0 +1,75 @@
+package com.osrsaicompanion;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TokenEstimatorTest
+{
+	@Test
+	public void testJsonCostsMoreTokensPerCharacterThanProse()
+	{
+		String prose = "The abyssal whip is a one-handed melee weapon dropped by abyssal demons";
+		String json = "{\"id\":4151,\"high\":1520000,\"low\":1498000,\"highTime\":1700000000}";
+
+		double proseRatio = (double) prose.length() / TokenEstimator.estimate(prose);
+		double jsonRatio = (double) json.length() / TokenEstimator.estimate(json);
+
+		assertTrue("Prose should pack more characters into a token than JSON", proseRatio > jsonRatio);
+	}
+
+	@Test
+	public void testArrayContentIsNotInflatedByEscaping()
+	{
+		String wikitext = "{{Infobox Item\n|name = \"Abyssal whip\"\n|members = Yes\n}}";
+		JsonObject block = new JsonObject();
+		block.addProperty("type", "tool_result");
+		block.addProperty("tool_use_id", "toolu_1");
+		block.addProperty("content", wikitext);
+		JsonArray content = new JsonArray();
+		content.add(block);
+		JsonObject message = new JsonObject();
+		message.addProperty("role", "user");
+		message.add("content", content);
+
+		int escaped = TokenEstimator.estimate(content.toString());
+		assertTrue(TokenEstimator.estimate(message) < escaped);
+		assertTrue(TokenEstimator.estimate(message) > TokenEstimator.estimate(wikitext));
+	}
+
+	@Test
+	public void testCalibrationConvergesOnReportedUsage()
+	{
+		TokenEstimator estimator = new TokenEstimator();
+		for (int i = 0; i < 30; i++)
+		{
+			estimator.calibrate(1000, usage(400, 1000, 100));
+		}
+
+		assertEquals(1.5, estimator.getScale(), 0.01);
+		assertEquals(3000, estimator.toTokens(2000));
+		assertEquals(2000, estimator.toRaw(3000), 1);
+	}
+
+	@Test
+	public void testCalibrationIgnoresMissingUsage()
+	{
+		TokenEstimator estimator = new TokenEstimator();
+		estimator.calibrate(1000, null);
+		estimator.calibrate(1000, new JsonObject());
+
+		assertEquals(1.0, estimator.getScale(), 0.0);
+	}
+
+	private static JsonObject usage(int input, int cacheRead, int cacheCreation)
+	{
+		JsonObject usage = new JsonObject();
+		usage.addProperty("input_tokens", input);
+		usage.addProperty("cache_read_input_tokens", cacheRead);
+		usage.addProperty("cache_creation_input_tokens", cacheCreation);
+		usage.addProperty("output_tokens", 50);
+		return usage;
+	}
+}
@@ -0,0 +1,133 @@
+package com.osrsaicompanion;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.osrsaicompanion.tools.ClaudeTools;
+import net.runelite.api.Client;
+import net.runelite.client.game.ItemManager;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests search_wiki's requests: the search and the page intro come back together, the
+ * infobox section is fetched alongside them, and repeated lookups come from the cache.
+ * OkHttpClient is mocked and answers by request — no network required.
+ */
+public class WikiSearchTest
+{
+	private static final String ZULRAH_QUERY = "{\"batchcomplete\":\"\",\"query\":{\"pages\":{\"2093\":{\"pageid\":2093,"
+		+ "\"ns\":0,\"title\":\"Zulrah\",\"index\":1,\"revisions\":[{\"revid\":14620001,\"parentid\":14610000}],"
+		+ "\"extract\":\"Zulrah is a level 725 boss.\"}}}}";
+	private static final String ZULRAH_SECTION = "{\"parse\":{\"title\":\"Zulrah\",\"pageid\":2093,"
+		+ "\"wikitext\":{\"*\":\"{{Infobox Monster|combat=725}}\"}}}";
+
+	private OkHttpClient httpClient;
+	private ClaudeTools tools;
+	// Response body by action=parse page, or "query" for the search
+	private final Map<String, String> responses = new HashMap<>();
+	private final List<String> requested = new ArrayList<>();
+
+	@Before
+	public void setUp() throws IOException
+	{
+		httpClient = mock(OkHttpClient.class);
+		tools = new ClaudeTools(mock(Client.class), httpClient, new Gson(), mock(ItemManager.class));
+		when(httpClient.newCall(any())).thenAnswer(invocation -> call(invocation.getArgument(0)));
+	}
+
+	@Test
+	public void testSearchIntroAndInfoboxTakeOneRoundTrip()
+	{
+		responses.put("query", ZULRAH_QUERY);
+		responses.put("zulrah", ZULRAH_SECTION);
+
+		String result = tools.execute("search_wiki", input("zulrah"));
+
+		assertEquals("OSRS Wiki — Zulrah:\n\n"
+			+ "Zulrah is a level 725 boss.\n\n"
+			+ "--- Details/Infobox ---\n{{Infobox Monster|combat=725}}", result);
+		assertEquals(2, requested.size());
+	}
+
+	@Test
+	public void testInfoboxIsFetchedByTitleWhenTheQueryIsNotAPage()
+	{
+		responses.put("query", ZULRAH_QUERY);
+		responses.put("snake boss", "{\"error\":{\"code\":\"missingtitle\"}}");
+		responses.put("Zulrah", ZULRAH_SECTION);
+
+		String result = tools.execute("search_wiki", input("snake boss"));
+
+		assertTrue(result.endsWith("--- Details/Infobox ---\n{{Infobox Monster|combat=725}}"));
+		assertTrue(requested.contains("parse Zulrah"));
+	}
+
+	@Test
+	public void testNoResultsIsReported()
+	{
+		responses.put("query", "{\"batchcomplete\":\"\"}");
+
+		assertEquals("No wiki page found for: qwzxv", tools.execute("search_wiki", input("qwzxv")));
+	}
+
+	@Test
+	public void testRepeatedLookupsAreServedFromTheCache()
+	{
+		responses.put("query", ZULRAH_QUERY);
+		responses.put("zulrah", ZULRAH_SECTION);
+
+		String first = tools.execute("search_wiki", input("zulrah"));
+		String second = tools.execute("search_wiki", input("Zulrah"));
+
+		assertEquals(first, second);
+		assertEquals(2, requested.size());
+	}
+
+	// --- helpers ---
+
+	private Call call(Request request) throws IOException
+	{
+		String action = request.url().queryParameter("action");
+		String key = "parse".equals(action) ? request.url().queryParameter("page") : "query";
+		requested.add(action + " " + key);
+		String body = responses.getOrDefault(key, "{}");
+
+		Call call = mock(Call.class);
+		Response response = new Response.Builder()
+			.request(request)
+			.protocol(Protocol.HTTP_1_1)
+			.code(200)
+			.message("OK")
+			.body(ResponseBody.create(null, body))
+			.build();
+		when(call.execute()).thenReturn(response);
+		doAnswer(invocation -> {
+			((Callback) invocation.getArgument(0)).onResponse(call, response);
+			return null;
+		}).when(call).enqueue(any());
+		return call;
+	}
+
+	private static JsonObject input(String query)
+	{
+		JsonObject obj = new JsonObject();
+		obj.addProperty("query", query);
+		return obj;
+	}
+}
@@ -12,20 +12,20 @@ import static org.mockito.Mockito.*;
 public class BossKillEventHandlerTest
 {
 	private BossKillEventHandler handler;
-	private ClaudeClient claudeClient;
+	private CompanionEventQueue eventQueue;
 	private OsrsAiCompanionConfig config;
 	private PlayerContextBuilder contextBuilder;
 
 	@Before
 	public void setUp()
 	{
-		claudeClient = mock(ClaudeClient.class);
+		eventQueue = mock(CompanionEventQueue.class);
 		config = mock(OsrsAiCompanionConfig.class);
 		contextBuilder = mock(PlayerContextBuilder.class);
 		when(config.celebrateBossKills()).thenReturn(true);
 		when(contextBuilder.getPlayerName()).thenReturn("Scrambles56");
 
-		handler = new BossKillEventHandler(claudeClient, contextBuilder, config, () -> null);
+		handler = new BossKillEventHandler(eventQueue, contextBuilder, config, () -> null);
 	}
 
 	@Test
@@ -33,7 +33,7 @@ public class BossKillEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("Your Zulrah kill count is: 1."));
 
-		verify(claudeClient, times(1)).sendMessage(contains("first time"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("first time")));
 	}
 
 	@Test
@@ -41,7 +41,7 @@ public class BossKillEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("Your Zulrah kill count is: 100."));
 
-		verify(claudeClient, times(1)).sendMessage(contains("100"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("100")));
 	}
 
 	@Test
@@ -49,7 +49,7 @@ public class BossKillEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("Your Zulrah kill count is: 42."));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -61,7 +61,7 @@ public class BossKillEventHandlerTest
 			handler.onChatMessage(chatMessage("Your Zulrah kill count is: " + kc + "."));
 		}
 
-		verify(claudeClient, times(milestones.length)).sendMessage(any(), any());
+		verify(eventQueue, times(milestones.length)).submit(any());
 	}
 
 	@Test
@@ -69,7 +69,7 @@ public class BossKillEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("Your Chambers of Xeric kill count is: 50."));
 
-		verify(claudeClient, times(1)).sendMessage(contains("Chambers of Xeric"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("Chambers of Xeric")));
 	}
 
 	@Test
@@ -78,19 +78,16 @@ public class BossKillEventHandlerTest
 		ChatMessage event = new ChatMessage(null, ChatMessageType.PUBLICCHAT, "", "Your Zulrah kill count is: 1.", "", 0);
 		handler.onChatMessage(event);
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
-	public void testNoMessageWhenApiCallInProgress() throws Exception
+	public void testQueuesBossKillEvent()
 	{
-		var field = ClaudeClient.class.getDeclaredField("apiCallInProgress");
-		field.setAccessible(true);
-		field.set(claudeClient, true);
-
+		// Events are queued rather than sent, so a call already in flight no longer drops them
 		handler.onChatMessage(chatMessage("Your Zulrah kill count is: 1."));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getType() == CompanionEvent.Type.BOSS_KILL));
 	}
 
 	@Test
@@ -99,7 +96,7 @@ public class BossKillEventHandlerTest
 		when(config.celebrateBossKills()).thenReturn(false);
 		handler.onChatMessage(chatMessage("Your Zulrah kill count is: 1."));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	// -------------------------------------------------------------------------
@@ -11,20 +11,20 @@ import static org.mockito.Mockito.*;
 public class CollectionLogEventHandlerTest
 {
 	private CollectionLogEventHandler handler;
-	private ClaudeClient claudeClient;
+	private CompanionEventQueue eventQueue;
 	private OsrsAiCompanionConfig config;
 	private PlayerContextBuilder contextBuilder;
 
 	@Before
 	public void setUp()
 	{
-		claudeClient = mock(ClaudeClient.class);
+		eventQueue = mock(CompanionEventQueue.class);
 		config = mock(OsrsAiCompanionConfig.class);
 		contextBuilder = mock(PlayerContextBuilder.class);
 		when(config.celebrateCollectionLog()).thenReturn(true);
 		when(contextBuilder.getPlayerName()).thenReturn("Scrambles56");
 
-		handler = new CollectionLogEventHandler(claudeClient, contextBuilder, config, () -> null);
+		handler = new CollectionLogEventHandler(eventQueue, contextBuilder, config, () -> null);
 	}
 
 	@Test
@@ -32,7 +32,7 @@ public class CollectionLogEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("New item added to your collection log: Abyssal whip"));
 
-		verify(claudeClient, times(1)).sendMessage(contains("Abyssal whip"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("Abyssal whip")));
 	}
 
 	@Test
@@ -40,7 +40,7 @@ public class CollectionLogEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("New item added to your collection log: Twisted bow"));
 
-		verify(claudeClient, times(1)).sendMessage(contains("Twisted bow"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("Twisted bow")));
 	}
 
 	@Test
@@ -48,7 +48,7 @@ public class CollectionLogEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("You have completed a lap of the Gnome Stronghold agility course."));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -58,7 +58,7 @@ public class CollectionLogEventHandlerTest
 			"New item added to your collection log: Abyssal whip", "", 0);
 		handler.onChatMessage(event);
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -67,19 +67,16 @@ public class CollectionLogEventHandlerTest
 		when(config.celebrateCollectionLog()).thenReturn(false);
 		handler.onChatMessage(chatMessage("New item added to your collection log: Abyssal whip"));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
-	public void testNoMessageWhenApiCallInProgress() throws Exception
+	public void testQueuesCollectionLogEvent()
 	{
-		var field = ClaudeClient.class.getDeclaredField("apiCallInProgress");
-		field.setAccessible(true);
-		field.set(claudeClient, true);
-
+		// Events are queued rather than sent, so a call already in flight no longer drops them
 		handler.onChatMessage(chatMessage("New item added to your collection log: Abyssal whip"));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getType() == CompanionEvent.Type.COLLECTION_LOG));
 	}
 
 	// -------------------------------------------------------------------------
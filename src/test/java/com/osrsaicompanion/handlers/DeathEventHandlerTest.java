@@ -11,20 +11,20 @@ import static org.mockito.Mockito.*;
 public class DeathEventHandlerTest
 {
 	private DeathEventHandler handler;
-	private ClaudeClient claudeClient;
+	private CompanionEventQueue eventQueue;
 	private OsrsAiCompanionConfig config;
 	private PlayerContextBuilder contextBuilder;
 
 	@Before
 	public void setUp()
 	{
-		claudeClient = mock(ClaudeClient.class);
+		eventQueue = mock(CompanionEventQueue.class);
 		config = mock(OsrsAiCompanionConfig.class);
 		contextBuilder = mock(PlayerContextBuilder.class);
 		when(config.commiserateDeath()).thenReturn(true);
 		when(contextBuilder.getPlayerName()).thenReturn("Scrambles56");
 
-		handler = new DeathEventHandler(claudeClient, contextBuilder, config, () -> null);
+		handler = new DeathEventHandler(eventQueue, contextBuilder, config, () -> null);
 	}
 
 	@Test
@@ -32,7 +32,7 @@ public class DeathEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("Oh dear, you are dead!"));
 
-		verify(claudeClient, times(1)).sendMessage(contains("died"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("died")));
 	}
 
 	@Test
@@ -40,7 +40,7 @@ public class DeathEventHandlerTest
 	{
 		handler.onChatMessage(chatMessage("Welcome to Old School RuneScape."));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -49,7 +49,7 @@ public class DeathEventHandlerTest
 		ChatMessage event = new ChatMessage(null, ChatMessageType.PUBLICCHAT, "", "Oh dear, you are dead!", "", 0);
 		handler.onChatMessage(event);
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -58,19 +58,16 @@ public class DeathEventHandlerTest
 		when(config.commiserateDeath()).thenReturn(false);
 		handler.onChatMessage(chatMessage("Oh dear, you are dead!"));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
-	public void testNoMessageWhenApiCallInProgress() throws Exception
+	public void testQueuesDeathEvent()
 	{
-		var field = ClaudeClient.class.getDeclaredField("apiCallInProgress");
-		field.setAccessible(true);
-		field.set(claudeClient, true);
-
+		// Events are queued rather than sent, so a call already in flight no longer drops them
 		handler.onChatMessage(chatMessage("Oh dear, you are dead!"));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getType() == CompanionEvent.Type.DEATH));
 	}
 
 	// -------------------------------------------------------------------------
@@ -15,7 +15,7 @@ import static org.mockito.Mockito.*;
 public class DiaryCompletionEventHandlerTest
 {
 	private DiaryCompletionEventHandler handler;
-	private ClaudeClient claudeClient;
+	private CompanionEventQueue eventQueue;
 	private OsrsAiCompanionConfig config;
 	private PlayerContextBuilder contextBuilder;
 	private Client client;
@@ -23,7 +23,7 @@ public class DiaryCompletionEventHandlerTest
 	@Before
 	public void setUp()
 	{
-		claudeClient = mock(ClaudeClient.class);
+		eventQueue = mock(CompanionEventQueue.class);
 		config = mock(OsrsAiCompanionConfig.class);
 		contextBuilder = mock(PlayerContextBuilder.class);
 		client = mock(Client.class);
@@ -33,7 +33,7 @@ public class DiaryCompletionEventHandlerTest
 		// All diaries start incomplete
 		when(client.getVarbitValue(anyInt())).thenReturn(0);
 
-		handler = new DiaryCompletionEventHandler(client, claudeClient, contextBuilder, config, () -> null);
+		handler = new DiaryCompletionEventHandler(client, eventQueue, contextBuilder, config, () -> null);
 	}
 
 	@Test
@@ -45,7 +45,7 @@ public class DiaryCompletionEventHandlerTest
 		when(client.getVarbitValue(Varbits.DIARY_LUMBRIDGE_EASY)).thenReturn(1);
 		handler.onGameTick(new GameTick()); // init tick
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -58,8 +58,8 @@ public class DiaryCompletionEventHandlerTest
 		handler.onVarbitChanged(new VarbitChanged());
 		handler.onGameTick(new GameTick());
 
-		verify(claudeClient, times(1)).sendMessage(contains("Lumbridge"), any());
-		verify(claudeClient, times(1)).sendMessage(contains("Easy"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("Lumbridge")));
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("Easy")));
 	}
 
 	@Test
@@ -71,8 +71,21 @@ public class DiaryCompletionEventHandlerTest
 		handler.onVarbitChanged(new VarbitChanged());
 		handler.onGameTick(new GameTick());
 
-		verify(claudeClient, times(1)).sendMessage(contains("Ardougne"), any());
-		verify(claudeClient, times(1)).sendMessage(contains("Hard"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("Ardougne")));
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("Hard")));
+	}
+
+	@Test
+	public void testSimultaneousCompletionsAreAllQueued()
+	{
+		simulateLoginAndTick();
+
+		when(client.getVarbitValue(Varbits.DIARY_LUMBRIDGE_EASY)).thenReturn(1);
+		when(client.getVarbitValue(Varbits.DIARY_ARDOUGNE_HARD)).thenReturn(1);
+		handler.onVarbitChanged(new VarbitChanged());
+		handler.onGameTick(new GameTick());
+
+		verify(eventQueue, times(2)).submit(argThat(e -> e.getType() == CompanionEvent.Type.DIARY));
 	}
 
 	@Test
@@ -86,7 +99,7 @@ public class DiaryCompletionEventHandlerTest
 		handler.onVarbitChanged(new VarbitChanged());
 		handler.onGameTick(new GameTick());
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -97,7 +110,7 @@ public class DiaryCompletionEventHandlerTest
 		// Tick without varbit change — nothing should happen
 		handler.onGameTick(new GameTick());
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -109,7 +122,7 @@ public class DiaryCompletionEventHandlerTest
 		handler.onVarbitChanged(new VarbitChanged());
 		handler.onGameTick(new GameTick());
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -122,7 +135,7 @@ public class DiaryCompletionEventHandlerTest
 		handler.onVarbitChanged(new VarbitChanged());
 		handler.onGameTick(new GameTick());
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	// -------------------------------------------------------------------------
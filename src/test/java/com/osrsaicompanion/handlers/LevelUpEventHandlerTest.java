@@ -14,14 +14,14 @@ import static org.mockito.Mockito.*;
 public class LevelUpEventHandlerTest
 {
 	private LevelUpEventHandler handler;
-	private ClaudeClient claudeClient;
+	private CompanionEventQueue eventQueue;
 	private OsrsAiCompanionConfig config;
 	private PlayerContextBuilder contextBuilder;
 
 	@Before
 	public void setUp()
 	{
-		claudeClient = mock(ClaudeClient.class);
+		eventQueue = mock(CompanionEventQueue.class);
 		config = mock(OsrsAiCompanionConfig.class);
 		contextBuilder = mock(PlayerContextBuilder.class);
 		when(config.celebrateLevelUps()).thenReturn(true);
@@ -29,7 +29,7 @@ public class LevelUpEventHandlerTest
 		when(contextBuilder.formatSkillName(any())).thenReturn("Attack");
 		when(contextBuilder.getPlayerName()).thenReturn("Scrambles56");
 
-		handler = new LevelUpEventHandler(claudeClient, contextBuilder, config, () -> null);
+		handler = new LevelUpEventHandler(eventQueue, contextBuilder, config, () -> null);
 	}
 
 	@Test
@@ -46,7 +46,7 @@ public class LevelUpEventHandlerTest
 		}
 
 		// No messages should have been sent during cache init
-		verify(claudeClient, never()).sendMessage(contains("levelled up"), any());
+		verify(eventQueue, never()).submit(argThat(e -> e.getPrompt().contains("levelled up")));
 	}
 
 	@Test
@@ -57,7 +57,7 @@ public class LevelUpEventHandlerTest
 		// Now level up Attack to 70
 		handler.onStatChanged(statChanged(Skill.ATTACK, 70, 737_627));
 
-		verify(claudeClient, times(1)).sendMessage(contains("Attack"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("Attack")));
 	}
 
 	@Test
@@ -68,7 +68,7 @@ public class LevelUpEventHandlerTest
 		// Same level — XP gain only, no level change
 		handler.onStatChanged(statChanged(Skill.ATTACK, 70, 800_000));
 
-		verify(claudeClient, never()).sendMessage(contains("levelled up"), any());
+		verify(eventQueue, never()).submit(argThat(e -> e.getPrompt().contains("levelled up")));
 	}
 
 	@Test
@@ -79,7 +79,7 @@ public class LevelUpEventHandlerTest
 		// Cross the 50m milestone
 		handler.onStatChanged(statChanged(Skill.ATTACK, 99, 51_000_000L));
 
-		verify(claudeClient, times(1)).sendMessage(contains("50m"), any());
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getPrompt().contains("50m")));
 	}
 
 	@Test
@@ -88,10 +88,10 @@ public class LevelUpEventHandlerTest
 		simulateLogin(Skill.ATTACK, 99, 10_000_000L);
 
 		// XP gain but not crossing 50m — only the welcome message should have been sent (during login)
-		reset(claudeClient);
+		reset(eventQueue);
 		handler.onStatChanged(statChanged(Skill.ATTACK, 99, 20_000_000L));
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -107,21 +107,35 @@ public class LevelUpEventHandlerTest
 		handler.onStatChanged(statChanged(Skill.ATTACK, 71, 900_000));
 
 		// Still in init phase — no celebration
-		verify(claudeClient, never()).sendMessage(contains("levelled up"), any());
+		verify(eventQueue, never()).submit(argThat(e -> e.getPrompt().contains("levelled up")));
 	}
 
 	@Test
-	public void testNoMessageWhenApiCallInProgress()
+	public void testWelcomeAndLevelUpAreBothQueued()
 	{
-		// Use a separate handler with a real ClaudeClient stub that has apiCallInProgress=true
-		ClaudeClient busyClient = new BusyClaudeClient();
-		LevelUpEventHandler busyHandler = new LevelUpEventHandler(busyClient, contextBuilder, config, () -> null);
+		simulateLogin(Skill.ATTACK, 69);
+		handler.onStatChanged(statChanged(Skill.ATTACK, 70, 737_627));
+
+		// The level-up is no longer dropped while the welcome message is still in flight
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getType() == CompanionEvent.Type.WELCOME));
+		verify(eventQueue, times(1)).submit(argThat(e -> e.getType() == CompanionEvent.Type.LEVEL_UP
+			&& e.getDetail().equals("Attack to 70")));
+	}
+
+	@Test
+	public void testLoginSettledListenerRunsOncePerLogin()
+	{
+		Runnable listener = mock(Runnable.class);
+		handler.setLoginSettledListener(listener);
 
-		simulateLoginWith(busyHandler, Skill.ATTACK, 69);
-		busyHandler.onStatChanged(statChanged(Skill.ATTACK, 70, 737_627));
+		simulateLogin(Skill.ATTACK, 70);
+		// A loading screen re-sends LOGGED_IN without a new stat flood
+		simulateLogin(Skill.ATTACK, 70);
+		verify(listener, times(1)).run();
 
-		// No message should have been sent beyond the welcome message
-		assertEquals("Should have sent only the welcome message", 1, ((BusyClaudeClient) busyClient).messageCount);
+		handler.onGameStateChanged(gameStateChanged(GameState.LOGIN_SCREEN));
+		simulateLogin(Skill.ATTACK, 70);
+		verify(listener, times(2)).run();
 	}
 
 	// -------------------------------------------------------------------------
@@ -135,42 +149,13 @@ public class LevelUpEventHandlerTest
 
 	private void simulateLogin(Skill watchedSkill, int level, long xp)
 	{
-		simulateLoginWith(handler, watchedSkill, level, xp);
-	}
-
-	private void simulateLoginWith(LevelUpEventHandler h, Skill watchedSkill, int level)
-	{
-		simulateLoginWith(h, watchedSkill, level, 737_627L);
-	}
-
-	private void simulateLoginWith(LevelUpEventHandler h, Skill watchedSkill, int level, long xp)
-	{
-		h.onGameStateChanged(gameStateChanged(GameState.LOGGED_IN));
+		handler.onGameStateChanged(gameStateChanged(GameState.LOGGED_IN));
 		for (Skill skill : Skill.values())
 		{
 			if (skill == Skill.OVERALL) continue;
 			int lvl = skill == watchedSkill ? level : 1;
 			long skillXp = skill == watchedSkill ? xp : 0L;
-			h.onStatChanged(statChanged(skill, lvl, skillXp));
-		}
-	}
-
-	/** Stub ClaudeClient that always reports apiCallInProgress=true after the welcome message */
-	private static class BusyClaudeClient extends ClaudeClient
-	{
-		int messageCount = 0;
-
-		BusyClaudeClient()
-		{
-			super(null, new com.google.gson.Gson(), null, null, null, null);
-			apiCallInProgress = true;
-		}
-
-		@Override
-		public void sendMessage(String prompt, AiCompanionPanel panel)
-		{
-			messageCount++;
-			// First call is the welcome message — allow it and keep busy
+			handler.onStatChanged(statChanged(skill, lvl, skillXp));
 		}
 	}
 
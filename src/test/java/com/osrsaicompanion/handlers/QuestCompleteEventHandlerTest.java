@@ -19,7 +19,7 @@ import static org.mockito.Mockito.*;
 public class QuestCompleteEventHandlerTest
 {
 	private QuestCompleteEventHandler handler;
-	private ClaudeClient claudeClient;
+	private CompanionEventQueue eventQueue;
 	private OsrsAiCompanionConfig config;
 	private PlayerContextBuilder contextBuilder;
 	private Client client;
@@ -27,14 +27,14 @@ public class QuestCompleteEventHandlerTest
 	@Before
 	public void setUp()
 	{
-		claudeClient = mock(ClaudeClient.class);
+		eventQueue = mock(CompanionEventQueue.class);
 		config = mock(OsrsAiCompanionConfig.class);
 		contextBuilder = mock(PlayerContextBuilder.class);
 		client = mock(Client.class);
 		when(config.celebrateQuestCompletions()).thenReturn(true);
 		when(contextBuilder.getPlayerName()).thenReturn("Scrambles56");
 
-		handler = new QuestCompleteEventHandler(client, claudeClient, contextBuilder, config, () -> null);
+		handler = new QuestCompleteEventHandler(client, eventQueue, contextBuilder, config, () -> null);
 	}
 
 	@Test
@@ -64,7 +64,7 @@ public class QuestCompleteEventHandlerTest
 		// Tick without any varbit change — flag is false, no quest check
 		handler.onGameTick(new GameTick());
 
-		verify(claudeClient, never()).sendMessage(any(), any());
+		verify(eventQueue, never()).submit(any());
 	}
 
 	@Test
@@ -94,6 +94,20 @@ public class QuestCompleteEventHandlerTest
 		assertFalse("questVarbitChanged should not be set after logout", getVarbitChangedFlag());
 	}
 
+	@Test
+	public void testPromptQuestStatesForgottenOnLogout()
+	{
+		simulateLoginAndTick();
+		clearInvocations(contextBuilder);
+
+		handler.onVarbitChanged(new VarbitChanged());
+		handler.onGameTick(new GameTick());
+		verify(contextBuilder, never()).invalidateQuestStates();
+
+		handler.onGameStateChanged(gameStateChanged(GameState.LOGIN_SCREEN));
+		verify(contextBuilder).invalidateQuestStates();
+	}
+
 	@Test
 	public void testNeedsCacheInitSetOnLogin()
 	{
@@ -0,0 +1,118 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.stream.JsonReader;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class GePriceServiceTest
+{
+	private static final String LATEST = "{\"data\":{"
+		+ "\"4151\":{\"high\":1520000,\"highTime\":1700000000,\"low\":1490000,\"lowTime\":1700000010},"
+		+ "\"536\":{\"high\":2100,\"highTime\":1700000000,\"low\":2050,\"lowTime\":1700000000},"
+		+ "\"11840\":{\"high\":null,\"highTime\":null,\"low\":95000,\"lowTime\":1700000000}}}";
+
+	private final MockWebServer server = new MockWebServer();
+	private long now = 1_000_000L;
+	private GePriceService priceService;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		server.start();
+		priceService = new GePriceService(new OkHttpClient(), server.url("/osrs").toString(), () -> now);
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		server.shutdown();
+	}
+
+	@Test
+	public void testEveryItemIsAnsweredFromOneRequest() throws IOException
+	{
+		server.enqueue(new MockResponse().setBody(LATEST));
+
+		assertEquals(1_520_000, priceService.get(4151).getHigh());
+		assertEquals(2_050, priceService.get(536).getLow());
+		assertEquals(GePriceService.NONE, priceService.get(11840).getHigh());
+		assertEquals(95_000, priceService.get(11840).getLow());
+		assertNull(priceService.get(995));
+
+		assertEquals(1, server.getRequestCount());
+		assertEquals(3, priceService.size());
+	}
+
+	@Test
+	public void testOldPricesAreFetchedAgain() throws IOException
+	{
+		server.enqueue(new MockResponse().setBody(LATEST));
+		server.enqueue(new MockResponse().setBody("{\"data\":{\"4151\":{\"high\":1600000,\"low\":1550000}}}"));
+
+		assertEquals(1_520_000, priceService.get(4151).getHigh());
+		now += GePriceService.MAX_AGE_MS;
+
+		assertEquals(1_600_000, priceService.get(4151).getHigh());
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	public void testAFailedFetchIsReported() throws IOException
+	{
+		server.enqueue(new MockResponse().setResponseCode(503));
+
+		try
+		{
+			priceService.get(4151);
+			fail("Expected the failed fetch to be reported");
+		}
+		catch (IOException e)
+		{
+			assertEquals("HTTP 503", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testItemNamesAreFetchedOnceAndRetriedAfterAFailure()
+	{
+		server.enqueue(new MockResponse().setResponseCode(500));
+		server.enqueue(new MockResponse().setBody("[{\"id\":4151,\"name\":\"Abyssal whip\",\"members\":true}]"));
+
+		assertNull(priceService.getNameIndex());
+		assertNull("Not retried straight away", priceService.getNameIndex());
+		now += GePriceService.MAPPING_RETRY_MS;
+
+		assertEquals(4151, priceService.getNameIndex().find("abyssal whip").getId());
+		assertNotNull(priceService.getNameIndex());
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	public void testTableGrowsPastItsInitialSize() throws IOException
+	{
+		StringBuilder json = new StringBuilder("{\"data\":{");
+		for (int id = 0; id < 10_000; id++)
+		{
+			json.append(id == 0 ? "" : ",").append('"').append(id * 7).append("\":{\"high\":").append(id).append(",\"low\":null}");
+		}
+		json.append("}}");
+
+		GePriceService.PriceTable table = GePriceService.PriceTable.read(new JsonReader(new StringReader(json.toString())));
+
+		assertEquals(10_000, table.size());
+		for (int id = 0; id < 10_000; id++)
+		{
+			assertTrue(table.indexOf(id * 7) >= 0);
+		}
+		assertEquals(-1, table.indexOf(3));
+	}
+}
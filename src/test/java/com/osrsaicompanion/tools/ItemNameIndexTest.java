@@ -0,0 +1,75 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class ItemNameIndexTest
+{
+	private final ItemNameIndex index = new ItemNameIndex(
+		new int[]{4151, 536, 9, 8, 1115, 1127, 1079, 1333, 1135, 11802, 139, 2434},
+		new String[]{"Abyssal whip", "Dragon bones", "Iron gauntlets", "Iron full helm", "Iron platebody",
+			"Rune platebody", "Rune platelegs", "Rune scimitar", "Green d'hide body", "Armadyl godsword",
+			"Prayer potion(1)", "Prayer potion(4)"});
+
+	@Test
+	public void testExactNamesIgnoreCaseAndPunctuation()
+	{
+		assertEquals(536, index.find("dragon BONES").getId());
+		assertEquals(1135, index.find("green dhide body").getId());
+		assertEquals("Green d'hide body", index.find("Green d'hide body").getName());
+	}
+
+	@Test
+	public void testAliasesAreExpanded()
+	{
+		assertEquals(9, index.find("Iron gloves").getId());
+		assertEquals(8, index.find("iron helmet").getId());
+		assertEquals(1079, index.find("rune legs").getId());
+		assertEquals(4151, index.find("whip").getId());
+		assertEquals(11802, index.find("AGS").getId());
+		assertEquals(2434, index.find("prayer pot").getId());
+	}
+
+	@Test
+	public void testMisspellingsFindTheClosestName()
+	{
+		assertEquals(1333, index.find("rune scimmitar").getId());
+		assertEquals(536, index.find("dragon bnoes").getId());
+		assertEquals(4151, index.find("abysal whip").getId());
+		assertEquals(1127, index.find("rune platbody").getId());
+	}
+
+	@Test
+	public void testUnrelatedNamesAreNotMatched()
+	{
+		assertNull(index.find("Unobtainium sword"));
+		assertNull(index.find("twisted bow"));
+		assertNull(index.find("  "));
+	}
+
+	@Test
+	public void testReadsTheItemMapping() throws IOException
+	{
+		ItemNameIndex read = ItemNameIndex.read(new JsonReader(new StringReader(
+			"[{\"examine\":\"A weapon from the abyss.\",\"id\":4151,\"members\":true,\"lowalch\":48000,"
+				+ "\"limit\":70,\"value\":120001,\"highalch\":72000,\"icon\":\"Abyssal whip.png\",\"name\":\"Abyssal whip\"},"
+				+ "{\"id\":536,\"name\":\"Dragon bones\"}]")));
+
+		assertEquals(2, read.size());
+		assertEquals(4151, read.find("abyssal whip").getId());
+	}
+
+	@Test
+	public void testEditDistanceCountsTranspositionsOnce()
+	{
+		assertEquals(0, ItemNameIndex.distance("whip", "whip"));
+		assertEquals(1, ItemNameIndex.distance("bnoes", "bones"));
+		assertEquals(1, ItemNameIndex.distance("scimmitar", "scimitar"));
+		assertEquals(3, ItemNameIndex.distance("", "abc"));
+	}
+}
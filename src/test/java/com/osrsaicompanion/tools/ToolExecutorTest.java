@@ -0,0 +1,145 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import net.runelite.client.callback.ClientThread;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ToolExecutorTest
+{
+	private ClaudeTools claudeTools;
+	private ClientThread clientThread;
+	private ToolExecutor executor;
+
+	@Before
+	public void setUp()
+	{
+		claudeTools = mock(ClaudeTools.class);
+		clientThread = mock(ClientThread.class);
+		// Run client-thread tools inline
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArgument(0)).run();
+			return null;
+		}).when(clientThread).invokeLater(any(Runnable.class));
+		executor = new ToolExecutor(claudeTools, clientThread, 300);
+	}
+
+	@After
+	public void tearDown()
+	{
+		executor.shutdown();
+	}
+
+	@Test
+	public void testResultsComeBackInRequestOrder() throws Exception
+	{
+		when(claudeTools.execute(eq("get_ge_price"), any())).thenAnswer(invocation -> {
+			Thread.sleep(50);
+			return "Abyssal whip: 1,500,000 gp";
+		});
+		when(claudeTools.execute(eq("get_achievement_diary_status"), any())).thenReturn("Easy: 72/72");
+
+		JsonArray results = runRound(toolUse("a", "get_ge_price"), toolUse("b", "get_achievement_diary_status"));
+
+		assertEquals(2, results.size());
+		assertEquals("a", results.get(0).getAsJsonObject().get("tool_use_id").getAsString());
+		assertEquals("Abyssal whip: 1,500,000 gp", results.get(0).getAsJsonObject().get("content").getAsString());
+		assertEquals("b", results.get(1).getAsJsonObject().get("tool_use_id").getAsString());
+		assertFalse(results.get(1).getAsJsonObject().has("is_error"));
+		verify(clientThread, times(1)).invokeLater(any(Runnable.class));
+	}
+
+	@Test
+	public void testSlowToolIsAnsweredWithATimeout() throws Exception
+	{
+		when(claudeTools.execute(eq("search_wiki"), any())).thenAnswer(invocation -> {
+			Thread.sleep(10_000);
+			return "too late";
+		});
+		when(claudeTools.execute(eq("get_ge_price"), any())).thenReturn("Dragon bones: 2,000 gp");
+
+		long start = System.nanoTime();
+		JsonArray results = runRound(toolUse("a", "search_wiki"), toolUse("b", "get_ge_price"));
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue("Round should end at its deadline, took " + elapsedMs + "ms", elapsedMs < 5_000);
+		JsonObject timedOut = results.get(0).getAsJsonObject();
+		assertTrue(timedOut.get("is_error").getAsBoolean());
+		assertTrue(timedOut.get("content").getAsString().startsWith("Error: search_wiki"));
+		assertEquals("Dragon bones: 2,000 gp", results.get(1).getAsJsonObject().get("content").getAsString());
+	}
+
+	@Test
+	public void testToolExceptionBecomesAnErrorResult() throws Exception
+	{
+		when(claudeTools.execute(eq("get_ge_price"), any())).thenThrow(new IllegalStateException("boom"));
+
+		JsonObject result = runRound(toolUse("a", "get_ge_price")).get(0).getAsJsonObject();
+
+		assertTrue(result.get("is_error").getAsBoolean());
+		assertEquals("Error: get_ge_price failed", result.get("content").getAsString());
+	}
+
+	@Test
+	public void testRepeatedLookupIsServedFromTheCache() throws Exception
+	{
+		when(claudeTools.execute(eq("get_ge_price"), any())).thenReturn("Dragon bones: 2,000 gp");
+
+		runRound(toolUse("a", "get_ge_price"));
+		JsonObject second = runRound(toolUse("b", "get_ge_price")).get(0).getAsJsonObject();
+
+		assertEquals("b", second.get("tool_use_id").getAsString());
+		assertEquals("Dragon bones: 2,000 gp", second.get("content").getAsString());
+		verify(claudeTools, times(1)).execute(eq("get_ge_price"), any());
+		assertEquals(1, executor.getCache().getHits());
+	}
+
+	@Test
+	public void testCancellingARoundInterruptsRunningTools() throws Exception
+	{
+		CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+		when(claudeTools.execute(eq("search_wiki"), any())).thenAnswer(invocation -> {
+			try
+			{
+				Thread.sleep(10_000);
+				interrupted.complete(false);
+			}
+			catch (InterruptedException e)
+			{
+				interrupted.complete(true);
+			}
+			return "too late";
+		});
+
+		CompletableFuture<JsonArray> round = executor.executeRound(List.of(toolUse("a", "search_wiki")));
+		Thread.sleep(50);
+		round.cancel(true);
+
+		assertTrue(interrupted.get(5, TimeUnit.SECONDS));
+		assertEquals(0, executor.getCache().size());
+	}
+
+	private JsonArray runRound(JsonObject... blocks) throws Exception
+	{
+		return executor.executeRound(List.of(blocks)).get(5, TimeUnit.SECONDS);
+	}
+
+	private static JsonObject toolUse(String id, String name)
+	{
+		JsonObject block = new JsonObject();
+		block.addProperty("type", "tool_use");
+		block.addProperty("id", id);
+		block.addProperty("name", name);
+		block.add("input", new JsonObject());
+		return block;
+	}
+}
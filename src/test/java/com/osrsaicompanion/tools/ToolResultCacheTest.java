@@ -0,0 +1,100 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ToolResultCacheTest
+{
+	private long now = 1_000_000L;
+	private final ToolResultCache cache = new ToolResultCache(() -> now);
+
+	@Test
+	public void testInputIsNormalisedIntoTheKey()
+	{
+		cache.put("get_ge_price", input("item_name", "Dragon bones"), "Dragon bones: 2,000 gp");
+
+		assertEquals("Dragon bones: 2,000 gp", cache.get("get_ge_price", input("item_name", "  dragon   BONES ")));
+		assertNull(cache.get("search_wiki", input("item_name", "Dragon bones")));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testArrayInputIsNormalisedIntoTheKey()
+	{
+		JsonObject input = new JsonObject();
+		JsonArray names = new JsonArray();
+		names.add("Dragon bones");
+		names.add("Abyssal whip");
+		input.add("item_names", names);
+		cache.put("get_ge_prices", input, "Dragon bones: sell 2,000 gp");
+
+		JsonObject sameNames = new JsonObject();
+		JsonArray lowerCase = new JsonArray();
+		lowerCase.add(" dragon bones");
+		lowerCase.add("abyssal  WHIP");
+		sameNames.add("item_names", lowerCase);
+		assertEquals("Dragon bones: sell 2,000 gp", cache.get("get_ge_prices", sameNames));
+	}
+
+	@Test
+	public void testEachToolHasItsOwnLifetime()
+	{
+		cache.put("get_ge_price", input("item_name", "Dragon bones"), "2,000 gp");
+		cache.put("search_wiki", input("query", "Zulrah"), "Zulrah is a boss");
+
+		now += 61_000;
+
+		assertNull("GE prices go stale within a minute", cache.get("get_ge_price", input("item_name", "Dragon bones")));
+		assertEquals("Zulrah is a boss", cache.get("search_wiki", input("query", "Zulrah")));
+	}
+
+	@Test
+	public void testVarbitChangeInvalidatesGameStateTools()
+	{
+		cache.put("get_achievement_diary_status", null, "Easy: 10/72");
+		cache.put("search_wiki", input("query", "Zulrah"), "Zulrah is a boss");
+
+		cache.invalidateGameState();
+
+		assertNull(cache.get("get_achievement_diary_status", null));
+		assertNotNull(cache.get("search_wiki", input("query", "Zulrah")));
+	}
+
+	@Test
+	public void testErrorsAreNotCached()
+	{
+		cache.put("get_ge_price", input("item_name", "Dragon bones"), "GE price lookup failed: timeout");
+
+		assertNull(cache.get("get_ge_price", input("item_name", "Dragon bones")));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEntryIsEvicted()
+	{
+		for (int i = 0; i < ToolResultCache.MAX_ENTRIES; i++)
+		{
+			cache.put("search_wiki", input("query", "page " + i), "result " + i);
+		}
+		// Touch the oldest entry so the second-oldest becomes the eviction candidate
+		assertNotNull(cache.get("search_wiki", input("query", "page 0")));
+
+		cache.put("search_wiki", input("query", "one more"), "result");
+
+		assertEquals(ToolResultCache.MAX_ENTRIES, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertNotNull(cache.get("search_wiki", input("query", "page 0")));
+		assertNull(cache.get("search_wiki", input("query", "page 1")));
+	}
+
+	private static JsonObject input(String key, String value)
+	{
+		JsonObject input = new JsonObject();
+		input.addProperty(key, value);
+		return input;
+	}
+}
@@ -0,0 +1,116 @@
+package com.osrsaicompanion.tools;
+
+import com.google.gson.Gson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class WikiPageCacheTest
+{
+	private Path dir;
+	private long now = 1_000_000L;
+	private WikiPageCache cache;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		dir = Files.createTempDirectory("wiki-cache");
+		cache = new WikiPageCache(dir, new Gson(), () -> now);
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		try (Stream<Path> files = Files.walk(dir))
+		{
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testPagesAreFoundByAnySpellingOfTheQuery()
+	{
+		cache.put("Dragon Slayer", new WikiPageCache.Page("Dragon Slayer I", 101, "OSRS Wiki — Dragon Slayer I"));
+
+		WikiPageCache.Page page = cache.get("  dragon   slayer ");
+		assertEquals("Dragon Slayer I", page.getTitle());
+		assertEquals(101, page.getRevisionId());
+		assertEquals("OSRS Wiki — Dragon Slayer I", page.getContent());
+		assertTrue(page.isFresh());
+		assertNull(cache.get("Dragon Slayer II"));
+	}
+
+	@Test
+	public void testOldPagesAreStaleUntilRevalidated()
+	{
+		cache.put("Zulrah", new WikiPageCache.Page("Zulrah", 7, "Zulrah is a boss"));
+		now += WikiPageCache.FRESH_MS;
+
+		WikiPageCache.Page stale = cache.get("Zulrah");
+		assertFalse(stale.isFresh());
+		assertEquals("Zulrah is a boss", stale.getContent());
+
+		cache.revalidated("Zulrah");
+		assertTrue(cache.get("Zulrah").isFresh());
+	}
+
+	@Test
+	public void testPagesSurviveARestart()
+	{
+		cache.put("whip", new WikiPageCache.Page("Abyssal whip", 42, "A weapon from the abyss."));
+		now += WikiPageCache.FRESH_MS;
+
+		WikiPageCache reopened = new WikiPageCache(dir, new Gson(), () -> now);
+		WikiPageCache.Page page = reopened.get("Whip");
+		assertEquals(1, reopened.size());
+		assertEquals(42, page.getRevisionId());
+		assertEquals("A weapon from the abyss.", page.getContent());
+		assertFalse("Keeps when it was last checked", page.isFresh());
+	}
+
+	@Test
+	public void testAMissingPageFileIsTreatedAsAMiss() throws IOException
+	{
+		cache.put("Zulrah", new WikiPageCache.Page("Zulrah", 7, "Zulrah is a boss"));
+		try (Stream<Path> files = Files.list(dir))
+		{
+			files.filter(path -> path.toString().endsWith(".gz")).forEach(path -> path.toFile().delete());
+		}
+
+		assertNull(cache.get("Zulrah"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedPagesAreEvicted()
+	{
+		for (int i = 0; i < WikiPageCache.MAX_PAGES; i++)
+		{
+			cache.put("page " + i, new WikiPageCache.Page("Page " + i, i, "content " + i));
+		}
+		assertNotNull(cache.get("page 0"));
+
+		cache.put("one more", new WikiPageCache.Page("One more", 1, "content"));
+
+		assertEquals(WikiPageCache.MAX_PAGES, cache.size());
+		assertNotNull(cache.get("page 0"));
+		assertNull(cache.get("page 1"));
+	}
+
+	@Test
+	public void testWorksWithoutADirectory()
+	{
+		WikiPageCache memoryOnly = new WikiPageCache(null, new Gson(), () -> now);
+		memoryOnly.put("Zulrah", new WikiPageCache.Page("Zulrah", 7, "Zulrah is a boss"));
+
+		assertEquals("Zulrah is a boss", memoryOnly.get("zulrah").getContent());
+	}
+}